@@ -0,0 +1,318 @@
+package co.nomiva.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps up to `capacity` loaded ads of one format ready to show.
+// As soon as an ad is taken the pool starts loading a replacement, ads older than
+// their validity window are dropped, and failed loads retry with jittered
+// exponential backoff instead of a fixed delay. With a BatchScheduler the jitter range
+// becomes the retry's window, so retries go out together with other background work.
+// warm() skips a pending backoff when an ad is about to be needed.
+// All loading happens on the main thread (the Mobile Ads SDK requires it).
+// Lifecycle latencies (load, failed load, tap-to-screen, time on screen) also go to
+// the shared MetricsRegistry as ad.<format>.* histograms.
+public class AdPool<T> {
+
+    private static final String TAG = "AdPool";
+
+    // AdMob ads expire one hour after loading; drop them a bit earlier
+    private static final long DEFAULT_VALIDITY_MS = 55L * 60 * 1000;
+    private static final long BACKOFF_BASE_MS = 2000;
+    private static final long BACKOFF_MAX_MS = 5L * 60 * 1000;
+
+    // Loads one ad and reports back through the callback
+    public interface Loader<T> {
+        void load(Callback<T> callback);
+    }
+
+    public interface Callback<T> {
+        void onLoaded(T ad);
+
+        void onFailed(String error);
+    }
+
+    private static class Slot<T> {
+        final T ad;
+        final long loadedAt;
+
+        Slot(T ad, long loadedAt) {
+            this.ad = ad;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final int capacity;
+    private final long validityMs;
+    private final Loader<T> loader;
+    private final MetricsRegistry metrics;
+    private final String metricsPrefix;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private BatchScheduler retryScheduler;
+
+    // Only touched on the main thread
+    private final ArrayDeque<Slot<T>> ready = new ArrayDeque<>();
+    private boolean started = false;
+    private boolean loading = false;
+    private boolean retryScheduled = false;
+    private Runnable pendingRetry;
+    private boolean showing = false;
+    private boolean lastLoadFailed = false;
+    private int consecutiveFailures = 0;
+    private long shownAt = -1;
+
+    // Readable from any thread (the JS bridge runs on its own thread)
+    private final AdState state;
+
+    // Metrics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong shows = new AtomicLong();
+    private final AtomicLong emptyShows = new AtomicLong();
+    private final AtomicLong warms = new AtomicLong();
+    private final AtomicLong showLatencyTotalMs = new AtomicLong();
+    private final AtomicLong showLatencyMaxMs = new AtomicLong();
+
+    public AdPool(String name, int capacity, MetricsRegistry metrics, Loader<T> loader) {
+        this(name, capacity, DEFAULT_VALIDITY_MS, metrics, loader);
+    }
+
+    public AdPool(String name, int capacity, long validityMs, MetricsRegistry metrics, Loader<T> loader) {
+        this.name = name;
+        this.capacity = capacity;
+        this.validityMs = validityMs;
+        this.loader = loader;
+        this.metrics = metrics;
+        this.metricsPrefix = "ad." + name.toLowerCase(Locale.ROOT);
+        this.state = new AdState(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Retries go through `scheduler` instead of a main-thread timer. Call before start().
+    public void setRetryScheduler(BatchScheduler scheduler) {
+        this.retryScheduler = scheduler;
+    }
+
+    public AdState getState() {
+        return state;
+    }
+
+    // Starts filling the pool. Nothing is loaded before this. Safe to call from any thread.
+    public void start() {
+        handler.post(() -> {
+            started = true;
+            fill();
+        });
+    }
+
+    // An ad is likely to be requested soon (see Preloader): if none is ready, loads one now
+    // instead of waiting out a retry backoff. Safe to call from any thread.
+    public void warm() {
+        handler.post(() -> {
+            dropExpired();
+            if (!started || !ready.isEmpty() || loading) return;
+            warms.incrementAndGet();
+            if (retryScheduled) {
+                if (retryScheduler != null) {
+                    retryScheduler.cancel(retryJobId());
+                } else {
+                    handler.removeCallbacks(pendingRetry);
+                }
+                pendingRetry = null;
+                retryScheduled = false;
+            }
+            Log.d(TAG, name + " pool warmed");
+            fill();
+        });
+    }
+
+    // Takes the freshest valid ad, or null if none is ready. Main thread only.
+    public T take() {
+        dropExpired();
+        Slot<T> slot = ready.pollLast();
+        if (slot == null) {
+            emptyShows.incrementAndGet();
+            metrics.increment(metricsPrefix + ".emptyShow");
+        } else {
+            showing = true;
+        }
+        publishState();
+        // Refill in the background straight away
+        fill();
+        return slot != null ? slot.ad : null;
+    }
+
+    // The ad taken with take() has been dismissed or failed to show. Main thread only.
+    public void onShowFinished() {
+        if (shownAt >= 0) {
+            metrics.recordMs(metricsPrefix + ".onScreen", SystemClock.elapsedRealtime() - shownAt);
+            shownAt = -1;
+        }
+        showing = false;
+        publishState();
+    }
+
+    // Lock-free readiness check for the JS bridge (may include an ad that is about to expire)
+    public boolean hasReady() {
+        return state.snapshot().readyCount > 0;
+    }
+
+    public int readyCount() {
+        return state.snapshot().readyCount;
+    }
+
+    // Time from the user's tap to the ad being on screen. Main thread only.
+    public void recordShowLatency(long latencyMs) {
+        shownAt = SystemClock.elapsedRealtime();
+        metrics.recordMs(metricsPrefix + ".show", latencyMs);
+        shows.incrementAndGet();
+        showLatencyTotalMs.addAndGet(latencyMs);
+        long max;
+        do {
+            max = showLatencyMaxMs.get();
+        } while (latencyMs > max && !showLatencyMaxMs.compareAndSet(max, latencyMs));
+        Log.d(TAG, name + " ad shown " + latencyMs + "ms after request");
+    }
+
+    private void fill() {
+        dropExpired();
+        if (!started || loading || retryScheduled || ready.size() >= capacity) return;
+
+        loading = true;
+        publishState();
+        requests.incrementAndGet();
+        long loadStart = MetricsRegistry.start();
+        loader.load(new Callback<T>() {
+            @Override
+            public void onLoaded(T ad) {
+                metrics.recordSince(metricsPrefix + ".load", loadStart);
+                handler.post(() -> {
+                    loading = false;
+                    lastLoadFailed = false;
+                    consecutiveFailures = 0;
+                    fills.incrementAndGet();
+                    ready.addLast(new Slot<>(ad, SystemClock.elapsedRealtime()));
+                    publishState();
+                    Log.d(TAG, name + " ad loaded (" + ready.size() + "/" + capacity + " ready)");
+                    fill();
+                });
+            }
+
+            @Override
+            public void onFailed(String error) {
+                metrics.recordSince(metricsPrefix + ".loadFailed", loadStart);
+                handler.post(() -> {
+                    loading = false;
+                    lastLoadFailed = true;
+                    publishState();
+                    failures.incrementAndGet();
+                    consecutiveFailures++;
+                    retryScheduled = true;
+                    scheduleRetry(error);
+                });
+            }
+        });
+    }
+
+    // Equal jitter: uniform between half and all of the exponential delay, so retries keep
+    // a floor. The scheduler gets that whole range as the window and picks the moment itself.
+    private void scheduleRetry(String error) {
+        long capped = backoffCap(consecutiveFailures);
+        Runnable retry = new Runnable() {
+            @Override
+            public void run() {
+                // Superseded by warm()
+                if (pendingRetry != this) return;
+                pendingRetry = null;
+                retryScheduled = false;
+                fill();
+            }
+        };
+        pendingRetry = retry;
+        if (retryScheduler != null) {
+            Log.w(TAG, name + " ad failed to load (" + error + "), retrying in " + capped / 2 + "-" + capped + "ms");
+            retryScheduler.schedule(retryJobId(), "ad-retry", BatchScheduler.PRIORITY_NORMAL,
+                    BatchScheduler.NETWORK_ANY, capped / 2, capped, 0, (job, reason) -> handler.post(retry));
+            return;
+        }
+        long delay = capped / 2 + (long) (random.nextDouble() * (capped / 2));
+        Log.w(TAG, name + " ad failed to load (" + error + "), retrying in " + delay + "ms");
+        handler.postDelayed(retry, delay);
+    }
+
+    private String retryJobId() {
+        return "ad-retry-" + metricsPrefix;
+    }
+
+    private static long backoffCap(int failures) {
+        long exp = BACKOFF_BASE_MS << Math.min(failures - 1, 16);
+        return Math.min(exp, BACKOFF_MAX_MS);
+    }
+
+    private void dropExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Slot<T>> it = ready.iterator();
+        while (it.hasNext()) {
+            if (now - it.next().loadedAt > validityMs) {
+                it.remove();
+                expired.incrementAndGet();
+                metrics.increment(metricsPrefix + ".expired");
+            }
+        }
+        publishState();
+    }
+
+    // Derives the lifecycle phase from the pool's main-thread fields
+    private void publishState() {
+        AdState.Phase phase;
+        if (showing) {
+            phase = AdState.Phase.SHOWING;
+        } else if (!ready.isEmpty()) {
+            phase = AdState.Phase.READY;
+        } else if (loading) {
+            phase = AdState.Phase.LOADING;
+        } else if (lastLoadFailed) {
+            phase = AdState.Phase.FAILED;
+        } else {
+            phase = AdState.Phase.IDLE;
+        }
+        state.set(phase, ready.size());
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            long req = requests.get();
+            long shown = shows.get();
+            stats.put("ready", readyCount());
+            stats.put("capacity", capacity);
+            stats.put("requests", req);
+            stats.put("fills", fills.get());
+            stats.put("failures", failures.get());
+            stats.put("fillRate", req > 0 ? (double) fills.get() / req : 0);
+            stats.put("expired", expired.get());
+            stats.put("shows", shown);
+            stats.put("emptyShows", emptyShows.get());
+            stats.put("warms", warms.get());
+            stats.put("avgShowLatencyMs", shown > 0 ? showLatencyTotalMs.get() / shown : 0);
+            stats.put("maxShowLatencyMs", showLatencyMaxMs.get());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+}
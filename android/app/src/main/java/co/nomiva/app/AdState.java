@@ -0,0 +1,91 @@
+package co.nomiva.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lifecycle state of one ad format, readable from any thread without locking.
+// State, ready count and a transition counter are packed into a single AtomicLong,
+// so the JS bridge thread always sees a consistent snapshot of all three.
+public class AdState {
+
+    public enum Phase { IDLE, LOADING, READY, SHOWING, FAILED }
+
+    public interface Listener {
+        void onTransition(String format, Snapshot from, Snapshot to);
+    }
+
+    // Immutable decoded view of the packed state
+    public static final class Snapshot {
+        public final Phase phase;
+        public final int readyCount;
+        public final long version;
+
+        Snapshot(long packed) {
+            this.phase = Phase.values()[(int) (packed & PHASE_MASK)];
+            this.readyCount = (int) ((packed >>> READY_SHIFT) & READY_MASK);
+            this.version = packed >>> VERSION_SHIFT;
+        }
+
+        public boolean isReady() {
+            return phase == Phase.READY && readyCount > 0;
+        }
+
+        public JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("state", phase.name());
+            json.put("ready", readyCount);
+            json.put("version", version);
+            return json;
+        }
+    }
+
+    // Layout: [version:53][readyCount:8][phase:3]
+    private static final long PHASE_MASK = 0x7;
+    private static final int READY_SHIFT = 3;
+    private static final long READY_MASK = 0xFF;
+    private static final int VERSION_SHIFT = 11;
+
+    private final String format;
+    private final AtomicLong packed = new AtomicLong(pack(Phase.IDLE, 0, 0));
+    private volatile Listener listener;
+
+    public AdState(String format) {
+        this.format = format;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(packed.get());
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    // Moves to `phase` with the given ready count. No-op (and no notification) if nothing changed.
+    public void set(Phase phase, int readyCount) {
+        int ready = Math.max(0, Math.min(readyCount, (int) READY_MASK));
+        long current;
+        long next;
+        do {
+            current = packed.get();
+            Snapshot now = new Snapshot(current);
+            if (now.phase == phase && now.readyCount == ready) return;
+            next = pack(phase, ready, now.version + 1);
+        } while (!packed.compareAndSet(current, next));
+
+        Listener l = listener;
+        if (l != null) {
+            l.onTransition(format, new Snapshot(current), new Snapshot(next));
+        }
+    }
+
+    private static long pack(Phase phase, int readyCount, long version) {
+        return (version << VERSION_SHIFT) | ((readyCount & READY_MASK) << READY_SHIFT) | phase.ordinal();
+    }
+}
@@ -0,0 +1,420 @@
+package co.nomiva.app;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory stale-while-revalidate cache for the backend's read-mostly GET endpoints
+// (/auth/me, /auth/liked-assets, asset lists). Several modules ask for the same data on
+// every section switch; with this cache:
+//   - identical concurrent GETs share one upstream request
+//   - fresh entries are answered locally; stale ones are answered locally while a
+//     background request refreshes them
+//   - entries are scoped by the caller's credentials (Authorization header + cookies),
+//     so one user's responses are never served to another
+//   - any non-GET to the API drops the caller's entries, since it may have changed them
+// Nothing is written to disk. Pure Java so it can be tested against a local server.
+public class ApiCache {
+
+    private static final String TAG = "ApiCache";
+
+    private static final int MAX_ENTRIES = 64;
+    private static final int MAX_CACHEABLE_BYTES = 512 * 1024;
+    private static final int TIMEOUT_MS = 20000;
+
+    public interface CookieSink {
+        void setCookie(String url, String cookie);
+    }
+
+    interface Clock {
+        long now();
+    }
+
+    static final class Route {
+        final String path;
+        final long freshMs;
+        final long staleMs;
+
+        Route(String path, long freshMs, long staleMs) {
+            this.path = path;
+            this.freshMs = freshMs;
+            this.staleMs = staleMs;
+        }
+    }
+
+    // Paths relative to the API base, matched exactly (query strings are part of the key)
+    static final List<Route> ROUTES = Arrays.asList(
+            new Route("/auth/me", 10_000, 5 * 60_000),
+            new Route("/auth/liked-assets", 15_000, 10 * 60_000),
+            new Route("/assets", 60_000, 30 * 60_000),
+            new Route("/assets/admin/user-models", 15_000, 5 * 60_000));
+
+    public static final class Response {
+        public final int status;
+        public final String reason;
+        public final String mimeType;
+        public final String encoding;
+        public final Map<String, String> headers;
+        public final byte[] body;
+        final boolean cacheable;
+
+        Response(int status, String reason, String mimeType, String encoding,
+                 Map<String, String> headers, byte[] body, boolean cacheable) {
+            this.status = status;
+            this.reason = reason;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.body = body;
+            this.cacheable = cacheable;
+        }
+    }
+
+    private static final class Entry {
+        final Response response;
+        final long fetchedAt;
+
+        Entry(Response response, long fetchedAt) {
+            this.response = response;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static final class RouteStats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong staleHits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong revalidations = new AtomicLong();
+        final AtomicLong bypassed = new AtomicLong();
+    }
+
+    private final String apiBase;
+    private final String pageOrigin;
+    private final Executor revalidateExecutor;
+    private final CookieProvider cookies;
+    private final CookieSink cookieSink;
+    private final Clock clock;
+
+    // "scope url" -> entry, in access order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(32, 0.75f, true);
+    // Bumped by invalidate(); responses fetched under an older generation aren't stored
+    private final Map<String, Long> generations = new HashMap<>();
+    private final ConcurrentHashMap<String, FutureTask<Response>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ApiCache(String apiBase, String pageOrigin, Executor revalidateExecutor,
+                    CookieProvider cookies, CookieSink cookieSink) {
+        this(apiBase, pageOrigin, revalidateExecutor, cookies, cookieSink, System::currentTimeMillis);
+    }
+
+    ApiCache(String apiBase, String pageOrigin, Executor revalidateExecutor,
+             CookieProvider cookies, CookieSink cookieSink, Clock clock) {
+        this.apiBase = apiBase;
+        this.pageOrigin = pageOrigin;
+        this.revalidateExecutor = revalidateExecutor;
+        this.cookies = cookies;
+        this.cookieSink = cookieSink;
+        this.clock = clock;
+        for (Route route : ROUTES) {
+            stats.put(route.path, new RouteStats());
+        }
+    }
+
+    public boolean isApiRequest(String url) {
+        return url.startsWith(apiBase + "/");
+    }
+
+    static Route routeFor(String apiBase, String url) {
+        if (!url.startsWith(apiBase + "/")) return null;
+        String path = url.substring(apiBase.length());
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        int fragment = path.indexOf('#');
+        if (fragment >= 0) path = path.substring(0, fragment);
+        for (Route route : ROUTES) {
+            if (route.path.equals(path)) return route;
+        }
+        return null;
+    }
+
+    // Response for a GET, from cache or upstream. Null if the route isn't cached, in which
+    // case the caller should let the request through untouched.
+    public Response get(String url, Map<String, String> requestHeaders) throws IOException {
+        Route route = routeFor(apiBase, url);
+        if (route == null) return null;
+        RouteStats routeStats = stats.get(route.path);
+        String scope = scopeFor(url, requestHeaders);
+        String key = scope + " " + url;
+
+        if (wantsFreshCopy(requestHeaders)) {
+            routeStats.bypassed.incrementAndGet();
+        } else {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.get(key);
+            }
+            if (entry != null) {
+                long age = clock.now() - entry.fetchedAt;
+                if (age < route.freshMs) {
+                    routeStats.hits.incrementAndGet();
+                    return entry.response;
+                }
+                if (age < route.freshMs + route.staleMs) {
+                    routeStats.staleHits.incrementAndGet();
+                    revalidate(key, url, requestHeaders, scope, routeStats);
+                    return entry.response;
+                }
+            }
+        }
+        return load(key, url, requestHeaders, scope, routeStats, false);
+    }
+
+    // A mutation may change anything the caller can read; drop their entries
+    public void invalidate(String url, Map<String, String> requestHeaders) {
+        String scope = scopeFor(url, requestHeaders);
+        String prefix = scope + " ";
+        synchronized (this) {
+            generations.put(scope, generation(scope) + 1);
+            Iterator<String> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().startsWith(prefix)) it.remove();
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private void revalidate(String key, String url, Map<String, String> headers, String scope, RouteStats routeStats) {
+        if (inFlight.containsKey(key)) return;
+        revalidateExecutor.execute(() -> {
+            try {
+                load(key, url, headers, scope, routeStats, true);
+            } catch (IOException e) {
+                Log.d(TAG, "Revalidation failed for " + url + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private Response load(String key, String url, Map<String, String> headers, String scope,
+                          RouteStats routeStats, boolean background) throws IOException {
+        long generation;
+        synchronized (this) {
+            generation = generation(scope);
+        }
+        FutureTask<Response> task = new FutureTask<>(() -> fetch(url, headers));
+        FutureTask<Response> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            if (background) return null;
+            routeStats.coalesced.incrementAndGet();
+            task = existing;
+        } else {
+            if (background) {
+                routeStats.revalidations.incrementAndGet();
+            } else {
+                routeStats.misses.incrementAndGet();
+            }
+            try {
+                task.run();
+                Response response = task.get();
+                if (response.cacheable) {
+                    synchronized (this) {
+                        if (generation(scope) == generation) {
+                            entries.put(key, new Entry(response, clock.now()));
+                            trimLocked();
+                        }
+                    }
+                }
+            } catch (ExecutionException | InterruptedException ignored) {
+                // Reported to every waiter below
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+    }
+
+    private Response fetch(String url, Map<String, String> requestHeaders) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setInstanceFollowRedirects(true);
+        boolean hasOrigin = false;
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            String name = header.getKey();
+            // Let HttpURLConnection negotiate (and transparently decode) compression itself,
+            // and always ask for a full body: a 304 can't be handed back to the WebView
+            if ("Accept-Encoding".equalsIgnoreCase(name) || "Range".equalsIgnoreCase(name)
+                    || "If-None-Match".equalsIgnoreCase(name) || "If-Modified-Since".equalsIgnoreCase(name)) {
+                continue;
+            }
+            if ("Origin".equalsIgnoreCase(name)) hasOrigin = true;
+            conn.setRequestProperty(name, header.getValue());
+        }
+        // The server only adds CORS headers when it sees the page's origin
+        if (!hasOrigin && pageOrigin != null) conn.setRequestProperty("Origin", pageOrigin);
+        String cookie = cookies != null ? cookies.getCookies(url) : null;
+        if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+
+        try {
+            int code = conn.getResponseCode();
+            byte[] body;
+            try (InputStream in = code >= 400 ? conn.getErrorStream() : conn.getInputStream()) {
+                body = readAll(in);
+            }
+
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            boolean noStore = false;
+            for (Map.Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+                String name = header.getKey();
+                List<String> values = header.getValue();
+                if (name == null || values == null || values.isEmpty()) continue;
+                String lower = name.toLowerCase(Locale.ROOT);
+                if (lower.equals("set-cookie")) {
+                    if (cookieSink != null) {
+                        for (String value : values) cookieSink.setCookie(url, value);
+                    }
+                    continue;
+                }
+                // Body is already decoded and re-framed
+                if (lower.equals("content-length") || lower.equals("content-encoding")
+                        || lower.equals("transfer-encoding") || lower.equals("connection")) {
+                    continue;
+                }
+                if (lower.equals("cache-control") && values.get(0).toLowerCase(Locale.ROOT).contains("no-store")) {
+                    noStore = true;
+                }
+                StringBuilder joined = new StringBuilder(values.get(0));
+                for (int i = 1; i < values.size(); i++) joined.append(", ").append(values.get(i));
+                headers.put(name, joined.toString());
+            }
+            headers.put("Content-Length", String.valueOf(body.length));
+
+            String mimeType = "application/json";
+            String encoding = "utf-8";
+            String contentType = conn.getContentType();
+            if (contentType != null) {
+                String[] parts = contentType.split(";");
+                mimeType = parts[0].trim();
+                for (int i = 1; i < parts.length; i++) {
+                    String part = parts[i].trim();
+                    if (part.toLowerCase(Locale.ROOT).startsWith("charset=")) encoding = part.substring(8);
+                }
+            }
+            String reason = conn.getResponseMessage();
+            boolean cacheable = code == HttpURLConnection.HTTP_OK && !noStore && body.length <= MAX_CACHEABLE_BYTES;
+            return new Response(code, reason != null && !reason.isEmpty() ? reason : "OK",
+                    mimeType, encoding, headers, body, cacheable);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) return new byte[0];
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        byte[] buffer = new byte[8 * 1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean wantsFreshCopy(Map<String, String> headers) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey();
+            String value = header.getValue() != null ? header.getValue().toLowerCase(Locale.ROOT) : "";
+            if ("Cache-Control".equalsIgnoreCase(name) && (value.contains("no-cache") || value.contains("no-store"))) {
+                return true;
+            }
+            if ("Pragma".equalsIgnoreCase(name) && value.contains("no-cache")) return true;
+        }
+        return false;
+    }
+
+    // Who is asking: a hash of everything that identifies the user to the backend
+    private String scopeFor(String url, Map<String, String> headers) {
+        String auth = "";
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("Authorization".equalsIgnoreCase(header.getKey())) auth = header.getValue();
+        }
+        String cookie = cookies != null ? cookies.getCookies(url) : null;
+        return ModelCache.keyFor(auth + "\n" + (cookie != null ? cookie : "")).substring(0, 16);
+    }
+
+    private long generation(String scope) {
+        Long generation = generations.get(scope);
+        return generation != null ? generation : 0;
+    }
+
+    private void trimLocked() {
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject json = new JSONObject();
+        try {
+            JSONObject routes = new JSONObject();
+            long saved = 0;
+            for (Route route : ROUTES) {
+                RouteStats s = stats.get(route.path);
+                JSONObject r = new JSONObject();
+                r.put("hits", s.hits.get());
+                r.put("staleHits", s.staleHits.get());
+                r.put("misses", s.misses.get());
+                r.put("coalesced", s.coalesced.get());
+                r.put("revalidations", s.revalidations.get());
+                r.put("bypassed", s.bypassed.get());
+                routes.put(route.path, r);
+                // Every answer that didn't wait on its own upstream request
+                saved += s.hits.get() + s.staleHits.get() + s.coalesced.get();
+            }
+            json.put("routes", routes);
+            json.put("roundTripsSaved", saved);
+            json.put("invalidations", invalidations.get());
+            synchronized (this) {
+                json.put("entries", entries.size());
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,124 @@
+package co.nomiva.app;
+
+import android.util.Log;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+// WebView client that lets native caches answer requests before Capacitor does.
+// Anything we don't handle falls through to BridgeWebViewClient (local assets, plugins).
+public class AppWebViewClient extends BridgeWebViewClient {
+
+    private final ModelCache modelCache;
+    private final ModelStore modelStore;
+    private final ImagePreparer imagePreparer;
+    private final ThumbnailCache thumbnailCache;
+    private final ApiCache apiCache;
+    private final ModelLodCache modelLodCache;
+    private final BinaryTransport binaryTransport;
+    private Runnable onRendererGone;
+    private Runnable onNetworkRequest;
+
+    public AppWebViewClient(Bridge bridge, ModelCache modelCache, ModelStore modelStore,
+                            ImagePreparer imagePreparer, ThumbnailCache thumbnailCache, ApiCache apiCache,
+                            ModelLodCache modelLodCache, BinaryTransport binaryTransport) {
+        super(bridge);
+        this.modelCache = modelCache;
+        this.modelStore = modelStore;
+        this.imagePreparer = imagePreparer;
+        this.thumbnailCache = thumbnailCache;
+        this.apiCache = apiCache;
+        this.modelLodCache = modelLodCache;
+        this.binaryTransport = binaryTransport;
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        if ("localhost".equals(request.getUrl().getHost()) && path != null) {
+            if (path.startsWith(ModelStore.URL_PREFIX)) {
+                WebResourceResponse stored = modelStore.serve(path);
+                return stored != null ? stored : notFound();
+            }
+            if (path.startsWith(ModelLodCache.URL_PREFIX)) {
+                WebResourceResponse lod = modelLodCache.serve(path);
+                return lod != null ? lod : notFound();
+            }
+            if (path.startsWith(BinaryTransport.URL_PREFIX)) {
+                WebResourceResponse blob = binaryTransport.serve(request);
+                return blob != null ? blob : notFound();
+            }
+            if (path.startsWith(ImagePreparer.URL_PREFIX)) {
+                WebResourceResponse image = imagePreparer.serve(path);
+                return image != null ? image : notFound();
+            }
+        }
+        String url = request.getUrl().toString();
+        // The page is using the network, so the radio is (about to be) awake
+        if (onNetworkRequest != null && !"localhost".equals(request.getUrl().getHost())) onNetworkRequest.run();
+        if (apiCache.isApiRequest(url)) {
+            String method = request.getMethod();
+            if ("GET".equalsIgnoreCase(method)) {
+                WebResourceResponse api = serveApi(url, request.getRequestHeaders());
+                if (api != null) return api;
+            } else if (!"OPTIONS".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+                apiCache.invalidate(url, request.getRequestHeaders());
+            }
+        }
+        if (ModelCache.isModelRequest(request)) {
+            WebResourceResponse cached = modelCache.intercept(request);
+            if (cached != null) return cached;
+        }
+        if (ThumbnailCache.isThumbnailRequest(request)) {
+            WebResourceResponse thumbnail = thumbnailCache.intercept(request);
+            if (thumbnail != null) return thumbnail;
+        }
+        return super.shouldInterceptRequest(view, request);
+    }
+
+    // Called for every request that isn't for the app itself, before any native cache answers it
+    public void setOnNetworkRequest(Runnable onNetworkRequest) {
+        this.onNetworkRequest = onNetworkRequest;
+    }
+
+    // Called after the renderer dies; the activity rebuilds the WebView
+    public void setOnRendererGone(Runnable onRendererGone) {
+        this.onRendererGone = onRendererGone;
+    }
+
+    // API 26+. Without this the whole app process is killed along with the renderer.
+    @Override
+    public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+        Log.w("AppWebViewClient", "WebView renderer gone (crashed=" + detail.didCrash()
+                + ", priority=" + detail.rendererPriorityAtExit() + ")");
+        if (onRendererGone == null) return super.onRenderProcessGone(view, detail);
+        onRendererGone.run();
+        return true;
+    }
+
+    private WebResourceResponse serveApi(String url, Map<String, String> headers) {
+        ApiCache.Response response;
+        try {
+            response = apiCache.get(url, headers);
+        } catch (IOException e) {
+            Log.w("ApiCache", "Request failed for " + url + ": " + e.getMessage());
+            return null; // The WebView retries it and reports the real error
+        }
+        // WebResourceResponse can't carry redirects
+        if (response == null || (response.status >= 300 && response.status < 400)) return null;
+        return new WebResourceResponse(response.mimeType, response.encoding, response.status, response.reason,
+                response.headers, new ByteArrayInputStream(response.body));
+    }
+
+    private static WebResourceResponse notFound() {
+        return new WebResourceResponse("text/plain", "utf-8", 404, "Not Found", null, null);
+    }
+}
@@ -0,0 +1,329 @@
+package co.nomiva.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One timer for deferrable background work (sync, prefetch, ad retries, metrics flushes).
+// Each job says when it may run (notBefore..deadline) and what it needs. Instead of every
+// job waking the device and the radio on its own schedule, due jobs run together in windows:
+//   - a window opens at the earliest deadline, but no sooner than MIN_WINDOW_GAP_MS after
+//     the previous one (HIGH priority jobs excepted); every eligible job runs in it
+//   - when the page's own network traffic settles (TAIL_DELAY_MS after the last request,
+//     at most TAIL_MAX_WAIT_MS into a burst) a window opens if network jobs are waiting,
+//     so they use the radio while it is still awake and never compete with the page
+//   - jobs that need a network, or an unmetered one, wait until there is one
+//   - LOW priority jobs never open a window on a metered network or on low battery; on
+//     low battery they don't run at all, and NORMAL jobs get twice their slack
+// Scheduling a job with the id of a pending one merges them (the earlier deadline wins).
+// Tasks run one after another on the scheduler thread, so long work belongs on the
+// task owner's executor. Pure Java so the batching can be tested with a fake clock.
+public class BatchScheduler {
+
+    public static final int PRIORITY_HIGH = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_LOW = 2;
+
+    public static final int NETWORK_NONE = 0;
+    public static final int NETWORK_ANY = 1;
+    public static final int NETWORK_UNMETERED = 2;
+
+    static final long MIN_WINDOW_GAP_MS = 30_000;
+    static final long TAIL_DELAY_MS = 1500;
+    static final long TAIL_MAX_WAIT_MS = 10_000;
+
+    static final String REASON_DEADLINE = "deadline";
+    static final String REASON_PIGGYBACK = "piggyback";
+
+    public interface Task {
+        // `reason` is what opened the window ("deadline" or "piggyback")
+        void run(Job job, String reason);
+    }
+
+    public interface Conditions {
+        boolean isConnected();
+
+        boolean isUnmetered();
+
+        // Low and not charging, or battery saver on
+        boolean isBatteryLow();
+    }
+
+    interface Clock {
+        long now();
+    }
+
+    public static final class Job {
+        public final String id;
+        public final String tag;
+        public final int priority;
+        public final int network;
+        final long enqueuedAt;
+        final long notBefore;
+        final long deadline;
+        final long periodMs;
+        final Task task;
+
+        Job(String id, String tag, int priority, int network, long enqueuedAt, long notBefore, long deadline,
+            long periodMs, Task task) {
+            this.id = id;
+            this.tag = tag;
+            this.priority = priority;
+            this.network = network;
+            this.enqueuedAt = enqueuedAt;
+            this.notBefore = notBefore;
+            this.deadline = deadline;
+            this.periodMs = periodMs;
+            this.task = task;
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Conditions conditions;
+    private final Clock clock;
+
+    // Guarded by this
+    private final Map<String, Job> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> timer;
+    private long timerAt = Long.MAX_VALUE;
+    private long lastWindowAt = Long.MIN_VALUE / 2;
+    private long burstStartedAt = -1;
+    private long lastForegroundAt = Long.MIN_VALUE / 2;
+    private boolean shutdown = false;
+
+    private final AtomicLong windows = new AtomicLong();
+    private final AtomicLong piggybackWindows = new AtomicLong();
+    private final AtomicLong jobsRun = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Map<String, AtomicLong> runsByTag = new TreeMap<>();
+
+    public BatchScheduler(ScheduledExecutorService executor, Conditions conditions) {
+        this(executor, conditions, () -> System.nanoTime() / 1_000_000);
+    }
+
+    BatchScheduler(ScheduledExecutorService executor, Conditions conditions, Clock clock) {
+        this.executor = executor;
+        this.conditions = conditions;
+        this.clock = clock;
+    }
+
+    // Bridge names for priorities and network requirements; anything else gets the default
+    static int priorityFor(String name) {
+        if ("high".equals(name)) return PRIORITY_HIGH;
+        if ("low".equals(name)) return PRIORITY_LOW;
+        return PRIORITY_NORMAL;
+    }
+
+    static int networkFor(String name) {
+        if ("none".equals(name)) return NETWORK_NONE;
+        if ("unmetered".equals(name)) return NETWORK_UNMETERED;
+        return NETWORK_ANY;
+    }
+
+    // Runs `task` between delayMs and maxDelayMs from now, then every periodMs if that is
+    // positive (each later run also gets a window of half the period). Safe from any thread.
+    public void schedule(String id, String tag, int priority, int network, long delayMs, long maxDelayMs,
+                         long periodMs, Task task) {
+        long now = clock.now();
+        long notBefore = now + Math.max(0, delayMs);
+        long deadline = Math.max(notBefore, now + maxDelayMs);
+        synchronized (this) {
+            if (shutdown) return;
+            Job existing = pending.get(id);
+            if (existing != null) {
+                merged.incrementAndGet();
+                notBefore = Math.min(notBefore, existing.notBefore);
+                deadline = Math.min(deadline, existing.deadline);
+                priority = Math.min(priority, existing.priority);
+            }
+            pending.put(id, new Job(id, tag, priority, network, now, notBefore, deadline, periodMs, task));
+            reschedule();
+        }
+    }
+
+    public synchronized boolean cancel(String id) {
+        boolean removed = pending.remove(id) != null;
+        if (removed) reschedule();
+        return removed;
+    }
+
+    // The page (or native code on its behalf) just used the network
+    public synchronized void noteForegroundNetwork() {
+        long now = clock.now();
+        if (burstStartedAt < 0) burstStartedAt = now;
+        lastForegroundAt = now;
+        reschedule();
+    }
+
+    // Network or battery state changed; waiting jobs may be able to run now
+    public synchronized void conditionsChanged() {
+        reschedule();
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        pending.clear();
+        if (timer != null) timer.cancel(false);
+        timer = null;
+    }
+
+    private boolean networkAllows(Job job, boolean connected, boolean unmetered) {
+        if (job.network == NETWORK_UNMETERED) return unmetered;
+        return job.network == NETWORK_NONE || connected;
+    }
+
+    private boolean eligible(Job job, long at, boolean connected, boolean unmetered, boolean batteryLow) {
+        return job.notBefore <= at
+                && networkAllows(job, connected, unmetered)
+                && !(batteryLow && job.priority == PRIORITY_LOW);
+    }
+
+    // When `job` would open a window by itself; Long.MAX_VALUE if it only runs in windows
+    // opened by something else
+    private long triggerAt(Job job, boolean connected, boolean unmetered, boolean batteryLow) {
+        if (!networkAllows(job, connected, unmetered)) return Long.MAX_VALUE;
+        if (job.priority == PRIORITY_LOW && (batteryLow || (job.network != NETWORK_NONE && !unmetered))) {
+            return Long.MAX_VALUE;
+        }
+        long at = job.deadline;
+        if (batteryLow && job.priority == PRIORITY_NORMAL) at += job.deadline - job.enqueuedAt;
+        if (job.priority != PRIORITY_HIGH) at = Math.max(at, lastWindowAt + MIN_WINDOW_GAP_MS);
+        return at;
+    }
+
+    // When the radio is expected to be idle again after the page's current burst
+    private long tailAt() {
+        if (burstStartedAt < 0) return Long.MAX_VALUE;
+        return Math.min(lastForegroundAt + TAIL_DELAY_MS, burstStartedAt + TAIL_MAX_WAIT_MS);
+    }
+
+    // Time of the next window, Long.MAX_VALUE if nothing can open one
+    synchronized long nextWindowAt() {
+        boolean connected = conditions.isConnected();
+        boolean unmetered = conditions.isUnmetered();
+        boolean batteryLow = conditions.isBatteryLow();
+        long next = Long.MAX_VALUE;
+        boolean highDue = false;
+        for (Job job : pending.values()) {
+            long at = triggerAt(job, connected, unmetered, batteryLow);
+            if (at < next) {
+                next = at;
+                highDue = job.priority == PRIORITY_HIGH;
+            }
+        }
+        long tail = tailAt();
+        if (tail != Long.MAX_VALUE) {
+            for (Job job : pending.values()) {
+                if (job.network != NETWORK_NONE && eligible(job, tail, connected, unmetered, batteryLow)) {
+                    next = Math.min(next, tail);
+                    break;
+                }
+            }
+            // Keep deferrable windows out of the way of the page's own requests
+            if (!highDue && next != Long.MAX_VALUE && next < tail) next = Math.min(tail, next + TAIL_MAX_WAIT_MS);
+        }
+        return next;
+    }
+
+    private void reschedule() {
+        if (shutdown) return;
+        long next = nextWindowAt();
+        // An early timer just re-evaluates when it fires, so it only needs replacing when
+        // the next window moved earlier
+        if (timer != null && timerAt <= next) return;
+        if (timer != null) timer.cancel(false);
+        timer = null;
+        timerAt = next;
+        if (next == Long.MAX_VALUE) return;
+        timer = executor.schedule(this::runDue, Math.max(0, next - clock.now()), TimeUnit.MILLISECONDS);
+    }
+
+    // Timer callback: opens a window if one is due, otherwise sets the timer again
+    void runDue() {
+        List<Job> batch = new ArrayList<>();
+        String reason;
+        synchronized (this) {
+            timer = null;
+            timerAt = Long.MAX_VALUE;
+            if (shutdown) return;
+            long now = clock.now();
+            long tail = tailAt();
+            boolean burstOver = tail <= now;
+            long next = nextWindowAt();
+            if (next > now) {
+                // A burst with nothing to piggyback on it
+                if (burstOver) burstStartedAt = -1;
+                reschedule();
+                return;
+            }
+            reason = burstOver && next >= tail ? REASON_PIGGYBACK : REASON_DEADLINE;
+
+            boolean connected = conditions.isConnected();
+            boolean unmetered = conditions.isUnmetered();
+            boolean batteryLow = conditions.isBatteryLow();
+            Iterator<Job> it = pending.values().iterator();
+            List<Job> repeats = new ArrayList<>();
+            while (it.hasNext()) {
+                Job job = it.next();
+                if (!eligible(job, now, connected, unmetered, batteryLow)) continue;
+                it.remove();
+                batch.add(job);
+                if (job.periodMs > 0) {
+                    repeats.add(new Job(job.id, job.tag, job.priority, job.network, now, now + job.periodMs / 2,
+                            now + job.periodMs, job.periodMs, job.task));
+                }
+            }
+            for (Job job : repeats) pending.put(job.id, job);
+            lastWindowAt = now;
+            burstStartedAt = -1;
+            windows.incrementAndGet();
+            if (REASON_PIGGYBACK.equals(reason)) piggybackWindows.incrementAndGet();
+            for (Job job : batch) {
+                AtomicLong runs = runsByTag.get(job.tag);
+                if (runs == null) runsByTag.put(job.tag, runs = new AtomicLong());
+                runs.incrementAndGet();
+            }
+        }
+        for (Job job : batch) {
+            try {
+                job.task.run(job, reason);
+                jobsRun.incrementAndGet();
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        }
+        synchronized (this) {
+            reschedule();
+        }
+    }
+
+    public synchronized JSONObject getStats() throws JSONException {
+        JSONObject stats = new JSONObject();
+        long windowCount = windows.get();
+        stats.put("pending", pending.size());
+        stats.put("windows", windowCount);
+        stats.put("piggybackWindows", piggybackWindows.get());
+        stats.put("jobsRun", jobsRun.get());
+        stats.put("jobsPerWindow", windowCount > 0 ? (double) jobsRun.get() / windowCount : 0);
+        stats.put("merged", merged.get());
+        stats.put("failures", failures.get());
+        stats.put("nextWindowInMs", timerAt != Long.MAX_VALUE ? Math.max(0, timerAt - clock.now()) : -1);
+        JSONObject tags = new JSONObject();
+        for (Map.Entry<String, AtomicLong> entry : runsByTag.entrySet()) {
+            tags.put(entry.getKey(), entry.getValue().get());
+        }
+        stats.put("runsByTag", tags);
+        return stats;
+    }
+}
@@ -0,0 +1,123 @@
+package co.nomiva.app;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A MessagePort between the page and native code that carries ArrayBuffers, for small
+// binary messages where a fetch() would be overkill. The page asks for it with
+// AndroidAds.openBinaryChannel() and receives the port in a window "message" event whose
+// data is PORT_MESSAGE. Each message starts with a type byte; the rest is the payload.
+// Files sent by the page come as chunk messages: [type][flags][id length][id][bytes], the
+// last one with FLAG_LAST set.
+// Needs a WebView with ArrayBuffer message support (androidx.webkit feature check);
+// without it open() returns false and the page stays on the string bridge.
+public class BinaryChannel {
+
+    private static final String TAG = "BinaryChannel";
+
+    static final String PORT_MESSAGE = "nomiva-binary-port";
+
+    // Message types (first byte)
+    static final byte TYPE_ECHO = 1;
+    static final byte TYPE_IMAGE_CHUNK = 2;
+
+    static final int FLAG_LAST = 1;
+
+    public interface Listener {
+        // Called on the main thread with the type byte and the whole message
+        void onMessage(byte type, byte[] message);
+    }
+
+    private final WebView webView;
+    private final Uri targetOrigin;
+    private WebMessagePortCompat port;
+    private Listener listener;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    public BinaryChannel(WebView webView, String localUrl) {
+        this.webView = webView;
+        this.targetOrigin = Uri.parse(localUrl);
+    }
+
+    public static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+    }
+
+    // Id of a chunk message, or null if the header is malformed
+    static String chunkId(byte[] message) {
+        if (message.length < 3 || message.length < 3 + (message[2] & 0xFF)) return null;
+        return new String(message, 3, message[2] & 0xFF, StandardCharsets.US_ASCII);
+    }
+
+    static int chunkDataOffset(byte[] message) {
+        return 3 + (message[2] & 0xFF);
+    }
+
+    static boolean isLastChunk(byte[] message) {
+        return (message[1] & FLAG_LAST) != 0;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Main thread. Replaces any previous channel (the page asks again after a reload).
+    public boolean open() {
+        if (!isSupported()) return false;
+        close();
+        WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+        port = ports[0];
+        port.setWebMessageCallback(new WebMessagePortCompat.WebMessageCallbackCompat() {
+            @Override
+            public void onMessage(WebMessagePortCompat from, WebMessageCompat message) {
+                if (message == null || message.getType() != WebMessageCompat.TYPE_ARRAY_BUFFER) return;
+                byte[] bytes = message.getArrayBuffer();
+                if (bytes.length == 0) return;
+                received.incrementAndGet();
+                if (listener != null) listener.onMessage(bytes[0], bytes);
+            }
+        });
+        WebViewCompat.postWebMessage(webView, new WebMessageCompat(PORT_MESSAGE, new WebMessagePortCompat[]{ports[1]}),
+                targetOrigin);
+        Log.d(TAG, "Binary channel opened");
+        return true;
+    }
+
+    // Main thread. False when no channel is open.
+    public boolean send(byte[] message) {
+        if (port == null) return false;
+        port.postMessage(new WebMessageCompat(message));
+        sent.incrementAndGet();
+        return true;
+    }
+
+    public void close() {
+        if (port != null) {
+            port.close();
+            port = null;
+        }
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+}
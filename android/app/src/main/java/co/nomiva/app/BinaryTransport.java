@@ -0,0 +1,269 @@
+package co.nomiva.app;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands native bytes to the page without going through JavascriptInterface strings.
+// publish() registers a file or buffer under /_native/blobs/<id> on the app origin
+// (same origin, so no CORS) and the page reads it with fetch(): the body streams from
+// the file or the byte[] as it is, into an ArrayBuffer, with no base64 or JS string copy.
+// Range requests get 206 partial content, so large files can be read in pieces.
+// Entries live until released or for TTL_MS; buffers are capped at MAX_BUFFER_BYTES.
+public class BinaryTransport {
+
+    private static final String TAG = "BinaryTransport";
+
+    public static final String URL_PREFIX = "/_native/blobs/";
+
+    private static final long TTL_MS = 5 * 60 * 1000;
+    private static final long MAX_BUFFER_BYTES = 32L * 1024 * 1024;
+
+    private static class Entry {
+        final File file;
+        final byte[] bytes;
+        final String mimeType;
+        final long expiresAt;
+
+        Entry(File file, byte[] bytes, String mimeType) {
+            this.file = file;
+            this.bytes = bytes;
+            this.mimeType = mimeType != null ? mimeType : "application/octet-stream";
+            this.expiresAt = SystemClock.elapsedRealtime() + TTL_MS;
+        }
+
+        long length() {
+            return bytes != null ? bytes.length : file.length();
+        }
+    }
+
+    // Insertion order, so the oldest buffers go first when over the cap
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long bufferBytes;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong partial = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    // Local URL path for a file; the file must stay in place while the page reads it
+    public String publish(File file, String mimeType) {
+        return put(new Entry(file, null, mimeType));
+    }
+
+    // Local URL path for a buffer; the array is served as is, so don't modify it afterwards
+    public String publish(byte[] bytes, String mimeType) {
+        return put(new Entry(null, bytes, mimeType));
+    }
+
+    private synchronized String put(Entry entry) {
+        pruneExpired();
+        String id = UUID.randomUUID().toString();
+        entries.put(id, entry);
+        if (entry.bytes != null) {
+            bufferBytes += entry.bytes.length;
+            dropBuffersOver(MAX_BUFFER_BYTES, entry);
+        }
+        return URL_PREFIX + id;
+    }
+
+    // Drops the oldest buffers (never `keep`) until they total at most `limit` bytes
+    private void dropBuffersOver(long limit, Entry keep) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (bufferBytes > limit && it.hasNext()) {
+            Entry oldest = it.next().getValue();
+            if (oldest.bytes == null || oldest == keep) continue;
+            bufferBytes -= oldest.bytes.length;
+            it.remove();
+        }
+    }
+
+    // Memory pressure: keeps at most `fraction` of the buffer cap; file entries stay
+    public synchronized void trimBuffers(float fraction) {
+        pruneExpired();
+        dropBuffersOver((long) (MAX_BUFFER_BYTES * fraction), null);
+    }
+
+    // Accepts the path publish() returned or the full URL built from it
+    public synchronized boolean release(String url) {
+        int at = url != null ? url.indexOf(URL_PREFIX) : -1;
+        if (at < 0) return false;
+        Entry removed = entries.remove(url.substring(at + URL_PREFIX.length()));
+        if (removed != null && removed.bytes != null) bufferBytes -= removed.bytes.length;
+        return removed != null;
+    }
+
+    private void pruneExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAt < now) {
+                if (entry.bytes != null) bufferBytes -= entry.bytes.length;
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized Entry lookup(String id) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.expiresAt < SystemClock.elapsedRealtime()) {
+            pruneExpired();
+            return null;
+        }
+        return entry;
+    }
+
+    // Called on the WebView's IO thread for /_native/blobs/ paths
+    public WebResourceResponse serve(WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        Entry entry = lookup(path.substring(URL_PREFIX.length()));
+        if (entry == null) return null;
+        long length = entry.length();
+
+        String rangeHeader = null;
+        for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+            if ("Range".equalsIgnoreCase(header.getKey())) rangeHeader = header.getValue();
+        }
+        long[] range = parseRange(rangeHeader, length);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept-Ranges", "bytes");
+        headers.put("Cache-Control", "no-store");
+        if (range == UNSATISFIABLE) {
+            headers.put("Content-Range", "bytes */" + length);
+            return new WebResourceResponse("text/plain", "utf-8", 416, "Range Not Satisfiable", headers, null);
+        }
+        long start = range != null ? range[0] : 0;
+        long count = range != null ? range[1] - range[0] + 1 : length;
+        headers.put("Content-Length", String.valueOf(count));
+        if (range != null) headers.put("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+
+        InputStream body;
+        try {
+            body = "HEAD".equalsIgnoreCase(request.getMethod()) ? null : open(entry, start, count);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not open " + path + ": " + e.getMessage());
+            return null;
+        }
+        served.incrementAndGet();
+        if (range != null) partial.incrementAndGet();
+        bytesServed.addAndGet(body != null ? count : 0);
+        return range != null
+                ? new WebResourceResponse(entry.mimeType, null, 206, "Partial Content", headers, body)
+                : new WebResourceResponse(entry.mimeType, null, 200, "OK", headers, body);
+    }
+
+    private static InputStream open(Entry entry, long start, long count) throws IOException {
+        if (entry.bytes != null) return new ByteArrayInputStream(entry.bytes, (int) start, (int) count);
+        FileInputStream in = new FileInputStream(entry.file);
+        try {
+            in.getChannel().position(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, count);
+    }
+
+    static final long[] UNSATISFIABLE = new long[0];
+
+    // Inclusive [first, last] for a single "bytes=" range, null to send everything
+    // (no header, or a form we don't handle, such as multiple ranges), UNSATISFIABLE for 416
+    static long[] parseRange(String header, long length) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long first;
+            long last;
+            if (from.isEmpty()) {
+                // Suffix: the last N bytes
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) return UNSATISFIABLE;
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(from);
+                if (!to.isEmpty() && Long.parseLong(to) < first) return null; // Invalid, so ignored
+                last = to.isEmpty() ? length - 1 : Math.min(Long.parseLong(to), length - 1);
+            }
+            if (first >= length || length == 0) return UNSATISFIABLE;
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (this) {
+                stats.put("entries", entries.size());
+                stats.put("bufferBytes", bufferBytes);
+            }
+            stats.put("served", served.get());
+            stats.put("partial", partial.get());
+            stats.put("bytesServed", bytesServed.get());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    // Stops after `remaining` bytes
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
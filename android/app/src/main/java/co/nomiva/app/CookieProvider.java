@@ -0,0 +1,7 @@
+package co.nomiva.app;
+
+// Supplies the Cookie header for a URL. The backend authenticates with cookies, so
+// native HTTP clients borrow the WebView's (CookieManager in the app, a stub in tests).
+public interface CookieProvider {
+    String getCookies(String url);
+}
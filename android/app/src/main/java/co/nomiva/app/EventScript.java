@@ -0,0 +1,41 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Serialization for NativeEventChannel: the event objects and the script that hands a
+// batch to the page. Plain Java (org.json only) so it can be measured off-device.
+final class EventScript {
+
+    private static final String DISPATCH_PREFIX =
+            "(function(b){var c=window.AdManagerAndroidCallbacks;" +
+                    "if(c&&typeof c.dispatch==='function'){c.dispatch(b);}" +
+                    "else{window.dispatchEvent(new CustomEvent('androidnative',{detail:b}));}})(";
+    private static final String DISPATCH_SUFFIX = ");";
+    private static final String LINE_SEPARATOR = String.valueOf((char) 0x2028);
+    private static final String PARAGRAPH_SEPARATOR = String.valueOf((char) 0x2029);
+
+    private EventScript() {
+    }
+
+    static JSONObject event(String type, JSONObject data, long ts) throws JSONException {
+        JSONObject event = new JSONObject();
+        event.put("type", type);
+        event.put("data", data != null ? data : new JSONObject());
+        event.put("ts", ts);
+        return event;
+    }
+
+    // Script for evaluateJavascript() that delivers the batch
+    static String dispatch(JSONArray batch) {
+        return DISPATCH_PREFIX + toScriptLiteral(batch) + DISPATCH_SUFFIX;
+    }
+
+    // JSON is valid JS except for raw U+2028/U+2029 inside strings on older engines
+    static String toScriptLiteral(JSONArray batch) {
+        return batch.toString()
+                .replace(LINE_SEPARATOR, "\\u2028")
+                .replace(PARAGRAPH_SEPARATOR, "\\u2029");
+    }
+}
@@ -0,0 +1,210 @@
+package co.nomiva.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Polls the backend's /status/:taskId endpoint for running generations from a native
+// thread, so progress keeps updating while the WebView is paused or backgrounded.
+// The interval adapts to the job: slow early on, fast near completion, and backs off
+// on errors. Kept free of Android classes so it can be tested against a local server.
+public class GenerationTracker {
+
+    public interface Listener {
+        void onProgress(String taskId, String status, int progress, JSONObject response);
+
+        void onComplete(String taskId, JSONObject response);
+
+        void onFailed(String taskId, String error);
+    }
+
+    private static final long DEFAULT_UNIT_MS = 1000;
+    private static final int MAX_CONSECUTIVE_ERRORS = 8;
+    private static final long MAX_DURATION_MS = 30L * 60 * 1000;
+    private static final int TIMEOUT_MS = 15000;
+
+    private final ScheduledExecutorService scheduler;
+    private final CookieProvider cookies;
+    private final Listener listener;
+    private final long unitMs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private class Job {
+        final String taskId;
+        final String statusUrl;
+        final long startedAt = System.currentTimeMillis();
+        volatile int progress = 0;
+        volatile String status = "PENDING";
+        volatile JSONObject lastResponse;
+        int consecutiveErrors = 0;
+        int polls = 0;
+        volatile ScheduledFuture<?> next;
+        volatile boolean cancelled = false;
+
+        Job(String taskId, String statusUrl) {
+            this.taskId = taskId;
+            this.statusUrl = statusUrl;
+        }
+    }
+
+    public GenerationTracker(ScheduledExecutorService scheduler, CookieProvider cookies, Listener listener) {
+        this(scheduler, cookies, listener, DEFAULT_UNIT_MS);
+    }
+
+    // unitMs scales every interval (1 unit = the fastest poll); tests use a small unit
+    GenerationTracker(ScheduledExecutorService scheduler, CookieProvider cookies, Listener listener, long unitMs) {
+        this.scheduler = scheduler;
+        this.cookies = cookies;
+        this.listener = listener;
+        this.unitMs = unitMs;
+    }
+
+    // Starts tracking a task; tracking the same task again restarts it
+    public void track(String taskId, String statusUrl) {
+        cancel(taskId);
+        Job job = new Job(taskId, statusUrl);
+        jobs.put(taskId, job);
+        job.next = scheduler.schedule(() -> poll(job), 0, TimeUnit.MILLISECONDS);
+    }
+
+    public void cancel(String taskId) {
+        Job job = jobs.remove(taskId);
+        if (job != null) {
+            job.cancelled = true;
+            ScheduledFuture<?> next = job.next;
+            if (next != null) next.cancel(false);
+        }
+    }
+
+    public void cancelAll() {
+        for (String taskId : jobs.keySet()) {
+            cancel(taskId);
+        }
+    }
+
+    public boolean isTracking(String taskId) {
+        return jobs.containsKey(taskId);
+    }
+
+    // Latest known state, so the page can catch up after being paused
+    public JSONObject getStatus(String taskId) throws JSONException {
+        Job job = jobs.get(taskId);
+        JSONObject json = new JSONObject();
+        json.put("taskId", taskId);
+        json.put("tracking", job != null);
+        if (job != null) {
+            json.put("status", job.status);
+            json.put("progress", job.progress);
+            json.put("polls", job.polls);
+            if (job.lastResponse != null) json.put("response", job.lastResponse);
+        }
+        return json;
+    }
+
+    private void poll(Job job) {
+        if (job.cancelled) return;
+        job.polls++;
+
+        if (System.currentTimeMillis() - job.startedAt > MAX_DURATION_MS) {
+            finish(job);
+            listener.onFailed(job.taskId, "Generation timed out");
+            return;
+        }
+
+        JSONObject response;
+        try {
+            response = fetch(job.statusUrl);
+        } catch (IOException | JSONException e) {
+            job.consecutiveErrors++;
+            if (job.consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+                finish(job);
+                listener.onFailed(job.taskId, "Failed to get status: " + e.getMessage());
+            } else {
+                scheduleNext(job);
+            }
+            return;
+        }
+        job.consecutiveErrors = 0;
+        job.lastResponse = response;
+        job.status = response.optString("status", job.status);
+        job.progress = response.optInt("progress", job.progress);
+
+        if (job.cancelled) return;
+        switch (job.status) {
+            case "SUCCEEDED":
+                finish(job);
+                listener.onComplete(job.taskId, response);
+                break;
+            case "FAILED":
+            case "EXPIRED":
+                finish(job);
+                listener.onFailed(job.taskId, "Generation " + job.status.toLowerCase(Locale.ROOT));
+                break;
+            default:
+                listener.onProgress(job.taskId, job.status, job.progress, response);
+                scheduleNext(job);
+        }
+    }
+
+    private void scheduleNext(Job job) {
+        if (job.cancelled) return;
+        job.next = scheduler.schedule(() -> poll(job),
+                nextDelayMs(job.progress, job.consecutiveErrors), TimeUnit.MILLISECONDS);
+    }
+
+    private void finish(Job job) {
+        jobs.remove(job.taskId, job);
+        job.cancelled = true;
+    }
+
+    // Meshy jobs spend most of their time in the middle; poll rarely early, often at the end
+    long nextDelayMs(int progress, int consecutiveErrors) {
+        if (consecutiveErrors > 0) {
+            long backoff = 2 * unitMs << Math.min(consecutiveErrors - 1, 4);
+            return Math.min(backoff, 30 * unitMs);
+        }
+        if (progress >= 85) return unitMs;
+        if (progress >= 40) return 3 * unitMs;
+        return 5 * unitMs;
+    }
+
+    private JSONObject fetch(String statusUrl) throws IOException, JSONException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(statusUrl).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("Accept", "application/json");
+        String cookie = cookies != null ? cookies.getCookies(statusUrl) : null;
+        if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code);
+            }
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    body.write(buffer, 0, n);
+                }
+                return new JSONObject(new String(body.toByteArray(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+}
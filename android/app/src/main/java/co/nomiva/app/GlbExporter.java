@@ -0,0 +1,517 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Converts a GLB to Wavefront OBJ (+ MTL and base color textures) or binary STL.
+// Every mesh instance in the default scene is written with its node's world transform.
+// Accessors are read from the file CHUNK elements at a time and written straight out,
+// so memory stays flat whatever the model size; only STL needs one primitive's
+// positions at hand, because its indices can point anywhere.
+public class GlbExporter {
+
+    // Elements read per file access
+    static final int CHUNK = 8192;
+
+    private static final int MODE_TRIANGLES = 4;
+    private static final int STL_TRIANGLE_BYTES = 50;
+
+    private final GlbFile glb;
+    private final List<Instance> instances = new ArrayList<>();
+
+    // One mesh placed in the scene
+    private static class Instance {
+        final int mesh;
+        final double[] matrix;
+
+        Instance(int mesh, double[] matrix) {
+            this.mesh = mesh;
+            this.matrix = matrix;
+        }
+    }
+
+    public static class Result {
+        public final List<File> files = new ArrayList<>();
+        public int triangles;
+        public int vertices;
+        public int skippedPrimitives;
+        public long bytes;
+    }
+
+    public GlbExporter(GlbFile glb) throws IOException {
+        this.glb = glb;
+        collectInstances();
+        if (instances.isEmpty()) throw new IOException("Model has no meshes");
+    }
+
+    // ---- Scene -----------------------------------------------------------------------
+
+    private void collectInstances() throws IOException {
+        JSONArray nodes = glb.array("nodes");
+        JSONArray scenes = glb.array("scenes");
+        List<Integer> roots = new ArrayList<>();
+        JSONObject scene = scenes.optJSONObject(glb.json.optInt("scene", 0));
+        if (scene != null && scene.has("nodes")) {
+            JSONArray sceneNodes = scene.optJSONArray("nodes");
+            for (int i = 0; i < sceneNodes.length(); i++) roots.add(sceneNodes.optInt(i));
+        } else {
+            // No scene: every node that isn't someone's child is a root
+            boolean[] child = new boolean[nodes.length()];
+            for (int n = 0; n < nodes.length(); n++) {
+                JSONArray children = nodes.optJSONObject(n).optJSONArray("children");
+                for (int c = 0; children != null && c < children.length(); c++) {
+                    int index = children.optInt(c);
+                    if (index >= 0 && index < child.length) child[index] = true;
+                }
+            }
+            for (int n = 0; n < nodes.length(); n++) if (!child[n]) roots.add(n);
+        }
+        for (int root : roots) visit(nodes, root, identity(), 0);
+
+        if (nodes.length() == 0) {
+            for (int m = 0; m < glb.array("meshes").length(); m++) instances.add(new Instance(m, identity()));
+        }
+    }
+
+    private void visit(JSONArray nodes, int index, double[] parent, int depth) throws IOException {
+        JSONObject node = nodes.optJSONObject(index);
+        if (node == null) throw new IOException("No node " + index);
+        if (depth > 64) throw new IOException("Node hierarchy too deep");
+        double[] world = multiply(parent, localMatrix(node));
+        if (node.has("mesh")) instances.add(new Instance(node.optInt("mesh"), world));
+        JSONArray children = node.optJSONArray("children");
+        for (int c = 0; children != null && c < children.length(); c++) {
+            visit(nodes, children.optInt(c), world, depth + 1);
+        }
+    }
+
+    static double[] identity() {
+        return new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    }
+
+    // Column-major, like glTF: m[column * 4 + row]
+    static double[] localMatrix(JSONObject node) {
+        JSONArray matrix = node.optJSONArray("matrix");
+        if (matrix != null && matrix.length() == 16) {
+            double[] m = new double[16];
+            for (int i = 0; i < 16; i++) m[i] = matrix.optDouble(i, 0);
+            return m;
+        }
+        double[] t = vector(node.optJSONArray("translation"), 0, 0, 0, 0);
+        double[] q = vector(node.optJSONArray("rotation"), 0, 0, 0, 1);
+        double[] s = vector(node.optJSONArray("scale"), 1, 1, 1, 0);
+        double x = q[0], y = q[1], z = q[2], w = q[3];
+        double[][] r = {
+                {1 - 2 * (y * y + z * z), 2 * (x * y - z * w), 2 * (x * z + y * w)},
+                {2 * (x * y + z * w), 1 - 2 * (x * x + z * z), 2 * (y * z - x * w)},
+                {2 * (x * z - y * w), 2 * (y * z + x * w), 1 - 2 * (x * x + y * y)}
+        };
+        double[] m = identity();
+        for (int col = 0; col < 3; col++) {
+            for (int row = 0; row < 3; row++) m[col * 4 + row] = r[row][col] * s[col];
+        }
+        m[12] = t[0];
+        m[13] = t[1];
+        m[14] = t[2];
+        return m;
+    }
+
+    private static double[] vector(JSONArray json, double a, double b, double c, double d) {
+        double[] v = {a, b, c, d};
+        for (int i = 0; json != null && i < Math.min(4, json.length()); i++) v[i] = json.optDouble(i, v[i]);
+        return v;
+    }
+
+    static double[] multiply(double[] a, double[] b) {
+        double[] out = new double[16];
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                double sum = 0;
+                for (int k = 0; k < 4; k++) sum += a[k * 4 + row] * b[col * 4 + k];
+                out[col * 4 + row] = sum;
+            }
+        }
+        return out;
+    }
+
+    // Cofactors of the upper 3x3 (the inverse transpose up to scale), for normals
+    private static double[] normalMatrix(double[] m) {
+        double a = m[0], b = m[4], c = m[8];
+        double d = m[1], e = m[5], f = m[9];
+        double g = m[2], h = m[6], i = m[10];
+        double sign = determinant(m) < 0 ? -1 : 1;
+        // Same column-major layout as a 4x4, without translation
+        return new double[]{
+                sign * (e * i - f * h), sign * (c * h - b * i), sign * (b * f - c * e), 0,
+                sign * (f * g - d * i), sign * (a * i - c * g), sign * (c * d - a * f), 0,
+                sign * (d * h - e * g), sign * (b * g - a * h), sign * (a * e - b * d), 0,
+                0, 0, 0, 1
+        };
+    }
+
+    private static double determinant(double[] m) {
+        return m[0] * (m[5] * m[10] - m[9] * m[6])
+                - m[4] * (m[1] * m[10] - m[9] * m[2])
+                + m[8] * (m[1] * m[6] - m[5] * m[2]);
+    }
+
+    // Transforms `count` xyz triples in place (w = 1 for points, 0 for directions)
+    private static void transform(double[] m, float[] xyz, int count, boolean point, boolean normalize) {
+        for (int i = 0; i < count; i++) {
+            double x = xyz[i * 3], y = xyz[i * 3 + 1], z = xyz[i * 3 + 2];
+            double tx = m[0] * x + m[4] * y + m[8] * z + (point ? m[12] : 0);
+            double ty = m[1] * x + m[5] * y + m[9] * z + (point ? m[13] : 0);
+            double tz = m[2] * x + m[6] * y + m[10] * z + (point ? m[14] : 0);
+            if (normalize) {
+                double length = Math.sqrt(tx * tx + ty * ty + tz * tz);
+                if (length > 0) {
+                    tx /= length;
+                    ty /= length;
+                    tz /= length;
+                }
+            }
+            xyz[i * 3] = (float) tx;
+            xyz[i * 3 + 1] = (float) ty;
+            xyz[i * 3 + 2] = (float) tz;
+        }
+    }
+
+    // ---- OBJ -------------------------------------------------------------------------
+
+    // Writes <dir>/<baseName>.obj, .mtl and one file per base color texture
+    public Result writeObj(File dir, String baseName) throws IOException {
+        Result result = new Result();
+        File objFile = new File(dir, baseName + ".obj");
+        File mtlFile = new File(dir, baseName + ".mtl");
+        Map<Integer, String> materialNames = new LinkedHashMap<>();
+
+        try (RandomAccessFile raf = new RandomAccessFile(glb.file, "r");
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(objFile),
+                     StandardCharsets.US_ASCII), 64 * 1024)) {
+            out.write("# Exported by Nomiva\n");
+            out.write("mtllib " + mtlFile.getName() + "\n");
+            StringBuilder line = new StringBuilder(128);
+            int vBase = 1;
+            int vtBase = 1;
+            int vnBase = 1;
+            for (Instance instance : instances) {
+                JSONArray prims = meshPrimitives(instance.mesh);
+                boolean flip = determinant(instance.matrix) < 0;
+                double[] normals = normalMatrix(instance.matrix);
+                for (int p = 0; p < prims.length(); p++) {
+                    JSONObject prim = prims.optJSONObject(p);
+                    JSONObject attributes = prim.optJSONObject("attributes");
+                    if (prim.optInt("mode", MODE_TRIANGLES) != MODE_TRIANGLES
+                            || attributes == null || !attributes.has("POSITION")) {
+                        result.skippedPrimitives++;
+                        continue;
+                    }
+                    GlbFile.Accessor position = glb.accessor(attributes.optInt("POSITION"));
+                    GlbFile.Accessor uv = attributes.has("TEXCOORD_0") ? glb.accessor(attributes.optInt("TEXCOORD_0")) : null;
+                    GlbFile.Accessor normal = attributes.has("NORMAL") ? glb.accessor(attributes.optInt("NORMAL")) : null;
+                    if (uv != null && uv.count != position.count) uv = null;
+                    if (normal != null && normal.count != position.count) normal = null;
+
+                    out.write("o mesh" + instance.mesh + "_" + p + "\n");
+                    for (int first = 0; first < position.count; first += CHUNK) {
+                        int count = Math.min(CHUNK, position.count - first);
+                        float[] xyz = glb.readFloats(raf, position, first, count);
+                        transform(instance.matrix, xyz, count, true, false);
+                        writeTriples(out, line, "v ", xyz, count);
+                    }
+                    for (int first = 0; uv != null && first < uv.count; first += CHUNK) {
+                        int count = Math.min(CHUNK, uv.count - first);
+                        float[] st = glb.readFloats(raf, uv, first, count);
+                        for (int i = 0; i < count; i++) {
+                            line.setLength(0);
+                            line.append("vt ");
+                            appendFloat(line, st[i * 2]);
+                            line.append(' ');
+                            appendFloat(line, 1 - st[i * 2 + 1]); // glTF's V runs downwards
+                            line.append('\n');
+                            out.append(line);
+                        }
+                    }
+                    for (int first = 0; normal != null && first < normal.count; first += CHUNK) {
+                        int count = Math.min(CHUNK, normal.count - first);
+                        float[] xyz = glb.readFloats(raf, normal, first, count);
+                        transform(normals, xyz, count, false, true);
+                        writeTriples(out, line, "vn ", xyz, count);
+                    }
+
+                    int material = prim.optInt("material", -1);
+                    if (!materialNames.containsKey(material)) {
+                        materialNames.put(material, material >= 0 ? "material" + material : "default");
+                    }
+                    out.write("usemtl " + materialNames.get(material) + "\n");
+                    GlbFile.Accessor indices = prim.has("indices") ? glb.accessor(prim.optInt("indices")) : null;
+                    int corners = indices != null ? indices.count : position.count;
+                    int triangles = corners / 3;
+                    for (int first = 0; first < triangles * 3; first += CHUNK * 3) {
+                        int count = Math.min(CHUNK * 3, triangles * 3 - first);
+                        int[] chunk = indices != null ? glb.readIndices(raf, indices, first, count) : sequence(first, count);
+                        for (int t = 0; t < count; t += 3) {
+                            int a = chunk[t], b = chunk[t + 1], c = chunk[t + 2];
+                            if (a >= position.count || b >= position.count || c >= position.count) {
+                                throw new IOException("Index out of range in mesh " + instance.mesh);
+                            }
+                            line.setLength(0);
+                            line.append('f');
+                            appendCorner(line, a, vBase, uv != null ? vtBase : 0, normal != null ? vnBase : 0);
+                            appendCorner(line, flip ? c : b, vBase, uv != null ? vtBase : 0, normal != null ? vnBase : 0);
+                            appendCorner(line, flip ? b : c, vBase, uv != null ? vtBase : 0, normal != null ? vnBase : 0);
+                            line.append('\n');
+                            out.append(line);
+                        }
+                    }
+                    vBase += position.count;
+                    if (uv != null) vtBase += uv.count;
+                    if (normal != null) vnBase += normal.count;
+                    result.vertices += position.count;
+                    result.triangles += triangles;
+                }
+            }
+        }
+        result.files.add(objFile);
+        writeMtl(mtlFile, dir, baseName, materialNames, result);
+        for (File f : result.files) result.bytes += f.length();
+        return result;
+    }
+
+    private JSONArray meshPrimitives(int mesh) throws IOException {
+        JSONObject json = glb.array("meshes").optJSONObject(mesh);
+        if (json == null) throw new IOException("No mesh " + mesh);
+        JSONArray prims = json.optJSONArray("primitives");
+        return prims != null ? prims : new JSONArray();
+    }
+
+    private static int[] sequence(int first, int count) {
+        int[] out = new int[count];
+        for (int i = 0; i < count; i++) out[i] = first + i;
+        return out;
+    }
+
+    private static void writeTriples(Writer out, StringBuilder line, String prefix, float[] xyz, int count)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            line.append(prefix);
+            appendFloat(line, xyz[i * 3]);
+            line.append(' ');
+            appendFloat(line, xyz[i * 3 + 1]);
+            line.append(' ');
+            appendFloat(line, xyz[i * 3 + 2]);
+            line.append('\n');
+            out.append(line);
+        }
+    }
+
+    private static void appendCorner(StringBuilder line, int index, int vBase, int vtBase, int vnBase) {
+        line.append(' ').append(vBase + index);
+        if (vtBase > 0 || vnBase > 0) line.append('/');
+        if (vtBase > 0) line.append(vtBase + index);
+        if (vnBase > 0) line.append('/').append(vnBase + index);
+    }
+
+    // Fixed-point with up to 6 decimals; String.format is far too slow for millions of values
+    static void appendFloat(StringBuilder out, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            out.append('0');
+            return;
+        }
+        if (Math.abs(value) >= 1e12f) {
+            out.append((long) value);
+            return;
+        }
+        long scaled = Math.round(Math.abs((double) value) * 1_000_000);
+        if (scaled == 0) {
+            out.append('0');
+            return;
+        }
+        if (value < 0) out.append('-');
+        out.append(scaled / 1_000_000);
+        long fraction = scaled % 1_000_000;
+        if (fraction == 0) return;
+        out.append('.');
+        int digits = 6;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        String text = Long.toString(fraction);
+        for (int i = text.length(); i < digits; i++) out.append('0');
+        out.append(text);
+    }
+
+    private void writeMtl(File mtlFile, File dir, String baseName, Map<Integer, String> materialNames,
+                          Result result) throws IOException {
+        JSONArray materials = glb.array("materials");
+        StringBuilder mtl = new StringBuilder("# Exported by Nomiva\n");
+        try (RandomAccessFile raf = new RandomAccessFile(glb.file, "r")) {
+            for (Map.Entry<Integer, String> e : materialNames.entrySet()) {
+                JSONObject material = e.getKey() >= 0 ? materials.optJSONObject(e.getKey()) : null;
+                JSONObject pbr = material != null ? material.optJSONObject("pbrMetallicRoughness") : null;
+                double[] color = vector(pbr != null ? pbr.optJSONArray("baseColorFactor") : null, 0.8, 0.8, 0.8, 1);
+                mtl.append("\nnewmtl ").append(e.getValue()).append('\n');
+                mtl.append("Ka 0 0 0\n");
+                mtl.append("Kd ");
+                appendFloat(mtl, (float) color[0]);
+                mtl.append(' ');
+                appendFloat(mtl, (float) color[1]);
+                mtl.append(' ');
+                appendFloat(mtl, (float) color[2]);
+                mtl.append("\nKs 0 0 0\nd ");
+                appendFloat(mtl, (float) color[3]);
+                mtl.append("\nillum 1\n");
+                JSONObject texture = pbr != null ? pbr.optJSONObject("baseColorTexture") : null;
+                File image = texture != null ? writeTexture(raf, dir, baseName, texture.optInt("index", -1)) : null;
+                if (image != null) {
+                    mtl.append("map_Kd ").append(image.getName()).append('\n');
+                    if (!result.files.contains(image)) result.files.add(image);
+                }
+            }
+        }
+        try (OutputStream out = new FileOutputStream(mtlFile)) {
+            out.write(mtl.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        result.files.add(1, mtlFile);
+    }
+
+    // Copies an embedded image out of the GLB; null for external or unsupported images
+    private File writeTexture(RandomAccessFile raf, File dir, String baseName, int textureIndex) throws IOException {
+        JSONObject texture = glb.array("textures").optJSONObject(textureIndex);
+        if (texture == null || !texture.has("source")) return null;
+        int imageIndex = texture.optInt("source");
+        JSONObject image = glb.array("images").optJSONObject(imageIndex);
+        if (image == null || !image.has("bufferView")) return null;
+        String mimeType = image.optString("mimeType");
+        String extension = "image/png".equals(mimeType) ? "png" : "image/jpeg".equals(mimeType) ? "jpg" : null;
+        if (extension == null) return null;
+
+        File out = new File(dir, baseName + "_texture" + imageIndex + "." + extension);
+        if (out.exists()) return out;
+        long[] range = glb.viewRange(image.optInt("bufferView"));
+        try (OutputStream os = new FileOutputStream(out)) {
+            byte[] buffer = new byte[64 * 1024];
+            raf.seek(range[0]);
+            long remaining = range[1];
+            while (remaining > 0) {
+                int n = (int) Math.min(buffer.length, remaining);
+                raf.readFully(buffer, 0, n);
+                os.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        return out;
+    }
+
+    // ---- STL -------------------------------------------------------------------------
+
+    // Binary STL, converted from glTF's Y-up to the Z-up slicers expect. Units are left
+    // as they are (glTF metres read as millimetres), like other exporters; slicers rescale.
+    public Result writeStl(File out) throws IOException {
+        Result result = new Result();
+        // Y-up to Z-up: (x, y, z) -> (x, -z, y)
+        double[] zUp = {1, 0, 0, 0, 0, 0, 1, 0, 0, -1, 0, 0, 0, 0, 0, 1};
+
+        try (RandomAccessFile raf = new RandomAccessFile(glb.file, "r")) {
+            int total = 0;
+            for (Instance instance : instances) {
+                JSONArray prims = meshPrimitives(instance.mesh);
+                for (int p = 0; p < prims.length(); p++) {
+                    JSONObject prim = prims.optJSONObject(p);
+                    if (!isTriangles(prim)) continue;
+                    GlbFile.Accessor position = glb.accessor(prim.optJSONObject("attributes").optInt("POSITION"));
+                    total += (prim.has("indices") ? glb.accessor(prim.optInt("indices")).count : position.count) / 3;
+                }
+            }
+
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(out), 64 * 1024)) {
+                ByteBuffer header = ByteBuffer.allocate(84).order(ByteOrder.LITTLE_ENDIAN);
+                byte[] title = "Exported by Nomiva".getBytes(StandardCharsets.US_ASCII);
+                header.put(title);
+                header.position(80);
+                header.putInt(total);
+                os.write(header.array());
+
+                ByteBuffer triangle = ByteBuffer.allocate(STL_TRIANGLE_BYTES * CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+                for (Instance instance : instances) {
+                    double[] matrix = multiply(zUp, instance.matrix);
+                    boolean flip = determinant(matrix) < 0;
+                    JSONArray prims = meshPrimitives(instance.mesh);
+                    for (int p = 0; p < prims.length(); p++) {
+                        JSONObject prim = prims.optJSONObject(p);
+                        if (!isTriangles(prim)) {
+                            result.skippedPrimitives++;
+                            continue;
+                        }
+                        GlbFile.Accessor position = glb.accessor(prim.optJSONObject("attributes").optInt("POSITION"));
+                        float[] xyz = glb.readFloats(raf, position, 0, position.count);
+                        transform(matrix, xyz, position.count, true, false);
+                        GlbFile.Accessor indices = prim.has("indices") ? glb.accessor(prim.optInt("indices")) : null;
+                        int corners = (indices != null ? indices.count : position.count) / 3 * 3;
+                        for (int first = 0; first < corners; first += CHUNK * 3) {
+                            int count = Math.min(CHUNK * 3, corners - first);
+                            int[] chunk = indices != null ? glb.readIndices(raf, indices, first, count) : sequence(first, count);
+                            triangle.clear();
+                            for (int t = 0; t < count; t += 3) {
+                                int a = chunk[t], b = flip ? chunk[t + 2] : chunk[t + 1], c = flip ? chunk[t + 1] : chunk[t + 2];
+                                if (a >= position.count || b >= position.count || c >= position.count) {
+                                    throw new IOException("Index out of range in mesh " + instance.mesh);
+                                }
+                                putFacet(triangle, xyz, a, b, c);
+                            }
+                            os.write(triangle.array(), 0, triangle.position());
+                        }
+                        result.vertices += position.count;
+                        result.triangles += corners / 3;
+                    }
+                }
+            }
+            if (result.triangles != total) throw new IOException("Triangle count changed while writing");
+        }
+        result.files.add(out);
+        result.bytes = out.length();
+        return result;
+    }
+
+    private static boolean isTriangles(JSONObject prim) {
+        JSONObject attributes = prim.optJSONObject("attributes");
+        return prim.optInt("mode", MODE_TRIANGLES) == MODE_TRIANGLES && attributes != null && attributes.has("POSITION");
+    }
+
+    private static void putFacet(ByteBuffer out, float[] xyz, int a, int b, int c) {
+        float ax = xyz[a * 3], ay = xyz[a * 3 + 1], az = xyz[a * 3 + 2];
+        float ux = xyz[b * 3] - ax, uy = xyz[b * 3 + 1] - ay, uz = xyz[b * 3 + 2] - az;
+        float vx = xyz[c * 3] - ax, vy = xyz[c * 3 + 1] - ay, vz = xyz[c * 3 + 2] - az;
+        float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length > 0) {
+            nx /= length;
+            ny /= length;
+            nz /= length;
+        }
+        out.putFloat(nx).putFloat(ny).putFloat(nz);
+        for (int v : new int[]{a, b, c}) {
+            out.putFloat(xyz[v * 3]).putFloat(xyz[v * 3 + 1]).putFloat(xyz[v * 3 + 2]);
+        }
+        out.putShort((short) 0);
+    }
+}
@@ -0,0 +1,288 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Reads binary glTF (.glb): the JSON chunk is parsed up front, buffer views are
+// read from the file on demand so textures never have to sit in memory.
+// Only the embedded BIN chunk is supported (buffer 0 without a uri), which is what
+// Meshy and every other GLB exporter we see produce.
+public class GlbFile {
+
+    static final int MAGIC = 0x46546C67; // "glTF"
+    static final int CHUNK_JSON = 0x4E4F534A;
+    static final int CHUNK_BIN = 0x004E4942;
+
+    // Accessor component types
+    static final int BYTE = 5120;
+    static final int UNSIGNED_BYTE = 5121;
+    static final int SHORT = 5122;
+    static final int UNSIGNED_SHORT = 5123;
+    static final int UNSIGNED_INT = 5125;
+    static final int FLOAT = 5126;
+
+    public final File file;
+    public final JSONObject json;
+    final long binOffset;
+    final long binLength;
+
+    private GlbFile(File file, JSONObject json, long binOffset, long binLength) {
+        this.file = file;
+        this.json = json;
+        this.binOffset = binOffset;
+        this.binLength = binLength;
+    }
+
+    public static GlbFile read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer header = readAt(raf, 0, 20);
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a GLB file");
+            if (header.getInt(4) != 2) throw new IOException("Unsupported glTF version " + header.getInt(4));
+            long totalLength = header.getInt(8) & 0xFFFFFFFFL;
+            if (totalLength > raf.length()) throw new IOException("Truncated GLB");
+            int jsonLength = header.getInt(12);
+            if (header.getInt(16) != CHUNK_JSON || jsonLength <= 0 || 20L + jsonLength > totalLength) {
+                throw new IOException("Missing JSON chunk");
+            }
+            ByteBuffer jsonBytes = readAt(raf, 20, jsonLength);
+            JSONObject json;
+            try {
+                json = new JSONObject(new String(jsonBytes.array(), StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                throw new IOException("Invalid glTF JSON: " + e.getMessage());
+            }
+
+            long binOffset = -1;
+            long binLength = 0;
+            long chunkStart = 20L + jsonLength;
+            if (chunkStart + 8 <= totalLength) {
+                ByteBuffer chunk = readAt(raf, chunkStart, 8);
+                if (chunk.getInt(4) == CHUNK_BIN) {
+                    binLength = chunk.getInt(0) & 0xFFFFFFFFL;
+                    binOffset = chunkStart + 8;
+                    if (binOffset + binLength > totalLength) throw new IOException("Truncated BIN chunk");
+                }
+            }
+            return new GlbFile(file, json, binOffset, binLength);
+        }
+    }
+
+    private static ByteBuffer readAt(RandomAccessFile raf, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        raf.seek(offset);
+        raf.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public JSONArray array(String name) {
+        JSONArray array = json.optJSONArray(name);
+        return array != null ? array : new JSONArray();
+    }
+
+    // Byte range of a buffer view inside the file (offset, length)
+    long[] viewRange(int viewIndex) throws IOException {
+        JSONObject view = array("bufferViews").optJSONObject(viewIndex);
+        if (view == null) throw new IOException("No buffer view " + viewIndex);
+        if (view.optInt("buffer", 0) != 0 || binOffset < 0) throw new IOException("External buffers are not supported");
+        long offset = view.optLong("byteOffset", 0);
+        long length = view.optLong("byteLength", -1);
+        if (offset < 0 || length < 0 || offset + length > binLength) throw new IOException("Buffer view " + viewIndex + " out of range");
+        return new long[]{binOffset + offset, length};
+    }
+
+    ByteBuffer readView(RandomAccessFile raf, int viewIndex) throws IOException {
+        long[] range = viewRange(viewIndex);
+        if (range[1] > Integer.MAX_VALUE) throw new IOException("Buffer view too large");
+        return readAt(raf, range[0], (int) range[1]);
+    }
+
+    // Layout of one accessor's elements within its buffer view
+    static class Accessor {
+        final int index;
+        final JSONObject json;
+        final int componentType;
+        final int components;
+        final int count;
+        final int elementSize;
+
+        Accessor(int index, JSONObject json) throws IOException {
+            this.index = index;
+            this.json = json;
+            this.componentType = json.optInt("componentType");
+            this.components = componentsOf(json.optString("type"));
+            this.count = json.optInt("count", -1);
+            int componentSize = componentSize(componentType);
+            if (components <= 0 || componentSize <= 0 || count < 0 || !json.has("bufferView")) {
+                throw new IOException("Unsupported accessor " + index);
+            }
+            if (json.has("sparse")) throw new IOException("Sparse accessor " + index);
+            if (json.optLong("byteOffset", 0) < 0) throw new IOException("Negative byteOffset in accessor " + index);
+            this.elementSize = components * componentSize;
+        }
+    }
+
+    Accessor accessor(int index) throws IOException {
+        JSONObject json = array("accessors").optJSONObject(index);
+        if (json == null) throw new IOException("No accessor " + index);
+        return new Accessor(index, json);
+    }
+
+    // Elements packed tightly (stride removed), as raw little-endian bytes
+    byte[] readPacked(RandomAccessFile raf, Accessor accessor) throws IOException {
+        int viewIndex = accessor.json.optInt("bufferView");
+        ByteBuffer view = readView(raf, viewIndex);
+        int stride = strideOf(accessor);
+        int start = accessor.json.optInt("byteOffset", 0);
+        if (accessor.count > 0 && start + (long) stride * (accessor.count - 1) + accessor.elementSize > view.capacity()) {
+            throw new IOException("Accessor " + accessor.index + " out of range");
+        }
+        long packed = (long) accessor.count * accessor.elementSize;
+        if (packed > Integer.MAX_VALUE) throw new IOException("Accessor " + accessor.index + " too large");
+        byte[] out = new byte[(int) packed];
+        byte[] src = view.array();
+        for (int i = 0; i < accessor.count; i++) {
+            System.arraycopy(src, start + i * stride, out, i * accessor.elementSize, accessor.elementSize);
+        }
+        return out;
+    }
+
+    int[] readIndices(RandomAccessFile raf, Accessor accessor) throws IOException {
+        return readIndices(raf, accessor, 0, accessor.count);
+    }
+
+    float[] readFloats(RandomAccessFile raf, Accessor accessor) throws IOException {
+        if (accessor.componentType != FLOAT) throw new IOException("Accessor " + accessor.index + " is not FLOAT");
+        return readFloats(raf, accessor, 0, accessor.count);
+    }
+
+    // Elements [first, first + count) as stored (with stride), straight from the file.
+    // Lets exporters walk big accessors a chunk at a time.
+    private ByteBuffer readElements(RandomAccessFile raf, Accessor accessor, int first, int count, int stride)
+            throws IOException {
+        if (first < 0 || count < 0 || (long) first + count > accessor.count) {
+            throw new IOException("Accessor " + accessor.index + " read out of range");
+        }
+        long[] range = viewRange(accessor.json.optInt("bufferView"));
+        long start = accessor.json.optLong("byteOffset", 0) + (long) stride * first;
+        long length = count == 0 ? 0 : (long) stride * (count - 1) + accessor.elementSize;
+        if (start + length > range[1] || length > Integer.MAX_VALUE) {
+            throw new IOException("Accessor " + accessor.index + " out of range");
+        }
+        return readAt(raf, range[0] + start, (int) length);
+    }
+
+    // Distance between elements; a byteStride, when given, can't be smaller than an element
+    int strideOf(Accessor accessor) throws IOException {
+        JSONObject view = array("bufferViews").optJSONObject(accessor.json.optInt("bufferView"));
+        int stride = view != null ? view.optInt("byteStride", 0) : 0;
+        if (stride == 0) return accessor.elementSize;
+        if (stride < accessor.elementSize) {
+            throw new IOException("Bad byteStride " + stride + " for accessor " + accessor.index);
+        }
+        return stride;
+    }
+
+    int[] readIndices(RandomAccessFile raf, Accessor accessor, int first, int count) throws IOException {
+        if (accessor.components != 1) throw new IOException("Index accessor must be SCALAR");
+        int stride = strideOf(accessor);
+        ByteBuffer bytes = readElements(raf, accessor, first, count, stride);
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            switch (accessor.componentType) {
+                case UNSIGNED_BYTE:
+                    indices[i] = bytes.get(i * stride) & 0xFF;
+                    break;
+                case UNSIGNED_SHORT:
+                    indices[i] = bytes.getShort(i * stride) & 0xFFFF;
+                    break;
+                case UNSIGNED_INT:
+                    indices[i] = bytes.getInt(i * stride);
+                    break;
+                default:
+                    throw new IOException("Bad index component type " + accessor.componentType);
+            }
+        }
+        return indices;
+    }
+
+    // Components of elements [first, first + count) as floats. Integer components are
+    // mapped to [0, 1] / [-1, 1] when the accessor is normalized (KHR_mesh_quantization).
+    float[] readFloats(RandomAccessFile raf, Accessor accessor, int first, int count) throws IOException {
+        int stride = strideOf(accessor);
+        ByteBuffer bytes = readElements(raf, accessor, first, count, stride);
+        boolean normalized = accessor.json.optBoolean("normalized", false);
+        int size = componentSize(accessor.componentType);
+        float[] values = new float[count * accessor.components];
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < accessor.components; c++) {
+                int at = i * stride + c * size;
+                float value;
+                switch (accessor.componentType) {
+                    case FLOAT:
+                        value = bytes.getFloat(at);
+                        break;
+                    case BYTE:
+                        value = normalized ? Math.max(bytes.get(at) / 127f, -1f) : bytes.get(at);
+                        break;
+                    case UNSIGNED_BYTE:
+                        value = normalized ? (bytes.get(at) & 0xFF) / 255f : bytes.get(at) & 0xFF;
+                        break;
+                    case SHORT:
+                        value = normalized ? Math.max(bytes.getShort(at) / 32767f, -1f) : bytes.getShort(at);
+                        break;
+                    case UNSIGNED_SHORT:
+                        value = normalized ? (bytes.getShort(at) & 0xFFFF) / 65535f : bytes.getShort(at) & 0xFFFF;
+                        break;
+                    default:
+                        throw new IOException("Accessor " + accessor.index + " has no float reading");
+                }
+                values[i * accessor.components + c] = value;
+            }
+        }
+        return values;
+    }
+
+    static int componentsOf(String type) {
+        switch (type) {
+            case "SCALAR":
+                return 1;
+            case "VEC2":
+                return 2;
+            case "VEC3":
+                return 3;
+            case "VEC4":
+            case "MAT2":
+                return 4;
+            case "MAT3":
+                return 9;
+            case "MAT4":
+                return 16;
+            default:
+                return 0;
+        }
+    }
+
+    static int componentSize(int componentType) {
+        switch (componentType) {
+            case BYTE:
+            case UNSIGNED_BYTE:
+                return 1;
+            case SHORT:
+            case UNSIGNED_SHORT:
+                return 2;
+            case UNSIGNED_INT:
+            case FLOAT:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+}
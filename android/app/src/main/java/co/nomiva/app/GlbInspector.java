@@ -0,0 +1,375 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+// Checks that a GLB is safe to hand to the viewer and measures it without rendering it:
+// header and chunks, buffer views and accessors in range, mesh/material/texture/node
+// references that exist, index values below the vertex count. Broken files are the ones
+// that crash Three.js half way through a load. The result is a small JSON summary:
+// vertex/triangle counts, texture sizes (read from the image headers, nothing is
+// decoded), scene bounds with node transforms applied, and the GPU memory the viewer
+// will need. Reads the JSON chunk, index buffers and the first bytes of each image only.
+public class GlbInspector {
+
+    // Enough for the PNG/WebP header or a JPEG frame header after the usual segments
+    private static final int IMAGE_HEAD_BYTES = 64 * 1024;
+
+    private static final int MODE_TRIANGLES = 4;
+    private static final int MODE_TRIANGLE_STRIP = 5;
+    private static final int MODE_TRIANGLE_FAN = 6;
+
+    // Summary of a valid GLB; throws IOException with the reason for a broken one
+    public static JSONObject inspect(File file) throws IOException {
+        GlbFile glb = GlbFile.read(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return new GlbInspector(glb, raf).run();
+        } catch (JSONException e) {
+            throw new IOException("Invalid glTF JSON: " + e.getMessage());
+        }
+    }
+
+    private final GlbFile glb;
+    private final RandomAccessFile raf;
+    private final Set<Integer> geometryAccessors = new HashSet<>();
+    private final float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+    private final float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+    private GlbInspector(GlbFile glb, RandomAccessFile raf) {
+        this.glb = glb;
+        this.raf = raf;
+    }
+
+    private JSONObject run() throws IOException, JSONException {
+        JSONObject asset = glb.json.optJSONObject("asset");
+        if (asset == null || !asset.optString("version").startsWith("2.")) throw new IOException("Not glTF 2.0");
+
+        JSONArray views = glb.array("bufferViews");
+        for (int i = 0; i < views.length(); i++) {
+            if (views.getJSONObject(i).optInt("buffer", 0) == 0) glb.viewRange(i);
+        }
+        JSONArray accessors = glb.array("accessors");
+        for (int i = 0; i < accessors.length(); i++) checkAccessor(i);
+
+        long vertices = 0;
+        long triangles = 0;
+        int primitiveCount = 0;
+        JSONArray meshes = glb.array("meshes");
+        int materialCount = glb.array("materials").length();
+        for (int m = 0; m < meshes.length(); m++) {
+            JSONArray primitives = meshes.getJSONObject(m).optJSONArray("primitives");
+            if (primitives == null) throw new IOException("Mesh " + m + " has no primitives");
+            for (int p = 0; p < primitives.length(); p++) {
+                JSONObject primitive = primitives.getJSONObject(p);
+                int vertexCount = checkAttributes(m, primitive);
+                vertices += vertexCount;
+                triangles += countTriangles(m, primitive, vertexCount);
+                int material = primitive.optInt("material", -1);
+                if (material >= materialCount) throw new IOException("Mesh " + m + " uses missing material " + material);
+                primitiveCount++;
+            }
+        }
+        checkTextureReferences(materialCount);
+        JSONArray textures = measureImages();
+        applySceneBounds(meshes);
+
+        long geometryBytes = 0;
+        for (int index : geometryAccessors) {
+            GlbFile.Accessor accessor = glb.accessor(index);
+            geometryBytes += (long) accessor.count * accessor.elementSize;
+        }
+        long textureBytes = 0;
+        int maxEdge = 0;
+        for (int i = 0; i < textures.length(); i++) {
+            JSONObject texture = textures.getJSONObject(i);
+            textureBytes += TextureDownsampler.gpuBytes(texture.getInt("width"), texture.getInt("height"));
+            maxEdge = Math.max(maxEdge, Math.max(texture.getInt("width"), texture.getInt("height")));
+        }
+
+        JSONObject info = new JSONObject();
+        info.put("valid", true);
+        info.put("fileBytes", glb.file.length());
+        info.put("generator", asset.optString("generator", ""));
+        info.put("meshes", meshes.length());
+        info.put("primitives", primitiveCount);
+        info.put("materials", materialCount);
+        info.put("nodes", glb.array("nodes").length());
+        info.put("animations", glb.array("animations").length());
+        info.put("vertices", vertices);
+        info.put("triangles", triangles);
+        info.put("textureCount", textures.length());
+        info.put("maxTextureEdge", maxEdge);
+        info.put("textures", textures);
+        if (min[0] <= max[0]) {
+            info.put("bounds", new JSONObject()
+                    .put("min", new JSONArray().put(min[0]).put(min[1]).put(min[2]))
+                    .put("max", new JSONArray().put(max[0]).put(max[1]).put(max[2]))
+                    .put("size", new JSONArray().put(max[0] - min[0]).put(max[1] - min[1]).put(max[2] - min[2])));
+        }
+        info.put("geometryGpuBytes", geometryBytes);
+        info.put("textureGpuBytes", textureBytes);
+        info.put("gpuBytes", geometryBytes + textureBytes);
+        return info;
+    }
+
+    private void checkAccessor(int index) throws IOException {
+        GlbFile.Accessor accessor = glb.accessor(index);
+        int viewIndex = accessor.json.optInt("bufferView");
+        JSONObject view = glb.array("bufferViews").optJSONObject(viewIndex);
+        if (view == null) throw new IOException("Accessor " + index + " uses missing buffer view " + viewIndex);
+        int stride = glb.strideOf(accessor);
+        long end = accessor.json.optLong("byteOffset", 0)
+                + (accessor.count > 0 ? (long) stride * (accessor.count - 1) + accessor.elementSize : 0);
+        if (end > view.optLong("byteLength", -1)) throw new IOException("Accessor " + index + " out of range");
+    }
+
+    // Vertex count of a primitive; every attribute must cover the same vertices
+    private int checkAttributes(int mesh, JSONObject primitive) throws IOException, JSONException {
+        JSONObject attributes = primitive.optJSONObject("attributes");
+        if (attributes == null || !attributes.has("POSITION")) throw new IOException("Mesh " + mesh + " has no POSITION");
+        int vertexCount = glb.accessor(attributes.getInt("POSITION")).count;
+        JSONArray names = attributes.names();
+        for (int i = 0; i < names.length(); i++) {
+            int index = attributes.getInt(names.getString(i));
+            if (glb.accessor(index).count != vertexCount) {
+                throw new IOException("Mesh " + mesh + " " + names.getString(i) + " count differs from POSITION");
+            }
+            geometryAccessors.add(index);
+        }
+        return vertexCount;
+    }
+
+    private long countTriangles(int mesh, JSONObject primitive, int vertexCount) throws IOException {
+        int elements = vertexCount;
+        if (primitive.has("indices")) {
+            int index = primitive.optInt("indices");
+            GlbFile.Accessor accessor = glb.accessor(index);
+            for (int value : glb.readIndices(raf, accessor)) {
+                if (value < 0 || value >= vertexCount) throw new IOException("Mesh " + mesh + " index out of range");
+            }
+            geometryAccessors.add(index);
+            elements = accessor.count;
+        }
+        int mode = primitive.optInt("mode", MODE_TRIANGLES);
+        if (mode == MODE_TRIANGLES) return elements / 3;
+        if (mode == MODE_TRIANGLE_STRIP || mode == MODE_TRIANGLE_FAN) return Math.max(0, elements - 2);
+        return 0; // Points and lines
+    }
+
+    private void checkTextureReferences(int materialCount) throws IOException, JSONException {
+        int imageCount = glb.array("images").length();
+        JSONArray textures = glb.array("textures");
+        for (int i = 0; i < textures.length(); i++) {
+            int source = textures.getJSONObject(i).optInt("source", -1);
+            if (source >= imageCount) throw new IOException("Texture " + i + " uses missing image " + source);
+        }
+        JSONArray materials = glb.array("materials");
+        for (int i = 0; i < materialCount; i++) {
+            checkTextureIndices(materials.getJSONObject(i), textures.length(), i);
+        }
+    }
+
+    // Every {"index": n} under a material must name a texture
+    private static void checkTextureIndices(JSONObject json, int textureCount, int material)
+            throws IOException, JSONException {
+        JSONArray names = json.names();
+        if (names == null) return;
+        for (int i = 0; i < names.length(); i++) {
+            String name = names.getString(i);
+            JSONObject child = json.optJSONObject(name);
+            if (child == null) continue;
+            if (name.endsWith("Texture") && child.optInt("index", -1) >= textureCount) {
+                throw new IOException("Material " + material + " uses missing texture");
+            }
+            checkTextureIndices(child, textureCount, material);
+        }
+    }
+
+    private JSONArray measureImages() throws IOException, JSONException {
+        JSONArray images = glb.array("images");
+        JSONArray out = new JSONArray();
+        for (int i = 0; i < images.length(); i++) {
+            JSONObject image = images.getJSONObject(i);
+            int width = 0;
+            int height = 0;
+            if (image.has("bufferView")) {
+                long[] range = glb.viewRange(image.optInt("bufferView"));
+                byte[] head = new byte[(int) Math.min(range[1], IMAGE_HEAD_BYTES)];
+                raf.seek(range[0]);
+                raf.readFully(head);
+                int[] size = imageSize(head);
+                if (size != null) {
+                    width = size[0];
+                    height = size[1];
+                }
+            }
+            out.put(new JSONObject()
+                    .put("width", width)
+                    .put("height", height)
+                    .put("mimeType", image.optString("mimeType", "")));
+        }
+        return out;
+    }
+
+    // Width and height from a PNG, JPEG or WebP header; null if not recognised
+    static int[] imageSize(byte[] b) {
+        if (b.length >= 24 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return new int[]{int32be(b, 16), int32be(b, 20)};
+        }
+        if (b.length >= 4 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8) {
+            int at = 2;
+            while (at + 9 < b.length) {
+                if ((b[at] & 0xFF) != 0xFF) return null;
+                int marker = b[at + 1] & 0xFF;
+                if (marker == 0xFF) {
+                    at++; // Fill byte
+                    continue;
+                }
+                // Start of frame (not DHT, JPG or DAC, which share the range)
+                if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                    return new int[]{uint16be(b, at + 7), uint16be(b, at + 5)};
+                }
+                at += 2 + uint16be(b, at + 2);
+            }
+            return null;
+        }
+        if (b.length >= 30 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            String chunk = new String(b, 12, 4, java.nio.charset.StandardCharsets.US_ASCII);
+            switch (chunk) {
+                case "VP8 ":
+                    return new int[]{uint16le(b, 26) & 0x3FFF, uint16le(b, 28) & 0x3FFF};
+                case "VP8L":
+                    int bits = (b[21] & 0xFF) | (b[22] & 0xFF) << 8 | (b[23] & 0xFF) << 16 | (b[24] & 0xFF) << 24;
+                    return new int[]{(bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1};
+                case "VP8X":
+                    return new int[]{uint24le(b, 24) + 1, uint24le(b, 27) + 1};
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    private static int int32be(byte[] b, int at) {
+        return (b[at] & 0xFF) << 24 | (b[at + 1] & 0xFF) << 16 | (b[at + 2] & 0xFF) << 8 | (b[at + 3] & 0xFF);
+    }
+
+    private static int uint16be(byte[] b, int at) {
+        return (b[at] & 0xFF) << 8 | (b[at + 1] & 0xFF);
+    }
+
+    private static int uint16le(byte[] b, int at) {
+        return (b[at] & 0xFF) | (b[at + 1] & 0xFF) << 8;
+    }
+
+    private static int uint24le(byte[] b, int at) {
+        return (b[at] & 0xFF) | (b[at + 1] & 0xFF) << 8 | (b[at + 2] & 0xFF) << 16;
+    }
+
+    // Bounds of the default scene (every mesh once if there is none), from the POSITION
+    // min/max of each primitive moved through its node's world transform
+    private void applySceneBounds(JSONArray meshes) throws IOException, JSONException {
+        JSONArray nodes = glb.array("nodes");
+        JSONArray scenes = glb.array("scenes");
+        JSONObject scene = scenes.optJSONObject(glb.json.optInt("scene", 0));
+        if (scene == null) {
+            for (int m = 0; m < meshes.length(); m++) addMeshBounds(meshes.getJSONObject(m), identity());
+            return;
+        }
+        JSONArray roots = scene.optJSONArray("nodes");
+        Set<Integer> visited = new HashSet<>();
+        for (int i = 0; roots != null && i < roots.length(); i++) {
+            visitNode(nodes, meshes, roots.getInt(i), identity(), visited);
+        }
+    }
+
+    private void visitNode(JSONArray nodes, JSONArray meshes, int index, float[] parent, Set<Integer> visited)
+            throws IOException, JSONException {
+        JSONObject node = nodes.optJSONObject(index);
+        if (node == null) throw new IOException("Missing node " + index);
+        if (!visited.add(index)) throw new IOException("Node " + index + " is its own ancestor or shared");
+        float[] world = multiply(parent, localMatrix(node));
+        if (node.has("mesh")) {
+            JSONObject mesh = meshes.optJSONObject(node.optInt("mesh"));
+            if (mesh == null) throw new IOException("Node " + index + " uses missing mesh");
+            addMeshBounds(mesh, world);
+        }
+        JSONArray children = node.optJSONArray("children");
+        for (int i = 0; children != null && i < children.length(); i++) {
+            visitNode(nodes, meshes, children.getInt(i), world, visited);
+        }
+    }
+
+    private void addMeshBounds(JSONObject mesh, float[] matrix) throws IOException, JSONException {
+        JSONArray primitives = mesh.getJSONArray("primitives");
+        for (int p = 0; p < primitives.length(); p++) {
+            int position = primitives.getJSONObject(p).getJSONObject("attributes").getInt("POSITION");
+            JSONObject accessor = glb.array("accessors").getJSONObject(position);
+            JSONArray lo = accessor.optJSONArray("min");
+            JSONArray hi = accessor.optJSONArray("max");
+            if (lo == null || hi == null || lo.length() < 3 || hi.length() < 3) continue;
+            for (int corner = 0; corner < 8; corner++) {
+                float x = (float) ((corner & 1) == 0 ? lo : hi).getDouble(0);
+                float y = (float) ((corner & 2) == 0 ? lo : hi).getDouble(1);
+                float z = (float) ((corner & 4) == 0 ? lo : hi).getDouble(2);
+                for (int axis = 0; axis < 3; axis++) {
+                    float v = matrix[axis] * x + matrix[4 + axis] * y + matrix[8 + axis] * z + matrix[12 + axis];
+                    min[axis] = Math.min(min[axis], v);
+                    max[axis] = Math.max(max[axis], v);
+                }
+            }
+        }
+    }
+
+    // Column-major, as glTF stores it
+    private static float[] identity() {
+        return new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    }
+
+    static float[] localMatrix(JSONObject node) throws JSONException {
+        JSONArray matrix = node.optJSONArray("matrix");
+        if (matrix != null && matrix.length() == 16) {
+            float[] m = new float[16];
+            for (int i = 0; i < 16; i++) m[i] = (float) matrix.getDouble(i);
+            return m;
+        }
+        float[] t = vector(node.optJSONArray("translation"), new float[]{0, 0, 0});
+        float[] r = vector(node.optJSONArray("rotation"), new float[]{0, 0, 0, 1});
+        float[] s = vector(node.optJSONArray("scale"), new float[]{1, 1, 1});
+        float x = r[0], y = r[1], z = r[2], w = r[3];
+        // T * R * S
+        return new float[]{
+                (1 - 2 * (y * y + z * z)) * s[0], (2 * (x * y + z * w)) * s[0], (2 * (x * z - y * w)) * s[0], 0,
+                (2 * (x * y - z * w)) * s[1], (1 - 2 * (x * x + z * z)) * s[1], (2 * (y * z + x * w)) * s[1], 0,
+                (2 * (x * z + y * w)) * s[2], (2 * (y * z - x * w)) * s[2], (1 - 2 * (x * x + y * y)) * s[2], 0,
+                t[0], t[1], t[2], 1
+        };
+    }
+
+    private static float[] vector(JSONArray array, float[] fallback) throws JSONException {
+        if (array == null || array.length() != fallback.length) return fallback;
+        float[] out = new float[fallback.length];
+        for (int i = 0; i < out.length; i++) out[i] = (float) array.getDouble(i);
+        return out;
+    }
+
+    private static float[] multiply(float[] a, float[] b) {
+        float[] out = new float[16];
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                float sum = 0;
+                for (int k = 0; k < 4; k++) sum += a[k * 4 + row] * b[col * 4 + k];
+                out[col * 4 + row] = sum;
+            }
+        }
+        return out;
+    }
+}
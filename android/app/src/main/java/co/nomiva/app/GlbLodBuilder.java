@@ -0,0 +1,473 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes reduced-triangle copies of a GLB. Geometry of every indexed triangle
+// primitive is loaded once; each write() simplifies it to a ratio with MeshSimplifier,
+// compacts the vertex attributes to the vertices still in use and rewrites the file.
+// Embedded images go through the ImageRewriter if one is set; everything else
+// (animations, skins, materials) is copied byte for byte, straight from the source file.
+public class GlbLodBuilder {
+
+    // Primitives smaller than this are left alone
+    static final int MIN_PRIMITIVE_TRIANGLES = 64;
+
+    private static final int MODE_TRIANGLES = 4;
+    private static final int TARGET_ARRAY_BUFFER = 34962;
+    private static final int TARGET_ELEMENT_ARRAY_BUFFER = 34963;
+
+    // Extensions that don't reference buffer views or accessors in ways we'd have to rewrite
+    private static final List<String> SAFE_EXTENSIONS = Arrays.asList(
+            "KHR_texture_transform", "KHR_lights_punctual", "KHR_mesh_quantization",
+            "KHR_texture_basisu", "EXT_texture_webp", "KHR_materials_variants");
+
+    private final GlbFile glb;
+    private final List<Primitive> primitives = new ArrayList<>();
+    private int triangleCount;
+    private ImageRewriter imageRewriter;
+    // Image index -> replacement, filled on the first write so every level shares it
+    private Map<Integer, RewrittenImage> rewrittenImages;
+
+    private static class Primitive {
+        int mesh;
+        int index;
+        float[] positions;
+        int[] indices;
+        int vertexCount;
+        // Attribute name -> (accessor, tightly packed elements)
+        final Map<String, GlbFile.Accessor> accessors = new LinkedHashMap<>();
+        final Map<String, byte[]> data = new LinkedHashMap<>();
+    }
+
+    // Re-encodes an embedded image; returns null to keep the original bytes
+    public interface ImageRewriter {
+        RewrittenImage rewrite(String mimeType, byte[] data) throws IOException;
+    }
+
+    public static class RewrittenImage {
+        public final String mimeType;
+        public final byte[] data;
+
+        public RewrittenImage(String mimeType, byte[] data) {
+            this.mimeType = mimeType;
+            this.data = data;
+        }
+    }
+
+    public static class Result {
+        public final int trianglesBefore;
+        public final int trianglesAfter;
+        public final long bytes;
+        public final int imagesRewritten;
+        public final long imageBytesSaved;
+
+        Result(int trianglesBefore, int trianglesAfter, long bytes, int imagesRewritten, long imageBytesSaved) {
+            this.trianglesBefore = trianglesBefore;
+            this.trianglesAfter = trianglesAfter;
+            this.bytes = bytes;
+            this.imagesRewritten = imagesRewritten;
+            this.imageBytesSaved = imageBytesSaved;
+        }
+    }
+
+    public GlbLodBuilder(GlbFile glb) throws IOException {
+        this.glb = glb;
+        for (String ext : stringList(glb.json.optJSONArray("extensionsUsed"))) {
+            if (!SAFE_EXTENSIONS.contains(ext) && !ext.startsWith("KHR_materials_")) {
+                throw new IOException("Unsupported extension " + ext);
+            }
+        }
+        JSONArray buffers = glb.array("buffers");
+        if (buffers.length() != 1 || buffers.optJSONObject(0).has("uri")) {
+            throw new IOException("Only a single embedded buffer is supported");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(glb.file, "r")) {
+            JSONArray meshes = glb.array("meshes");
+            for (int m = 0; m < meshes.length(); m++) {
+                JSONArray prims = meshes.optJSONObject(m).optJSONArray("primitives");
+                if (prims == null) continue;
+                for (int p = 0; p < prims.length(); p++) {
+                    Primitive primitive = load(raf, m, p, prims.optJSONObject(p));
+                    if (primitive != null) {
+                        primitives.add(primitive);
+                        triangleCount += primitive.indices.length / 3;
+                    }
+                }
+            }
+        }
+    }
+
+    // Triangles in the primitives that can be simplified
+    public int triangleCount() {
+        return triangleCount;
+    }
+
+    public void setImageRewriter(ImageRewriter imageRewriter) {
+        this.imageRewriter = imageRewriter;
+        this.rewrittenImages = null;
+    }
+
+    private Primitive load(RandomAccessFile raf, int mesh, int index, JSONObject json) throws IOException {
+        JSONObject attributes = json.optJSONObject("attributes");
+        if (json.optInt("mode", MODE_TRIANGLES) != MODE_TRIANGLES || !json.has("indices")
+                || json.has("targets") || attributes == null || !attributes.has("POSITION")) {
+            return null;
+        }
+        GlbFile.Accessor position = glb.accessor(attributes.optInt("POSITION"));
+        if (position.componentType != GlbFile.FLOAT || position.components != 3) return null;
+        int[] indices = glb.readIndices(raf, glb.accessor(json.optInt("indices")));
+        if (indices.length / 3 < MIN_PRIMITIVE_TRIANGLES) return null;
+        for (int i : indices) {
+            if (i < 0 || i >= position.count) throw new IOException("Index out of range in mesh " + mesh);
+        }
+
+        Primitive primitive = new Primitive();
+        primitive.mesh = mesh;
+        primitive.index = index;
+        primitive.indices = indices;
+        primitive.vertexCount = position.count;
+        primitive.positions = glb.readFloats(raf, position);
+        Iterator<String> names = attributes.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            GlbFile.Accessor accessor = glb.accessor(attributes.optInt(name));
+            if (accessor.count != position.count) throw new IOException("Attribute " + name + " count mismatch");
+            primitive.accessors.put(name, accessor);
+            primitive.data.put(name, glb.readPacked(raf, accessor));
+        }
+        return primitive;
+    }
+
+    // Writes a copy with each primitive reduced to about `ratio` of its triangles.
+    // A ratio of 1 keeps the geometry as it is and only rewrites images.
+    public Result write(float ratio, File out) throws IOException {
+        try {
+            return writeLod(ratio, out);
+        } catch (JSONException e) {
+            throw new IOException("Could not rewrite glTF: " + e.getMessage());
+        }
+    }
+
+    private Result writeLod(float ratio, File out) throws IOException, JSONException {
+        JSONObject doc = new JSONObject(glb.json.toString());
+        JSONArray accessors = doc.optJSONArray("accessors");
+        int originalAccessors = accessors.length();
+        List<byte[]> newViews = new ArrayList<>();
+        List<Integer> newViewTargets = new ArrayList<>();
+        int trianglesAfter = triangleCount;
+        if (ratio >= 1) {
+            return writeFile(doc, newViews, newViewTargets, out, trianglesAfter);
+        }
+
+        trianglesAfter = 0;
+        for (Primitive primitive : primitives) {
+            int target = Math.max(1, Math.round(primitive.indices.length / 3 * ratio));
+            int[] simplified = MeshSimplifier.simplify(primitive.positions, primitive.indices, target);
+            trianglesAfter += simplified.length / 3;
+
+            // Keep only referenced vertices, in first-use order (good for the vertex cache)
+            int[] remap = new int[primitive.vertexCount];
+            Arrays.fill(remap, -1);
+            int[] kept = new int[primitive.vertexCount];
+            int vertices = 0;
+            for (int i = 0; i < simplified.length; i++) {
+                int v = simplified[i];
+                if (remap[v] < 0) {
+                    remap[v] = vertices;
+                    kept[vertices++] = v;
+                }
+                simplified[i] = remap[v];
+            }
+
+            JSONObject primJson = doc.getJSONArray("meshes").getJSONObject(primitive.mesh)
+                    .getJSONArray("primitives").getJSONObject(primitive.index);
+            JSONObject attributes = primJson.getJSONObject("attributes");
+            for (Map.Entry<String, GlbFile.Accessor> e : primitive.accessors.entrySet()) {
+                GlbFile.Accessor accessor = e.getValue();
+                byte[] source = primitive.data.get(e.getKey());
+                byte[] packed = new byte[vertices * accessor.elementSize];
+                for (int i = 0; i < vertices; i++) {
+                    System.arraycopy(source, kept[i] * accessor.elementSize, packed, i * accessor.elementSize,
+                            accessor.elementSize);
+                }
+                JSONObject json = new JSONObject(accessor.json.toString());
+                json.remove("byteOffset");
+                json.remove("min");
+                json.remove("max");
+                json.put("count", vertices);
+                json.put("bufferView", -1 - newViews.size());
+                if ("POSITION".equals(e.getKey())) putBounds(json, primitive.positions, kept, vertices);
+                newViews.add(packed);
+                newViewTargets.add(TARGET_ARRAY_BUFFER);
+                attributes.put(e.getKey(), accessors.length());
+                accessors.put(json);
+            }
+
+            boolean shortIndices = vertices < 0xFFFF; // 0xFFFF is the restart index on some GPUs
+            ByteBuffer indexBytes = ByteBuffer.allocate(simplified.length * (shortIndices ? 2 : 4))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i : simplified) {
+                if (shortIndices) indexBytes.putShort((short) i);
+                else indexBytes.putInt(i);
+            }
+            JSONObject indexAccessor = new JSONObject();
+            indexAccessor.put("bufferView", -1 - newViews.size());
+            indexAccessor.put("componentType", shortIndices ? GlbFile.UNSIGNED_SHORT : GlbFile.UNSIGNED_INT);
+            indexAccessor.put("count", simplified.length);
+            indexAccessor.put("type", "SCALAR");
+            newViews.add(indexBytes.array());
+            newViewTargets.add(TARGET_ELEMENT_ARRAY_BUFFER);
+            primJson.put("indices", accessors.length());
+            accessors.put(indexAccessor);
+        }
+
+        pruneAccessors(doc, originalAccessors);
+        return writeFile(doc, newViews, newViewTargets, out, trianglesAfter);
+    }
+
+    private static void putBounds(JSONObject accessor, float[] positions, int[] kept, int vertices)
+            throws JSONException {
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = 0; i < vertices; i++) {
+            for (int k = 0; k < 3; k++) {
+                float value = positions[kept[i] * 3 + k];
+                min[k] = Math.min(min[k], value);
+                max[k] = Math.max(max[k], value);
+            }
+        }
+        JSONArray minJson = new JSONArray();
+        JSONArray maxJson = new JSONArray();
+        for (int k = 0; k < 3; k++) {
+            minJson.put((double) min[k]);
+            maxJson.put((double) max[k]);
+        }
+        accessor.put("min", minJson);
+        accessor.put("max", maxJson);
+    }
+
+    // Drops accessors nothing references any more (the replaced geometry) and renumbers
+    // every reference
+    private static void pruneAccessors(JSONObject doc, int originalAccessors) throws JSONException {
+        JSONArray accessors = doc.getJSONArray("accessors");
+        boolean[] used = new boolean[accessors.length()];
+        for (int i = originalAccessors; i < used.length; i++) used[i] = true;
+        visitAccessorRefs(doc, (holder, key) -> used[holder.getInt(key)] = true);
+
+        int[] remap = new int[used.length];
+        JSONArray kept = new JSONArray();
+        for (int i = 0; i < used.length; i++) {
+            remap[i] = used[i] ? kept.length() : -1;
+            if (used[i]) kept.put(accessors.getJSONObject(i));
+        }
+        visitAccessorRefs(doc, (holder, key) -> holder.put(key, remap[holder.getInt(key)]));
+        doc.put("accessors", kept);
+    }
+
+    private interface RefVisitor {
+        void visit(JSONObject holder, String key) throws JSONException;
+    }
+
+    // Every place core glTF refers to an accessor
+    private static void visitAccessorRefs(JSONObject doc, RefVisitor visitor) throws JSONException {
+        JSONArray meshes = doc.optJSONArray("meshes");
+        for (int m = 0; meshes != null && m < meshes.length(); m++) {
+            JSONArray prims = meshes.getJSONObject(m).optJSONArray("primitives");
+            for (int p = 0; prims != null && p < prims.length(); p++) {
+                JSONObject prim = prims.getJSONObject(p);
+                if (prim.has("indices")) visitor.visit(prim, "indices");
+                visitAll(prim.optJSONObject("attributes"), visitor);
+                JSONArray targets = prim.optJSONArray("targets");
+                for (int t = 0; targets != null && t < targets.length(); t++) {
+                    visitAll(targets.getJSONObject(t), visitor);
+                }
+            }
+        }
+        JSONArray skins = doc.optJSONArray("skins");
+        for (int s = 0; skins != null && s < skins.length(); s++) {
+            JSONObject skin = skins.getJSONObject(s);
+            if (skin.has("inverseBindMatrices")) visitor.visit(skin, "inverseBindMatrices");
+        }
+        JSONArray animations = doc.optJSONArray("animations");
+        for (int a = 0; animations != null && a < animations.length(); a++) {
+            JSONArray samplers = animations.getJSONObject(a).optJSONArray("samplers");
+            for (int s = 0; samplers != null && s < samplers.length(); s++) {
+                visitor.visit(samplers.getJSONObject(s), "input");
+                visitor.visit(samplers.getJSONObject(s), "output");
+            }
+        }
+    }
+
+    private static void visitAll(JSONObject map, RefVisitor visitor) throws JSONException {
+        if (map == null) return;
+        Iterator<String> keys = map.keys();
+        List<String> names = new ArrayList<>();
+        while (keys.hasNext()) names.add(keys.next());
+        for (String name : names) visitor.visit(map, name);
+    }
+
+    // Runs every embedded image through the rewriter once
+    private Map<Integer, RewrittenImage> rewriteImages() throws IOException {
+        Map<Integer, RewrittenImage> rewritten = new LinkedHashMap<>();
+        JSONArray images = glb.json.optJSONArray("images");
+        if (imageRewriter == null || images == null) return rewritten;
+        try (RandomAccessFile raf = new RandomAccessFile(glb.file, "r")) {
+            for (int i = 0; i < images.length(); i++) {
+                JSONObject image = images.optJSONObject(i);
+                if (image == null || !image.has("bufferView")) continue;
+                ByteBuffer view = glb.readView(raf, image.optInt("bufferView"));
+                byte[] data = view.array();
+                RewrittenImage replacement = imageRewriter.rewrite(image.optString("mimeType"), data);
+                if (replacement != null) rewritten.put(i, replacement);
+            }
+        }
+        return rewritten;
+    }
+
+    // Lays out the kept source views followed by the new ones, then streams the file
+    private Result writeFile(JSONObject doc, List<byte[]> newViews,
+                             List<Integer> newViewTargets, File out, int trianglesAfter)
+            throws IOException, JSONException {
+        JSONArray oldViews = glb.array("bufferViews");
+        JSONArray accessors = doc.getJSONArray("accessors");
+        JSONArray images = doc.optJSONArray("images");
+        if (rewrittenImages == null) rewrittenImages = rewriteImages();
+
+        long imageBytesSaved = 0;
+        for (Map.Entry<Integer, RewrittenImage> e : rewrittenImages.entrySet()) {
+            JSONObject image = images.getJSONObject(e.getKey());
+            imageBytesSaved += glb.viewRange(image.getInt("bufferView"))[1] - e.getValue().data.length;
+            image.put("bufferView", -1 - newViews.size());
+            image.put("mimeType", e.getValue().mimeType);
+            newViews.add(e.getValue().data);
+            newViewTargets.add(null);
+        }
+
+        boolean[] usedView = new boolean[oldViews.length()];
+        for (int i = 0; i < accessors.length(); i++) {
+            int view = accessors.getJSONObject(i).optInt("bufferView", Integer.MIN_VALUE);
+            if (view >= 0) usedView[view] = true;
+        }
+        for (int i = 0; images != null && i < images.length(); i++) {
+            int view = images.getJSONObject(i).optInt("bufferView", Integer.MIN_VALUE);
+            if (view >= 0) usedView[view] = true;
+        }
+
+        int[] viewRemap = new int[oldViews.length()];
+        List<Integer> copied = new ArrayList<>();
+        JSONArray views = new JSONArray();
+        long binLength = 0;
+        for (int i = 0; i < oldViews.length(); i++) {
+            if (!usedView[i]) {
+                viewRemap[i] = -1;
+                continue;
+            }
+            JSONObject view = new JSONObject(oldViews.getJSONObject(i).toString());
+            view.put("buffer", 0);
+            view.put("byteOffset", binLength);
+            viewRemap[i] = views.length();
+            views.put(view);
+            copied.add(i);
+            binLength = align4(binLength + view.getLong("byteLength"));
+        }
+        int firstNewView = views.length();
+        for (int i = 0; i < newViews.size(); i++) {
+            JSONObject view = new JSONObject();
+            view.put("buffer", 0);
+            view.put("byteOffset", binLength);
+            view.put("byteLength", newViews.get(i).length);
+            if (newViewTargets.get(i) != null) view.put("target", newViewTargets.get(i));
+            views.put(view);
+            binLength = align4(binLength + newViews.get(i).length);
+        }
+
+        for (int i = 0; i < accessors.length(); i++) {
+            JSONObject accessor = accessors.getJSONObject(i);
+            if (!accessor.has("bufferView")) continue;
+            int view = accessor.getInt("bufferView");
+            accessor.put("bufferView", view >= 0 ? viewRemap[view] : firstNewView + (-1 - view));
+        }
+        for (int i = 0; images != null && i < images.length(); i++) {
+            JSONObject image = images.getJSONObject(i);
+            if (!image.has("bufferView")) continue;
+            int view = image.getInt("bufferView");
+            image.put("bufferView", view >= 0 ? viewRemap[view] : firstNewView + (-1 - view));
+        }
+        doc.put("bufferViews", views);
+        JSONObject buffer = new JSONObject();
+        buffer.put("byteLength", binLength);
+        doc.put("buffers", new JSONArray().put(buffer));
+
+        byte[] json = doc.toString().getBytes(StandardCharsets.UTF_8);
+        int jsonPadded = (int) align4(json.length);
+        long total = 12 + 8 + jsonPadded + 8 + binLength;
+
+        try (RandomAccessFile in = new RandomAccessFile(glb.file, "r");
+             OutputStream os = new BufferedOutputStream(new FileOutputStream(out), 64 * 1024)) {
+            ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(GlbFile.MAGIC).putInt(2).putInt((int) total);
+            header.putInt(jsonPadded).putInt(GlbFile.CHUNK_JSON);
+            os.write(header.array());
+            os.write(json);
+            for (int i = json.length; i < jsonPadded; i++) os.write(' ');
+
+            ByteBuffer binHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            binHeader.putInt((int) binLength).putInt(GlbFile.CHUNK_BIN);
+            os.write(binHeader.array());
+
+            long written = 0;
+            byte[] chunk = new byte[64 * 1024];
+            for (int viewIndex : copied) {
+                long[] range = glb.viewRange(viewIndex);
+                in.seek(range[0]);
+                long remaining = range[1];
+                while (remaining > 0) {
+                    int n = (int) Math.min(chunk.length, remaining);
+                    in.readFully(chunk, 0, n);
+                    os.write(chunk, 0, n);
+                    remaining -= n;
+                }
+                written = pad(os, written + range[1]);
+            }
+            for (byte[] bytes : newViews) {
+                os.write(bytes);
+                written = pad(os, written + bytes.length);
+            }
+        }
+        return new Result(triangleCount, trianglesAfter, total, rewrittenImages.size(), imageBytesSaved);
+    }
+
+    private static long align4(long n) {
+        return (n + 3) & ~3L;
+    }
+
+    private static long pad(OutputStream os, long position) throws IOException {
+        long aligned = align4(position);
+        for (long i = position; i < aligned; i++) os.write(0);
+        return aligned;
+    }
+
+    private static List<String> stringList(JSONArray array) {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; array != null && i < array.length(); i++) list.add(array.optString(i));
+        return list;
+    }
+}
@@ -0,0 +1,475 @@
+package co.nomiva.app;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+// Shrinks photos before they are uploaded for generation.
+// Camera photos are 12-50 MP but the generation backend only needs about 2K on the long
+// edge, so uploading the original mostly costs time. Images are decoded with subsampling
+// (never at full resolution), scaled, rotated per EXIF and re-encoded without metadata
+// into cacheDir/prepared-images. The page reads the result from /_native/images/<name>.
+// Photos picked in the page arrive as chunks over the binary channel and are spooled to
+// a file first, so the original never becomes a base64 string.
+public class ImagePreparer {
+
+    private static final String TAG = "ImagePreparer";
+
+    public static final String URL_PREFIX = "/_native/images/";
+
+    static final int DEFAULT_MAX_EDGE = 2048;
+    static final int DEFAULT_QUALITY = 90;
+    static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024;
+    private static final int MIN_QUALITY = 60;
+    private static final int QUALITY_STEP = 10;
+    private static final long KEEP_FOR_MS = 60L * 60 * 1000; // Prepared files are only needed for one upload
+    static final long MAX_STREAM_BYTES = 64L * 1024 * 1024;
+    // Transparent images that don't fit maxBytes shrink by this much per attempt, down to MIN_PNG_EDGE
+    private static final float PNG_SHRINK = 0.75f;
+    private static final int MIN_PNG_EDGE = 512;
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}\\.(jpg|png)");
+    private static final Pattern REQUEST_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    public interface Callback {
+        void onPrepared(Result result);
+
+        void onFailed(String error);
+    }
+
+    public static class Options {
+        int maxEdge = DEFAULT_MAX_EDGE;
+        int quality = DEFAULT_QUALITY;
+        long maxBytes = DEFAULT_MAX_BYTES;
+
+        // Missing or invalid fields keep their defaults
+        public static Options fromJson(String json) {
+            Options options = new Options();
+            if (json == null || json.isEmpty()) return options;
+            try {
+                JSONObject obj = new JSONObject(json);
+                options.maxEdge = clamp(obj.optInt("maxEdge", options.maxEdge), 256, 8192);
+                options.quality = clamp(obj.optInt("quality", options.quality), MIN_QUALITY, 100);
+                options.maxBytes = Math.max(64 * 1024, obj.optLong("maxBytes", options.maxBytes));
+            } catch (JSONException e) {
+                Log.w(TAG, "Ignoring bad options: " + e.getMessage());
+            }
+            return options;
+        }
+
+        private static int clamp(int value, int min, int max) {
+            return Math.max(min, Math.min(max, value));
+        }
+    }
+
+    public static class Result {
+        String name;
+        String mimeType;
+        int width;
+        int height;
+        int originalWidth;
+        int originalHeight;
+        long bytesBefore;
+        long bytesAfter;
+        int quality;
+        long durationMs;
+
+        public String localUrl() {
+            return URL_PREFIX + name;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("url", localUrl());
+            json.put("mimeType", mimeType);
+            json.put("width", width);
+            json.put("height", height);
+            json.put("originalWidth", originalWidth);
+            json.put("originalHeight", originalHeight);
+            json.put("bytesBefore", bytesBefore);
+            json.put("bytesAfter", bytesAfter);
+            json.put("quality", quality);
+            json.put("durationMs", durationMs);
+            return json;
+        }
+    }
+
+    // Where the encoded bytes come from; opened once per decode pass
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    // A photo the page is sending over the binary channel
+    private static class Incoming {
+        final File file;
+        final Options options;
+        final Callback callback;
+        final long createdAt = System.currentTimeMillis();
+        long bytes;
+        boolean failed;
+
+        Incoming(File file, Options options, Callback callback) {
+            this.file = file;
+            this.options = options;
+            this.callback = callback;
+        }
+    }
+
+    private final File dir;
+    private final ContentResolver resolver;
+    private final Executor executor;
+    // Request id -> photo being received; guarded by itself
+    private final Map<String, Incoming> incoming = new HashMap<>();
+
+    public ImagePreparer(File cacheRoot, ContentResolver resolver, Executor executor) {
+        this.dir = new File(cacheRoot, "prepared-images");
+        this.resolver = resolver;
+        this.executor = executor;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+    }
+
+    // Accepts a content:// URI. All work happens on the executor; the callback runs there too.
+    public void prepare(String source, Options options, Callback callback) {
+        executor.execute(() -> {
+            Source opened;
+            try {
+                opened = openSource(source);
+            } catch (IOException e) {
+                callback.onFailed(e.getMessage());
+                return;
+            }
+            prepareOnExecutor(opened, options, callback);
+        });
+    }
+
+    public static boolean isValidRequestId(String requestId) {
+        return requestId != null && REQUEST_ID_PATTERN.matcher(requestId).matches();
+    }
+
+    // Waits for a photo sent as TYPE_IMAGE_CHUNK messages under `requestId`; the last chunk
+    // starts the preparation. False if the id is invalid or already in use.
+    public boolean expectStream(String requestId, Options options, Callback callback) {
+        if (!isValidRequestId(requestId)) return false;
+        synchronized (incoming) {
+            // Streams the page gave up on
+            long cutoff = System.currentTimeMillis() - KEEP_FOR_MS;
+            Iterator<Incoming> it = incoming.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().createdAt < cutoff) it.remove();
+            }
+            if (incoming.containsKey(requestId)) return false;
+            incoming.put(requestId, new Incoming(new File(dir, requestId + ".part"), options, callback));
+        }
+        return true;
+    }
+
+    // A chunk message from the binary channel (any thread). Bytes are appended on the
+    // executor, so the caller isn't held up by disk writes and chunks stay in order.
+    public void receiveChunk(byte[] message) {
+        String requestId = BinaryChannel.chunkId(message);
+        if (requestId == null) return;
+        Incoming in;
+        synchronized (incoming) {
+            in = incoming.get(requestId);
+        }
+        if (in == null) {
+            Log.w(TAG, "Chunk for unknown image " + requestId);
+            return;
+        }
+        int offset = BinaryChannel.chunkDataOffset(message);
+        boolean last = BinaryChannel.isLastChunk(message);
+        executor.execute(() -> {
+            if (!in.failed) {
+                in.bytes += message.length - offset;
+                try {
+                    if (in.bytes > MAX_STREAM_BYTES) throw new IOException("Image too large");
+                    try (OutputStream out = new FileOutputStream(in.file, true)) {
+                        out.write(message, offset, message.length - offset);
+                    }
+                } catch (IOException e) {
+                    in.failed = true;
+                    in.file.delete();
+                    in.callback.onFailed(e.getMessage());
+                }
+            }
+            if (!last) return;
+            synchronized (incoming) {
+                incoming.remove(requestId);
+            }
+            if (in.failed) return;
+            try {
+                prepareOnExecutor(() -> new FileInputStream(in.file), in.options, in.callback);
+            } finally {
+                in.file.delete();
+            }
+        });
+    }
+
+    private void prepareOnExecutor(Source source, Options options, Callback callback) {
+        long start = SystemClock.elapsedRealtime();
+        pruneOldFiles();
+        try {
+            Result result = prepareNow(source, options);
+            result.durationMs = SystemClock.elapsedRealtime() - start;
+            Log.d(TAG, "Prepared " + result.originalWidth + "x" + result.originalHeight + " -> "
+                    + result.width + "x" + result.height + ", " + result.bytesBefore + " -> "
+                    + result.bytesAfter + " bytes in " + result.durationMs + "ms");
+            callback.onPrepared(result);
+        } catch (IOException | OutOfMemoryError e) {
+            Log.w(TAG, "Could not prepare image: " + e.getMessage());
+            callback.onFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private Source openSource(String source) throws IOException {
+        if (source != null && source.startsWith("content://")) {
+            Uri uri = Uri.parse(source);
+            return () -> {
+                InputStream in = resolver.openInputStream(uri);
+                if (in == null) throw new IOException("Cannot open " + source);
+                return in;
+            };
+        }
+        throw new IOException("Unsupported image source");
+    }
+
+    private Result prepareNow(Source source, Options options) throws IOException {
+        // Pass 1: dimensions only
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = source.open()) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Not an image");
+
+        int orientation;
+        try (InputStream in = source.open()) {
+            orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            orientation = ExifInterface.ORIENTATION_NORMAL; // PNG/WEBP without EXIF
+        }
+
+        // Pass 2: subsampled decode, counting the source bytes on the way
+        BitmapFactory.Options decode = new BitmapFactory.Options();
+        decode.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, options.maxEdge);
+        Bitmap decoded;
+        long bytesBefore;
+        try (CountingInputStream in = new CountingInputStream(source.open())) {
+            decoded = BitmapFactory.decodeStream(in, null, decode);
+            byte[] rest = new byte[8192];
+            while (in.read(rest, 0, rest.length) > 0) {
+                // Drain so bytesBefore covers the whole file
+            }
+            bytesBefore = in.count;
+        }
+        if (decoded == null) throw new IOException("Could not decode image");
+
+        // Scale and orient in a single pass
+        int[] target = targetSize(bounds.outWidth, bounds.outHeight, options.maxEdge);
+        Matrix matrix = new Matrix();
+        matrix.setScale(target[0] / (float) decoded.getWidth(), target[1] / (float) decoded.getHeight());
+        Matrix orient = orientationMatrix(orientation);
+        if (orient != null) matrix.postConcat(orient);
+        Bitmap output = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (output != decoded) decoded.recycle();
+
+        Result result = new Result();
+        result.originalWidth = bounds.outWidth;
+        result.originalHeight = bounds.outHeight;
+        result.bytesBefore = bytesBefore;
+        try {
+            encodeTo(output, options, result);
+        } finally {
+            output.recycle();
+        }
+        return result;
+    }
+
+    // JPEG unless some pixel is actually transparent (PNGs usually carry an alpha channel
+    // they don't use). JPEG quality steps down until the file fits maxBytes or MIN_QUALITY
+    // is reached; a transparent image is scaled down instead. Re-encoding drops all metadata.
+    private void encodeTo(Bitmap bitmap, Options options, Result result) throws IOException {
+        boolean png = bitmap.hasAlpha() && !isOpaque(bitmap);
+        Bitmap.CompressFormat format = png ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+        int quality = png ? 100 : options.quality;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * 1024);
+        Bitmap current = bitmap;
+        try {
+            while (true) {
+                buffer.reset();
+                if (!current.compress(format, quality, buffer)) throw new IOException("Could not encode image");
+                if (buffer.size() <= options.maxBytes) break;
+                if (png) {
+                    int width = Math.round(current.getWidth() * PNG_SHRINK);
+                    int height = Math.round(current.getHeight() * PNG_SHRINK);
+                    if (Math.max(width, height) < MIN_PNG_EDGE) break;
+                    Bitmap smaller = Bitmap.createScaledBitmap(current, width, height, true);
+                    if (current != bitmap) current.recycle();
+                    current = smaller;
+                } else {
+                    if (quality - QUALITY_STEP < MIN_QUALITY) break;
+                    quality -= QUALITY_STEP;
+                }
+            }
+            result.width = current.getWidth();
+            result.height = current.getHeight();
+        } finally {
+            if (current != bitmap) current.recycle();
+        }
+
+        result.name = UUID.randomUUID().toString() + (png ? ".png" : ".jpg");
+        result.mimeType = png ? "image/png" : "image/jpeg";
+        result.quality = quality;
+        result.bytesAfter = buffer.size();
+        try (OutputStream out = new FileOutputStream(new File(dir, result.name))) {
+            buffer.writeTo(out);
+        }
+    }
+
+    // Whether every pixel has full alpha; one row at a time to keep the scan cheap
+    private static boolean isOpaque(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int pixel : row) {
+                if ((pixel >>> 24) != 0xFF) return false;
+            }
+        }
+        return true;
+    }
+
+    // Largest power-of-two subsample that still leaves the long edge at or above maxEdge
+    static int sampleSizeFor(int width, int height, int maxEdge) {
+        int longEdge = Math.max(width, height);
+        int sample = 1;
+        while (longEdge / (sample * 2) >= maxEdge) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    // Output size with the long edge capped at maxEdge; never upscales
+    static int[] targetSize(int width, int height, int maxEdge) {
+        int longEdge = Math.max(width, height);
+        if (longEdge <= maxEdge) return new int[]{width, height};
+        float scale = maxEdge / (float) longEdge;
+        return new int[]{Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale))};
+    }
+
+    private static Matrix orientationMatrix(int orientation) {
+        Matrix m = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                m.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                m.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                m.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                m.setRotate(90);
+                m.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                m.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                m.setRotate(-90);
+                m.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                m.setRotate(-90);
+                break;
+            default:
+                return null;
+        }
+        return m;
+    }
+
+    // Serves /_native/images/<name>; null if there is no such prepared image
+    public WebResourceResponse serve(String path) {
+        String name = path.substring(URL_PREFIX.length());
+        if (!NAME_PATTERN.matcher(name).matches()) return null;
+        File f = new File(dir, name);
+        if (!f.exists()) return null;
+        try {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Length", String.valueOf(f.length()));
+            headers.put("Cache-Control", "no-store");
+            String type = name.endsWith(".png") ? "image/png" : "image/jpeg";
+            return new WebResourceResponse(type, null, 200, "OK", headers, new FileInputStream(f));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void pruneOldFiles() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long cutoff = System.currentTimeMillis() - KEEP_FOR_MS;
+        for (File f : files) {
+            if (f.lastModified() < cutoff && !f.delete()) {
+                Log.w(TAG, "Could not delete " + f.getName());
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
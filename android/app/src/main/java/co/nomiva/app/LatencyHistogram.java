@@ -0,0 +1,97 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-bucket latency histogram. Recording is a couple of atomic adds and never
+// allocates or locks, so it is cheap enough for every bridge call. Buckets are
+// exponential from 50us to 60s; percentiles are reported as the upper bound of
+// the bucket they fall in.
+public class LatencyHistogram {
+
+    // Upper bounds in microseconds; the last bucket holds everything slower
+    static final long[] BOUNDS_US = {
+            50, 100, 250, 500,
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, 30_000_000, 60_000_000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_US.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) micros = 0;
+        buckets.incrementAndGet(bucketFor(micros));
+        count.incrementAndGet();
+        totalUs.addAndGet(micros);
+        long max;
+        do {
+            max = maxUs.get();
+        } while (micros > max && !maxUs.compareAndSet(max, micros));
+    }
+
+    static int bucketFor(long micros) {
+        int lo = 0;
+        int hi = BOUNDS_US.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (micros <= BOUNDS_US[mid]) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    // Upper bound of the bucket holding the q-th quantile, in microseconds.
+    // Reads are not atomic across buckets, which is fine for reporting.
+    long percentileUs(double q) {
+        long[] counts = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < BOUNDS_US.length ? BOUNDS_US[i] : maxUs.get();
+        }
+        return maxUs.get();
+    }
+
+    // Rates are per minute of process uptime
+    public JSONObject toJson(long uptimeMs) throws JSONException {
+        long n = count.get();
+        JSONObject json = new JSONObject();
+        json.put("count", n);
+        json.put("perMinute", uptimeMs > 0 ? n * 60_000.0 / uptimeMs : 0);
+        json.put("meanMs", n > 0 ? totalUs.get() / 1000.0 / n : 0);
+        json.put("p50Ms", percentileUs(0.50) / 1000.0);
+        json.put("p90Ms", percentileUs(0.90) / 1000.0);
+        json.put("p99Ms", percentileUs(0.99) / 1000.0);
+        json.put("maxMs", maxUs.get() / 1000.0);
+        // Sparse: only buckets that have samples, as [upperBoundUs, count]; -1 is the overflow bucket
+        JSONArray sparse = new JSONArray();
+        for (int i = 0; i < buckets.length(); i++) {
+            long c = buckets.get(i);
+            if (c == 0) continue;
+            JSONArray pair = new JSONArray();
+            pair.put(i < BOUNDS_US.length ? BOUNDS_US[i] : -1);
+            pair.put(c);
+            sparse.put(pair);
+        }
+        json.put("buckets", sparse);
+        return json;
+    }
+}
@@ -1,14 +1,23 @@
 package co.nomiva.app;
 
+import android.app.ActivityManager;
+import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.graphics.Color;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.ViewTreeObserver;
+import android.util.Base64;
 import android.util.Log;
 import android.view.WindowManager;
+import android.webkit.CookieManager;
 import android.webkit.JavascriptInterface;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.FileProvider;
 import androidx.core.view.WindowCompat;
 
 import com.getcapacitor.BridgeActivity;
@@ -22,6 +31,21 @@ import com.google.android.gms.ads.interstitial.InterstitialAdLoadCallback;
 import com.google.android.gms.ads.rewarded.RewardedAd;
 import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 // Unity Ads imports - COMMENTED OUT UNTIL LIBRARY IS ADDED
 // import com.unity3d.ads.IUnityAdsInitializationListener;
 // import com.unity3d.ads.IUnityAdsLoadListener;
@@ -32,8 +56,9 @@ import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 // REMOVED implements IUnityAdsInitializationListener for now
 public class MainActivity extends BridgeActivity {
 
-    private RewardedAd rewardedAd;
-    private InterstitialAd interstitialAd;
+    // Preloaded ads, refilled in the background whenever one is shown
+    private AdPool<RewardedAd> rewardedPool;
+    private AdPool<InterstitialAd> interstitialPool;
 
     // TEST MODE CONFIGURATION
     private final boolean TEST_MODE = false; // Set to false to load normal app
@@ -57,15 +82,105 @@ public class MainActivity extends BridgeActivity {
     private final boolean USE_TEST_ADS = true; // Set to false when publishing to Play Store
     private final boolean ENABLE_INTERSTITIAL = false; // Set to true if you want interstitial ads
     private final boolean ENABLE_UNITY_ADS = false; // DISABLED UNTIL LIBRARY IS ADDED
+    private final int REWARDED_POOL_SIZE = 2; // Ready rewarded ads to keep preloaded
+    private final int INTERSTITIAL_POOL_SIZE = 1;
 
     // Use test or production IDs based on configuration
     private String admobRewardedAdId;
     private String admobInterstitialAdId;
 
+    // Native disk cache for 3D model downloads
+    private ModelCache modelCache;
+
+    // Saved models, stored as files instead of IndexedDB blobs
+    private ModelStore modelStore;
+    // Downloads into the store can take a while; they don't hold up other background work
+    private final ExecutorService modelStoreExecutor = Executors.newSingleThreadExecutor();
+
+    // Copies of downloaded/saved GLBs sized for this device (own low-priority thread)
+    private final ExecutorService lodExecutor = Executors.newSingleThreadExecutor();
+    private ModelLodCache modelLodCache;
+
+    // Validation and metadata (counts, bounds, GPU memory) of locally stored GLBs
+    private ModelIndex modelIndex;
+
+    // GLB to OBJ/STL conversion for sharing
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+    private ModelExporter modelExporter;
+
+    // Batched, JSON-encoded events to the page (replaces per-call evaluateJavascript strings)
+    private NativeEventChannel events;
+
+    // Binary data to the page: fetch()-able blobs under /_native/blobs/ and a MessagePort
+    private static final int MAX_BENCHMARK_BYTES = 16 * 1024 * 1024;
+    private BinaryTransport binaryTransport;
+    private BinaryChannel binaryChannel;
+    private byte[] benchmarkPayload;
+
+    // Startup: ads SDK init runs off the critical path, after first frame or first ad request
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean adsInitStarted = new AtomicBoolean(false);
+    private StartupMetrics startupMetrics;
+
+    // Bridge call latency/throughput and ad lifecycle timings, flushed to files/metrics
+    private static final long METRICS_FLUSH_INTERVAL_MS = 5 * 60 * 1000;
+    private MetricsRegistry metrics;
+
+    // Batched windows for deferrable work (metrics flushes, prefetch, ad retries, page jobs)
+    private static final String PAGE_JOB_PREFIX = "page:";
+    private static final long PREFETCH_MAX_DELAY_MS = 10_000;
+    private final ScheduledExecutorService batchExecutor = Executors.newSingleThreadScheduledExecutor();
+    private PowerMonitor powerMonitor;
+    private BatchScheduler batchScheduler;
+    private volatile List<String> pendingThumbnailPrefetch;
+
+    // Likely-next model downloads and ad warming from navigation hints
+    private static final int GENERATION_NEARLY_DONE = 80;
+    private final ExecutorService preloadExecutor = Executors.newSingleThreadExecutor();
+    private Preloader preloader;
+
+    // Native polling of generation progress (keeps running while the WebView is paused)
+    private final ScheduledExecutorService generationScheduler = Executors.newSingleThreadScheduledExecutor();
+    private GenerationTracker generationTracker;
+
+    // Photo downscaling before generation upload (own thread so it never waits on other IO)
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
+    private ImagePreparer imagePreparer;
+
+    // Gallery preview images (memory + disk), warmed ahead of scrolling by prefetchThumbnails
+    private final ExecutorService thumbnailExecutor = Executors.newFixedThreadPool(3);
+    private ThumbnailCache thumbnailCache;
+
+    // Backend base URL (matches config.js) and a short-lived cache for its read-mostly GETs
+    private static final String API_BASE_URL = "https://threely-ai.onrender.com/api";
+    private final ExecutorService apiExecutor = Executors.newFixedThreadPool(2);
+    private ApiCache apiCache;
+
+    // Resumable uploads streamed from app storage
+    private NetworkMonitor networkMonitor;
+    private UploadEngine uploadEngine;
+
+    // Trim callbacks -> cache shrinking and viewer release events (own thread for disk trims)
+    private final ExecutorService memoryExecutor = Executors.newSingleThreadExecutor();
+    private MemoryGovernor memoryGovernor;
+
+    // Section the page is showing, so a renderer crash or process death can come back to it
+    private static final String STATE_SECTION = "currentSection";
+    private static final long RENDERER_CRASH_LOOP_MS = 30_000;
+    private static long lastRendererGoneAt;
+    private volatile String currentSection;
+    private volatile String restoreSection;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        startupMetrics = new StartupMetrics(getFilesDir(), BuildConfig.VERSION_NAME, backgroundExecutor);
+        metrics = new MetricsRegistry(getFilesDir(), BuildConfig.VERSION_NAME);
+
+        // Register the JS bridge once, before the page finishes loading
+        getBridge().getWebView().addJavascriptInterface(new AdInterface(), "AndroidAds");
+
         // Set which ad IDs to use
         admobRewardedAdId = USE_TEST_ADS ? TEST_REWARDED_ID : REWARDED_AD_ID;
         admobInterstitialAdId = USE_TEST_ADS ? TEST_INTERSTITIAL_ID : INTERSTITIAL_AD_ID;
@@ -76,19 +191,121 @@ public class MainActivity extends BridgeActivity {
         // Setup status bar
         setupStatusBar();
 
+        // Native network code reuses the WebView's session cookies
+        CookieProvider cookies = url -> CookieManager.getInstance().getCookie(url);
+
+        networkMonitor = new NetworkMonitor(this);
+        powerMonitor = new PowerMonitor(this);
+        BatchScheduler.Conditions conditions = new BatchScheduler.Conditions() {
+            @Override
+            public boolean isConnected() {
+                return networkMonitor.isConnected();
+            }
+
+            @Override
+            public boolean isUnmetered() {
+                return networkMonitor.isUnmetered();
+            }
+
+            @Override
+            public boolean isBatteryLow() {
+                return powerMonitor.isBatteryLow();
+            }
+        };
+        batchScheduler = new BatchScheduler(batchExecutor, conditions);
+        networkMonitor.addListener(monitor -> batchScheduler.conditionsChanged());
+        powerMonitor.addListener(monitor -> batchScheduler.conditionsChanged());
+        // A flush is one small append; it goes out with whatever else is due
+        batchScheduler.schedule("metrics-flush", "metrics", BatchScheduler.PRIORITY_LOW, BatchScheduler.NETWORK_NONE,
+                METRICS_FLUSH_INTERVAL_MS / 2, METRICS_FLUSH_INTERVAL_MS, METRICS_FLUSH_INTERVAL_MS,
+                (job, reason) -> metrics.flush());
+
+        // Serve model downloads from the native disk cache, saved models from the model store
+        modelCache = new ModelCache(getCacheDir(), cookies);
+        modelStore = new ModelStore(getFilesDir(), modelStoreExecutor, modelCache, cookies);
+        modelExporter = new ModelExporter(getCacheDir(), exportExecutor, modelStore);
+        imagePreparer = new ImagePreparer(getCacheDir(), getContentResolver(), imageExecutor);
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        thumbnailCache = new ThumbnailCache(getCacheDir(), activityManager.getMemoryClass(),
+                thumbnailExecutor, networkMonitor);
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        modelLodCache = new ModelLodCache(getCacheDir(), lodExecutor,
+                ModelLodCache.levelFor(memoryInfo.totalMem, activityManager.isLowRamDevice()));
+        modelIndex = new ModelIndex(getFilesDir(), backgroundExecutor,
+                url -> isGlbUrl(Uri.parse(url)) ? localModelFile(url) : null);
+        modelCache.setListener((url, body) -> {
+            Uri uri = Uri.parse(url);
+            if (isGlbPath(uri.getPath())) modelLodCache.generate(url, body);
+            if (isGlbUrl(uri)) modelIndex.index(url, body);
+        });
+        // Prefetches never compete with the page for the CPU
+        preloadExecutor.execute(() -> Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND));
+        preloader = new Preloader(preloadExecutor, batchExecutor, modelCache::prefetch, this::warmAds, conditions);
+        modelCache.setUseListener(preloader::noteModelUsed);
+        networkMonitor.addListener(monitor -> preloader.conditionsChanged());
+        powerMonitor.addListener(monitor -> preloader.conditionsChanged());
+        apiCache = new ApiCache(API_BASE_URL, getBridge().getLocalUrl(), apiExecutor, cookies,
+                (url, cookie) -> CookieManager.getInstance().setCookie(url, cookie));
+        binaryTransport = new BinaryTransport();
+        AppWebViewClient webViewClient = new AppWebViewClient(getBridge(), modelCache, modelStore,
+                imagePreparer, thumbnailCache, apiCache, modelLodCache, binaryTransport);
+        webViewClient.setOnRendererGone(this::onRendererGone);
+        webViewClient.setOnNetworkRequest(batchScheduler::noteForegroundNetwork);
+        getBridge().setWebViewClient(webViewClient);
+
+        events = new NativeEventChannel(getBridge().getWebView());
+        binaryChannel = new BinaryChannel(getBridge().getWebView(), getBridge().getLocalUrl());
+        binaryChannel.setListener((type, message) -> {
+            if (type == BinaryChannel.TYPE_ECHO) binaryChannel.send(message);
+            else if (type == BinaryChannel.TYPE_IMAGE_CHUNK) imagePreparer.receiveChunk(message);
+        });
+        modelIndex.setListener((url, info) -> {
+            try {
+                events.emit(NativeEventChannel.MODEL_INDEXED, new JSONObject().put("url", url).put("info", info));
+            } catch (JSONException e) {
+                Log.e("ModelIndex", "Could not build event", e);
+            }
+        });
+        modelStore.setListener(entry -> {
+            try {
+                events.emit(NativeEventChannel.MODEL_EVICTED, entry.toJson());
+            } catch (JSONException e) {
+                Log.e("ModelStore", "Could not build event", e);
+            }
+        });
+        memoryGovernor = new MemoryGovernor(activityManager, thumbnailCache, apiCache, modelCache,
+                modelStore, modelLodCache, binaryTransport, events, memoryExecutor);
+
+        if (savedInstanceState != null) {
+            restoreSection = savedInstanceState.getString(STATE_SECTION);
+        }
+
+        generationTracker = new GenerationTracker(generationScheduler, cookies, new GenerationEventForwarder());
+
+        networkMonitor.start();
+        powerMonitor.start();
+        uploadEngine = new UploadEngine(getFilesDir(), conditions, cookies, new UploadEventForwarder());
+        networkMonitor.addListener(monitor -> uploadEngine.conditionsChanged());
+        backgroundExecutor.execute(uploadEngine::restorePending);
+
         // Initialize Unity Ads FIRST (highest priority) - COMMENTED OUT
         /* if (ENABLE_UNITY_ADS) {
             initializeUnityAds();
         } */
 
-        // Initialize AdMob
-        MobileAds.initialize(this, initializationStatus -> {
-            Log.d("AdMob", "AdMob initialized. Using " + (USE_TEST_ADS ? "TEST" : "PRODUCTION") + " ads");
-            loadRewardedAd();
-            if (ENABLE_INTERSTITIAL) {
-                loadInterstitialAd();
-            }
-        });
+        // Ad pools start filling once AdMob is initialized
+        rewardedPool = new AdPool<>("Rewarded", REWARDED_POOL_SIZE, metrics, this::loadRewardedAd);
+        interstitialPool = new AdPool<>("Interstitial", INTERSTITIAL_POOL_SIZE, metrics, this::loadInterstitialAd);
+        rewardedPool.setRetryScheduler(batchScheduler);
+        interstitialPool.setRetryScheduler(batchScheduler);
+
+        // Push ad lifecycle changes to the page so it doesn't have to poll isReady()
+        rewardedPool.getState().setListener(this::onAdStateChanged);
+        interstitialPool.getState().setListener(this::onAdStateChanged);
+
+        // Show the web UI first; AdMob initializes after the first frame is drawn
+        watchFirstFrame();
 
         // LOAD TEST PAGE IF IN TEST MODE
         if (TEST_MODE) {
@@ -96,6 +313,47 @@ public class MainActivity extends BridgeActivity {
         }
     }
 
+    // Records the first WebView frame, then kicks off ads SDK init
+    private void watchFirstFrame() {
+        ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                startupMetrics.markFirstFrame();
+                ViewTreeObserver.OnDrawListener self = this;
+                // Listeners can't be removed while the draw is being dispatched
+                getBridge().getWebView().post(() -> {
+                    getBridge().getWebView().getViewTreeObserver().removeOnDrawListener(self);
+                    initializeAds();
+                });
+            }
+        };
+        getBridge().getWebView().getViewTreeObserver().addOnDrawListener(listener);
+    }
+
+    // Initializes AdMob on a background thread. Runs once, either after first frame
+    // or on the first ad request from the page, whichever comes first.
+    private void initializeAds() {
+        if (!adsInitStarted.compareAndSet(false, true)) return;
+
+        backgroundExecutor.execute(() -> MobileAds.initialize(this, initializationStatus -> {
+            startupMetrics.markAdsInitialized();
+            Log.d("AdMob", "AdMob initialized. Using " + (USE_TEST_ADS ? "TEST" : "PRODUCTION") + " ads");
+            rewardedPool.start();
+            if (ENABLE_INTERSTITIAL) {
+                interstitialPool.start();
+            }
+        }));
+    }
+
+    // The Preloader expects an ad to be requested soon
+    private void warmAds() {
+        initializeAds();
+        rewardedPool.warm();
+        if (ENABLE_INTERSTITIAL) {
+            interstitialPool.warm();
+        }
+    }
+
     // Initialize Unity Ads - COMMENTED OUT UNTIL LIBRARY IS ADDED
     /* private void initializeUnityAds() {
         UnityAds.initialize(getApplicationContext(), UNITY_GAME_ID, UNITY_TEST_MODE, this);
@@ -150,72 +408,240 @@ public class MainActivity extends BridgeActivity {
         }, 1000);
     }
 
-    // Method to load interstitial ads
-    private void loadInterstitialAd() {
-        if (!ENABLE_INTERSTITIAL) return;
-
+    // Loads one interstitial ad for the pool
+    private void loadInterstitialAd(AdPool.Callback<InterstitialAd> callback) {
         AdRequest adRequest = new AdRequest.Builder().build();
         InterstitialAd.load(this, admobInterstitialAdId, adRequest, new InterstitialAdLoadCallback() {
             @Override
             public void onAdLoaded(@NonNull InterstitialAd ad) {
-                interstitialAd = ad;
                 Log.d("AdMob", "Interstitial ad loaded");
-
-                // Set fullscreen callback
-                interstitialAd.setFullScreenContentCallback(new FullScreenContentCallback() {
-                    @Override
-                    public void onAdDismissedFullScreenContent() {
-                        Log.d("AdMob", "Interstitial ad dismissed");
-                        loadInterstitialAd(); // Load next ad
-                    }
-
-                    @Override
-                    public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
-                        Log.e("AdMob", "Interstitial ad failed to show: " + adError.getMessage());
-                        interstitialAd = null;
-                        loadInterstitialAd();
-                    }
-                });
+                callback.onLoaded(ad);
             }
 
             @Override
             public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
                 Log.e("AdMob", "Interstitial ad failed to load: " + loadAdError.getMessage());
-                interstitialAd = null;
-                // Retry after 60 seconds
-                getBridge().getWebView().postDelayed(() -> loadInterstitialAd(), 60000);
+                callback.onFailed(loadAdError.getMessage());
             }
         });
     }
 
+    // The process may not come back from the background; keep what was measured so far
     @Override
-    public void onResume() {
-        super.onResume();
+    public void onStop() {
+        super.onStop();
+        backgroundExecutor.execute(metrics::flush);
+    }
 
-        // Inject JavaScript interface when WebView is definitely ready
-        getBridge().getWebView().addJavascriptInterface(new AdInterface(), "AndroidAds");
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        memoryGovernor.onTrimMemory(level);
+    }
 
-        // Test injection with better logging
-        getBridge().getWebView().evaluateJavascript(
-                "(function() {" +
-                        "  console.log('🔍 Checking for AndroidAds interface...');" +
-                        "  setTimeout(function() {" +
-                        "    if (window.AndroidAds) {" +
-                        "      console.log('✅ AndroidAds is available!');" +
-                        "      console.log('Testing isReady:', window.AndroidAds.isReady());" +
-                        "      console.log('Unity Ads ready:', window.AndroidAds.isUnityReady());" +
-                        "      // Auto-hide status bar if logged in" +
-                        "      if (window.authManager && window.authManager.isAuthenticated()) {" +
-                        "        window.AndroidAds.hideStatusBar();" +
-                        "        document.body.classList.add('status-bar-hidden');" +
-                        "      }" +
-                        "    } else {" +
-                        "      console.log('❌ AndroidAds not found');" +
-                        "    }" +
-                        "  }, 500);" +
-                        "})();",
-                null
-        );
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        memoryGovernor.onLowMemory();
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (currentSection != null) {
+            outState.putString(STATE_SECTION, currentSection);
+        }
+    }
+
+    // The dead WebView can't be reused, so rebuild the activity; the saved section is
+    // handed back to the page via consumeRestoreSection(). A second crash in quick
+    // succession starts from the default section in case the section itself is the cause.
+    private void onRendererGone() {
+        long now = SystemClock.elapsedRealtime();
+        if (lastRendererGoneAt > 0 && now - lastRendererGoneAt < RENDERER_CRASH_LOOP_MS) {
+            Log.w("MainActivity", "Renderer gone again within " + RENDERER_CRASH_LOOP_MS + "ms, not restoring section");
+            currentSection = null;
+        }
+        lastRendererGoneAt = now;
+        recreate();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        backgroundExecutor.shutdown();
+        imageExecutor.shutdown();
+        lodExecutor.shutdownNow();
+        exportExecutor.shutdownNow();
+        modelStoreExecutor.shutdown();
+        memoryExecutor.shutdown();
+        if (binaryChannel != null) binaryChannel.close();
+        thumbnailExecutor.shutdownNow();
+        apiExecutor.shutdownNow();
+        generationTracker.cancelAll();
+        generationScheduler.shutdownNow();
+        batchScheduler.shutdown();
+        preloader.shutdown();
+        preloadExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+        networkMonitor.stop();
+        powerMonitor.stop();
+        uploadEngine.shutdown();
+    }
+
+    private static boolean isGlbPath(String path) {
+        return path != null && (path.toLowerCase(Locale.ROOT).endsWith(".glb") || path.endsWith("/glb"));
+    }
+
+    // GLB by path, or through the API proxy (/proxyModel/<task>?format=glb)
+    private static boolean isGlbUrl(Uri uri) {
+        return isGlbPath(uri.getPath()) || "glb".equals(uri.getQueryParameter("format"));
+    }
+
+    // Finds a local copy of a GLB to derive LODs from: the model cache, the model store
+    // or the bundled web assets. Models that are only streamed (e.g. via the API proxy) get none.
+    private void requestLod(String url) {
+        if (modelLodCache.isDone(url)) return;
+        Uri uri = Uri.parse(url);
+        String path = uri.getPath();
+        if (!isGlbPath(path)) return;
+        if (!"localhost".equals(uri.getHost()) || path.startsWith(ModelStore.URL_PREFIX)) {
+            File local = localModelFile(url);
+            if (local != null) modelLodCache.generate(url, local);
+        } else if (!path.startsWith("/_native/")) {
+            modelLodCache.generateFromAsset(url, getAssets(), "public" + path);
+        }
+    }
+
+    // The model cache body for a remote URL, or the store file for /_native/models/; null otherwise
+    private File localModelFile(String url) {
+        Uri uri = Uri.parse(url);
+        String path = uri.getPath();
+        if (!"localhost".equals(uri.getHost())) return modelCache.getCachedFile(url);
+        if (path == null || !path.startsWith(ModelStore.URL_PREFIX)) return null;
+        String[] parts = path.substring(ModelStore.URL_PREFIX.length()).split("/");
+        return parts.length == 2 && ModelStore.isValid(parts[0], parts[1]) ? modelStore.open(parts[0], parts[1]) : null;
+    }
+
+    // Hands exported files to the share sheet; OBJ comes with its MTL and textures
+    private void shareExport(ModelExporter.Result result, String title) {
+        ArrayList<Uri> uris = new ArrayList<>();
+        for (File f : result.getFiles()) {
+            uris.add(FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", f));
+        }
+        Intent intent;
+        if (uris.size() == 1) {
+            intent = new Intent(Intent.ACTION_SEND);
+            intent.putExtra(Intent.EXTRA_STREAM, uris.get(0));
+            intent.setType("stl".equals(result.getFormat()) ? "model/stl" : "model/obj");
+        } else {
+            intent = new Intent(Intent.ACTION_SEND_MULTIPLE);
+            intent.putParcelableArrayListExtra(Intent.EXTRA_STREAM, uris);
+            intent.setType("*/*");
+        }
+        intent.putExtra(Intent.EXTRA_SUBJECT, title);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        try {
+            startActivity(Intent.createChooser(intent, title));
+        } catch (RuntimeException e) {
+            Log.w("ModelExporter", "Could not open the share sheet: " + e.getMessage());
+        }
+    }
+
+    // Deterministic bytes for the transport benchmark, kept between runs of the same size
+    private synchronized byte[] benchmarkPayload(int size) {
+        if (benchmarkPayload == null || benchmarkPayload.length != size) {
+            benchmarkPayload = new byte[size];
+            new Random(size).nextBytes(benchmarkPayload);
+        }
+        return benchmarkPayload;
+    }
+
+    // Only files the app owns may be uploaded from the page
+    private boolean isAppFile(File file) {
+        try {
+            String path = file.getCanonicalPath();
+            return path.startsWith(getFilesDir().getCanonicalPath() + File.separator)
+                    || path.startsWith(getCacheDir().getCanonicalPath() + File.separator);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private class UploadEventForwarder implements UploadEngine.Listener {
+        @Override
+        public void onUploadProgress(JSONObject progress) {
+            events.emit(NativeEventChannel.UPLOAD_PROGRESS, progress);
+        }
+
+        @Override
+        public void onUploadComplete(String id, String location) {
+            JSONObject data = new JSONObject();
+            try {
+                data.put("id", id);
+                data.put("location", location);
+            } catch (JSONException ignored) {
+                // Event still fires
+            }
+            events.emit(NativeEventChannel.UPLOAD_COMPLETE, data);
+        }
+
+        @Override
+        public void onUploadFailed(String id, String error) {
+            Log.w("UploadEngine", "Upload " + id + " failed: " + error);
+            JSONObject data = new JSONObject();
+            try {
+                data.put("id", id);
+                data.put("error", error);
+            } catch (JSONException ignored) {
+                // Event still fires
+            }
+            events.emit(NativeEventChannel.UPLOAD_FAILED, data);
+        }
+    }
+
+    // Turns tracker callbacks into page events
+    private class GenerationEventForwarder implements GenerationTracker.Listener {
+        @Override
+        public void onProgress(String taskId, String status, int progress, JSONObject response) {
+            // Each poll has just used the radio
+            batchScheduler.noteForegroundNetwork();
+            if (progress >= GENERATION_NEARLY_DONE) preloader.hintGenerationNearlyDone();
+            events.emit(NativeEventChannel.GENERATION_PROGRESS, generationEvent(taskId, status, progress, response));
+        }
+
+        @Override
+        public void onComplete(String taskId, JSONObject response) {
+            Log.d("Generation", "Task " + taskId + " complete");
+            // Same URL the page's result viewer loads
+            preloader.hintGenerationDone(API_BASE_URL + "/proxyModel/" + taskId + "?format=glb");
+            events.emit(NativeEventChannel.GENERATION_COMPLETE, generationEvent(taskId, "SUCCEEDED", 100, response));
+        }
+
+        @Override
+        public void onFailed(String taskId, String error) {
+            Log.w("Generation", "Task " + taskId + " failed: " + error);
+            JSONObject data = generationEvent(taskId, "FAILED", 0, null);
+            try {
+                data.put("error", error);
+            } catch (JSONException ignored) {
+                // Event still identifies the task
+            }
+            events.emit(NativeEventChannel.GENERATION_FAILED, data);
+        }
+
+        private JSONObject generationEvent(String taskId, String status, int progress, JSONObject response) {
+            JSONObject data = new JSONObject();
+            try {
+                data.put("taskId", taskId);
+                data.put("status", status);
+                data.put("progress", progress);
+                if (response != null) data.put("response", response);
+            } catch (JSONException e) {
+                Log.e("Generation", "Could not build generation event", e);
+            }
+            return data;
+        }
     }
 
     private void setupStatusBar() {
@@ -239,62 +665,116 @@ public class MainActivity extends BridgeActivity {
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
     }
 
-    private void loadRewardedAd() {
+    // Called on whichever thread changed the state; the event channel handles threading
+    private void onAdStateChanged(String format, AdState.Snapshot from, AdState.Snapshot to) {
+        Log.d("AdMob", format + " ad state " + from.phase + " -> " + to.phase + " (" + to.readyCount + " ready)");
+        if (to.isReady() && "rewarded".equals(format)) {
+            startupMetrics.markAdReady();
+        }
+        JSONObject data = new JSONObject();
+        try {
+            data.put("format", format);
+            data.put("state", to.phase.name());
+            data.put("ready", to.readyCount);
+        } catch (JSONException e) {
+            Log.e("AdMob", "Could not build ad state event", e);
+            return;
+        }
+        events.emit(NativeEventChannel.AD_STATE_CHANGED, data);
+    }
+
+    // Loads one rewarded ad for the pool
+    private void loadRewardedAd(AdPool.Callback<RewardedAd> callback) {
         AdRequest adRequest = new AdRequest.Builder().build();
 
         RewardedAd.load(this, admobRewardedAdId, adRequest, new RewardedAdLoadCallback() {
             @Override
             public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                rewardedAd = null;
                 // Log the error for debugging
-                getBridge().getWebView().evaluateJavascript(
-                        "console.log('❌ AdMob ad failed to load: " + loadAdError.getMessage() + "');",
-                        null
-                );
-                // Retry loading after 30 seconds
-                getBridge().getWebView().postDelayed(() -> loadRewardedAd(), 30000);
+                events.log("❌ AdMob ad failed to load: " + loadAdError.getMessage());
+                // The pool retries with backoff
+                callback.onFailed(loadAdError.getMessage());
             }
 
             @Override
             public void onAdLoaded(@NonNull RewardedAd ad) {
-                rewardedAd = ad;
+                callback.onLoaded(ad);
                 // Log success
-                getBridge().getWebView().evaluateJavascript(
-                        "console.log('✅ AdMob ad loaded successfully!');" +
-                                "if(window.AdManagerAndroidCallbacks) { " +
-                                "window.AdManagerAndroidCallbacks.onAdLoaded(); }",
-                        null
-                );
+                events.log("✅ AdMob ad loaded successfully!");
+                events.emit(NativeEventChannel.AD_LOADED);
             }
         });
     }
 
+    // A bridge method body that returns a value (java.util.function needs API 24)
+    private interface Call<T> {
+        T run();
+    }
+
     // JavaScript Interface for Ads
     public class AdInterface {
 
+        // One bridge call, timed into bridge.<name>; the body runs on the calling (bridge) thread
+        private <T> T timed(String name, Call<T> call) {
+            long start = MetricsRegistry.start();
+            try {
+                return call.run();
+            } finally {
+                metrics.recordCall(name, start);
+            }
+        }
+
+        private void timed(String name, Runnable call) {
+            long start = MetricsRegistry.start();
+            try {
+                call.run();
+            } finally {
+                metrics.recordCall(name, start);
+            }
+        }
+
+        // UI work a bridge call posts: bridge.<name> only covers the post, so this records
+        // bridge.<name>.ui from the post until the work has run on the UI thread
+        private void timedOnUiThread(String name, Runnable work) {
+            long postedAt = MetricsRegistry.start();
+            runOnUiThread(() -> {
+                try {
+                    work.run();
+                } finally {
+                    metrics.recordCall(name + ".ui", postedAt);
+                }
+            });
+        }
+
+        // The page wants ads soon: make sure the SDK is initializing
+        @JavascriptInterface
+        public void loadRewardedAd() {
+            timed("loadRewardedAd", () -> initializeAds());
+        }
+
         // WATERFALL STRATEGY: Try Unity first, then AdMob
         @JavascriptInterface
         public void showRewardedAd() {
-            runOnUiThread(() -> {
-                // Unity Ads disabled for now, go straight to AdMob
-                /* if (ENABLE_UNITY_ADS && unityAdsReady) {
-                    showUnityRewardedAd();
-                } else */
-                if (rewardedAd != null) {
-                    showAdMobRewardedAd();
-                }
-                // No ads available
-                else {
-                    getBridge().getWebView().evaluateJavascript(
-                            "console.log('⚠️ No ads available - showing fallback');" +
-                                    "if(window.AdManagerAndroidCallbacks) { " +
-                                    "window.AdManagerAndroidCallbacks.onAdFailed('No ads available'); }",
-                            null
-                    );
-                    // Try loading again
-                    // if (ENABLE_UNITY_ADS) loadUnityAd();
-                    loadRewardedAd();
-                }
+            timed("showRewardedAd", () -> {
+                long requestedAt = SystemClock.elapsedRealtime();
+                initializeAds();
+                timedOnUiThread("showRewardedAd", () -> {
+                    RewardedAd ad = rewardedPool.take();
+                    // Unity Ads disabled for now, go straight to AdMob
+                    /* if (ENABLE_UNITY_ADS && unityAdsReady) {
+                        showUnityRewardedAd();
+                    } else */
+                    if (ad != null) {
+                        showAdMobRewardedAd(ad, requestedAt);
+                    }
+                    // No ads available
+                    else {
+                        events.log("⚠️ No ads available - showing fallback");
+                        events.emit(NativeEventChannel.AD_FAILED, "error", "No ads available");
+                        // The pool is already refilling
+                        // if (ENABLE_UNITY_ADS) loadUnityAd();
+                    }
+                });
             });
         }
 
@@ -357,127 +837,664 @@ public class MainActivity extends BridgeActivity {
         } */
 
         // Show AdMob Rewarded Ad
-        private void showAdMobRewardedAd() {
-            rewardedAd.show(MainActivity.this, rewardItem -> {
+        private void showAdMobRewardedAd(RewardedAd ad, long requestedAt) {
+            ad.setFullScreenContentCallback(new FullScreenContentCallback() {
+                @Override
+                public void onAdShowedFullScreenContent() {
+                    rewardedPool.recordShowLatency(SystemClock.elapsedRealtime() - requestedAt);
+                }
+
+                @Override
+                public void onAdDismissedFullScreenContent() {
+                    rewardedPool.onShowFinished();
+                }
+
+                @Override
+                public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                    Log.e("AdMob", "Rewarded ad failed to show: " + adError.getMessage());
+                    rewardedPool.onShowFinished();
+                    events.emit(NativeEventChannel.AD_FAILED, "error", adError.getMessage());
+                }
+            });
+            ad.show(MainActivity.this, rewardItem -> {
                 // User earned reward - notify JavaScript
-                getBridge().getWebView().evaluateJavascript(
-                        "console.log('💰 AdMob Ad completed - User earned reward!');" +
-                                "if(window.AdManagerAndroidCallbacks) { " +
-                                "window.AdManagerAndroidCallbacks.onAdCompleted(); }",
-                        null
-                );
-                // Load next ad
-                loadRewardedAd();
+                events.log("💰 AdMob Ad completed - User earned reward!");
+                events.emit(NativeEventChannel.AD_COMPLETED);
             });
         }
 
+        // Called on the bridge thread: reads the atomic ad state only, never touches the UI thread
         @JavascriptInterface
         public boolean isReady() {
-            // Check if ANY ad is ready (Unity disabled for now)
-            boolean ready = /* (ENABLE_UNITY_ADS && unityAdsReady) || */ (rewardedAd != null);
-            // Log the status
-            runOnUiThread(() -> {
-                getBridge().getWebView().evaluateJavascript(
-                        "console.log('Ad ready status - Unity: disabled, AdMob: " + (rewardedAd != null) + "');",
-                        null
-                );
+            return timed("isReady", () -> {
+                // Check if ANY ad is ready (Unity disabled for now)
+                return /* (ENABLE_UNITY_ADS && unityAdsReady) || */ rewardedPool.hasReady();
             });
-            return ready;
         }
 
         @JavascriptInterface
         public boolean isUnityReady() {
-            // return ENABLE_UNITY_ADS && unityAdsReady;
-            return false; // Unity disabled for now
+            return timed("isUnityReady", () -> {
+                // return ENABLE_UNITY_ADS && unityAdsReady;
+                return false; // Unity disabled for now
+            });
         }
 
         @JavascriptInterface
         public boolean isAdMobReady() {
-            return rewardedAd != null;
+            return timed("isAdMobReady", () -> rewardedPool.hasReady());
         }
 
         // Test Unity Ad separately - DISABLED
         @JavascriptInterface
         public void showUnityAdOnly() {
-            runOnUiThread(() -> {
-                /* if (ENABLE_UNITY_ADS && unityAdsReady) {
-                    showUnityRewardedAd();
-                } else { */
-                getBridge().getWebView().evaluateJavascript(
-                        "console.log('❌ Unity Ads disabled temporarily');",
-                        null
-                );
-                // }
+            timed("showUnityAdOnly", () -> {
+                timedOnUiThread("showUnityAdOnly", () -> {
+                    /* if (ENABLE_UNITY_ADS && unityAdsReady) {
+                        showUnityRewardedAd();
+                    } else { */
+                    events.log("❌ Unity Ads disabled temporarily");
+                    // }
+                });
             });
         }
 
         // Test AdMob Ad separately
         @JavascriptInterface
         public void showAdMobAdOnly() {
-            runOnUiThread(() -> {
-                if (rewardedAd != null) {
-                    showAdMobRewardedAd();
-                } else {
-                    getBridge().getWebView().evaluateJavascript(
-                            "console.log('❌ AdMob Ad not ready');",
-                            null
-                    );
-                }
+            timed("showAdMobAdOnly", () -> {
+                long requestedAt = SystemClock.elapsedRealtime();
+                timedOnUiThread("showAdMobAdOnly", () -> {
+                    RewardedAd ad = rewardedPool.take();
+                    if (ad != null) {
+                        showAdMobRewardedAd(ad, requestedAt);
+                    } else {
+                        events.log("❌ AdMob Ad not ready");
+                    }
+                });
             });
         }
 
         @JavascriptInterface
         public void showInterstitialAd() {
-            if (!ENABLE_INTERSTITIAL) {
-                Log.w("AdMob", "Interstitial ads are disabled");
-                return;
-            }
-
-            runOnUiThread(() -> {
-                if (interstitialAd != null) {
-                    Log.d("AdMob", "Showing interstitial ad");
-                    interstitialAd.show(MainActivity.this);
-                } else {
-                    Log.w("AdMob", "Interstitial ad not ready");
-                    getBridge().getWebView().evaluateJavascript(
-                            "console.log('❌ Interstitial ad not available');",
-                            null
-                    );
+            timed("showInterstitialAd", () -> {
+                if (!ENABLE_INTERSTITIAL) {
+                    Log.w("AdMob", "Interstitial ads are disabled");
+                    return;
                 }
+
+                long requestedAt = SystemClock.elapsedRealtime();
+                timedOnUiThread("showInterstitialAd", () -> {
+                    InterstitialAd ad = interstitialPool.take();
+                    if (ad != null) {
+                        Log.d("AdMob", "Showing interstitial ad");
+                        ad.setFullScreenContentCallback(new FullScreenContentCallback() {
+                            @Override
+                            public void onAdShowedFullScreenContent() {
+                                interstitialPool.recordShowLatency(SystemClock.elapsedRealtime() - requestedAt);
+                            }
+
+                            @Override
+                            public void onAdDismissedFullScreenContent() {
+                                Log.d("AdMob", "Interstitial ad dismissed");
+                                interstitialPool.onShowFinished();
+                            }
+
+                            @Override
+                            public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                                Log.e("AdMob", "Interstitial ad failed to show: " + adError.getMessage());
+                                interstitialPool.onShowFinished();
+                            }
+                        });
+                        ad.show(MainActivity.this);
+                    } else {
+                        Log.w("AdMob", "Interstitial ad not ready");
+                        events.log("❌ Interstitial ad not available");
+                    }
+                });
             });
         }
 
         @JavascriptInterface
         public boolean isInterstitialReady() {
-            return ENABLE_INTERSTITIAL && interstitialAd != null;
+            return timed("isInterstitialReady", () -> ENABLE_INTERSTITIAL && interstitialPool.hasReady());
         }
 
+        // Consistent snapshot of every ad format's lifecycle state
         @JavascriptInterface
-        public void hideStatusBar() {
-            runOnUiThread(() -> {
-                // Hide status bar completely
-                getWindow().setFlags(
-                        WindowManager.LayoutParams.FLAG_FULLSCREEN,
-                        WindowManager.LayoutParams.FLAG_FULLSCREEN
-                );
+        public String getAdState() {
+            return timed("getAdState", () -> {
+                JSONObject state = new JSONObject();
+                try {
+                    state.put("rewarded", rewardedPool.getState().snapshot().toJson());
+                    state.put("interstitial", interstitialPool.getState().snapshot().toJson());
+                } catch (JSONException e) {
+                    Log.e("AdMob", "Could not build ad state", e);
+                }
+                return state.toString();
+            });
+        }
 
-                // For newer Android versions
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-                    getWindow().getInsetsController().hide(
-                            android.view.WindowInsets.Type.statusBars()
-                    );
+        // Polls statusUrl natively and pushes onGenerationProgress/Complete/Failed events
+        @JavascriptInterface
+        public boolean trackGeneration(String taskId, String statusUrl) {
+            return timed("trackGeneration", () -> {
+                if (taskId == null || statusUrl == null || !statusUrl.startsWith("https://")) {
+                    Log.w("Generation", "Refusing to track " + statusUrl);
+                    return false;
                 }
+                generationTracker.track(taskId, statusUrl);
+                return true;
+            });
+        }
+
+        @JavascriptInterface
+        public void cancelGenerationTracking(String taskId) {
+            timed("cancelGenerationTracking", () -> generationTracker.cancel(taskId));
+        }
+
+        @JavascriptInterface
+        public String getGenerationStatus(String taskId) {
+            return timed("getGenerationStatus", () -> {
+                try {
+                    return generationTracker.getStatus(taskId).toString();
+                } catch (JSONException e) {
+                    return "{}";
+                }
+            });
+        }
+
+        // {id, path, endpoint, metadata?, unmeteredOnly?} - path must be inside app storage
+        @JavascriptInterface
+        public boolean enqueueUpload(String requestJson) {
+            return timed("enqueueUpload", () -> {
+                try {
+                    JSONObject request = new JSONObject(requestJson);
+                    File file = new File(request.getString("path"));
+                    String endpoint = request.getString("endpoint");
+                    if (!isAppFile(file) || !file.isFile() || !endpoint.startsWith("https://")) {
+                        Log.w("UploadEngine", "Rejected upload of " + file);
+                        return false;
+                    }
+                    uploadEngine.enqueue(request.getString("id"), file, endpoint,
+                            request.optJSONObject("metadata"), request.optBoolean("unmeteredOnly", false));
+                    return true;
+                } catch (JSONException e) {
+                    Log.w("UploadEngine", "Bad upload request: " + e.getMessage());
+                    return false;
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public void cancelUpload(String id) {
+            timed("cancelUpload", () -> uploadEngine.cancel(id));
+        }
+
+        @JavascriptInterface
+        public String getUploadStats() {
+            return timed("getUploadStats", () -> uploadEngine.getStats().toString());
+        }
+
+        // Saves a model format into the native store; answers with onModelStored/onModelStoreFailed
+        @JavascriptInterface
+        public boolean storeModel(String id, String format, String url) {
+            return timed("storeModel", () -> {
+                if (!ModelStore.isValid(id, format) || url == null || !url.startsWith("https://")) {
+                    return false;
+                }
+                modelStore.store(id, format, url, new ModelStore.Callback() {
+                    @Override
+                    public void onStored(ModelStore.Entry entry) {
+                        String localUrl = getBridge().getLocalUrl() + entry.localUrl();
+                        requestLod(localUrl);
+                        File local = "glb".equals(entry.format) ? localModelFile(localUrl) : null;
+                        if (local != null) modelIndex.index(localUrl, local);
+                        try {
+                            events.emit(NativeEventChannel.MODEL_STORED, entry.toJson());
+                        } catch (JSONException e) {
+                            Log.e("ModelStore", "Could not build event", e);
+                        }
+                    }
+
+                    @Override
+                    public void onFailed(String id, String format, String error) {
+                        JSONObject data = new JSONObject();
+                        try {
+                            data.put("id", id);
+                            data.put("format", format);
+                            data.put("error", error);
+                        } catch (JSONException ignored) {
+                            // Event still fires
+                        }
+                        events.emit(NativeEventChannel.MODEL_STORE_FAILED, data);
+                    }
+                });
+                return true;
+            });
+        }
+
+        // Converts a GLB (remote, cached or in the store) to "obj" or "stl" and opens the share
+        // sheet with the result; answers with onModelExported/onModelExportFailed
+        @JavascriptInterface
+        public boolean exportModel(String requestId, String url, String format, String name) {
+            return timed("exportModel", () -> {
+                if (requestId == null || url == null || !ModelExporter.FORMATS.contains(format)) return false;
+                File local = localModelFile(url);
+                if (local == null && !url.startsWith("https://")) return false;
+                modelExporter.export(local, url, format, name, new ModelExporter.Callback() {
+                    @Override
+                    public void onExported(ModelExporter.Result result) {
+                        runOnUiThread(() -> shareExport(result, name != null ? name : "3D model"));
+                        try {
+                            JSONObject data = result.toJson();
+                            data.put("requestId", requestId);
+                            events.emit(NativeEventChannel.MODEL_EXPORTED, data);
+                        } catch (JSONException e) {
+                            Log.e("ModelExporter", "Could not build event", e);
+                        }
+                    }
+
+                    @Override
+                    public void onFailed(String error) {
+                        JSONObject data = new JSONObject();
+                        try {
+                            data.put("requestId", requestId);
+                            data.put("format", format);
+                            data.put("error", error);
+                        } catch (JSONException ignored) {
+                            // Event still fires
+                        }
+                        events.emit(NativeEventChannel.MODEL_EXPORT_FAILED, data);
+                    }
+                });
+                return true;
+            });
+        }
+
+        @JavascriptInterface
+        public String listStoredModels() {
+            return timed("listStoredModels", () -> modelStore.list().toString());
+        }
+
+        // Same-origin URL the viewer can load directly, or "" if not stored
+        @JavascriptInterface
+        public String getStoredModelUrl(String id, String format) {
+            return timed("getStoredModelUrl", () ->
+                    modelStore.contains(id, format) ? ModelStore.URL_PREFIX + id + "/" + format : "");
+        }
+
+        @JavascriptInterface
+        public void deleteStoredModel(String id) {
+            timed("deleteStoredModel", () -> modelStore.delete(id));
+        }
+
+        @JavascriptInterface
+        public void setStoredModelSyncStatus(String id, String status) {
+            timed("setStoredModelSyncStatus", () -> modelStore.setSyncStatus(id, status));
+        }
+
+        @JavascriptInterface
+        public String getModelStoreStats() {
+            return timed("getModelStoreStats", () -> modelStore.getStats().toString());
+        }
+
+        // Downscales/re-encodes a content:// image off the UI thread.
+        // Answers with onImagePrepared/onImagePrepareFailed carrying the same requestId.
+        @JavascriptInterface
+        public boolean prepareImage(String requestId, String source, String optionsJson) {
+            return timed("prepareImage", () -> {
+                if (requestId == null || source == null || !source.startsWith("content://")) {
+                    return false;
+                }
+                imagePreparer.prepare(source, ImagePreparer.Options.fromJson(optionsJson), imageCallback(requestId));
+                return true;
+            });
+        }
+
+        // Like prepareImage, for a photo the page then sends as TYPE_IMAGE_CHUNK messages
+        // over the binary channel (NativeTransport.sendFile)
+        @JavascriptInterface
+        public boolean prepareStreamedImage(String requestId, String optionsJson) {
+            return timed("prepareStreamedImage", () -> {
+                return imagePreparer.expectStream(requestId, ImagePreparer.Options.fromJson(optionsJson),
+                        imageCallback(requestId));
+            });
+        }
+
+        private ImagePreparer.Callback imageCallback(String requestId) {
+            return new ImagePreparer.Callback() {
+                @Override
+                public void onPrepared(ImagePreparer.Result result) {
+                    try {
+                        JSONObject data = result.toJson();
+                        data.put("requestId", requestId);
+                        events.emit(NativeEventChannel.IMAGE_PREPARED, data);
+                    } catch (JSONException e) {
+                        onFailed(e.getMessage());
+                    }
+                }
+
+                @Override
+                public void onFailed(String error) {
+                    JSONObject data = new JSONObject();
+                    try {
+                        data.put("requestId", requestId);
+                        data.put("error", error);
+                    } catch (JSONException ignored) {
+                        // Event still fires
+                    }
+                    events.emit(NativeEventChannel.IMAGE_PREPARE_FAILED, data);
+                }
+            };
+        }
+
+        @JavascriptInterface
+        public String getStartupMetrics() {
+            return timed("getStartupMetrics", () -> startupMetrics.toJson().toString());
+        }
+
+        @JavascriptInterface
+        public String getAdStats() {
+            return timed("getAdStats", () -> {
+                JSONObject stats = new JSONObject();
+                try {
+                    stats.put("rewarded", rewardedPool.getStats());
+                    stats.put("interstitial", interstitialPool.getStats());
+                } catch (JSONException e) {
+                    Log.e("AdMob", "Could not build ad stats", e);
+                }
+                return stats.toString();
+            });
+        }
+
+        @JavascriptInterface
+        public String getModelCacheStats() {
+            return timed("getModelCacheStats", () -> modelCache.getStats().toString());
+        }
+
+        @JavascriptInterface
+        public void clearModelCache() {
+            timed("clearModelCache", () -> modelCache.clear());
+        }
+
+        // Per-route hit/stale/coalesce counters for the API cache
+        @JavascriptInterface
+        public String getApiCacheStats() {
+            return timed("getApiCacheStats", () -> apiCache.getStats().toString());
+        }
+
+        // Drops cached API responses, e.g. on logout
+        @JavascriptInterface
+        public void clearApiCache() {
+            timed("clearApiCache", () -> apiCache.clear());
+        }
+
+        // This device's reduced copy of a GLB (absolute URL): fewer triangles and/or textures
+        // capped to the device's size, or "" to load the original. Starts building the copies
+        // when the model is available locally but has none yet.
+        @JavascriptInterface
+        public String getModelLodUrl(String url) {
+            return timed("getModelLodUrl", () -> {
+                if (url == null) return "";
+                String path = modelLodCache.lodPathFor(url);
+                if (path != null) {
+                    preloader.noteModelUsed(url, true);
+                    return path;
+                }
+                requestLod(url);
+                return "";
+            });
+        }
+
+        // Metadata for many models in one call: a JSON array of absolute URLs in, a JSON
+        // object {url: info} out. info has status "ready" (with valid, vertices, triangles,
+        // textures, bounds, gpuBytes... or valid false and error), "pending" (local, being
+        // measured; onModelIndexed follows) or "unknown" (not stored on this device).
+        @JavascriptInterface
+        public String getModelInfo(String urlsJson) {
+            return timed("getModelInfo", () -> {
+                try {
+                    return modelIndex.query(new JSONArray(urlsJson)).toString();
+                } catch (JSONException e) {
+                    Log.w("ModelIndex", "Bad query: " + e.getMessage());
+                    return "{}";
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public String getModelIndexStats() {
+            return timed("getModelIndexStats", () -> modelIndex.getStats().toString());
+        }
+
+        @JavascriptInterface
+        public String getModelLodStats() {
+            return timed("getModelLodStats", () -> modelLodCache.getStats().toString());
+        }
+
+        // Per-method call counts/latency and ad lifecycle histograms for this process
+        @JavascriptInterface
+        public String getBridgeMetrics() {
+            return timed("getBridgeMetrics", () -> metrics.toJson().toString());
+        }
+
+        // Asks for the binary MessagePort; it arrives in a window "message" event. False when
+        // this WebView can't carry ArrayBuffers over ports.
+        @JavascriptInterface
+        public boolean openBinaryChannel() {
+            return timed("openBinaryChannel", () -> {
+                if (!BinaryChannel.isSupported()) return false;
+                timedOnUiThread("openBinaryChannel", () -> binaryChannel.open());
+                return true;
+            });
+        }
+
+        // Drops a /_native/blobs/ entry once the page has read it
+        @JavascriptInterface
+        public boolean releaseBlob(String url) {
+            return timed("releaseBlob", () -> binaryTransport.release(url));
+        }
+
+        // Transport benchmark: the same bytes as a base64 string through this interface...
+        @JavascriptInterface
+        public String getBenchmarkPayloadBase64(int size) {
+            return timed("getBenchmarkPayloadBase64", () -> {
+                if (size <= 0 || size > MAX_BENCHMARK_BYTES) return "";
+                return Base64.encodeToString(benchmarkPayload(size), Base64.NO_WRAP);
+            });
+        }
+
+        // ...and as a /_native/blobs/ URL for fetch()
+        @JavascriptInterface
+        public String publishBenchmarkPayload(int size) {
+            return timed("publishBenchmarkPayload", () -> {
+                if (size <= 0 || size > MAX_BENCHMARK_BYTES) return "";
+                return binaryTransport.publish(benchmarkPayload(size), "application/octet-stream");
+            });
+        }
+
+        // Runs a page job in the next suitable window; the page gets an onScheduledJob event.
+        // JSON: {id, tag, priority: high|normal|low, network: none|any|unmetered,
+        //        delayMs, maxDelayMs, periodMs, payload}. Same id = merged with the pending job.
+        @JavascriptInterface
+        public boolean scheduleJob(String json) {
+            return timed("scheduleJob", () -> {
+                try {
+                    JSONObject spec = new JSONObject(json);
+                    String id = spec.getString("id");
+                    String tag = spec.optString("tag", id);
+                    JSONObject payload = spec.optJSONObject("payload");
+                    batchScheduler.schedule(PAGE_JOB_PREFIX + id, tag,
+                            BatchScheduler.priorityFor(spec.optString("priority")),
+                            BatchScheduler.networkFor(spec.optString("network")),
+                            spec.optLong("delayMs", 0), spec.optLong("maxDelayMs", 60_000), spec.optLong("periodMs", 0),
+                            (job, reason) -> {
+                                JSONObject data = new JSONObject();
+                                try {
+                                    data.put("id", id);
+                                    data.put("tag", tag);
+                                    data.put("reason", reason);
+                                    if (payload != null) data.put("payload", payload);
+                                } catch (JSONException ignored) {
+                                    // id alone is enough for the page to act on
+                                }
+                                // The page may be in the background, where frame callbacks stop
+                                events.emitNow(NativeEventChannel.SCHEDULED_JOB, data);
+                            });
+                    return true;
+                } catch (JSONException e) {
+                    Log.w("BatchScheduler", "Invalid job: " + e.getMessage());
+                    return false;
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public boolean cancelJob(String id) {
+            return timed("cancelJob", () -> batchScheduler.cancel(PAGE_JOB_PREFIX + id));
+        }
+
+        @JavascriptInterface
+        public String getSchedulerStats() {
+            return timed("getSchedulerStats", () -> {
+                try {
+                    JSONObject stats = batchScheduler.getStats();
+                    stats.put("connected", networkMonitor.isConnected());
+                    stats.put("unmetered", networkMonitor.isUnmetered());
+                    stats.put("charging", powerMonitor.isCharging());
+                    stats.put("batteryPercent", powerMonitor.getPercent());
+                    stats.put("batteryLow", powerMonitor.isBatteryLow());
+                    return stats.toString();
+                } catch (JSONException e) {
+                    return "{}";
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public String getBinaryTransportStats() {
+            return timed("getBinaryTransportStats", () -> {
+                try {
+                    JSONObject stats = binaryTransport.getStats();
+                    stats.put("channelSupported", BinaryChannel.isSupported());
+                    stats.put("channelReceived", binaryChannel.getReceived());
+                    stats.put("channelSent", binaryChannel.getSent());
+                    return stats.toString();
+                } catch (JSONException e) {
+                    return "{}";
+                }
+            });
+        }
+
+        // Called by the page on every navigation
+        @JavascriptInterface
+        public void setCurrentSection(String section) {
+            timed("setCurrentSection", () -> {
+                currentSection = section;
+                preloader.hintSection(section);
+            });
+        }
+
+        // Navigation hints for the preloader: a JSON array of {type, url}, type being
+        // "card-visible", "card-hidden" or "card-press"
+        @JavascriptInterface
+        public void preloadHints(String json) {
+            timed("preloadHints", () -> {
+                try {
+                    JSONArray hints = new JSONArray(json);
+                    for (int i = 0; i < hints.length(); i++) {
+                        JSONObject hint = hints.optJSONObject(i);
+                        if (hint == null) continue;
+                        String url = hint.optString("url", "");
+                        if (!url.startsWith("https://")) continue;
+                        preloader.hintCard(hint.optString("type"), url);
+                    }
+                } catch (JSONException e) {
+                    Log.w("Preloader", "Bad hints: " + e.getMessage());
+                }
+            });
+        }
+
+        @JavascriptInterface
+        public String getPreloadStats() {
+            return timed("getPreloadStats", () -> {
+                try {
+                    JSONObject stats = preloader.getStats();
+                    stats.put("rewarded", rewardedPool.getStats());
+                    return stats.toString();
+                } catch (JSONException e) {
+                    return "{}";
+                }
+            });
+        }
+
+        // Section to reopen after a renderer crash or process death, once; empty otherwise
+        @JavascriptInterface
+        public String consumeRestoreSection() {
+            return timed("consumeRestoreSection", () -> {
+                String section = restoreSection;
+                restoreSection = null;
+                return section != null ? section : "";
+            });
+        }
+
+        // Viewer-side memory (JS heap, Three.js geometries/textures) after an onMemoryPressure step
+        @JavascriptInterface
+        public void reportViewerMemory(String json) {
+            timed("reportViewerMemory", () -> memoryGovernor.reportViewerMemory(json));
+        }
+
+        // Warms the thumbnail cache with a JSON array of image URLs (e.g. the next grid page)
+        @JavascriptInterface
+        public void prefetchThumbnails(String urlsJson) {
+            timed("prefetchThumbnails", () -> {
+                // Only the latest list matters; it goes out once the page's own requests settle
+                pendingThumbnailPrefetch = ThumbnailCache.parseUrls(urlsJson);
+                batchScheduler.schedule("thumbnail-prefetch", "prefetch", BatchScheduler.PRIORITY_LOW,
+                        BatchScheduler.NETWORK_ANY, 0, PREFETCH_MAX_DELAY_MS, 0, (job, reason) -> {
+                            List<String> urls = pendingThumbnailPrefetch;
+                            pendingThumbnailPrefetch = null;
+                            if (urls != null) thumbnailCache.prefetch(urls);
+                        });
+            });
+        }
+
+        @JavascriptInterface
+        public String getThumbnailCacheStats() {
+            return timed("getThumbnailCacheStats", () -> thumbnailCache.getStats().toString());
+        }
+
+        @JavascriptInterface
+        public void hideStatusBar() {
+            timed("hideStatusBar", () -> {
+                timedOnUiThread("hideStatusBar", () -> {
+                    // Hide status bar completely
+                    getWindow().setFlags(
+                            WindowManager.LayoutParams.FLAG_FULLSCREEN,
+                            WindowManager.LayoutParams.FLAG_FULLSCREEN
+                    );
+
+                    // For newer Android versions
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                        getWindow().getInsetsController().hide(
+                                android.view.WindowInsets.Type.statusBars()
+                        );
+                    }
+                });
             });
         }
 
         @JavascriptInterface
         public void showStatusBar() {
-            runOnUiThread(() -> {
-                // Show status bar again
-                getWindow().clearFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN);
+            timed("showStatusBar", () -> {
+                timedOnUiThread("showStatusBar", () -> {
+                    // Show status bar again
+                    getWindow().clearFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN);
 
-                // Re-apply translucent status bar
-                setupStatusBar();
+                    // Re-apply translucent status bar
+                    setupStatusBar();
+                });
             });
         }
     }
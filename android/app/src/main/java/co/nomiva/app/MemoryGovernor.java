@@ -0,0 +1,170 @@
+package co.nomiva.app;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+// Turns system memory callbacks into cache trims and viewer events.
+// Each trim level maps to a step and every step tells the page (onMemoryPressure) so the
+// 3D viewers can drop GPU resources for models that aren't on screen. HIDDEN (the UI just
+// went away) is only that; the other steps also shrink the native heap caches, and only
+// CRITICAL (running critical, complete, onLowMemory) clears the API cache and trims the
+// disk caches. Disk work and heap logging run on the governor's own executor, so they
+// never wait behind other background work. Heap numbers are logged before each step and
+// the viewers report theirs back through reportViewerMemory() once they've released.
+public class MemoryGovernor {
+
+    private static final String TAG = "MemoryGovernor";
+
+    // A repeat of the same (or a milder) step inside this window is ignored
+    static final long DEBOUNCE_MS = 10_000;
+
+    // Ordered by how much gets released
+    public enum Step {
+        HIDDEN, MODERATE, LOW, BACKGROUND, CRITICAL;
+
+        String wireName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final ActivityManager activityManager;
+    private final ThumbnailCache thumbnailCache;
+    private final ApiCache apiCache;
+    private final ModelCache modelCache;
+    private final ModelStore modelStore;
+    private final ModelLodCache modelLodCache;
+    private final BinaryTransport binaryTransport;
+    private final NativeEventChannel events;
+    private final Executor executor;
+
+    private Step lastStep;
+    private long lastStepAt;
+    private volatile String viewerMemory = "{}";
+
+    public MemoryGovernor(ActivityManager activityManager, ThumbnailCache thumbnailCache, ApiCache apiCache,
+                          ModelCache modelCache, ModelStore modelStore, ModelLodCache modelLodCache,
+                          BinaryTransport binaryTransport, NativeEventChannel events, Executor executor) {
+        this.activityManager = activityManager;
+        this.thumbnailCache = thumbnailCache;
+        this.apiCache = apiCache;
+        this.modelCache = modelCache;
+        this.modelStore = modelStore;
+        this.modelLodCache = modelLodCache;
+        this.binaryTransport = binaryTransport;
+        this.events = events;
+        this.executor = executor;
+    }
+
+    // Null for levels we don't act on
+    static Step stepFor(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) return Step.CRITICAL;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) return Step.BACKGROUND;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) return Step.HIDDEN;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) return Step.CRITICAL;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) return Step.LOW;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) return Step.MODERATE;
+        return null;
+    }
+
+    // HIDDEN is about visibility, not pressure: a recent pressure step doesn't cover it
+    static boolean shouldSkip(Step step, Step lastStep, long lastStepAt, long now) {
+        if (lastStep == null || now - lastStepAt >= DEBOUNCE_MS) return false;
+        if (step == Step.HIDDEN) return lastStep == Step.HIDDEN;
+        return step.ordinal() <= lastStep.ordinal();
+    }
+
+    public void onTrimMemory(int level) {
+        Step step = stepFor(level);
+        if (step != null) apply(step, level);
+    }
+
+    public void onLowMemory() {
+        apply(Step.CRITICAL, ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    // Called by the page after it has released viewer resources (JSON from the viewers:
+    // jsHeapUsed, geometries, textures, ...). Kept for the next step's log line.
+    public void reportViewerMemory(String json) {
+        viewerMemory = json != null ? json : "{}";
+        Log.d(TAG, "Viewer memory: " + viewerMemory);
+    }
+
+    private synchronized void apply(Step step, int level) {
+        long now = SystemClock.elapsedRealtime();
+        if (shouldSkip(step, lastStep, lastStepAt, now)) return;
+        lastStep = step;
+        lastStepAt = now;
+
+        String viewerBefore = viewerMemory;
+        executor.execute(() -> Log.d(TAG, "Step " + step + " (level " + level + ") " + snapshot()
+                + " viewer=" + viewerBefore));
+
+        switch (step) {
+            case HIDDEN:
+                // Only the page's GPU resources; the caches are what makes coming back fast
+                break;
+            case MODERATE:
+                thumbnailCache.trimMemory(0.5f);
+                binaryTransport.trimBuffers(0.5f);
+                break;
+            case LOW:
+                thumbnailCache.trimMemory(0.25f);
+                binaryTransport.trimBuffers(0.25f);
+                break;
+            case BACKGROUND:
+                thumbnailCache.clearMemory();
+                binaryTransport.trimBuffers(0f);
+                break;
+            case CRITICAL:
+                thumbnailCache.clearMemory();
+                binaryTransport.trimBuffers(0f);
+                apiCache.clear();
+                // Disk, not heap, but the system is about to start killing processes
+                executor.execute(() -> {
+                    modelCache.trimTo(0.5f);
+                    modelLodCache.trimTo(0.5f);
+                    modelStore.trimTo(0.5f);
+                });
+                break;
+        }
+
+        JSONObject data = new JSONObject();
+        try {
+            data.put("step", step.wireName());
+            data.put("level", level);
+        } catch (JSONException e) {
+            return;
+        }
+        // No frames are drawn while the UI is hidden, so don't wait for one
+        events.emitNow(NativeEventChannel.MEMORY_PRESSURE, data);
+    }
+
+    // Java heap, native heap, PSS and what the system has left. getMemoryInfo takes
+    // tens of ms, so this runs off the main thread.
+    private String snapshot() {
+        Runtime runtime = Runtime.getRuntime();
+        long javaUsed = runtime.totalMemory() - runtime.freeMemory();
+        Debug.MemoryInfo debugInfo = new Debug.MemoryInfo();
+        Debug.getMemoryInfo(debugInfo);
+        ActivityManager.MemoryInfo systemInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(systemInfo);
+        return "javaHeap=" + mb(javaUsed) + "/" + mb(runtime.maxMemory()) + "MB"
+                + " nativeHeap=" + mb(Debug.getNativeHeapAllocatedSize()) + "MB"
+                + " pss=" + debugInfo.getTotalPss() / 1024 + "MB"
+                + " systemAvail=" + mb(systemInfo.availMem) + "MB"
+                + " lowMemory=" + systemInfo.lowMemory;
+    }
+
+    private static long mb(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
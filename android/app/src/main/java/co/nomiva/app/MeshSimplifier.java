@@ -0,0 +1,432 @@
+package co.nomiva.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Quadric-error mesh simplification (Garland & Heckbert) with half-edge collapses.
+// A vertex is always collapsed onto an existing neighbour, so the output indexes the
+// original vertices and every attribute (normals, UVs, skin weights) stays valid
+// without interpolation.
+//
+// glTF splits vertices along UV and normal seams. Topology is built on positions welded
+// back together, and each collapse has to map every "wedge" (original vertex) of the
+// removed position onto a wedge of the kept one through the two triangles that
+// disappear. Collapses that would drag a seam across a chart are rejected, so textures
+// don't smear. Open borders and non-manifold edges are locked, and collapses that
+// flip a face or pinch the surface (link condition) are skipped.
+public final class MeshSimplifier {
+
+    private MeshSimplifier() {
+    }
+
+    // Returns triangle indices (into the original vertices) with at most targetTriangles
+    // triangles, or fewer reductions if the mesh runs out of valid collapses.
+    public static int[] simplify(float[] positions, int[] indices, int targetTriangles) {
+        return new State(positions, indices).run(Math.max(targetTriangles, 1));
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        final double cost;
+        final int a;
+        final int b;
+        final int versionA;
+        final int versionB;
+
+        Candidate(double cost, int a, int b, int versionA, int versionB) {
+            this.cost = cost;
+            this.a = a;
+            this.b = b;
+            this.versionA = versionA;
+            this.versionB = versionB;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+
+    // Growable int list without boxing
+    private static final class IntList {
+        int[] items = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+    }
+
+    private static final class PositionKey {
+        final int x;
+        final int y;
+        final int z;
+
+        PositionKey(float x, float y, float z) {
+            this.x = Float.floatToIntBits(x);
+            this.y = Float.floatToIntBits(y);
+            this.z = Float.floatToIntBits(z);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PositionKey)) return false;
+            PositionKey k = (PositionKey) o;
+            return x == k.x && y == k.y && z == k.z;
+        }
+
+        @Override
+        public int hashCode() {
+            return (x * 31 + y) * 31 + z;
+        }
+    }
+
+    private static final class State {
+        final int triangleCount;
+        final int[] welded;      // triangle corners -> welded position id
+        final int[] original;    // triangle corners -> original vertex id
+        final boolean[] triangleDead;
+        int alive;
+
+        final int vertexCount;   // welded
+        final double[] position;
+        final double[] quadric;  // 10 per vertex (upper triangle of the 4x4 matrix)
+        final IntList[] triangles;
+        final boolean[] locked;
+        final boolean[] vertexDead;
+        final int[] version;
+
+        final PriorityQueue<Candidate> heap;
+
+        // Scratch for neighbour sets
+        final int[] mark;
+        int stamp;
+
+        State(float[] positions, int[] indices) {
+            int originalVertices = positions.length / 3;
+            int[] weldOf = new int[originalVertices];
+            Map<PositionKey, Integer> ids = new HashMap<>();
+            for (int v = 0; v < originalVertices; v++) {
+                PositionKey key = new PositionKey(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]);
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(key, id);
+                }
+                weldOf[v] = id;
+            }
+            vertexCount = ids.size();
+            position = new double[vertexCount * 3];
+            for (int v = 0; v < originalVertices; v++) {
+                int w = weldOf[v];
+                position[w * 3] = positions[v * 3];
+                position[w * 3 + 1] = positions[v * 3 + 1];
+                position[w * 3 + 2] = positions[v * 3 + 2];
+            }
+
+            triangleCount = indices.length / 3;
+            welded = new int[triangleCount * 3];
+            original = new int[triangleCount * 3];
+            triangleDead = new boolean[triangleCount];
+            triangles = new IntList[vertexCount];
+            for (int w = 0; w < vertexCount; w++) triangles[w] = new IntList();
+            quadric = new double[vertexCount * 10];
+            for (int t = 0; t < triangleCount; t++) {
+                for (int k = 0; k < 3; k++) {
+                    original[t * 3 + k] = indices[t * 3 + k];
+                    welded[t * 3 + k] = weldOf[indices[t * 3 + k]];
+                }
+                int a = welded[t * 3];
+                int b = welded[t * 3 + 1];
+                int c = welded[t * 3 + 2];
+                if (a == b || b == c || a == c) {
+                    triangleDead[t] = true;
+                    continue;
+                }
+                alive++;
+                triangles[a].add(t);
+                triangles[b].add(t);
+                triangles[c].add(t);
+                addPlaneQuadric(a, b, c);
+            }
+
+            locked = new boolean[vertexCount];
+            lockBordersAndNonManifold();
+            vertexDead = new boolean[vertexCount];
+            version = new int[vertexCount];
+            mark = new int[vertexCount];
+            heap = new PriorityQueue<>(Math.max(16, triangleCount * 3 / 2));
+        }
+
+        private void addPlaneQuadric(int a, int b, int c) {
+            double ux = position[b * 3] - position[a * 3];
+            double uy = position[b * 3 + 1] - position[a * 3 + 1];
+            double uz = position[b * 3 + 2] - position[a * 3 + 2];
+            double vx = position[c * 3] - position[a * 3];
+            double vy = position[c * 3 + 1] - position[a * 3 + 1];
+            double vz = position[c * 3 + 2] - position[a * 3 + 2];
+            double nx = uy * vz - uz * vy;
+            double ny = uz * vx - ux * vz;
+            double nz = ux * vy - uy * vx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) return;
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            double d = -(nx * position[a * 3] + ny * position[a * 3 + 1] + nz * position[a * 3 + 2]);
+            double area = length / 2;
+            double[] plane = {
+                    nx * nx, nx * ny, nx * nz, nx * d,
+                    ny * ny, ny * nz, ny * d,
+                    nz * nz, nz * d,
+                    d * d
+            };
+            for (int vertex : new int[]{a, b, c}) {
+                for (int i = 0; i < 10; i++) quadric[vertex * 10 + i] += plane[i] * area;
+            }
+        }
+
+        // Vertices on an edge that doesn't have exactly two triangles never move
+        private void lockBordersAndNonManifold() {
+            Map<Long, Integer> edgeUse = new HashMap<>();
+            for (int t = 0; t < triangleCount; t++) {
+                if (triangleDead[t]) continue;
+                for (int k = 0; k < 3; k++) {
+                    long key = edgeKey(welded[t * 3 + k], welded[t * 3 + (k + 1) % 3]);
+                    Integer n = edgeUse.get(key);
+                    edgeUse.put(key, n == null ? 1 : n + 1);
+                }
+            }
+            for (Map.Entry<Long, Integer> e : edgeUse.entrySet()) {
+                if (e.getValue() != 2) {
+                    locked[(int) (e.getKey() / vertexCount)] = true;
+                    locked[(int) (e.getKey() % vertexCount)] = true;
+                }
+            }
+        }
+
+        private long edgeKey(int a, int b) {
+            return a < b ? (long) a * vertexCount + b : (long) b * vertexCount + a;
+        }
+
+        // Error of moving the combined quadric of a and b onto vertex `to`
+        private double error(int a, int b, int to) {
+            double x = position[to * 3];
+            double y = position[to * 3 + 1];
+            double z = position[to * 3 + 2];
+            double[] q = quadric;
+            int i = a * 10;
+            int j = b * 10;
+            return (q[i] + q[j]) * x * x + 2 * (q[i + 1] + q[j + 1]) * x * y + 2 * (q[i + 2] + q[j + 2]) * x * z
+                    + 2 * (q[i + 3] + q[j + 3]) * x + (q[i + 4] + q[j + 4]) * y * y + 2 * (q[i + 5] + q[j + 5]) * y * z
+                    + 2 * (q[i + 6] + q[j + 6]) * y + (q[i + 7] + q[j + 7]) * z * z + 2 * (q[i + 8] + q[j + 8]) * z
+                    + (q[i + 9] + q[j + 9]);
+        }
+
+        private void push(int a, int b) {
+            if (locked[a] && locked[b]) return;
+            double cost = Double.MAX_VALUE;
+            if (!locked[a]) cost = Math.min(cost, error(a, b, b));
+            if (!locked[b]) cost = Math.min(cost, error(a, b, a));
+            heap.add(new Candidate(cost, a, b, version[a], version[b]));
+        }
+
+        int[] run(int targetTriangles) {
+            for (int t = 0; t < triangleCount; t++) {
+                if (triangleDead[t]) continue;
+                for (int k = 0; k < 3; k++) {
+                    int a = welded[t * 3 + k];
+                    int b = welded[t * 3 + (k + 1) % 3];
+                    // Each interior edge is seen from both triangles; push it once
+                    if (a < b || locked[a] || locked[b]) push(a, b);
+                }
+            }
+
+            while (alive > targetTriangles && !heap.isEmpty()) {
+                Candidate c = heap.poll();
+                if (vertexDead[c.a] || vertexDead[c.b]
+                        || version[c.a] != c.versionA || version[c.b] != c.versionB) {
+                    continue;
+                }
+                boolean aFirst = locked[c.b] || (!locked[c.a] && error(c.a, c.b, c.b) <= error(c.a, c.b, c.a));
+                if (aFirst) {
+                    if (!tryCollapse(c.a, c.b) && !locked[c.b]) tryCollapse(c.b, c.a);
+                } else {
+                    if (!tryCollapse(c.b, c.a) && !locked[c.a]) tryCollapse(c.a, c.b);
+                }
+            }
+
+            int[] out = new int[alive * 3];
+            int n = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                if (triangleDead[t]) continue;
+                out[n++] = original[t * 3];
+                out[n++] = original[t * 3 + 1];
+                out[n++] = original[t * 3 + 2];
+            }
+            return out;
+        }
+
+        // Live triangles of a vertex; drops dead ones from its list as a side effect
+        private IntList liveTriangles(int vertex) {
+            IntList list = triangles[vertex];
+            int n = 0;
+            for (int i = 0; i < list.size; i++) {
+                int t = list.items[i];
+                if (!triangleDead[t]) list.items[n++] = t;
+            }
+            list.size = n;
+            return list;
+        }
+
+        private static boolean contains(int[] corners, int t, int vertex) {
+            return corners[t * 3] == vertex || corners[t * 3 + 1] == vertex || corners[t * 3 + 2] == vertex;
+        }
+
+        private static int cornerOf(int[] corners, int t, int vertex) {
+            for (int k = 0; k < 3; k++) {
+                if (corners[t * 3 + k] == vertex) return t * 3 + k;
+            }
+            return -1;
+        }
+
+        // Moves u onto v. Returns false (changing nothing) if the collapse isn't safe.
+        private boolean tryCollapse(int u, int v) {
+            if (locked[u]) return false;
+            IntList around = liveTriangles(u);
+
+            // The two triangles sharing edge u-v go away
+            int s0 = -1;
+            int s1 = -1;
+            for (int i = 0; i < around.size; i++) {
+                int t = around.items[i];
+                if (!contains(welded, t, v)) continue;
+                if (s0 < 0) s0 = t;
+                else if (s1 < 0) s1 = t;
+                else return false;
+            }
+            if (s1 < 0) return false;
+
+            // Link condition: u and v may only share the two opposite vertices
+            stamp++;
+            for (int i = 0; i < around.size; i++) {
+                int t = around.items[i];
+                for (int k = 0; k < 3; k++) mark[welded[t * 3 + k]] = stamp;
+            }
+            int shared = 0;
+            IntList aroundV = liveTriangles(v);
+            stamp++;
+            for (int i = 0; i < aroundV.size; i++) {
+                int t = aroundV.items[i];
+                for (int k = 0; k < 3; k++) {
+                    int w = welded[t * 3 + k];
+                    if (w != u && w != v && mark[w] == stamp - 1) {
+                        mark[w] = stamp; // Count each neighbour once
+                        shared++;
+                    }
+                }
+            }
+            if (shared != 2) return false;
+
+            // Wedge map: original vertex at u -> original vertex at v, through s0 and s1
+            int[] from = new int[2];
+            int[] to = new int[2];
+            int wedges = 0;
+            for (int s : new int[]{s0, s1}) {
+                int ou = original[cornerOf(welded, s, u)];
+                int ov = original[cornerOf(welded, s, v)];
+                int existing = -1;
+                for (int i = 0; i < wedges; i++) {
+                    if (from[i] == ou) existing = i;
+                }
+                if (existing >= 0) {
+                    if (to[existing] != ov) return false;
+                } else {
+                    from[wedges] = ou;
+                    to[wedges] = ov;
+                    wedges++;
+                }
+            }
+
+            // Every other triangle must have a mapped wedge and keep its orientation
+            for (int i = 0; i < around.size; i++) {
+                int t = around.items[i];
+                if (t == s0 || t == s1) continue;
+                int corner = cornerOf(welded, t, u);
+                boolean mapped = false;
+                for (int k = 0; k < wedges; k++) {
+                    if (from[k] == original[corner]) mapped = true;
+                }
+                if (!mapped || flips(t, corner, v)) return false;
+            }
+
+            triangleDead[s0] = true;
+            triangleDead[s1] = true;
+            alive -= 2;
+            IntList targetList = triangles[v];
+            for (int i = 0; i < around.size; i++) {
+                int t = around.items[i];
+                if (t == s0 || t == s1) continue;
+                int corner = cornerOf(welded, t, u);
+                welded[corner] = v;
+                for (int k = 0; k < wedges; k++) {
+                    if (from[k] == original[corner]) {
+                        original[corner] = to[k];
+                        break;
+                    }
+                }
+                targetList.add(t);
+            }
+            vertexDead[u] = true;
+            for (int i = 0; i < 10; i++) quadric[v * 10 + i] += quadric[u * 10 + i];
+            version[v]++;
+
+            // Costs of every edge at v changed
+            List<Integer> neighbours = new ArrayList<>();
+            IntList updated = liveTriangles(v);
+            stamp++;
+            for (int i = 0; i < updated.size; i++) {
+                int t = updated.items[i];
+                for (int k = 0; k < 3; k++) {
+                    int w = welded[t * 3 + k];
+                    if (w != v && mark[w] != stamp) {
+                        mark[w] = stamp;
+                        neighbours.add(w);
+                    }
+                }
+            }
+            for (int w : neighbours) push(v, w);
+            return true;
+        }
+
+        // Would moving corner (currently at u) of triangle t to v turn the face over?
+        private boolean flips(int t, int corner, int v) {
+            double[] before = normal(t, corner, welded[corner]);
+            double[] after = normal(t, corner, v);
+            double lengthAfter = Math.sqrt(after[0] * after[0] + after[1] * after[1] + after[2] * after[2]);
+            if (lengthAfter == 0) return true;
+            return before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0;
+        }
+
+        private double[] normal(int t, int corner, int replacement) {
+            double[] p = new double[9];
+            for (int k = 0; k < 3; k++) {
+                int w = (t * 3 + k == corner) ? replacement : welded[t * 3 + k];
+                p[k * 3] = position[w * 3];
+                p[k * 3 + 1] = position[w * 3 + 1];
+                p[k * 3 + 2] = position[w * 3 + 2];
+            }
+            double ux = p[3] - p[0];
+            double uy = p[4] - p[1];
+            double uz = p[5] - p[2];
+            double vx = p[6] - p[0];
+            double vy = p[7] - p[1];
+            double vz = p[8] - p[2];
+            return new double[]{uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx};
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package co.nomiva.app;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and latency histograms for the JS bridge and the ad lifecycle.
+// Recording is lock-free (atomics in a ConcurrentHashMap) so it can sit on every
+// @JavascriptInterface call. flush() appends one cumulative JSON snapshot per call to
+// files/metrics/bridge_metrics.jsonl, tagged with version and a per-process session
+// id; the file rotates to .1 at MAX_FILE_BYTES so two generations are kept.
+public class MetricsRegistry {
+
+    private static final String TAG = "MetricsRegistry";
+    static final long MAX_FILE_BYTES = 256 * 1024;
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final File file;
+    private final String version;
+    private final String session = UUID.randomUUID().toString().substring(0, 8);
+    private final long createdAtNanos = System.nanoTime();
+
+    public MetricsRegistry(File filesDir, String version) {
+        File dir = new File(filesDir, "metrics");
+        dir.mkdirs();
+        this.file = new File(dir, "bridge_metrics.jsonl");
+        this.version = version;
+    }
+
+    // Start timestamp for recordCall()/recordSince()
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    // One JavascriptInterface call, timed from start() to now
+    public void recordCall(String method, long startNanos) {
+        recordSince("bridge." + method, startNanos);
+    }
+
+    public void recordSince(String name, long startNanos) {
+        histogram(name).record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public void recordMs(String name, long millis) {
+        histogram(name).record(millis * 1000);
+    }
+
+    public void increment(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        counter.incrementAndGet();
+    }
+
+    LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) histogram = created;
+        }
+        return histogram;
+    }
+
+    private long uptimeMs() {
+        return (System.nanoTime() - createdAtNanos) / 1_000_000;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            long uptime = uptimeMs();
+            json.put("version", version);
+            json.put("session", session);
+            json.put("uptimeMs", uptime);
+            JSONObject counterJson = new JSONObject();
+            for (Map.Entry<String, AtomicLong> e : new TreeMap<>(counters).entrySet()) {
+                counterJson.put(e.getKey(), e.getValue().get());
+            }
+            json.put("counters", counterJson);
+            JSONObject latency = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(histograms).entrySet()) {
+                latency.put(e.getKey(), e.getValue().toJson(uptime));
+            }
+            json.put("latency", latency);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build metrics", e);
+        }
+        return json;
+    }
+
+    // Appends a snapshot. Blocking file IO: call from a background thread.
+    public synchronized void flush() {
+        if (histograms.isEmpty() && counters.isEmpty()) return;
+        JSONObject line = toJson();
+        try {
+            line.put("timestamp", System.currentTimeMillis());
+        } catch (JSONException ignored) {
+            // Timestamp is optional
+        }
+        if (file.length() >= MAX_FILE_BYTES) {
+            File previous = new File(file.getPath() + ".1");
+            previous.delete();
+            if (!file.renameTo(previous)) file.delete();
+        }
+        try (Writer out = new FileWriter(file, true)) {
+            out.write(line.toString());
+            out.write('\n');
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write metrics: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,672 @@
+package co.nomiva.app;
+
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// On-disk LRU cache for 3D model downloads (glb/obj/fbx/usdz).
+// Requests from the WebView are intercepted in AppWebViewClient and served from
+// getCacheDir()/models when possible, so re-opening a model is a disk read
+// instead of a multi-megabyte download from Cloudinary. Generated models come through the
+// API's /proxyModel/ route and are cached the same way; prefetch() fills the cache ahead
+// of time for the Preloader.
+// Bodies are content-addressed: each URL's <sha256(url)>.meta names a <sha256(body)>.bin blob,
+// so the same model reached through several URLs (Cloudinary link, /proxyModel/, signed
+// variants) is stored once.
+public class ModelCache {
+
+    private static final String TAG = "ModelCache";
+
+    private static final List<String> MODEL_EXTENSIONS = Arrays.asList(".glb", ".obj", ".fbx", ".usdz");
+
+    private static final long DEFAULT_MAX_BYTES = 150L * 1024 * 1024; // 150 MB
+    private static final long FRESH_FOR_MS = 60L * 60 * 1000; // Revalidate entries older than 1 hour
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final File dir;
+    private final long maxBytes;
+    private final CookieProvider cookies;
+
+    // key -> entry, in access order (eldest = least recently used)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // content hash -> number of entries pointing at that blob
+    private final Map<String, Integer> blobRefs = new HashMap<>();
+    private long totalBytes = 0; // Blobs on disk, each counted once
+
+    // Told about every committed download (LOD generation hooks in here)
+    public interface Listener {
+        void onCached(String url, File body);
+    }
+
+    private volatile Listener listener;
+
+    // Told about every model request the cache answers, and whether a copy was already on
+    // disk (Preloader hit tracking)
+    public interface UseListener {
+        void onUsed(String url, boolean cached);
+    }
+
+    private volatile UseListener useListener;
+
+    // Counters
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong dedupedBytes = new AtomicLong();
+    private final AtomicLong bytesFromCache = new AtomicLong();
+    private final AtomicLong bytesFromNetwork = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+    private final AtomicLong bytesPrefetched = new AtomicLong();
+
+    static class Entry {
+        final String key;
+        String hash;
+        String url;
+        String contentType;
+        String etag;
+        String lastModified;
+        long storedAt;
+        long size;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    public ModelCache(File cacheRoot, CookieProvider cookies) {
+        this(new File(cacheRoot, "models"), DEFAULT_MAX_BYTES, cookies);
+    }
+
+    public ModelCache(File dir, long maxBytes, CookieProvider cookies) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.cookies = cookies;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create cache dir " + dir);
+        }
+        loadIndex();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setUseListener(UseListener useListener) {
+        this.useListener = useListener;
+    }
+
+    // Only plain GETs for remote model files are handled; everything else goes to Capacitor
+    public static boolean isModelRequest(WebResourceRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) return false;
+        String scheme = request.getUrl().getScheme();
+        if (!"https".equals(scheme) && !"http".equals(scheme)) return false;
+        String host = request.getUrl().getHost();
+        if (host == null || "localhost".equals(host)) return false;
+        // Let the WebView handle partial requests itself
+        for (String header : request.getRequestHeaders().keySet()) {
+            if ("Range".equalsIgnoreCase(header)) return false;
+        }
+        String path = request.getUrl().getPath();
+        return isModelPath(path) || isProxyModel(path, request.getUrl().getQueryParameter("format"));
+    }
+
+    // The API's model proxy (/proxyModel/<taskId>?format=glb), used for generated models
+    static boolean isProxyModel(String path, String format) {
+        return path != null && path.contains("/proxyModel/") && format != null
+                && MODEL_EXTENSIONS.contains("." + format.toLowerCase(Locale.ROOT));
+    }
+
+    static boolean isModelPath(String path) {
+        if (path == null) return false;
+        String lower = path.toLowerCase(Locale.ROOT);
+        for (String ext : MODEL_EXTENSIONS) {
+            if (lower.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    // Called on the WebView's IO thread. Returns null to let the request go through normally.
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        String key = keyFor(url);
+        Map<String, String> headers = request.getRequestHeaders();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        UseListener l = useListener;
+        if (l != null) l.onUsed(url, entry != null);
+
+        try {
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.storedAt < FRESH_FOR_MS) {
+                    return serveFromDisk(entry);
+                }
+                return revalidate(entry, url, headers);
+            }
+            return fetchAndStore(key, url, headers);
+        } catch (IOException e) {
+            Log.w(TAG, "Cache request failed for " + url + ": " + e.getMessage());
+            // Network trouble: a stale copy is better than nothing
+            if (entry != null && blobFile(entry.hash).exists()) {
+                try {
+                    return serveFromDisk(entry);
+                } catch (IOException ignored) {
+                    // Fall through to the WebView's own loading
+                }
+            }
+            return null;
+        }
+    }
+
+    private WebResourceResponse serveFromDisk(Entry entry) throws IOException {
+        File body = blobFile(entry.hash);
+        InputStream in = new FileInputStream(body);
+        hits.incrementAndGet();
+        bytesFromCache.addAndGet(entry.size);
+        return buildResponse(entry.contentType, 200, "OK", entry.size, in);
+    }
+
+    private WebResourceResponse revalidate(Entry entry, String url, Map<String, String> headers) throws IOException {
+        revalidations.incrementAndGet();
+        HttpURLConnection conn = openConnection(url, headers);
+        if (entry.etag != null) conn.setRequestProperty("If-None-Match", entry.etag);
+        if (entry.lastModified != null) conn.setRequestProperty("If-Modified-Since", entry.lastModified);
+
+        int code = conn.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            conn.disconnect();
+            notModified.incrementAndGet();
+            synchronized (this) {
+                entry.storedAt = System.currentTimeMillis();
+            }
+            writeMeta(entry);
+            return serveFromDisk(entry);
+        }
+        if (code != HttpURLConnection.HTTP_OK) {
+            conn.disconnect();
+            throw new IOException("HTTP " + code);
+        }
+        // Changed on the server: replace the cached copy
+        synchronized (this) {
+            removeLocked(entry.key);
+        }
+        misses.incrementAndGet();
+        return streamAndStore(entry.key, url, conn);
+    }
+
+    private WebResourceResponse fetchAndStore(String key, String url, Map<String, String> headers) throws IOException {
+        misses.incrementAndGet();
+        HttpURLConnection conn = openConnection(url, headers);
+        int code = conn.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK) {
+            // Not cacheable - hand the page the server's answer rather than letting the
+            // WebView download the URL a second time
+            return errorResponse(conn, code, url);
+        }
+        return streamAndStore(key, url, conn);
+    }
+
+    private WebResourceResponse errorResponse(HttpURLConnection conn, int code, String url) throws IOException {
+        String reason = conn.getResponseMessage();
+        InputStream body = conn.getErrorStream();
+        if (body == null) {
+            conn.disconnect();
+            body = new ByteArrayInputStream(new byte[0]);
+        }
+        return buildResponse(contentTypeFor(conn.getContentType(), url), code,
+                reason != null && !reason.isEmpty() ? reason : "Error", conn.getContentLength(), body);
+    }
+
+    // Hands the network stream to the WebView while teeing it into a temp file.
+    // The entry is only committed once the body has been read completely.
+    private WebResourceResponse streamAndStore(String key, String url, HttpURLConnection conn) throws IOException {
+        Entry entry = new Entry(key);
+        entry.url = url;
+        entry.contentType = contentTypeFor(conn.getContentType(), url);
+        entry.etag = conn.getHeaderField("ETag");
+        entry.lastModified = conn.getHeaderField("Last-Modified");
+
+        long length = conn.getContentLength();
+        if (length > maxBytes / 2) {
+            // Too large to be worth caching; stream straight through
+            Log.d(TAG, "Not caching " + length + " byte model " + url);
+            return buildResponse(entry.contentType, 200, "OK", length, new CountingInputStream(conn.getInputStream()));
+        }
+
+        // One temp file per download: two requests for the same URL may be reading at once
+        File tmp = File.createTempFile(key + ".", ".tmp", dir);
+        InputStream tee = new TeeInputStream(conn.getInputStream(), new FileOutputStream(tmp), tmp, entry);
+        return buildResponse(entry.contentType, 200, "OK", length, tee);
+    }
+
+    // Downloads a model into the cache before the page asks for it (see Preloader). Returns
+    // the bytes read from the network, 0 when a fresh copy is already cached. Once
+    // `cancelled` is set it stops reading and keeps nothing.
+    public long prefetch(String url, AtomicBoolean cancelled) throws IOException {
+        String key = keyFor(url);
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null && System.currentTimeMillis() - cached.storedAt < FRESH_FOR_MS) return 0;
+        }
+        File tmp = File.createTempFile(key + ".", ".tmp", dir);
+        HttpURLConnection conn = openConnection(url, Collections.<String, String>emptyMap());
+        MessageDigest digest = sha256();
+        long read = 0;
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) throw new IOException("HTTP " + code);
+            if (conn.getContentLength() > maxBytes / 2) {
+                tmp.delete();
+                return 0;
+            }
+            Entry entry = new Entry(key);
+            entry.url = url;
+            entry.contentType = contentTypeFor(conn.getContentType(), url);
+            entry.etag = conn.getHeaderField("ETag");
+            entry.lastModified = conn.getHeaderField("Last-Modified");
+            try (InputStream in = conn.getInputStream(); OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while (!cancelled.get() && read <= maxBytes / 2 && (n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                    digest.update(buffer, 0, n);
+                    read += n;
+                }
+            }
+            if (cancelled.get() || read > maxBytes / 2) {
+                tmp.delete();
+                return read;
+            }
+            prefetches.incrementAndGet();
+            bytesPrefetched.addAndGet(read);
+            commit(entry, tmp, read, hex(digest.digest()));
+            return read;
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private void commit(Entry entry, File tmp, long size, String hash) {
+        File body = blobFile(hash);
+        synchronized (this) {
+            Integer refs = blobRefs.get(hash);
+            if (refs != null) {
+                // Same bytes already cached under another URL (or by a parallel download)
+                tmp.delete();
+                blobRefs.put(hash, refs + 1);
+                dedupedBytes.addAndGet(size);
+            } else if (tmp.renameTo(body)) {
+                blobRefs.put(hash, 1);
+                totalBytes += size;
+            } else {
+                Log.w(TAG, "Could not commit cache entry " + entry.key);
+                tmp.delete();
+                return;
+            }
+            entry.hash = hash;
+            entry.size = size;
+            entry.storedAt = System.currentTimeMillis();
+            Entry previous = entries.put(entry.key, entry);
+            if (previous != null) releaseBlob(previous);
+            writeMeta(entry);
+            trimToSize(maxBytes);
+        }
+        Log.d(TAG, "Cached " + size + " bytes for " + entry.url);
+        Listener l = listener;
+        if (l != null) l.onCached(entry.url, body);
+    }
+
+    private synchronized void trimToSize(long limit) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > limit && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            releaseBlob(eldest);
+            metaFile(eldest.key).delete();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Body file for a cached URL, or null. Lets the model store copy instead of re-downloading.
+    public File getCachedFile(String url) {
+        File body;
+        synchronized (this) {
+            Entry entry = entries.get(keyFor(url));
+            if (entry == null) return null;
+            body = blobFile(entry.hash);
+        }
+        return body.exists() ? body : null;
+    }
+
+    // Shrinks the cache to the given fraction of its budget (used under memory/storage pressure)
+    public void trimTo(float fraction) {
+        trimToSize((long) (maxBytes * fraction));
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void removeLocked(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            releaseBlob(removed);
+            metaFile(key).delete();
+        }
+    }
+
+    // Drops an entry's hold on its blob; the file goes with the last entry using it
+    private void releaseBlob(Entry entry) {
+        Integer refs = blobRefs.get(entry.hash);
+        if (refs == null) return;
+        if (refs > 1) {
+            blobRefs.put(entry.hash, refs - 1);
+            return;
+        }
+        blobRefs.remove(entry.hash);
+        totalBytes -= entry.size;
+        blobFile(entry.hash).delete();
+    }
+
+    // Sends what the WebView would have sent (auth headers, session cookies) so /proxyModel
+    // downloads are made as the signed-in user
+    private HttpURLConnection openConnection(String url, Map<String, String> requestHeaders) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setInstanceFollowRedirects(true);
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            String name = header.getKey();
+            // Compression is negotiated (and decoded) by HttpURLConnection, and validators are
+            // the cache's own: the WebView's would get a 304 we can't serve
+            if ("Accept-Encoding".equalsIgnoreCase(name) || "Range".equalsIgnoreCase(name)
+                    || "If-None-Match".equalsIgnoreCase(name) || "If-Modified-Since".equalsIgnoreCase(name)) {
+                continue;
+            }
+            conn.setRequestProperty(name, header.getValue());
+        }
+        String cookie = cookies != null ? cookies.getCookies(url) : null;
+        if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+        return conn;
+    }
+
+    private WebResourceResponse buildResponse(String mimeType, int status, String reason, long length, InputStream body) {
+        Map<String, String> headers = new HashMap<>();
+        // The page origin is https://localhost, so model fetches are cross-origin
+        headers.put("Access-Control-Allow-Origin", "*");
+        headers.put("Cache-Control", "no-cache");
+        if (length >= 0) headers.put("Content-Length", String.valueOf(length));
+        return new WebResourceResponse(mimeType, null, status, reason, headers, body);
+    }
+
+    static String contentTypeFor(String serverType, String url) {
+        if (serverType != null && !serverType.isEmpty() && !serverType.startsWith("application/octet-stream")) {
+            int semi = serverType.indexOf(';');
+            return semi > 0 ? serverType.substring(0, semi).trim() : serverType;
+        }
+        String lower = url.toLowerCase(Locale.ROOT);
+        if (lower.contains(".glb")) return "model/gltf-binary";
+        if (lower.contains(".usdz")) return "model/vnd.usdz+zip";
+        if (lower.contains(".obj")) return "text/plain";
+        return "application/octet-stream";
+    }
+
+    static String keyFor(String url) {
+        return hex(sha256().digest(url.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available on Android
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private File blobFile(String hash) {
+        return new File(dir, hash + ".bin");
+    }
+
+    private File metaFile(String key) {
+        return new File(dir, key + ".meta");
+    }
+
+    private void writeMeta(Entry entry) {
+        Properties props = new Properties();
+        props.setProperty("url", entry.url);
+        props.setProperty("hash", entry.hash);
+        props.setProperty("contentType", entry.contentType);
+        if (entry.etag != null) props.setProperty("etag", entry.etag);
+        if (entry.lastModified != null) props.setProperty("lastModified", entry.lastModified);
+        props.setProperty("storedAt", String.valueOf(entry.storedAt));
+        props.setProperty("size", String.valueOf(entry.size));
+        try (OutputStream out = new FileOutputStream(metaFile(entry.key))) {
+            props.store(out, null);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write cache metadata: " + e.getMessage());
+        }
+    }
+
+    // Rebuilds the in-memory index from disk, oldest entries first so LRU order survives
+    // restarts. Blobs no entry points at (and pre-content-hash bodies) are deleted.
+    private synchronized void loadIndex() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        List<File> metas = new ArrayList<>();
+        List<File> blobs = new ArrayList<>();
+        for (File f : files) {
+            String name = f.getName();
+            if (name.endsWith(".tmp")) {
+                f.delete(); // Interrupted download
+            } else if (name.endsWith(".meta")) {
+                metas.add(f);
+            } else if (name.endsWith(".bin")) {
+                blobs.add(f);
+            }
+        }
+        Collections.sort(metas, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File meta : metas) {
+            String key = meta.getName().substring(0, meta.getName().length() - 5);
+            Properties props = new Properties();
+            try (InputStream in = new FileInputStream(meta)) {
+                props.load(in);
+            } catch (IOException e) {
+                meta.delete();
+                continue;
+            }
+            String hash = props.getProperty("hash");
+            File body = hash != null ? blobFile(hash) : null;
+            if (body == null || !body.exists()) {
+                meta.delete();
+                continue;
+            }
+            Entry entry = new Entry(key);
+            entry.hash = hash;
+            entry.url = props.getProperty("url");
+            entry.contentType = props.getProperty("contentType", "application/octet-stream");
+            entry.etag = props.getProperty("etag");
+            entry.lastModified = props.getProperty("lastModified");
+            entry.storedAt = Long.parseLong(props.getProperty("storedAt", "0"));
+            entry.size = body.length();
+            entries.put(key, entry);
+            Integer refs = blobRefs.get(hash);
+            blobRefs.put(hash, refs != null ? refs + 1 : 1);
+            if (refs == null) totalBytes += entry.size;
+        }
+        for (File blob : blobs) {
+            if (!blobRefs.containsKey(blob.getName().substring(0, blob.getName().length() - 4))) blob.delete();
+        }
+        Log.d(TAG, "Loaded " + entries.size() + " cached models in " + blobRefs.size() + " files ("
+                + totalBytes + " bytes)");
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (this) {
+                stats.put("entries", entries.size());
+                stats.put("blobs", blobRefs.size());
+                stats.put("bytes", totalBytes);
+            }
+            stats.put("maxBytes", maxBytes);
+            stats.put("hits", hits.get());
+            stats.put("misses", misses.get());
+            stats.put("revalidations", revalidations.get());
+            stats.put("notModified", notModified.get());
+            stats.put("evictions", evictions.get());
+            stats.put("dedupedBytes", dedupedBytes.get());
+            stats.put("bytesFromCache", bytesFromCache.get());
+            stats.put("bytesFromNetwork", bytesFromNetwork.get());
+            stats.put("prefetches", prefetches.get());
+            stats.put("bytesPrefetched", bytesPrefetched.get());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    // Counts bytes for uncached pass-through downloads
+    private class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) bytesFromNetwork.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            if (n > 0) bytesFromNetwork.addAndGet(n);
+            return n;
+        }
+    }
+
+    // Copies everything the WebView reads into a temp file and commits it on EOF.
+    // If the WebView stops reading early (navigation, cancel) the partial file is dropped.
+    private class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private final File tmp;
+        private final Entry entry;
+        private final MessageDigest digest = sha256();
+        private long written = 0;
+        private boolean failed = false;
+        private boolean done = false;
+
+        TeeInputStream(InputStream in, OutputStream copy, File tmp, Entry entry) {
+            super(in);
+            this.copy = copy;
+            this.tmp = tmp;
+            this.entry = entry;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                write(new byte[]{(byte) b}, 0, 1);
+            } else {
+                finish(true);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            if (n > 0) {
+                write(buffer, off, n);
+            } else if (n < 0) {
+                finish(true);
+            }
+            return n;
+        }
+
+        private void write(byte[] buffer, int off, int len) {
+            bytesFromNetwork.addAndGet(len);
+            if (failed) return;
+            try {
+                copy.write(buffer, off, len);
+                digest.update(buffer, off, len);
+                written += len;
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                finish(false);
+            }
+        }
+
+        private void finish(boolean complete) {
+            if (done) return;
+            done = true;
+            try {
+                copy.close();
+            } catch (IOException e) {
+                failed = true;
+            }
+            if (complete && !failed) {
+                commit(entry, tmp, written, hex(digest.digest()));
+            } else {
+                tmp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package co.nomiva.app;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+// Converts a GLB the app has locally (model cache or model store; otherwise it is
+// downloaded first) to OBJ or STL with GlbExporter, into cacheDir/exports/<uuid>/.
+// The activity hands the files to the share sheet through the FileProvider, whose
+// cache-path already covers that directory.
+public class ModelExporter {
+
+    private static final String TAG = "ModelExporter";
+
+    public static final List<String> FORMATS = Arrays.asList("obj", "stl");
+    private static final long KEEP_FOR_MS = 60L * 60 * 1000; // Share targets read the files after we hand them over
+
+    public interface Callback {
+        void onExported(Result result);
+
+        void onFailed(String error);
+    }
+
+    public static class Result {
+        String format;
+        List<File> files;
+        int triangles;
+        int vertices;
+        long bytes;
+        long durationMs;
+
+        public List<File> getFiles() {
+            return files;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("format", format);
+            JSONArray names = new JSONArray();
+            for (File f : files) names.put(f.getName());
+            json.put("files", names);
+            json.put("triangles", triangles);
+            json.put("vertices", vertices);
+            json.put("bytes", bytes);
+            json.put("durationMs", durationMs);
+            return json;
+        }
+    }
+
+    private final File dir;
+    private final Executor executor;
+    private final ModelStore modelStore;
+
+    public ModelExporter(File cacheRoot, Executor executor, ModelStore modelStore) {
+        this.dir = new File(cacheRoot, "exports");
+        this.executor = executor;
+        this.modelStore = modelStore;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+    }
+
+    // Letters, digits, '-' and '_' only, so names are safe in the MTL and for share targets
+    static String fileNameFor(String name) {
+        String clean = name != null ? name.trim().replaceAll("[^A-Za-z0-9_-]+", "_") : "";
+        clean = clean.replaceAll("^_+|_+$", "");
+        if (clean.length() > 64) clean = clean.substring(0, 64);
+        return clean.isEmpty() ? "model" : clean;
+    }
+
+    // `source` is the local GLB, or null to download `url` first. Runs on the executor;
+    // the callback runs there too.
+    public void export(File source, String url, String format, String name, Callback callback) {
+        executor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            pruneOldExports();
+            File exportDir = new File(dir, UUID.randomUUID().toString());
+            File downloaded = null;
+            try {
+                if (!FORMATS.contains(format)) throw new IOException("Unsupported format " + format);
+                if (!exportDir.mkdirs()) throw new IOException("Could not create export dir");
+                File glb = source;
+                if (glb == null) {
+                    downloaded = new File(dir, exportDir.getName() + ".glb");
+                    modelStore.download(url, downloaded);
+                    glb = downloaded;
+                }
+                GlbExporter exporter = new GlbExporter(GlbFile.read(glb));
+                String baseName = fileNameFor(name);
+                GlbExporter.Result written = "stl".equals(format)
+                        ? exporter.writeStl(new File(exportDir, baseName + ".stl"))
+                        : exporter.writeObj(exportDir, baseName);
+
+                Result result = new Result();
+                result.format = format;
+                result.files = written.files;
+                result.triangles = written.triangles;
+                result.vertices = written.vertices;
+                result.bytes = written.bytes;
+                result.durationMs = SystemClock.elapsedRealtime() - start;
+                Log.d(TAG, "Exported " + result.triangles + " triangles to " + format + " (" + result.bytes
+                        + " bytes, " + written.skippedPrimitives + " primitives skipped) in " + result.durationMs + "ms");
+                callback.onExported(result);
+            } catch (IOException | OutOfMemoryError e) {
+                Log.w(TAG, "Could not export " + format + ": " + e.getMessage());
+                deleteDir(exportDir);
+                callback.onFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            } finally {
+                if (downloaded != null) downloaded.delete();
+            }
+        });
+    }
+
+    private void pruneOldExports() {
+        File[] entries = dir.listFiles();
+        if (entries == null) return;
+        long cutoff = System.currentTimeMillis() - KEEP_FOR_MS;
+        for (File entry : entries) {
+            if (entry.lastModified() < cutoff) deleteDir(entry);
+        }
+    }
+
+    private static void deleteDir(File f) {
+        File[] children = f.listFiles();
+        if (children != null) for (File child : children) child.delete();
+        if (f.exists() && !f.delete()) Log.w(TAG, "Could not delete " + f.getName());
+    }
+}
@@ -0,0 +1,264 @@
+package co.nomiva.app;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Metadata of every GLB that reached local storage (model cache or model store), keyed by
+// the URL the page loads it from. Files are checked and measured by GlbInspector on the
+// background executor as they arrive, so galleries can show and sort by size, triangles
+// and GPU memory, and the viewer can refuse a broken file, without loading anything into
+// Three.js. One query answers for any number of URLs:
+//   - indexed:        the GlbInspector summary with status "ready" (valid false + error if broken)
+//   - local, not yet: {status: "pending"}, and indexing starts
+//   - not local:      {status: "unknown"}
+// Entries outlive the files (a cache eviction doesn't make the numbers wrong) and are
+// re-measured when a file with a different size or date shows up for the same URL.
+// Persisted to index.tsv; the least recently queried entries go past MAX_ENTRIES.
+public class ModelIndex {
+
+    private static final String TAG = "ModelIndex";
+
+    static final int MAX_ENTRIES = 1000;
+
+    static final String STATUS_READY = "ready";
+    static final String STATUS_PENDING = "pending";
+    static final String STATUS_UNKNOWN = "unknown";
+
+    // Local copy of a model URL, or null
+    public interface Locator {
+        File find(String url);
+    }
+
+    public interface Listener {
+        void onIndexed(String url, JSONObject info);
+    }
+
+    private static final class Entry {
+        final long size;
+        final long modified;
+        final JSONObject info;
+
+        Entry(long size, long modified, JSONObject info) {
+            this.size = size;
+            this.modified = modified;
+            this.info = info;
+        }
+    }
+
+    private final File dir;
+    private final File indexFile;
+    private final Executor executor;
+    private final Locator locator;
+    private volatile Listener listener;
+
+    // Guarded by this; access order, so queries keep entries alive
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Set<String> queued = new HashSet<>();
+    private final AtomicBoolean indexSaveScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong inspectMs = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queriedUrls = new AtomicLong();
+
+    public ModelIndex(File filesDir, Executor executor, Locator locator) {
+        this.dir = new File(filesDir, "model-index");
+        this.indexFile = new File(dir, "index.tsv");
+        this.executor = executor;
+        this.locator = locator;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+        executor.execute(this::loadIndex);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Measures `file` as the local copy of `url` unless it already has been
+    public void index(String url, File file) {
+        synchronized (this) {
+            if (!queued.add(url)) return;
+        }
+        executor.execute(() -> {
+            try {
+                inspect(url, file);
+            } finally {
+                synchronized (this) {
+                    queued.remove(url);
+                }
+            }
+        });
+    }
+
+    private void inspect(String url, File file) {
+        long size = file.length();
+        long modified = file.lastModified();
+        synchronized (this) {
+            Entry existing = entries.get(url);
+            if (existing != null && existing.size == size && existing.modified == modified) {
+                unchanged.incrementAndGet();
+                return;
+            }
+        }
+        if (!file.isFile()) return;
+
+        long started = System.nanoTime();
+        JSONObject info;
+        try {
+            info = GlbInspector.inspect(file);
+        } catch (IOException | RuntimeException e) {
+            // A layout the reader doesn't guard against still marks the file invalid
+            String error = e instanceof IOException ? e.getMessage() : e.toString();
+            info = new JSONObject();
+            try {
+                info.put("valid", false);
+                info.put("error", error);
+                info.put("fileBytes", size);
+            } catch (JSONException ignored) {
+                // Still recorded as invalid
+            }
+            invalid.incrementAndGet();
+            Log.w(TAG, "Invalid GLB " + url + ": " + error);
+        }
+        try {
+            info.put("status", STATUS_READY);
+        } catch (JSONException ignored) {
+            // Never thrown for a string value
+        }
+        inspectMs.addAndGet((System.nanoTime() - started) / 1_000_000);
+        indexed.incrementAndGet();
+        synchronized (this) {
+            entries.put(url, new Entry(size, modified, info));
+        }
+        scheduleIndexSave();
+        Listener l = listener;
+        if (l != null) l.onIndexed(url, info);
+    }
+
+    // {url: info} for every URL in `urls`
+    public JSONObject query(JSONArray urls) throws JSONException {
+        queries.incrementAndGet();
+        JSONObject result = new JSONObject();
+        for (int i = 0; i < urls.length(); i++) {
+            String url = urls.optString(i, "");
+            if (url.isEmpty() || result.has(url)) continue;
+            queriedUrls.incrementAndGet();
+            Entry entry;
+            synchronized (this) {
+                entry = entries.get(url);
+            }
+            if (entry != null) {
+                result.put(url, entry.info);
+                continue;
+            }
+            File local = locator.find(url);
+            if (local != null) index(url, local);
+            result.put(url, new JSONObject().put("status", local != null ? STATUS_PENDING : STATUS_UNKNOWN));
+        }
+        return result;
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (this) {
+                stats.put("entries", entries.size());
+                stats.put("queued", queued.size());
+            }
+            long count = indexed.get();
+            stats.put("indexed", count);
+            stats.put("invalid", invalid.get());
+            stats.put("unchanged", unchanged.get());
+            stats.put("avgInspectMs", count > 0 ? inspectMs.get() / count : 0);
+            stats.put("queries", queries.get());
+            stats.put("queriedUrls", queriedUrls.get());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    // Coalesces index writes: many updates in a row cost one write
+    private void scheduleIndexSave() {
+        if (!indexSaveScheduled.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            indexSaveScheduled.set(false);
+            saveIndex();
+        });
+    }
+
+    private void saveIndex() {
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        File tmp = new File(dir, "index.tsv.tmp");
+        try (Writer out = new FileWriter(tmp)) {
+            // JSONObject.toString() escapes tabs and newlines, so one entry is one line
+            for (Map.Entry<String, Entry> e : snapshot) {
+                Entry entry = e.getValue();
+                out.write(e.getKey() + "\t" + entry.size + "\t" + entry.modified + "\t" + entry.info + "\n");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write index: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(indexFile)) {
+            Log.w(TAG, "Could not replace index");
+        }
+    }
+
+    private void loadIndex() {
+        if (!indexFile.exists()) return;
+        Map<String, Entry> loaded = new LinkedHashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(indexFile))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split("\t", 4);
+                if (f.length != 4) continue;
+                try {
+                    loaded.put(f[0], new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]), new JSONObject(f[3])));
+                } catch (NumberFormatException | JSONException e) {
+                    // Skip the damaged line
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read index: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            // Anything indexed while loading is newer
+            for (Map.Entry<String, Entry> e : loaded.entrySet()) {
+                if (!entries.containsKey(e.getKey())) entries.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package co.nomiva.app;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reduced copies of GLB models sized for this device.
+// When a GLB lands in the model cache or the model store (or a bundled model is first
+// asked for), GlbLodBuilder writes one file per LEVELS entry on a background thread
+// into getCacheDir()/model-lod/<sha256(url)>/<level>.glb, with textures over the
+// device's limit downsampled. Devices that keep full geometry (or models too small to
+// simplify) get a textures-only copy, t.glb, when any texture was over the limit.
+// The viewer asks for the file that fits this device through getModelLodUrl() and
+// loads it from /_native/lod/<key>/<file>, falling back to the original until it exists.
+public class ModelLodCache {
+
+    private static final String TAG = "ModelLodCache";
+
+    public static final String URL_PREFIX = "/_native/lod/";
+
+    // Fraction of the original triangles kept at each level
+    static final float[] LEVELS = {0.5f, 0.25f, 0.1f};
+    // Models below this are cheap enough to render as they are everywhere
+    static final int MIN_TRIANGLES = 10_000;
+    private static final long MAX_BYTES = 100L * 1024 * 1024;
+    private static final String SKIP_MARKER = "skip";
+    private static final String TEXTURES_ONLY = "t.glb";
+
+    private final File dir;
+    private final Executor executor;
+    private final int deviceLevel;
+    private final TextureDownsampler textures;
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong generationMsTotal = new AtomicLong();
+    private final AtomicLong textureBytesSaved = new AtomicLong();
+
+    public ModelLodCache(File cacheRoot, Executor executor, int deviceLevel) {
+        this.dir = new File(cacheRoot, "model-lod");
+        this.executor = executor;
+        this.deviceLevel = deviceLevel;
+        this.textures = new TextureDownsampler(TextureDownsampler.maxEdgeFor(deviceLevel));
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create LOD dir " + dir);
+        }
+    }
+
+    // Index into LEVELS for this device, or -1 to keep full models.
+    // Low-RAM devices also have the weakest GPUs; RAM is the best class signal we get.
+    static int levelFor(long totalMemBytes, boolean lowRamDevice) {
+        long gb = 1024L * 1024 * 1024;
+        if (lowRamDevice || totalMemBytes < 2 * gb) return 2;
+        if (totalMemBytes < 4 * gb) return 1;
+        if (totalMemBytes < 6 * gb) return 0;
+        return -1;
+    }
+
+    private File levelFile(String key, int level) {
+        return new File(new File(dir, key), level + ".glb");
+    }
+
+    // Local path of this device's copy of a model URL, or null (original fits, or not built yet)
+    public String lodPathFor(String url) {
+        String key = ModelCache.keyFor(url);
+        File f = deviceLevel >= 0 ? levelFile(key, deviceLevel) : null;
+        if (f == null || !f.exists()) f = new File(new File(dir, key), TEXTURES_ONLY);
+        if (!f.exists()) return null;
+        f.getParentFile().setLastModified(System.currentTimeMillis());
+        return URL_PREFIX + key + "/" + f.getName();
+    }
+
+    // True once a copy exists or the model was found to need none
+    public boolean isDone(String url) {
+        File keyDir = new File(dir, ModelCache.keyFor(url));
+        return new File(keyDir, SKIP_MARKER).exists() || new File(keyDir, TEXTURES_ONLY).exists()
+                || levelFile(keyDir.getName(), LEVELS.length - 1).exists();
+    }
+
+    // Builds the copies for a GLB file in the background. The source must stay in place
+    // until done (cache bodies may be evicted meanwhile, which just fails this run).
+    public void generate(String url, File source) {
+        if (isDone(url)) return;
+        String key = ModelCache.keyFor(url);
+        if (!inFlight.add(key)) return;
+        executor.execute(() -> {
+            try {
+                build(url, key, source);
+            } finally {
+                inFlight.remove(key);
+            }
+        });
+    }
+
+    // Bundled models (served by Capacitor from assets/public) are copied out first
+    public void generateFromAsset(String url, AssetManager assets, String assetPath) {
+        if (isDone(url)) return;
+        String key = ModelCache.keyFor(url);
+        if (!inFlight.add(key)) return;
+        executor.execute(() -> {
+            File copy = new File(dir, key + ".src");
+            try {
+                try (InputStream in = assets.open(assetPath); OutputStream out = new FileOutputStream(copy)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+                }
+                build(url, key, copy);
+            } catch (FileNotFoundException e) {
+                // The page tries several candidate paths; only one of them is bundled
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read bundled model " + assetPath + ": " + e.getMessage());
+                failed.incrementAndGet();
+            } finally {
+                copy.delete();
+                inFlight.remove(key);
+            }
+        });
+    }
+
+    private void build(String url, String key, File source) {
+        long start = System.currentTimeMillis();
+        File keyDir = new File(dir, key);
+        keyDir.mkdirs();
+        try {
+            GlbLodBuilder builder = new GlbLodBuilder(GlbFile.read(source));
+            builder.setImageRewriter(textures);
+            StringBuilder summary = new StringBuilder();
+            GlbLodBuilder.Result result;
+            if (deviceLevel >= 0 && builder.triangleCount() >= MIN_TRIANGLES) {
+                result = null;
+                for (int level = 0; level < LEVELS.length; level++) {
+                    File tmp = new File(keyDir, level + ".tmp");
+                    result = builder.write(LEVELS[level], tmp);
+                    if (!tmp.renameTo(levelFile(key, level))) throw new IOException("Could not commit level " + level);
+                    summary.append(' ').append(result.trianglesAfter);
+                }
+            } else {
+                File tmp = new File(keyDir, TEXTURES_ONLY + ".tmp");
+                result = builder.write(1f, tmp);
+                if (result.imagesRewritten == 0) {
+                    tmp.delete();
+                    new File(keyDir, SKIP_MARKER).createNewFile();
+                    skipped.incrementAndGet();
+                    Log.d(TAG, "No reduced copy needed for " + url + " (" + builder.triangleCount() + " triangles)");
+                    return;
+                }
+                if (!tmp.renameTo(new File(keyDir, TEXTURES_ONLY))) throw new IOException("Could not commit " + TEXTURES_ONLY);
+                summary.append(" (geometry kept)");
+            }
+            long took = System.currentTimeMillis() - start;
+            generated.incrementAndGet();
+            generationMsTotal.addAndGet(took);
+            textureBytesSaved.addAndGet(result.imageBytesSaved);
+            Log.d(TAG, "Reduced " + url + ": " + builder.triangleCount() + " ->" + summary + " triangles, "
+                    + result.imagesRewritten + " textures capped at " + textures.getMaxEdge() + "px ("
+                    + result.imageBytesSaved / 1024 + " KB smaller) in " + took + "ms");
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            // Unsupported or malformed layout, or too big for this device: the viewer keeps the original
+            Log.w(TAG, "LOD generation failed for " + url + ": " + e);
+            failed.incrementAndGet();
+            try {
+                new File(keyDir, SKIP_MARKER).createNewFile();
+            } catch (IOException ignored) {
+                // Retried next time
+            }
+        }
+        trim(MAX_BYTES);
+    }
+
+    // Storage pressure: drops copies down to the given fraction of the cap
+    public void trimTo(float fraction) {
+        trim((long) (MAX_BYTES * fraction));
+    }
+
+    // Drops whole models, least recently viewed first, until under `limit` bytes
+    private synchronized void trim(long limit) {
+        File[] keyDirs = dir.listFiles(File::isDirectory);
+        if (keyDirs == null) return;
+        Map<File, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (File keyDir : keyDirs) {
+            long size = 0;
+            File[] files = keyDir.listFiles();
+            if (files != null) for (File f : files) size += f.length();
+            sizes.put(keyDir, size);
+            total += size;
+        }
+        if (total <= limit) return;
+        List<File> oldestFirst = new ArrayList<>(sizes.keySet());
+        Collections.sort(oldestFirst, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File keyDir : oldestFirst) {
+            if (total <= limit) break;
+            if (inFlight.contains(keyDir.getName())) continue;
+            File[] files = keyDir.listFiles();
+            if (files != null) for (File f : files) f.delete();
+            keyDir.delete();
+            total -= sizes.get(keyDir);
+        }
+    }
+
+    // Serves /_native/lod/<key>/<level>.glb; null if it doesn't exist
+    public WebResourceResponse serve(String path) {
+        String[] parts = path.substring(URL_PREFIX.length()).split("/");
+        if (parts.length != 2 || !parts[0].matches("[0-9a-f]{64}") || !parts[1].matches("([0-9]|t)\\.glb")) return null;
+        File f = new File(new File(dir, parts[0]), parts[1]);
+        if (!f.exists()) return null;
+        try {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Length", String.valueOf(f.length()));
+            headers.put("Cache-Control", "no-cache");
+            served.incrementAndGet();
+            return new WebResourceResponse("model/gltf-binary", null, 200, "OK", headers, new FileInputStream(f));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            long built = generated.get();
+            stats.put("deviceLevel", deviceLevel);
+            stats.put("ratio", deviceLevel >= 0 ? LEVELS[deviceLevel] : 1);
+            stats.put("generated", built);
+            stats.put("skipped", skipped.get());
+            stats.put("failed", failed.get());
+            stats.put("served", served.get());
+            stats.put("avgGenerationMs", built > 0 ? generationMsTotal.get() / built : 0);
+            stats.put("maxTextureEdge", textures.getMaxEdge());
+            stats.put("texturesResized", textures.getTexturesResized());
+            stats.put("textureBytesSaved", textureBytesSaved.get());
+            stats.put("textureGpuBytesSaved", textures.getGpuBytesSaved());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+}
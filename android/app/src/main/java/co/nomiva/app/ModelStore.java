@@ -0,0 +1,396 @@
+package co.nomiva.app;
+
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+// File-backed store for the user's saved models, replacing IndexedDB blobs.
+// Each model format is one file in files/model-store/. A compact tab-separated index
+// (id, format, size, last access, sync status, created) is kept in memory in LRU order
+// and written back lazily. The viewer reads models directly from
+// /_native/models/<id>/<format> on the app origin, served by AppWebViewClient, so the
+// bytes never pass through JS.
+public class ModelStore {
+
+    private static final String TAG = "ModelStore";
+
+    public static final String URL_PREFIX = "/_native/models/";
+
+    private static final long DEFAULT_QUOTA_BYTES = 500L * 1024 * 1024;
+    private static final List<String> FORMATS = Arrays.asList("glb", "obj", "fbx", "usdz", "stl", "mtl");
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+    private static final int TIMEOUT_MS = 30000;
+
+    public static final String SYNC_PENDING = "pending";
+    public static final String SYNC_SYNCED = "synced";
+
+    public interface Callback {
+        void onStored(Entry entry);
+
+        void onFailed(String id, String format, String error);
+    }
+
+    // Told about models dropped to stay under quota, so the page stops pointing at them
+    public interface Listener {
+        void onEvicted(Entry entry);
+    }
+
+    public static class Entry {
+        public final String id;
+        public final String format;
+        long size;
+        long lastAccess;
+        String syncStatus;
+        long createdAt;
+
+        Entry(String id, String format) {
+            this.id = id;
+            this.format = format;
+        }
+
+        public String localUrl() {
+            return URL_PREFIX + id + "/" + format;
+        }
+
+        public JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("format", format);
+            json.put("size", size);
+            json.put("lastAccess", lastAccess);
+            json.put("syncStatus", syncStatus);
+            json.put("createdAt", createdAt);
+            json.put("url", localUrl());
+            return json;
+        }
+    }
+
+    private final File dir;
+    private final File indexFile;
+    private final long quotaBytes;
+    private final Executor ioExecutor;
+    private final ModelCache modelCache;
+    private final CookieProvider cookies;
+    private volatile Listener listener;
+
+    // "id/format" -> entry, eldest first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(128, 0.75f, true);
+    private long totalBytes = 0;
+    private final AtomicBoolean indexSaveScheduled = new AtomicBoolean(false);
+
+    public ModelStore(File filesDir, Executor ioExecutor, ModelCache modelCache, CookieProvider cookies) {
+        this.dir = new File(filesDir, "model-store");
+        this.indexFile = new File(dir, "index.tsv");
+        this.quotaBytes = DEFAULT_QUOTA_BYTES;
+        this.ioExecutor = ioExecutor;
+        this.modelCache = modelCache;
+        this.cookies = cookies;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+        // Small (a line per model) and read here, not on ioExecutor: serve() and contains()
+        // must see saved models from the first request after a cold start
+        loadIndex();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public static boolean isValid(String id, String format) {
+        return id != null && ID_PATTERN.matcher(id).matches() && format != null && FORMATS.contains(format);
+    }
+
+    private static String key(String id, String format) {
+        return id + "/" + format;
+    }
+
+    private File file(String id, String format) {
+        return new File(dir, id + "." + format);
+    }
+
+    // Downloads (or copies from the model cache) a model into the store, off the calling thread
+    public void store(String id, String format, String url, Callback callback) {
+        if (!isValid(id, format)) {
+            callback.onFailed(id, format, "Invalid id or format");
+            return;
+        }
+        ioExecutor.execute(() -> {
+            File target = file(id, format);
+            File tmp = new File(dir, id + "." + format + ".tmp");
+            try {
+                File cached = modelCache != null ? modelCache.getCachedFile(url) : null;
+                if (cached != null) {
+                    try (InputStream in = new FileInputStream(cached)) {
+                        copy(in, tmp);
+                    }
+                } else {
+                    download(url, tmp);
+                }
+                if (!tmp.renameTo(target)) throw new IOException("Could not move into store");
+
+                Entry entry = new Entry(id, format);
+                entry.size = target.length();
+                entry.createdAt = System.currentTimeMillis();
+                entry.lastAccess = entry.createdAt;
+                entry.syncStatus = SYNC_PENDING;
+                List<Entry> evicted;
+                synchronized (this) {
+                    Entry previous = entries.put(key(id, format), entry);
+                    if (previous != null) {
+                        totalBytes -= previous.size;
+                        entry.syncStatus = previous.syncStatus;
+                    }
+                    totalBytes += entry.size;
+                    evicted = evict(quotaBytes);
+                }
+                scheduleIndexSave();
+                callback.onStored(entry);
+                notifyEvicted(evicted);
+            } catch (IOException e) {
+                tmp.delete();
+                Log.w(TAG, "Could not store " + id + "." + format + ": " + e.getMessage());
+                callback.onFailed(id, format, e.getMessage());
+            }
+        });
+    }
+
+    void download(String url, File dest) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        String cookie = cookies != null ? cookies.getCookies(url) : null;
+        if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) throw new IOException("HTTP " + code);
+            try (InputStream in = conn.getInputStream()) {
+                copy(in, dest);
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static void copy(InputStream in, File dest) throws IOException {
+        try (OutputStream out = new FileOutputStream(dest)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+    // File for a stored model, marking it as recently used; null if not stored
+    public File open(String id, String format) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key(id, format));
+            if (entry != null) entry.lastAccess = System.currentTimeMillis();
+        }
+        if (entry == null) return null;
+        scheduleIndexSave();
+        File f = file(id, format);
+        return f.exists() ? f : null;
+    }
+
+    public synchronized boolean contains(String id, String format) {
+        return entries.containsKey(key(id, format));
+    }
+
+    // Serves /_native/models/<id>/<format>; null if the path isn't a stored model
+    public WebResourceResponse serve(String path) {
+        String[] parts = path.substring(URL_PREFIX.length()).split("/");
+        if (parts.length != 2 || !isValid(parts[0], parts[1])) return null;
+        File f = open(parts[0], parts[1]);
+        if (f == null) return null;
+        try {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Length", String.valueOf(f.length()));
+            headers.put("Cache-Control", "no-cache");
+            return new WebResourceResponse(ModelCache.contentTypeFor(null, "." + parts[1]), null,
+                    200, "OK", headers, new FileInputStream(f));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void delete(String id) {
+        List<Entry> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.id.equals(id)) {
+                    it.remove();
+                    totalBytes -= entry.size;
+                    removed.add(entry);
+                }
+            }
+        }
+        if (removed.isEmpty()) return;
+        ioExecutor.execute(() -> {
+            for (Entry entry : removed) file(entry.id, entry.format).delete();
+        });
+        scheduleIndexSave();
+    }
+
+    public void setSyncStatus(String id, String status) {
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.id.equals(id)) entry.syncStatus = status;
+            }
+        }
+        scheduleIndexSave();
+    }
+
+    // Evicts least recently used models until under `limit` bytes. Unsynced models are
+    // kept: they are the only copy.
+    private synchronized List<Entry> evict(long limit) {
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > limit && it.hasNext()) {
+            Entry entry = it.next();
+            if (SYNC_PENDING.equals(entry.syncStatus)) continue;
+            it.remove();
+            totalBytes -= entry.size;
+            file(entry.id, entry.format).delete();
+            evicted.add(entry);
+            Log.d(TAG, "Evicted " + entry.id + "." + entry.format);
+        }
+        return evicted;
+    }
+
+    private void notifyEvicted(List<Entry> evicted) {
+        Listener l = listener;
+        if (l == null) return;
+        for (Entry entry : evicted) l.onEvicted(entry);
+    }
+
+    // Drops synced models down to the given fraction of the quota (storage pressure)
+    public void trimTo(float fraction) {
+        List<Entry> evicted = evict((long) (quotaBytes * fraction));
+        scheduleIndexSave();
+        notifyEvicted(evicted);
+    }
+
+    // All entries, most recently used first
+    public JSONArray list() {
+        JSONArray array = new JSONArray();
+        List<Entry> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+        try {
+            for (int i = snapshot.size() - 1; i >= 0; i--) {
+                array.put(snapshot.get(i).toJson());
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not list models", e);
+        }
+        return array;
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (this) {
+                stats.put("models", entries.size());
+                stats.put("bytes", totalBytes);
+            }
+            stats.put("quotaBytes", quotaBytes);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    // Coalesces index writes: many updates in a row cost one write
+    private void scheduleIndexSave() {
+        if (!indexSaveScheduled.compareAndSet(false, true)) return;
+        ioExecutor.execute(() -> {
+            indexSaveScheduled.set(false);
+            saveIndex();
+        });
+    }
+
+    private void saveIndex() {
+        List<Entry> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+        File tmp = new File(dir, "index.tsv.tmp");
+        try (Writer out = new FileWriter(tmp)) {
+            for (Entry e : snapshot) {
+                out.write(e.id + "\t" + e.format + "\t" + e.size + "\t" + e.lastAccess + "\t"
+                        + e.syncStatus + "\t" + e.createdAt + "\n");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write index: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(indexFile)) {
+            Log.w(TAG, "Could not replace index");
+        }
+    }
+
+    private void loadIndex() {
+        List<Entry> loaded = new ArrayList<>();
+        if (indexFile.exists()) {
+            try (BufferedReader in = new BufferedReader(new FileReader(indexFile))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] f = line.split("\t");
+                    if (f.length != 6 || !isValid(f[0], f[1])) continue;
+                    if (!file(f[0], f[1]).exists()) continue;
+                    Entry entry = new Entry(f[0], f[1]);
+                    entry.size = Long.parseLong(f[2]);
+                    entry.lastAccess = Long.parseLong(f[3]);
+                    entry.syncStatus = f[4];
+                    entry.createdAt = Long.parseLong(f[5]);
+                    loaded.add(entry);
+                }
+            } catch (IOException | NumberFormatException e) {
+                Log.w(TAG, "Index unreadable, starting empty: " + e.getMessage());
+            }
+        }
+        // Oldest access first so LRU order survives restarts
+        Collections.sort(loaded, (a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+        synchronized (this) {
+            for (Entry entry : loaded) {
+                entries.put(key(entry.id, entry.format), entry);
+                totalBytes += entry.size;
+            }
+        }
+        Log.d(TAG, String.format(Locale.ROOT, "Loaded %d stored models (%d bytes)", loaded.size(), totalBytes));
+    }
+}
@@ -0,0 +1,142 @@
+package co.nomiva.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.WebView;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Single native -> page event channel.
+// Events are typed ({type, data, ts}) and serialized with org.json, so nothing from an
+// error message or payload is ever spliced into script source. Everything emitted
+// within one frame is delivered to the page as one batch through a fixed dispatcher:
+// window.AdManagerAndroidCallbacks.dispatch(batch), or a window 'androidnative'
+// CustomEvent when the ad manager isn't loaded.
+public class NativeEventChannel {
+
+    private static final String TAG = "NativeEvents";
+
+    // Event types understood by ad-manager.js
+    public static final String AD_LOADED = "onAdLoaded";
+    public static final String AD_FAILED = "onAdFailed";
+    public static final String AD_COMPLETED = "onAdCompleted";
+    public static final String AD_SKIPPED = "onAdSkipped";
+    public static final String AD_STATE_CHANGED = "onAdStateChanged";
+    public static final String LOG = "log";
+
+    // Generation progress (generate-controller.js listens for these)
+    public static final String GENERATION_PROGRESS = "onGenerationProgress";
+    public static final String GENERATION_COMPLETE = "onGenerationComplete";
+    public static final String GENERATION_FAILED = "onGenerationFailed";
+
+    // Native model store
+    public static final String MODEL_STORED = "onModelStored";
+    public static final String MODEL_STORE_FAILED = "onModelStoreFailed";
+    public static final String MODEL_EVICTED = "onModelEvicted";
+
+    // Model metadata index (model-info.js)
+    public static final String MODEL_INDEXED = "onModelIndexed";
+
+    // On-device OBJ/STL export
+    public static final String MODEL_EXPORTED = "onModelExported";
+    public static final String MODEL_EXPORT_FAILED = "onModelExportFailed";
+
+    // Image preparation before generation upload
+    public static final String IMAGE_PREPARED = "onImagePrepared";
+    public static final String IMAGE_PREPARE_FAILED = "onImagePrepareFailed";
+
+    // Memory pressure steps (viewers release GPU resources)
+    public static final String MEMORY_PRESSURE = "onMemoryPressure";
+
+    // Page jobs due in a BatchScheduler window
+    public static final String SCHEDULED_JOB = "onScheduledJob";
+
+    // Native uploads
+    public static final String UPLOAD_PROGRESS = "onUploadProgress";
+    public static final String UPLOAD_COMPLETE = "onUploadComplete";
+    public static final String UPLOAD_FAILED = "onUploadFailed";
+
+    private final WebView webView;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentLinkedQueue<JSONObject> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final Choreographer.FrameCallback flushCallback = frameTimeNanos -> flush();
+
+    public NativeEventChannel(WebView webView) {
+        this.webView = webView;
+    }
+
+    // Queues an event for the next frame. Safe to call from any thread.
+    public void emit(String type, JSONObject data) {
+        JSONObject event = buildEvent(type, data);
+        if (event == null) return;
+        pending.add(event);
+        scheduleFlush();
+    }
+
+    // Delivers on the main thread without waiting for a frame. For events that matter
+    // while nothing is being drawn (app in background, screen off).
+    public void emitNow(String type, JSONObject data) {
+        JSONObject event = buildEvent(type, data);
+        if (event == null) return;
+        pending.add(event);
+        mainHandler.post(this::flush);
+    }
+
+    private static JSONObject buildEvent(String type, JSONObject data) {
+        try {
+            return EventScript.event(type, data, System.currentTimeMillis());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build event " + type, e);
+            return null;
+        }
+    }
+
+    public void emit(String type) {
+        emit(type, null);
+    }
+
+    // Convenience for simple single-field payloads
+    public void emit(String type, String key, Object value) {
+        JSONObject data = new JSONObject();
+        try {
+            data.put(key, value);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build event " + type, e);
+            return;
+        }
+        emit(type, data);
+    }
+
+    // Forwards a line to the page console (replaces ad-hoc console.log script strings)
+    public void log(String message) {
+        emit(LOG, "message", message);
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(flushCallback));
+    }
+
+    private void flush() {
+        // Clear the flag first so events emitted during delivery schedule another frame
+        flushScheduled.set(false);
+
+        JSONArray batch = new JSONArray();
+        JSONObject event;
+        while ((event = pending.poll()) != null) {
+            batch.put(event);
+        }
+        if (batch.length() == 0) return;
+
+        webView.evaluateJavascript(EventScript.dispatch(batch), null);
+    }
+}
@@ -0,0 +1,127 @@
+package co.nomiva.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Current network conditions for background work (uploads, prefetch).
+// Listeners are told whenever the default network changes so paused work can resume:
+// through the default network callback from API 24, the connectivity broadcast before.
+public class NetworkMonitor {
+
+    private static final String TAG = "NetworkMonitor";
+
+    public interface Listener {
+        void onNetworkChanged(NetworkMonitor monitor);
+    }
+
+    private final Context context;
+    private final ConnectivityManager connectivity;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ConnectivityManager.NetworkCallback callback;
+    private BroadcastReceiver receiver;
+
+    public NetworkMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        this.connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        if (callback != null || receiver != null) return;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            startReceiver();
+            return;
+        }
+        callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                notifyListeners();
+            }
+
+            @Override
+            public void onLost(Network network) {
+                notifyListeners();
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                notifyListeners();
+            }
+        };
+        try {
+            connectivity.registerDefaultNetworkCallback(callback);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not watch network changes: " + e.getMessage());
+            callback = null;
+        }
+    }
+
+    @SuppressWarnings("deprecation") // CONNECTIVITY_ACTION is only used below API 24
+    private void startReceiver() {
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                notifyListeners();
+            }
+        };
+        try {
+            context.registerReceiver(receiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not watch network changes: " + e.getMessage());
+            receiver = null;
+        }
+    }
+
+    public void stop() {
+        try {
+            if (callback != null) connectivity.unregisterNetworkCallback(callback);
+            if (receiver != null) context.unregisterReceiver(receiver);
+        } catch (RuntimeException ignored) {
+            // Already unregistered
+        }
+        callback = null;
+        receiver = null;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onNetworkChanged(this);
+        }
+    }
+
+    private NetworkCapabilities capabilities() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return null;
+        Network network = connectivity.getActiveNetwork();
+        return network != null ? connectivity.getNetworkCapabilities(network) : null;
+    }
+
+    public boolean isConnected() {
+        NetworkCapabilities caps = capabilities();
+        return caps != null
+                && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+
+    public boolean isUnmetered() {
+        return isConnected() && !connectivity.isActiveNetworkMetered();
+    }
+
+    // Rough downstream bandwidth; 0 when unknown
+    public int bandwidthKbps() {
+        NetworkCapabilities caps = capabilities();
+        return caps != null ? caps.getLinkDownstreamBandwidthKbps() : 0;
+    }
+}
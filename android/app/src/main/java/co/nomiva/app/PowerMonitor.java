@@ -0,0 +1,110 @@
+package co.nomiva.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Battery state for background work (see BatchScheduler). Listeners are told when
+// charging, the low-battery threshold or battery saver flips, not on every level change.
+public class PowerMonitor {
+
+    private static final String TAG = "PowerMonitor";
+
+    // Same threshold the system uses for its low-battery warning
+    private static final int LOW_PERCENT = 15;
+
+    public interface Listener {
+        void onPowerChanged(PowerMonitor monitor);
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private BroadcastReceiver receiver;
+
+    private volatile boolean charging = false;
+    private volatile int percent = 100;
+
+    public PowerMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        if (receiver != null) return;
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                boolean wasLow = isBatteryLow();
+                boolean wasCharging = charging;
+                if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) update(intent);
+                if (wasLow != isBatteryLow() || wasCharging != charging
+                        || PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(intent.getAction())) {
+                    notifyListeners();
+                }
+            }
+        };
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        try {
+            // ACTION_BATTERY_CHANGED is sticky, so the current state comes back straight away
+            Intent current = context.registerReceiver(receiver, filter);
+            if (current != null) update(current);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not watch battery changes: " + e.getMessage());
+            receiver = null;
+        }
+    }
+
+    public void stop() {
+        if (receiver == null) return;
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (RuntimeException ignored) {
+            // Already unregistered
+        }
+        receiver = null;
+    }
+
+    private void update(Intent battery) {
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level >= 0 && scale > 0) percent = level * 100 / scale;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onPowerChanged(this);
+        }
+    }
+
+    public boolean isCharging() {
+        return charging;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public boolean isPowerSaveMode() {
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    // Low and not charging, or battery saver on
+    public boolean isBatteryLow() {
+        return (!charging && percent <= LOW_PERCENT) || isPowerSaveMode();
+    }
+}
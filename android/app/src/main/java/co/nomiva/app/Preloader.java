@@ -0,0 +1,380 @@
+package co.nomiva.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Downloads the model the user is likely to open next before they open it, and warms an
+// ad before the sections that show one. Navigation hints come from the page (section
+// entered, asset card on screen or pressed) and from the generation tracker (task nearly
+// done, task done). Each hint names a model URL, carries a weight and goes stale after a
+// while; the strongest fresh one is fetched into the model cache, one at a time, on a
+// low-priority thread:
+//   - a card on screen is a guess: fetched only on unmetered networks without low battery,
+//     within SPECULATIVE_BUDGET_BYTES per session, newest first
+//   - a pressed card or a finished generation is fetched on any network
+//   - a stale, dropped or outranked hint cancels its download
+// Hits are counted when the page later loads a prefetched model; bytes of cancelled
+// downloads and of prefetched models not opened within UNUSED_AFTER_MS count as wasted.
+// Pure Java so the predictions can be tested with a fake clock.
+public class Preloader {
+
+    public static final String HINT_CARD_VISIBLE = "card-visible";
+    public static final String HINT_CARD_HIDDEN = "card-hidden";
+    public static final String HINT_CARD_PRESS = "card-press";
+
+    static final int WEIGHT_VISIBLE = 1;
+    static final int WEIGHT_PRESS = 3;
+    static final int WEIGHT_GENERATION = 5;
+
+    static final long VISIBLE_TTL_MS = 30_000;
+    static final long PRESS_TTL_MS = 10_000;
+    static final long GENERATION_TTL_MS = 5 * 60_000;
+    static final long UNUSED_AFTER_MS = 10 * 60_000;
+    static final long SPECULATIVE_BUDGET_BYTES = 20L * 1024 * 1024;
+    static final long AD_WARM_INTERVAL_MS = 30_000;
+    private static final int MAX_CANDIDATES = 32;
+
+    // Sections where an ad is usually requested soon after entering
+    private static final String AD_SECTION = "generate";
+
+    // Fetches a model into the cache; returns the bytes read from the network (0 when it
+    // was already cached) and stops early once `cancelled` is set
+    public interface Fetcher {
+        long fetch(String url, AtomicBoolean cancelled) throws IOException;
+    }
+
+    private static final class Candidate {
+        final String url;
+        final int weight;
+        final String section;
+        final long expiresAt;
+
+        Candidate(String url, int weight, String section, long expiresAt) {
+            this.url = url;
+            this.weight = weight;
+            this.section = section;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Prefetched {
+        final long bytes;
+        final long doneAt;
+
+        Prefetched(long bytes, long doneAt) {
+            this.bytes = bytes;
+            this.doneAt = doneAt;
+        }
+    }
+
+    private final Executor fetchExecutor;
+    private final ScheduledExecutorService timers;
+    private final Fetcher fetcher;
+    private final Runnable adWarmer;
+    private final BatchScheduler.Conditions conditions;
+    private final BatchScheduler.Clock clock;
+
+    // Guarded by this
+    private final Map<String, Candidate> candidates = new LinkedHashMap<>();
+    private final Map<String, Prefetched> prefetched = new LinkedHashMap<>();
+    private String section;
+    private Candidate inFlight;
+    private AtomicBoolean inFlightCancelled;
+    private ScheduledFuture<?> expiryTimer;
+    private long speculativeBytes;
+    private long lastAdWarmAt = Long.MIN_VALUE / 2;
+    private boolean shutdown = false;
+
+    // Stats, guarded by this
+    private long hints;
+    private long staleHints;
+    private long completed;
+    private long alreadyCached;
+    private long cancelled;
+    private long failed;
+    private long hits;
+    private long late;
+    private long misses;
+    private long bytesPrefetched;
+    private long bytesUsed;
+    private long bytesWasted;
+    private long adWarms;
+
+    public Preloader(Executor fetchExecutor, ScheduledExecutorService timers, Fetcher fetcher, Runnable adWarmer,
+                     BatchScheduler.Conditions conditions) {
+        this(fetchExecutor, timers, fetcher, adWarmer, conditions, () -> System.nanoTime() / 1_000_000);
+    }
+
+    Preloader(Executor fetchExecutor, ScheduledExecutorService timers, Fetcher fetcher, Runnable adWarmer,
+              BatchScheduler.Conditions conditions, BatchScheduler.Clock clock) {
+        this.fetchExecutor = fetchExecutor;
+        this.timers = timers;
+        this.fetcher = fetcher;
+        this.adWarmer = adWarmer;
+        this.conditions = conditions;
+        this.clock = clock;
+    }
+
+    // The page moved to another section: card hints from the old one are stale
+    public void hintSection(String name) {
+        boolean warmAd;
+        synchronized (this) {
+            if (shutdown) return;
+            section = name;
+            Iterator<Candidate> it = candidates.values().iterator();
+            while (it.hasNext()) {
+                Candidate candidate = it.next();
+                if (candidate.section != null && !candidate.section.equals(name)) {
+                    it.remove();
+                    staleHints++;
+                }
+            }
+            warmAd = AD_SECTION.equals(name) && shouldWarmAd();
+            pump();
+        }
+        if (warmAd) adWarmer.run();
+    }
+
+    // A card hint from the page: HINT_CARD_VISIBLE, HINT_CARD_PRESS or HINT_CARD_HIDDEN
+    public synchronized void hintCard(String type, String url) {
+        if (shutdown || url == null) return;
+        if (HINT_CARD_HIDDEN.equals(type)) {
+            Candidate removed = candidates.get(url);
+            // A pressed card scrolls away when the viewer opens; let that hint run out
+            if (removed != null && removed.weight == WEIGHT_VISIBLE) {
+                candidates.remove(url);
+                pump();
+            }
+            return;
+        }
+        if (HINT_CARD_PRESS.equals(type)) {
+            addCandidate(url, WEIGHT_PRESS, section, PRESS_TTL_MS);
+        } else if (HINT_CARD_VISIBLE.equals(type)) {
+            addCandidate(url, WEIGHT_VISIBLE, section, VISIBLE_TTL_MS);
+        }
+    }
+
+    // A generation is nearly done: the user will want the result (and an ad) soon
+    public void hintGenerationNearlyDone() {
+        boolean warmAd;
+        synchronized (this) {
+            if (shutdown) return;
+            warmAd = shouldWarmAd();
+        }
+        if (warmAd) adWarmer.run();
+    }
+
+    // A generation finished and its model can be downloaded from `url`
+    public synchronized void hintGenerationDone(String url) {
+        if (shutdown || url == null) return;
+        addCandidate(url, WEIGHT_GENERATION, null, GENERATION_TTL_MS);
+    }
+
+    // The page loaded a model; `cached` when a local copy already existed
+    public synchronized void noteModelUsed(String url, boolean cached) {
+        expireUnused();
+        Prefetched done = prefetched.remove(url);
+        if (done != null) {
+            hits++;
+            bytesUsed += done.bytes;
+            return;
+        }
+        if (inFlight != null && inFlight.url.equals(url)) {
+            // Too late: the page is downloading it itself
+            late++;
+            candidates.remove(url);
+            cancelInFlight();
+            pump();
+            return;
+        }
+        candidates.remove(url);
+        // Opened before (still cached) needs no prediction
+        if (!cached) misses++;
+    }
+
+    // Network or battery state changed
+    public synchronized void conditionsChanged() {
+        pump();
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        candidates.clear();
+        cancelInFlight();
+        if (expiryTimer != null) expiryTimer.cancel(false);
+        expiryTimer = null;
+    }
+
+    private boolean shouldWarmAd() {
+        long now = clock.now();
+        if (now - lastAdWarmAt < AD_WARM_INTERVAL_MS) return false;
+        lastAdWarmAt = now;
+        adWarms++;
+        return true;
+    }
+
+    private void addCandidate(String url, int weight, String hintSection, long ttlMs) {
+        hints++;
+        long now = clock.now();
+        Candidate existing = candidates.remove(url);
+        // A weaker hint refreshes a stronger one but doesn't demote it
+        int keepWeight = existing != null && existing.expiresAt > now ? Math.max(weight, existing.weight) : weight;
+        long expiresAt = Math.max(now + ttlMs, existing != null ? existing.expiresAt : 0);
+        candidates.put(url, new Candidate(url, keepWeight, hintSection, expiresAt));
+        // Newest last (pick() prefers it among equals); the oldest hints go first
+        Iterator<Candidate> it = candidates.values().iterator();
+        while (candidates.size() > MAX_CANDIDATES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        pump();
+    }
+
+    // Drops stale hints, cancels a download that lost its reason, starts the next one
+    synchronized void pump() {
+        if (shutdown) return;
+        long now = clock.now();
+        expireUnused();
+        Iterator<Candidate> it = candidates.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                staleHints++;
+            }
+        }
+
+        Candidate best = pick();
+        if (inFlight != null) {
+            Candidate current = candidates.get(inFlight.url);
+            boolean outranked = best != null && current != null && best.weight > current.weight;
+            if (current != null && !outranked && allowed(current)) {
+                scheduleExpiryCheck();
+                return;
+            }
+            cancelInFlight();
+        }
+        if (best != null) start(best);
+        scheduleExpiryCheck();
+    }
+
+    // Strongest allowed candidate, newest first among equals
+    private Candidate pick() {
+        Candidate best = null;
+        for (Candidate candidate : candidates.values()) {
+            if (prefetched.containsKey(candidate.url) || !allowed(candidate)) continue;
+            if (best == null || candidate.weight >= best.weight) best = candidate;
+        }
+        return best;
+    }
+
+    private boolean allowed(Candidate candidate) {
+        if (!conditions.isConnected()) return false;
+        if (candidate.weight > WEIGHT_VISIBLE) return true;
+        return conditions.isUnmetered() && !conditions.isBatteryLow() && speculativeBytes < SPECULATIVE_BUDGET_BYTES;
+    }
+
+    private void start(Candidate candidate) {
+        AtomicBoolean flag = new AtomicBoolean(false);
+        inFlight = candidate;
+        inFlightCancelled = flag;
+        String url = candidate.url;
+        boolean speculative = candidate.weight == WEIGHT_VISIBLE;
+        fetchExecutor.execute(() -> {
+            long bytes = 0;
+            boolean ok = false;
+            try {
+                bytes = fetcher.fetch(url, flag);
+                ok = true;
+            } catch (IOException | RuntimeException e) {
+                // Counted below; the page will download it itself if it needs it
+            }
+            finished(url, flag, bytes, ok, speculative);
+        });
+    }
+
+    private synchronized void finished(String url, AtomicBoolean flag, long bytes, boolean ok, boolean speculative) {
+        if (speculative) speculativeBytes += bytes;
+        if (flag.get()) {
+            bytesWasted += bytes;
+        } else if (!ok) {
+            failed++;
+            candidates.remove(url);
+        } else if (bytes == 0) {
+            alreadyCached++;
+            candidates.remove(url);
+        } else {
+            completed++;
+            bytesPrefetched += bytes;
+            prefetched.put(url, new Prefetched(bytes, clock.now()));
+            candidates.remove(url);
+        }
+        if (inFlightCancelled == flag) {
+            inFlight = null;
+            inFlightCancelled = null;
+        }
+        pump();
+    }
+
+    private void cancelInFlight() {
+        if (inFlightCancelled == null) return;
+        inFlightCancelled.set(true);
+        cancelled++;
+        inFlight = null;
+        inFlightCancelled = null;
+    }
+
+    private void expireUnused() {
+        long now = clock.now();
+        Iterator<Prefetched> it = prefetched.values().iterator();
+        while (it.hasNext()) {
+            Prefetched done = it.next();
+            if (now - done.doneAt < UNUSED_AFTER_MS) break;
+            bytesWasted += done.bytes;
+            it.remove();
+        }
+    }
+
+    // Wakes up when the next hint goes stale, so a download doesn't outlive its reason
+    private void scheduleExpiryCheck() {
+        if (expiryTimer != null) expiryTimer.cancel(false);
+        expiryTimer = null;
+        long next = Long.MAX_VALUE;
+        for (Candidate candidate : candidates.values()) next = Math.min(next, candidate.expiresAt);
+        if (next == Long.MAX_VALUE) return;
+        expiryTimer = timers.schedule(this::pump, Math.max(0, next - clock.now()), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized JSONObject getStats() throws JSONException {
+        expireUnused();
+        JSONObject stats = new JSONObject();
+        stats.put("candidates", candidates.size());
+        stats.put("inFlight", inFlight != null ? inFlight.url : JSONObject.NULL);
+        stats.put("hints", hints);
+        stats.put("staleHints", staleHints);
+        stats.put("completed", completed);
+        stats.put("alreadyCached", alreadyCached);
+        stats.put("cancelled", cancelled);
+        stats.put("failed", failed);
+        stats.put("hits", hits);
+        stats.put("late", late);
+        stats.put("misses", misses);
+        // Share of finished prefetches the user then opened
+        stats.put("hitRate", completed > 0 ? (double) hits / completed : 0);
+        stats.put("bytesPrefetched", bytesPrefetched);
+        stats.put("bytesUsed", bytesUsed);
+        stats.put("bytesWasted", bytesWasted);
+        stats.put("speculativeBytes", speculativeBytes);
+        stats.put("adWarms", adWarms);
+        return stats;
+    }
+}
@@ -0,0 +1,106 @@
+package co.nomiva.app;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.Executor;
+
+// Records cold-start milestones so the gain from each release can be compared.
+// Times are in ms since process start. Once both milestones are in, one JSON line
+// per launch is appended to files/startup_metrics.jsonl, tagged with the app version.
+public class StartupMetrics {
+
+    private static final String TAG = "StartupMetrics";
+    private static final long MAX_LOG_BYTES = 64 * 1024;
+
+    // Fallback for API 23, where the process start time isn't available
+    private static final long CLASS_LOADED_AT = SystemClock.elapsedRealtime();
+
+    private final File logFile;
+    private final String version;
+    private final long processStart;
+    private final Executor ioExecutor;
+
+    private volatile long firstFrameMs = -1;
+    private volatile long adsInitializedMs = -1;
+    private volatile long adReadyMs = -1;
+    private boolean written = false;
+
+    public StartupMetrics(File filesDir, String version, Executor ioExecutor) {
+        this.logFile = new File(filesDir, "startup_metrics.jsonl");
+        this.version = version;
+        this.ioExecutor = ioExecutor;
+        this.processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime()
+                : CLASS_LOADED_AT;
+    }
+
+    private long sinceStart() {
+        return SystemClock.elapsedRealtime() - processStart;
+    }
+
+    public void markFirstFrame() {
+        if (firstFrameMs >= 0) return;
+        firstFrameMs = sinceStart();
+        Log.d(TAG, "Time to first frame: " + firstFrameMs + "ms");
+        maybeWrite();
+    }
+
+    public void markAdsInitialized() {
+        if (adsInitializedMs >= 0) return;
+        adsInitializedMs = sinceStart();
+        Log.d(TAG, "Ads SDK initialized at " + adsInitializedMs + "ms");
+    }
+
+    public void markAdReady() {
+        if (adReadyMs >= 0) return;
+        adReadyMs = sinceStart();
+        Log.d(TAG, "Time to ad ready: " + adReadyMs + "ms");
+        maybeWrite();
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("version", version);
+            json.put("firstFrameMs", firstFrameMs);
+            json.put("adsInitializedMs", adsInitializedMs);
+            json.put("adReadyMs", adReadyMs);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build startup metrics", e);
+        }
+        return json;
+    }
+
+    private synchronized void maybeWrite() {
+        if (written || firstFrameMs < 0 || adReadyMs < 0) return;
+        written = true;
+
+        JSONObject line = toJson();
+        try {
+            line.put("timestamp", System.currentTimeMillis());
+        } catch (JSONException ignored) {
+            // Timestamp is optional
+        }
+
+        ioExecutor.execute(() -> {
+            // Start over rather than grow without bound
+            boolean append = logFile.length() < MAX_LOG_BYTES;
+            try (Writer out = new FileWriter(logFile, append)) {
+                out.write(line.toString());
+                out.write('\n');
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write startup metrics: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package co.nomiva.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Shrinks GLB textures whose long edge is over the device's limit. Three.js uploads
+// every texture as full RGBA plus mipmaps, so a 4096px map costs ~85 MB of GPU memory
+// whatever its file size; halving the edge cuts that by four. PNG stays PNG (normal and
+// alpha maps don't survive JPEG) and JPEG stays JPEG; other formats are left alone.
+public class TextureDownsampler implements GlbLodBuilder.ImageRewriter {
+
+    private static final int JPEG_QUALITY = 90;
+
+    private final int maxEdge;
+    private final AtomicLong texturesResized = new AtomicLong();
+    private final AtomicLong gpuBytesSaved = new AtomicLong();
+
+    public TextureDownsampler(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    // Long edge for this device class (ModelLodCache.levelFor; -1 is a high-end device)
+    static int maxEdgeFor(int deviceLevel) {
+        if (deviceLevel >= 2) return 1024;
+        if (deviceLevel >= 0) return 2048;
+        return 4096;
+    }
+
+    // Uploaded size of an RGBA texture with its mip chain
+    static long gpuBytes(int width, int height) {
+        return (long) width * height * 4 * 4 / 3;
+    }
+
+    @Override
+    public GlbLodBuilder.RewrittenImage rewrite(String mimeType, byte[] data) throws IOException {
+        boolean png = "image/png".equals(mimeType);
+        if (!png && !"image/jpeg".equals(mimeType)) return null;
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        if (Math.max(bounds.outWidth, bounds.outHeight) <= maxEdge) return null;
+
+        BitmapFactory.Options decode = new BitmapFactory.Options();
+        decode.inSampleSize = ImagePreparer.sampleSizeFor(bounds.outWidth, bounds.outHeight, maxEdge);
+        Bitmap decoded = BitmapFactory.decodeByteArray(data, 0, data.length, decode);
+        if (decoded == null) return null;
+        int[] target = ImagePreparer.targetSize(bounds.outWidth, bounds.outHeight, maxEdge);
+        Bitmap output = decoded.getWidth() == target[0] && decoded.getHeight() == target[1]
+                ? decoded : Bitmap.createScaledBitmap(decoded, target[0], target[1], true);
+        if (output != decoded) decoded.recycle();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2);
+        try {
+            Bitmap.CompressFormat format = png ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+            if (!output.compress(format, png ? 100 : JPEG_QUALITY, buffer)) throw new IOException("Could not encode texture");
+        } finally {
+            output.recycle();
+        }
+        texturesResized.incrementAndGet();
+        gpuBytesSaved.addAndGet(gpuBytes(bounds.outWidth, bounds.outHeight) - gpuBytes(target[0], target[1]));
+        return new GlbLodBuilder.RewrittenImage(mimeType, buffer.toByteArray());
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public long getTexturesResized() {
+        return texturesResized.get();
+    }
+
+    public long getGpuBytesSaved() {
+        return gpuBytesSaved.get();
+    }
+}
@@ -0,0 +1,449 @@
+package co.nomiva.app;
+
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Memory + disk cache for gallery preview images (Cloudinary thumbnails and originals).
+// The WebView's own HTTP cache is small and shared with everything else, so grids were
+// re-downloading previews on every navigation. Image requests are answered from:
+//   1. memory - encoded bytes, LRU within a budget sized from the app's heap class
+//   2. disk   - cacheDir/thumbnails, LRU by total bytes
+//   3. network, stored into both tiers
+// Concurrent loads of the same URL (page render racing a prefetch) share one download.
+public class ThumbnailCache {
+
+    private static final String TAG = "ThumbnailCache";
+
+    private static final long DISK_MAX_BYTES = 60L * 1024 * 1024;
+    private static final int MAX_ITEM_BYTES = 4 * 1024 * 1024; // Larger images are passed through uncached
+    // Images that decode to more than this are not thumbnails; they stay on disk only so
+    // one full-size photo doesn't push dozens of grid previews out of memory
+    private static final long MAX_DECODED_BYTES_IN_MEMORY = 2L * 1024 * 1024;
+    private static final int MAX_PREFETCH_URLS = 24;
+    private static final int TIMEOUT_MS = 15000;
+
+    // Decoded size of an image, from its header
+    interface ImageBounds {
+        long decodedBytes(byte[] bytes);
+    }
+
+    private final File dir;
+    private final Executor prefetchExecutor;
+    private final NetworkMonitor network;
+    private final ImageBounds bounds;
+    private final long diskMaxBytes;
+
+    // key -> encoded bytes, in access order; guarded by itself
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final long memoryMaxBytes;
+    private long memoryBytes = 0;
+
+    // key -> size on disk, in access order
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(128, 0.75f, true);
+    private long diskBytes = 0;
+
+    private final ConcurrentHashMap<String, FutureTask<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    // Counters
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong prefetchSkipped = new AtomicLong();
+    private final AtomicLong bytesFromCache = new AtomicLong();
+    private final AtomicLong bytesFromNetwork = new AtomicLong();
+
+    public ThumbnailCache(File cacheRoot, int memoryClassMb, Executor prefetchExecutor, NetworkMonitor network) {
+        this(cacheRoot, memoryBudgetBytes(memoryClassMb), DISK_MAX_BYTES, prefetchExecutor, network,
+                ThumbnailCache::decodedBytes);
+    }
+
+    ThumbnailCache(File cacheRoot, long memoryMaxBytes, long diskMaxBytes, Executor prefetchExecutor,
+                   NetworkMonitor network, ImageBounds bounds) {
+        this.dir = new File(cacheRoot, "thumbnails");
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.diskMaxBytes = diskMaxBytes;
+        this.prefetchExecutor = prefetchExecutor;
+        this.network = network;
+        this.bounds = bounds;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+        prefetchExecutor.execute(this::loadDiskIndex);
+    }
+
+    // 1/16 of the heap class, between 4 and 24 MB
+    static int memoryBudgetBytes(int memoryClassMb) {
+        long bytes = memoryClassMb * 1024L * 1024 / 16;
+        return (int) Math.max(4L * 1024 * 1024, Math.min(24L * 1024 * 1024, bytes));
+    }
+
+    // <img> and CSS backgrounds send "Accept: image/..."; fetch() and XHR don't, so
+    // script requests (which would need CORS handling) are never intercepted
+    public static boolean isThumbnailRequest(WebResourceRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) return false;
+        String scheme = request.getUrl().getScheme();
+        if (!"https".equals(scheme) && !"http".equals(scheme)) return false;
+        String host = request.getUrl().getHost();
+        if (host == null || "localhost".equals(host)) return false;
+        String accept = null;
+        for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+            if ("Range".equalsIgnoreCase(header.getKey())) return false;
+            if ("Accept".equalsIgnoreCase(header.getKey())) accept = header.getValue();
+        }
+        return accept != null && accept.startsWith("image/");
+    }
+
+    // Called on the WebView's IO thread. Returns null to let the request go through normally.
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        try {
+            byte[] bytes = get(url, false);
+            if (bytes == null) return null;
+            return buildResponse(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Thumbnail request failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Warms the cache for images the page is about to show (next page of a grid).
+    // Skipped entirely while offline.
+    public void prefetch(List<String> urls) {
+        if (!network.isConnected()) {
+            prefetchSkipped.addAndGet(urls.size());
+            return;
+        }
+        int count = 0;
+        for (String url : urls) {
+            if (url == null || !(url.startsWith("https://") || url.startsWith("http://"))) continue;
+            if (++count > MAX_PREFETCH_URLS) {
+                prefetchSkipped.incrementAndGet();
+                continue;
+            }
+            String key = ModelCache.keyFor(url);
+            if (inMemory(key) || onDisk(key)) continue;
+            prefetchExecutor.execute(() -> {
+                try {
+                    if (get(url, true) != null) prefetched.incrementAndGet();
+                } catch (IOException e) {
+                    Log.d(TAG, "Prefetch failed for " + url + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // Bytes for the URL from the nearest tier; null if the image can't be cached
+    byte[] get(String url, boolean prefetch) throws IOException {
+        String key = ModelCache.keyFor(url);
+        byte[] bytes = fromMemory(key);
+        if (bytes != null) {
+            if (!prefetch) {
+                memoryHits.incrementAndGet();
+                bytesFromCache.addAndGet(bytes.length);
+            }
+            return bytes;
+        }
+        bytes = readDisk(key);
+        if (bytes != null) {
+            if (!prefetch) {
+                diskHits.incrementAndGet();
+                bytesFromCache.addAndGet(bytes.length);
+            }
+            remember(key, bytes);
+            return bytes;
+        }
+
+        FutureTask<byte[]> task = new FutureTask<>(() -> download(key, url));
+        FutureTask<byte[]> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            task = existing;
+        } else {
+            if (!prefetch) misses.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+    }
+
+    private byte[] download(String key, String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        try {
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) return null;
+            long length = conn.getContentLength();
+            if (length > MAX_ITEM_BYTES) return null;
+            String type = conn.getContentType();
+            if (type != null && !type.startsWith("image/")) return null;
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(length > 0 ? (int) length : 64 * 1024);
+            try (InputStream in = conn.getInputStream()) {
+                byte[] chunk = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    buffer.write(chunk, 0, n);
+                    if (buffer.size() > MAX_ITEM_BYTES) return null;
+                }
+            }
+            byte[] bytes = buffer.toByteArray();
+            bytesFromNetwork.addAndGet(bytes.length);
+            writeDisk(key, bytes);
+            remember(key, bytes);
+            return bytes;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    // Memory tier admission: judged by decoded size, read from the image header only
+    private void remember(String key, byte[] bytes) {
+        long decoded = bounds.decodedBytes(bytes);
+        if (decoded <= 0 || decoded > MAX_DECODED_BYTES_IN_MEMORY) return;
+        synchronized (memory) {
+            byte[] previous = memory.put(key, bytes);
+            if (previous != null) memoryBytes -= previous.length;
+            memoryBytes += bytes.length;
+            shrinkMemoryTo(memoryMaxBytes);
+        }
+    }
+
+    private static long decodedBytes(byte[] bytes) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        return (long) options.outWidth * options.outHeight * 4;
+    }
+
+    private byte[] fromMemory(String key) {
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private boolean inMemory(String key) {
+        synchronized (memory) {
+            return memory.containsKey(key);
+        }
+    }
+
+    // Caller holds the memory lock
+    private void shrinkMemoryTo(long limit) {
+        Iterator<byte[]> it = memory.values().iterator();
+        while (memoryBytes > limit && it.hasNext()) {
+            memoryBytes -= it.next().length;
+            it.remove();
+        }
+    }
+
+    private WebResourceResponse buildResponse(byte[] bytes) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Length", String.valueOf(bytes.length));
+        headers.put("Cache-Control", "max-age=604800");
+        headers.put("Access-Control-Allow-Origin", "*");
+        return new WebResourceResponse(sniffType(bytes), null, 200, "OK", headers, new ByteArrayInputStream(bytes));
+    }
+
+    // Content type from magic bytes, so no metadata file is needed per entry
+    static String sniffType(byte[] b) {
+        if (b.length >= 3 && (b[0] & 0xff) == 0xff && (b[1] & 0xff) == 0xd8) return "image/jpeg";
+        if (b.length >= 4 && (b[0] & 0xff) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') return "image/png";
+        if (b.length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') return "image/webp";
+        if (b.length >= 4 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F') return "image/gif";
+        if (b.length >= 12 && b[4] == 'f' && b[5] == 't' && b[6] == 'y' && b[7] == 'p'
+                && b[8] == 'a' && b[9] == 'v' && b[10] == 'i') return "image/avif";
+        return "application/octet-stream";
+    }
+
+    private File file(String key) {
+        return new File(dir, key + ".img");
+    }
+
+    private synchronized boolean onDisk(String key) {
+        return disk.containsKey(key);
+    }
+
+    private byte[] readDisk(String key) {
+        Long size;
+        synchronized (this) {
+            size = disk.get(key);
+        }
+        if (size == null) return null;
+        File f = file(key);
+        byte[] bytes = new byte[size.intValue()];
+        try (InputStream in = new FileInputStream(f)) {
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) throw new IOException("Truncated");
+                off += n;
+            }
+            return bytes;
+        } catch (IOException e) {
+            synchronized (this) {
+                if (disk.remove(key) != null) diskBytes -= size;
+            }
+            f.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, byte[] bytes) {
+        File tmp = new File(dir, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write thumbnail: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file(key))) {
+            tmp.delete();
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = disk.put(key, (long) bytes.length);
+            if (previous != null) diskBytes -= previous;
+            diskBytes += bytes.length;
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                it.remove();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+        for (String k : evicted) file(k).delete();
+    }
+
+    private void loadDiskIndex() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        List<File> images = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().endsWith(".img")) {
+                images.add(f);
+            } else {
+                f.delete(); // Leftover temp file
+            }
+        }
+        // Oldest first so LRU order roughly survives restarts
+        Collections.sort(images, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        synchronized (this) {
+            for (File f : images) {
+                String name = f.getName();
+                String key = name.substring(0, name.length() - ".img".length());
+                if (disk.put(key, f.length()) == null) diskBytes += f.length();
+            }
+        }
+    }
+
+    // Drops the memory tier; the disk tier is untouched
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    // Shrinks the memory tier to a fraction of its budget, dropping least recently used first.
+    // The budget itself is unchanged so the tier refills once pressure passes.
+    public void trimMemory(float fraction) {
+        synchronized (memory) {
+            shrinkMemoryTo((long) (memoryMaxBytes * fraction));
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            long mem = memoryHits.get();
+            long dsk = diskHits.get();
+            long miss = misses.get();
+            long total = mem + dsk + miss;
+            stats.put("memoryHits", mem);
+            stats.put("diskHits", dsk);
+            stats.put("misses", miss);
+            stats.put("hitRate", total > 0 ? (double) (mem + dsk) / total : 0);
+            stats.put("memoryHitRate", total > 0 ? (double) mem / total : 0);
+            stats.put("coalesced", coalesced.get());
+            stats.put("prefetched", prefetched.get());
+            stats.put("prefetchSkipped", prefetchSkipped.get());
+            stats.put("bytesFromCache", bytesFromCache.get());
+            stats.put("bytesFromNetwork", bytesFromNetwork.get());
+            synchronized (memory) {
+                stats.put("memoryEntries", memory.size());
+                stats.put("memoryBytes", memoryBytes);
+            }
+            stats.put("memoryMaxBytes", memoryMaxBytes);
+            synchronized (this) {
+                stats.put("diskEntries", disk.size());
+                stats.put("diskBytes", diskBytes);
+            }
+            stats.put("diskMaxBytes", diskMaxBytes);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    // URL list from a JSON array string; invalid input gives an empty list
+    static List<String> parseUrls(String json) {
+        List<String> urls = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                String url = array.optString(i, null);
+                if (url != null) urls.add(url);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Bad prefetch list: " + e.getMessage());
+        }
+        return urls;
+    }
+}
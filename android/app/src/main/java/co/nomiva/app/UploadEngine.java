@@ -0,0 +1,434 @@
+package co.nomiva.app;
+
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams files that exist only on the device (user photos, edited exports) to a
+// resumable upload endpoint (tus 1.0 core protocol: POST to create, HEAD for the
+// acknowledged offset, PATCH to append).
+// Files are sent in chunks straight from disk, so nothing goes through the JS heap.
+// After a failure the upload continues from the server's acknowledged offset instead
+// of starting over. Upload state is persisted, so uploads also resume after a restart.
+// Uploads wait for a suitable network; conditionsChanged() restarts parked ones.
+public class UploadEngine {
+
+    private static final String TAG = "UploadEngine";
+
+    private static final int MAX_CONCURRENT = 2;
+    private static final int CHUNK_SIZE = 1024 * 1024; // 1 MB per PATCH
+    private static final int MAX_FAILURES = 10; // In a row; any acknowledged chunk resets the count
+    private static final long RETRY_BASE_MS = 2000;
+    private static final long RETRY_MAX_MS = 60000;
+    private static final int TIMEOUT_MS = 30000;
+    private static final String TUS_VERSION = "1.0.0";
+
+    public interface Listener {
+        void onUploadProgress(JSONObject progress);
+
+        void onUploadComplete(String id, String location);
+
+        void onUploadFailed(String id, String error);
+    }
+
+    private static class Upload {
+        String id;
+        File file;
+        String endpoint;
+        String location; // Server URL of this upload, once created
+        JSONObject metadata;
+        boolean unmeteredOnly;
+        long offset;
+        long total;
+        int retries; // All retries, for stats
+        int failures; // Since the last acknowledged chunk
+        long bytesSent;
+        long activeMs;
+        volatile boolean cancelled;
+        Future<?> future;
+    }
+
+    private final File stateDir;
+    private final BatchScheduler.Conditions network;
+    private final CookieProvider cookies;
+    private final Listener listener;
+    private final ExecutorService workers = Executors.newFixedThreadPool(MAX_CONCURRENT);
+
+    // Guarded by this
+    private final Map<String, Upload> queued = new LinkedHashMap<>();
+    private final Map<String, Upload> running = new LinkedHashMap<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalRetries = new AtomicLong();
+    private final AtomicLong totalBytesSent = new AtomicLong();
+    private final AtomicLong totalActiveMs = new AtomicLong();
+
+    public UploadEngine(File filesDir, BatchScheduler.Conditions network, CookieProvider cookies, Listener listener) {
+        this.stateDir = new File(filesDir, "uploads");
+        this.network = network;
+        this.cookies = cookies;
+        this.listener = listener;
+        if (!stateDir.exists() && !stateDir.mkdirs()) {
+            Log.w(TAG, "Could not create " + stateDir);
+        }
+    }
+
+    // Re-queues uploads that were interrupted by the app being killed
+    public void restorePending() {
+        File[] files = stateDir.listFiles((dir, name) -> name.endsWith(".properties"));
+        if (files == null) return;
+        for (File f : files) {
+            Upload upload = readState(f);
+            if (upload == null || !upload.file.exists()) {
+                f.delete();
+                continue;
+            }
+            synchronized (this) {
+                if (!queued.containsKey(upload.id) && !running.containsKey(upload.id)) {
+                    queued.put(upload.id, upload);
+                }
+            }
+        }
+        pump();
+    }
+
+    public void enqueue(String id, File file, String endpoint, JSONObject metadata, boolean unmeteredOnly) {
+        Upload upload = new Upload();
+        upload.id = id;
+        upload.file = file;
+        upload.endpoint = endpoint;
+        upload.metadata = metadata != null ? metadata : new JSONObject();
+        upload.unmeteredOnly = unmeteredOnly;
+        upload.total = file.length();
+        synchronized (this) {
+            if (queued.containsKey(id) || running.containsKey(id)) return;
+            queued.put(id, upload);
+        }
+        writeState(upload);
+        pump();
+    }
+
+    public void cancel(String id) {
+        Upload upload;
+        synchronized (this) {
+            upload = queued.remove(id);
+            if (upload == null) upload = running.get(id);
+        }
+        if (upload == null) return;
+        upload.cancelled = true;
+        if (upload.future != null) upload.future.cancel(true);
+        stateFile(id).delete();
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // The network changed; parked uploads may be able to run now
+    public void conditionsChanged() {
+        pump();
+    }
+
+    private boolean networkAllows(Upload upload) {
+        return upload.unmeteredOnly ? network.isUnmetered() : network.isConnected();
+    }
+
+    // Starts queued uploads while there are free slots and the network suits them
+    private synchronized void pump() {
+        Iterator<Upload> it = queued.values().iterator();
+        while (running.size() < MAX_CONCURRENT && it.hasNext()) {
+            Upload upload = it.next();
+            if (!networkAllows(upload)) continue;
+            it.remove();
+            running.put(upload.id, upload);
+            upload.future = workers.submit(() -> run(upload));
+        }
+    }
+
+    private void run(Upload upload) {
+        boolean needsSync = upload.location != null;
+        try {
+            while (!upload.cancelled) {
+                if (!networkAllows(upload)) {
+                    // Park it until the network changes
+                    requeue(upload);
+                    return;
+                }
+                try {
+                    if (upload.location == null) {
+                        create(upload);
+                    } else if (needsSync) {
+                        upload.offset = fetchOffset(upload);
+                    }
+                    needsSync = false;
+
+                    while (upload.offset < upload.total && !upload.cancelled) {
+                        sendChunk(upload);
+                        upload.failures = 0;
+                        writeState(upload);
+                        listener.onUploadProgress(progressJson(upload));
+                    }
+                    if (upload.cancelled) return;
+
+                    stateFile(upload.id).delete();
+                    completed.incrementAndGet();
+                    Log.d(TAG, "Upload " + upload.id + " complete (" + upload.total + " bytes, "
+                            + upload.retries + " retries)");
+                    listener.onUploadComplete(upload.id, upload.location);
+                    return;
+                } catch (IOException e) {
+                    upload.retries++;
+                    upload.failures++;
+                    totalRetries.incrementAndGet();
+                    if (upload.failures > MAX_FAILURES) {
+                        throw e;
+                    }
+                    // Ask the server what it actually received before sending more
+                    needsSync = true;
+                    long delay = Math.min(RETRY_BASE_MS << Math.min(upload.failures - 1, 10), RETRY_MAX_MS);
+                    Log.w(TAG, "Upload " + upload.id + " interrupted at " + upload.offset + ": "
+                            + e.getMessage() + ", retrying in " + delay + "ms");
+                    writeState(upload);
+                    Thread.sleep(delay);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Cancelled
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            stateFile(upload.id).delete();
+            listener.onUploadFailed(upload.id, e.getMessage());
+        } finally {
+            synchronized (this) {
+                running.remove(upload.id);
+            }
+            pump();
+        }
+    }
+
+    private synchronized void requeue(Upload upload) {
+        running.remove(upload.id);
+        queued.put(upload.id, upload);
+    }
+
+    private void create(Upload upload) throws IOException {
+        HttpURLConnection conn = open(upload.endpoint, "POST");
+        conn.setRequestProperty("Upload-Length", String.valueOf(upload.total));
+        conn.setRequestProperty("Upload-Metadata", encodeMetadata(upload));
+        conn.setFixedLengthStreamingMode(0);
+        conn.setDoOutput(true);
+        try {
+            conn.getOutputStream().close();
+            int code = conn.getResponseCode();
+            String location = conn.getHeaderField("Location");
+            if (code != HttpURLConnection.HTTP_CREATED || location == null) {
+                throw new IOException("Create failed: HTTP " + code);
+            }
+            upload.location = new URL(new URL(upload.endpoint), location).toString();
+            upload.offset = 0;
+            writeState(upload);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    // The server's acknowledged offset; restarts the upload if the server forgot it
+    private long fetchOffset(Upload upload) throws IOException {
+        HttpURLConnection conn = open(upload.location, "HEAD");
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+                upload.location = null;
+                create(upload);
+                return 0;
+            }
+            if (code / 100 != 2) throw new IOException("Offset check failed: HTTP " + code);
+            return parseOffset(conn);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private void sendChunk(Upload upload) throws IOException {
+        long start = System.currentTimeMillis();
+        int length = (int) Math.min(CHUNK_SIZE, upload.total - upload.offset);
+
+        // HttpURLConnection can't send PATCH; tus allows the override header instead
+        HttpURLConnection conn = open(upload.location, "POST");
+        conn.setRequestProperty("X-HTTP-Method-Override", "PATCH");
+        conn.setRequestProperty("Content-Type", "application/offset+octet-stream");
+        conn.setRequestProperty("Upload-Offset", String.valueOf(upload.offset));
+        conn.setFixedLengthStreamingMode(length);
+        conn.setDoOutput(true);
+
+        try (RandomAccessFile file = new RandomAccessFile(upload.file, "r")) {
+            file.seek(upload.offset);
+            byte[] buffer = new byte[64 * 1024];
+            int remaining = length;
+            try (OutputStream out = conn.getOutputStream()) {
+                while (remaining > 0) {
+                    if (upload.cancelled) throw new IOException("Cancelled");
+                    int n = file.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (n < 0) throw new IOException("File shrank during upload");
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                }
+            }
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_CONFLICT) {
+                throw new IOException("Offset mismatch");
+            }
+            if (code / 100 != 2) throw new IOException("Chunk failed: HTTP " + code);
+
+            long acknowledged = parseOffset(conn);
+            upload.bytesSent += acknowledged - upload.offset;
+            totalBytesSent.addAndGet(acknowledged - upload.offset);
+            upload.offset = acknowledged;
+        } finally {
+            conn.disconnect();
+            long elapsed = System.currentTimeMillis() - start;
+            upload.activeMs += elapsed;
+            totalActiveMs.addAndGet(elapsed);
+        }
+    }
+
+    private long parseOffset(HttpURLConnection conn) throws IOException {
+        String header = conn.getHeaderField("Upload-Offset");
+        if (header == null) throw new IOException("Missing Upload-Offset");
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad Upload-Offset: " + header);
+        }
+    }
+
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("Tus-Resumable", TUS_VERSION);
+        String cookie = cookies.getCookies(url);
+        if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+        return conn;
+    }
+
+    // tus metadata: comma-separated "key base64(value)" pairs
+    private String encodeMetadata(Upload upload) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("filename ").append(base64(upload.file.getName()));
+        Iterator<String> keys = upload.metadata.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.isEmpty() || key.contains(" ") || key.contains(",")) continue;
+            sb.append(',').append(key).append(' ').append(base64(upload.metadata.optString(key)));
+        }
+        return sb.toString();
+    }
+
+    private static String base64(String value) {
+        return Base64.encodeToString(value.getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP);
+    }
+
+    private JSONObject progressJson(Upload upload) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("id", upload.id);
+            json.put("offset", upload.offset);
+            json.put("total", upload.total);
+            json.put("retries", upload.retries);
+            json.put("bytesPerSec", upload.activeMs > 0 ? upload.bytesSent * 1000 / upload.activeMs : 0);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build progress", e);
+        }
+        return json;
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            JSONArray active = new JSONArray();
+            synchronized (this) {
+                for (Upload upload : running.values()) active.put(progressJson(upload));
+                stats.put("queued", queued.size());
+            }
+            long activeMs = totalActiveMs.get();
+            stats.put("running", active);
+            stats.put("completed", completed.get());
+            stats.put("failed", failed.get());
+            stats.put("retries", totalRetries.get());
+            stats.put("bytesSent", totalBytesSent.get());
+            stats.put("bytesPerSec", activeMs > 0 ? totalBytesSent.get() * 1000 / activeMs : 0);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not build stats", e);
+        }
+        return stats;
+    }
+
+    private File stateFile(String id) {
+        return new File(stateDir, ModelCache.keyFor(id) + ".properties");
+    }
+
+    private void writeState(Upload upload) {
+        Properties props = new Properties();
+        props.setProperty("id", upload.id);
+        props.setProperty("path", upload.file.getAbsolutePath());
+        props.setProperty("endpoint", upload.endpoint);
+        if (upload.location != null) props.setProperty("location", upload.location);
+        props.setProperty("metadata", upload.metadata.toString());
+        props.setProperty("unmeteredOnly", String.valueOf(upload.unmeteredOnly));
+        props.setProperty("offset", String.valueOf(upload.offset));
+        props.setProperty("retries", String.valueOf(upload.retries));
+        props.setProperty("failures", String.valueOf(upload.failures));
+        try (OutputStream out = new FileOutputStream(stateFile(upload.id))) {
+            props.store(out, null);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not persist upload " + upload.id + ": " + e.getMessage());
+        }
+    }
+
+    private Upload readState(File f) {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(f)) {
+            props.load(in);
+            Upload upload = new Upload();
+            upload.id = props.getProperty("id");
+            upload.file = new File(props.getProperty("path"));
+            upload.endpoint = props.getProperty("endpoint");
+            upload.location = props.getProperty("location");
+            upload.metadata = new JSONObject(props.getProperty("metadata", "{}"));
+            upload.unmeteredOnly = Boolean.parseBoolean(props.getProperty("unmeteredOnly"));
+            upload.offset = Long.parseLong(props.getProperty("offset", "0"));
+            upload.retries = Integer.parseInt(props.getProperty("retries", "0"));
+            upload.failures = Integer.parseInt(props.getProperty("failures", "0"));
+            upload.total = upload.file.length();
+            return upload.id != null && upload.endpoint != null ? upload : null;
+        } catch (IOException | JSONException | NumberFormatException e) {
+            Log.w(TAG, "Dropping unreadable upload state " + f.getName());
+            return null;
+        }
+    }
+}
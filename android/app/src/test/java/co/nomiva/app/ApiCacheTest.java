@@ -0,0 +1,156 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs ApiCache against a local mock of the backend's /api routes.
+ */
+public class ApiCacheTest {
+
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private volatile CountDownLatch gate;
+    private volatile String cacheControl;
+    private ApiCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/", exchange -> {
+            int n = requests.incrementAndGet();
+            try {
+                if (gate != null) gate.await();
+            } catch (InterruptedException ignored) {
+                // Answer anyway
+            }
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            byte[] body = ("{\"n\":" + n + ",\"auth\":\"" + auth + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Credentials", "true");
+            if (cacheControl != null) exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+        cache = new ApiCache(base, "http://localhost", Runnable::run, url -> null, null, now::get);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static Map<String, String> auth(String token) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer " + token);
+        return headers;
+    }
+
+    private static String body(ApiCache.Response response) {
+        return new String(response.body, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void freshEntriesAreServedWithoutARoundTrip() throws Exception {
+        ApiCache.Response first = cache.get(base + "/auth/me", auth("a"));
+        ApiCache.Response second = cache.get(base + "/auth/me", auth("a"));
+        assertEquals(1, requests.get());
+        assertEquals(body(first), body(second));
+        assertEquals("true", second.headers.get("Access-Control-Allow-Credentials"));
+        assertEquals("application/json", second.mimeType);
+        assertEquals("utf-8", second.encoding);
+
+        JSONObject route = cache.getStats().getJSONObject("routes").getJSONObject("/auth/me");
+        assertEquals(1, route.getInt("hits"));
+        assertEquals(1, route.getInt("misses"));
+    }
+
+    @Test
+    public void usersNeverShareEntries() throws Exception {
+        ApiCache.Response alice = cache.get(base + "/auth/me", auth("alice"));
+        ApiCache.Response bob = cache.get(base + "/auth/me", auth("bob"));
+        assertEquals(2, requests.get());
+        assertTrue(body(alice).contains("alice"));
+        assertTrue(body(bob).contains("bob"));
+    }
+
+    @Test
+    public void concurrentIdenticalGetsShareOneRequest() throws Exception {
+        gate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<ApiCache.Response>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(pool.submit(() -> cache.get(base + "/auth/liked-assets", auth("a"))));
+        }
+        Thread.sleep(200);
+        gate.countDown();
+        for (Future<ApiCache.Response> result : results) {
+            assertTrue(body(result.get()).contains("\"n\":1"));
+        }
+        pool.shutdown();
+        assertEquals(1, requests.get());
+        JSONObject route = cache.getStats().getJSONObject("routes").getJSONObject("/auth/liked-assets");
+        assertEquals(3, route.getInt("coalesced"));
+    }
+
+    @Test
+    public void staleEntriesAreServedWhileRevalidating() throws Exception {
+        cache.get(base + "/assets?limit=20", Collections.emptyMap());
+        now.addAndGet(61_000); // Past the 60s fresh window for asset lists
+
+        ApiCache.Response stale = cache.get(base + "/assets?limit=20", Collections.emptyMap());
+        assertTrue(body(stale).contains("\"n\":1"));
+        assertEquals(2, requests.get()); // Revalidated in the background (inline executor here)
+
+        ApiCache.Response refreshed = cache.get(base + "/assets?limit=20", Collections.emptyMap());
+        assertTrue(body(refreshed).contains("\"n\":2"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void mutationsDropTheCallersEntries() throws Exception {
+        cache.get(base + "/auth/me", auth("a"));
+        cache.invalidate(base + "/assets/123/like", auth("a"));
+        cache.get(base + "/auth/me", auth("a"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void uncachedRoutesAndNoStoreResponsesPassThrough() throws Exception {
+        assertNull(cache.get(base + "/status/task1", Collections.emptyMap()));
+        assertEquals(0, requests.get());
+
+        cacheControl = "no-store";
+        cache.get(base + "/auth/me", auth("a"));
+        cache.get(base + "/auth/me", auth("a"));
+        assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,213 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Window planning with a fake clock; windows are opened by calling runDue() directly.
+ */
+public class BatchSchedulerTest {
+
+    private long now = 0;
+    private boolean connected = true;
+    private boolean unmetered = true;
+    private boolean batteryLow = false;
+    private final List<String> ran = new ArrayList<>();
+    private final List<String> reasons = new ArrayList<>();
+    private ScheduledThreadPoolExecutor executor;
+    private BatchScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        // Timers never fire on their own during a test
+        executor = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                return super.schedule(command, 1, TimeUnit.HOURS);
+            }
+        };
+        scheduler = new BatchScheduler(executor, new BatchScheduler.Conditions() {
+            @Override
+            public boolean isConnected() {
+                return connected;
+            }
+
+            @Override
+            public boolean isUnmetered() {
+                return unmetered;
+            }
+
+            @Override
+            public boolean isBatteryLow() {
+                return batteryLow;
+            }
+        }, () -> now);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(String id, int priority, int network, long delayMs, long maxDelayMs) {
+        scheduler.schedule(id, id, priority, network, delayMs, maxDelayMs, 0, (job, reason) -> {
+            ran.add(job.id);
+            reasons.add(reason);
+        });
+    }
+
+    private void runAt(long time) {
+        now = time;
+        scheduler.runDue();
+    }
+
+    @Test
+    public void dueJobsShareOneWindow() throws Exception {
+        schedule("a", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 60_000);
+        schedule("b", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 120_000);
+        assertEquals(60_000, scheduler.nextWindowAt());
+
+        runAt(30_000);
+        assertTrue(ran.isEmpty());
+        runAt(60_000);
+        assertEquals(Arrays.asList("a", "b"), ran);
+        assertEquals(1, scheduler.getStats().getLong("windows"));
+        assertEquals(Long.MAX_VALUE, scheduler.nextWindowAt());
+    }
+
+    @Test
+    public void windowsAreSpacedOutExceptForHighPriority() {
+        schedule("a", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 1000);
+        runAt(1000);
+
+        schedule("b", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 1000);
+        assertEquals(1000 + BatchScheduler.MIN_WINDOW_GAP_MS, scheduler.nextWindowAt());
+        schedule("c", BatchScheduler.PRIORITY_HIGH, BatchScheduler.NETWORK_ANY, 0, 1000);
+        assertEquals(2000, scheduler.nextWindowAt());
+
+        runAt(2000);
+        assertEquals(Arrays.asList("a", "b", "c"), ran);
+    }
+
+    @Test
+    public void networkJobsRideOnForegroundTraffic() throws Exception {
+        schedule("sync", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 600_000);
+        scheduler.noteForegroundNetwork();
+        assertEquals(BatchScheduler.TAIL_DELAY_MS, scheduler.nextWindowAt());
+
+        // Still busy: wait for the burst to end, but not forever
+        now = 1000;
+        scheduler.noteForegroundNetwork();
+        assertEquals(1000 + BatchScheduler.TAIL_DELAY_MS, scheduler.nextWindowAt());
+        for (now = 2000; now < 20_000; now += 1000) scheduler.noteForegroundNetwork();
+        assertEquals(BatchScheduler.TAIL_MAX_WAIT_MS, scheduler.nextWindowAt());
+
+        runAt(BatchScheduler.TAIL_MAX_WAIT_MS);
+        assertEquals(Arrays.asList("sync"), ran);
+        assertEquals(Arrays.asList(BatchScheduler.REASON_PIGGYBACK), reasons);
+        assertEquals(1, scheduler.getStats().getLong("piggybackWindows"));
+    }
+
+    @Test
+    public void foregroundTrafficAloneDoesNotOpenWindowsForLocalWork() {
+        schedule("flush", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_NONE, 0, 600_000);
+        scheduler.noteForegroundNetwork();
+        assertEquals(600_000, scheduler.nextWindowAt());
+    }
+
+    @Test
+    public void lowPriorityWaitsOnMeteredNetworksButJoinsOtherWindows() {
+        unmetered = false;
+        schedule("prefetch", BatchScheduler.PRIORITY_LOW, BatchScheduler.NETWORK_ANY, 0, 10_000);
+        assertEquals(Long.MAX_VALUE, scheduler.nextWindowAt());
+
+        schedule("retry", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 60_000);
+        runAt(60_000);
+        assertEquals(Arrays.asList("prefetch", "retry"), ran);
+    }
+
+    @Test
+    public void lowBatteryHoldsLowPriorityAndStretchesNormal() {
+        batteryLow = true;
+        schedule("prefetch", BatchScheduler.PRIORITY_LOW, BatchScheduler.NETWORK_ANY, 0, 10_000);
+        schedule("sync", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 60_000);
+        assertEquals(120_000, scheduler.nextWindowAt());
+
+        runAt(120_000);
+        assertEquals(Arrays.asList("sync"), ran);
+
+        batteryLow = false;
+        scheduler.conditionsChanged();
+        runAt(120_000 + BatchScheduler.MIN_WINDOW_GAP_MS);
+        assertEquals(Arrays.asList("sync", "prefetch"), ran);
+    }
+
+    @Test
+    public void jobsWaitForTheNetworkTheyNeed() {
+        unmetered = false;
+        schedule("upload", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_UNMETERED, 0, 1000);
+        assertEquals(Long.MAX_VALUE, scheduler.nextWindowAt());
+        runAt(5000);
+        assertTrue(ran.isEmpty());
+
+        unmetered = true;
+        scheduler.conditionsChanged();
+        assertEquals(1000, scheduler.nextWindowAt());
+        runAt(6000);
+        assertEquals(Arrays.asList("upload"), ran);
+    }
+
+    @Test
+    public void sameIdIsMergedAndKeepsTheEarlierDeadline() throws Exception {
+        schedule("sync", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 60_000);
+        now = 10_000;
+        schedule("sync", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 300_000);
+        assertEquals(60_000, scheduler.nextWindowAt());
+
+        runAt(60_000);
+        assertEquals(Arrays.asList("sync"), ran);
+        assertEquals(1, scheduler.getStats().getLong("merged"));
+    }
+
+    @Test
+    public void periodicJobsComeBackWithAWindowOfHalfThePeriod() {
+        scheduler.schedule("flush", "metrics", BatchScheduler.PRIORITY_LOW, BatchScheduler.NETWORK_NONE,
+                0, 100_000, 100_000, (job, reason) -> ran.add(job.id));
+        runAt(100_000);
+        assertEquals(200_000, scheduler.nextWindowAt());
+
+        // Joins an earlier window once half the period has passed
+        schedule("sync", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 60_000);
+        runAt(160_000);
+        assertEquals(Arrays.asList("flush", "flush", "sync"), ran);
+    }
+
+    @Test
+    public void cancelledJobsDoNotRun() {
+        schedule("a", BatchScheduler.PRIORITY_NORMAL, BatchScheduler.NETWORK_ANY, 0, 1000);
+        assertTrue(scheduler.cancel("a"));
+        assertFalse(scheduler.cancel("a"));
+        runAt(1000);
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void bridgeNames() {
+        assertEquals(BatchScheduler.PRIORITY_HIGH, BatchScheduler.priorityFor("high"));
+        assertEquals(BatchScheduler.PRIORITY_LOW, BatchScheduler.priorityFor("low"));
+        assertEquals(BatchScheduler.PRIORITY_NORMAL, BatchScheduler.priorityFor(""));
+        assertEquals(BatchScheduler.NETWORK_NONE, BatchScheduler.networkFor("none"));
+        assertEquals(BatchScheduler.NETWORK_UNMETERED, BatchScheduler.networkFor("unmetered"));
+        assertEquals(BatchScheduler.NETWORK_ANY, BatchScheduler.networkFor(null));
+    }
+}
@@ -0,0 +1,75 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * Range header parsing for /_native/blobs/ responses and trimming of published buffers.
+ */
+public class BinaryTransportTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void noHeaderMeansWholeBody() {
+        assertNull(BinaryTransport.parseRange(null, LENGTH));
+    }
+
+    @Test
+    public void explicitRange() {
+        assertArrayEquals(new long[]{0, 99}, BinaryTransport.parseRange("bytes=0-99", LENGTH));
+        assertArrayEquals(new long[]{500, 999}, BinaryTransport.parseRange("bytes=500-999", LENGTH));
+    }
+
+    @Test
+    public void openEndedRangeRunsToTheEnd() {
+        assertArrayEquals(new long[]{100, 999}, BinaryTransport.parseRange("bytes=100-", LENGTH));
+    }
+
+    @Test
+    public void suffixRangeIsTheLastBytes() {
+        assertArrayEquals(new long[]{990, 999}, BinaryTransport.parseRange("bytes=-10", LENGTH));
+        assertArrayEquals(new long[]{0, 999}, BinaryTransport.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    public void endPastTheLengthIsClamped() {
+        assertArrayEquals(new long[]{900, 999}, BinaryTransport.parseRange("bytes=900-5000", LENGTH));
+    }
+
+    @Test
+    public void startPastTheEndIsUnsatisfiable() {
+        assertSame(BinaryTransport.UNSATISFIABLE, BinaryTransport.parseRange("bytes=1000-", LENGTH));
+        assertSame(BinaryTransport.UNSATISFIABLE, BinaryTransport.parseRange("bytes=0-", 0));
+    }
+
+    @Test
+    public void unsupportedFormsAreIgnored() {
+        assertNull(BinaryTransport.parseRange("bytes=0-9,20-29", LENGTH));
+        assertNull(BinaryTransport.parseRange("bytes=abc", LENGTH));
+        assertNull(BinaryTransport.parseRange("bytes=5-x", LENGTH));
+        assertNull(BinaryTransport.parseRange("items=0-9", LENGTH));
+        assertNull(BinaryTransport.parseRange("bytes=50-10", LENGTH));
+    }
+
+    @Test
+    public void trimmingDropsTheOldestBuffersAndKeepsFiles() throws Exception {
+        BinaryTransport transport = new BinaryTransport();
+        String file = transport.publish(new File("model.glb"), null);
+        String oldest = transport.publish(new byte[1024 * 1024], null);
+        String middle = transport.publish(new byte[1024 * 1024], null);
+        String newest = transport.publish(new byte[1024 * 1024], null);
+
+        // 5% of the 32 MB cap leaves room for one buffer
+        transport.trimBuffers(0.05f);
+
+        assertEquals(1024 * 1024, transport.getStats().getLong("bufferBytes"));
+        assertFalse(transport.release(oldest));
+        assertFalse(transport.release(middle));
+        assertTrue(transport.release(newest));
+        assertTrue(transport.release(file));
+    }
+}
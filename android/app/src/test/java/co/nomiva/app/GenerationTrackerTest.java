@@ -0,0 +1,171 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs GenerationTracker against a local mock of the backend's /api/status/:taskId endpoint.
+ */
+public class GenerationTrackerTest {
+
+    private HttpServer server;
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> cookies = new CopyOnWriteArrayList<>();
+
+    // Responses served in order; the last one repeats
+    private volatile String[] script;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/status/", exchange -> {
+            int n = requests.getAndIncrement();
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            if (cookie != null) cookies.add(cookie);
+
+            String body = script[Math.min(n, script.length - 1)];
+            int code = body.startsWith("{") ? 200 : Integer.parseInt(body);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, code == 200 ? bytes.length : -1);
+            if (code == 200) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        server.stop(0);
+    }
+
+    private String statusUrl(String taskId) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/status/" + taskId;
+    }
+
+    private static class RecordingListener implements GenerationTracker.Listener {
+        final List<Integer> progress = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile JSONObject completed;
+        volatile String failed;
+
+        @Override
+        public void onProgress(String taskId, String status, int value, JSONObject response) {
+            progress.add(value);
+        }
+
+        @Override
+        public void onComplete(String taskId, JSONObject response) {
+            completed = response;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailed(String taskId, String error) {
+            failed = error;
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void reportsProgressUntilSucceeded() throws Exception {
+        script = new String[]{
+                "{\"status\":\"PENDING\",\"progress\":0}",
+                "{\"status\":\"IN_PROGRESS\",\"progress\":45}",
+                "{\"status\":\"IN_PROGRESS\",\"progress\":90}",
+                "{\"status\":\"SUCCEEDED\",\"progress\":100,\"model_urls\":{\"glb\":\"x.glb\"}}"
+        };
+        RecordingListener listener = new RecordingListener();
+        GenerationTracker tracker = new GenerationTracker(scheduler, url -> "token=abc", listener, 5);
+
+        tracker.track("task1", statusUrl("task1"));
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNull(listener.failed);
+        assertNotNull(listener.completed);
+        assertEquals("SUCCEEDED", listener.completed.getString("status"));
+        assertEquals(3, listener.progress.size());
+        assertEquals(90, (int) listener.progress.get(2));
+        assertFalse(tracker.isTracking("task1"));
+        assertTrue(cookies.contains("token=abc"));
+    }
+
+    @Test
+    public void retriesTransientErrors() throws Exception {
+        script = new String[]{
+                "500",
+                "503",
+                "{\"status\":\"SUCCEEDED\",\"progress\":100}"
+        };
+        RecordingListener listener = new RecordingListener();
+        GenerationTracker tracker = new GenerationTracker(scheduler, null, listener, 5);
+
+        tracker.track("task2", statusUrl("task2"));
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(listener.completed);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void failsWhenBackendReportsFailure() throws Exception {
+        script = new String[]{"{\"status\":\"FAILED\",\"progress\":12}"};
+        RecordingListener listener = new RecordingListener();
+        GenerationTracker tracker = new GenerationTracker(scheduler, null, listener, 5);
+
+        tracker.track("task3", statusUrl("task3"));
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertNull(listener.completed);
+        assertEquals("Generation failed", listener.failed);
+    }
+
+    @Test
+    public void cancelStopsPolling() throws Exception {
+        script = new String[]{"{\"status\":\"IN_PROGRESS\",\"progress\":10}"};
+        RecordingListener listener = new RecordingListener();
+        GenerationTracker tracker = new GenerationTracker(scheduler, null, listener, 20);
+
+        tracker.track("task4", statusUrl("task4"));
+        Thread.sleep(50);
+        tracker.cancel("task4");
+        int seen = requests.get();
+        Thread.sleep(300);
+
+        assertFalse(tracker.isTracking("task4"));
+        assertTrue(requests.get() <= seen + 1);
+    }
+
+    @Test
+    public void pollsFasterNearCompletionAndBacksOffOnErrors() {
+        GenerationTracker tracker = new GenerationTracker(scheduler, null, null, 1000);
+
+        assertTrue(tracker.nextDelayMs(10, 0) > tracker.nextDelayMs(50, 0));
+        assertTrue(tracker.nextDelayMs(50, 0) > tracker.nextDelayMs(95, 0));
+        assertTrue(tracker.nextDelayMs(95, 2) > tracker.nextDelayMs(95, 1));
+        assertEquals(30000, tracker.nextDelayMs(95, 20));
+    }
+}
@@ -0,0 +1,106 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * OBJ and STL output for the textured sphere from GlbLodBuilderTest.
+ */
+public class GlbExporterTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final int TRIANGLES = 24 * 48 * 2;
+    private static final int VERTICES = 25 * 49;
+
+    private GlbExporter sphere() throws Exception {
+        File glb = tmp.newFile("sphere.glb");
+        GlbLodBuilderTest.writeSphereGlb(glb, null);
+        return new GlbExporter(GlbFile.read(glb));
+    }
+
+    @Test
+    public void writesObjWithMaterialAndTexture() throws Exception {
+        File dir = tmp.newFolder();
+        GlbExporter.Result result = sphere().writeObj(dir, "dog");
+
+        assertEquals(TRIANGLES, result.triangles);
+        assertEquals(Arrays.asList(new File(dir, "dog.obj"), new File(dir, "dog.mtl"),
+                new File(dir, "dog_texture0.jpg")), result.files);
+        List<String> lines = Files.readAllLines(new File(dir, "dog.obj").toPath(), StandardCharsets.US_ASCII);
+        assertTrue(lines.contains("mtllib dog.mtl"));
+        assertEquals(VERTICES, lines.stream().filter(l -> l.startsWith("v ")).count());
+        assertEquals(VERTICES, lines.stream().filter(l -> l.startsWith("vt ")).count());
+        assertEquals(TRIANGLES, lines.stream().filter(l -> l.startsWith("f ")).count());
+        assertTrue(lines.contains("v 0 1 0")); // North pole, exactly
+        assertTrue(lines.contains("f 1/1 2/2 50/50"));
+
+        String mtl = new String(Files.readAllBytes(new File(dir, "dog.mtl").toPath()), StandardCharsets.US_ASCII);
+        assertTrue(mtl.contains("newmtl material0"));
+        assertTrue(mtl.contains("map_Kd dog_texture0.jpg"));
+        assertTrue(Arrays.equals(GlbLodBuilderTest.IMAGE, Files.readAllBytes(new File(dir, "dog_texture0.jpg").toPath())));
+    }
+
+    @Test
+    public void writesBinaryStlInZUp() throws Exception {
+        File out = tmp.newFile("dog.stl");
+        GlbExporter.Result result = sphere().writeStl(out);
+
+        assertEquals(TRIANGLES, result.triangles);
+        assertEquals(84 + 50L * TRIANGLES, out.length());
+        try (RandomAccessFile raf = new RandomAccessFile(out, "r")) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) out.length()).order(ByteOrder.LITTLE_ENDIAN);
+            raf.readFully(bytes.array());
+            assertEquals(TRIANGLES, bytes.getInt(80));
+            // First facet touches the north pole, which is +Z after the axis swap
+            assertEquals(1f, bytes.getFloat(84 + 12 + 8), 1e-6f);
+            float maxZ = -1;
+            for (int t = 0; t < TRIANGLES; t++) {
+                int facet = 84 + t * 50;
+                for (int v = 0; v < 3; v++) maxZ = Math.max(maxZ, bytes.getFloat(facet + 12 + v * 12 + 8));
+                // Normals point away from the centre
+                float dot = 0;
+                for (int k = 0; k < 3; k++) dot += bytes.getFloat(facet + k * 4) * bytes.getFloat(facet + 12 + k * 4);
+                assertTrue("facet " + t, dot >= -1e-4f);
+            }
+            assertEquals(1f, maxZ, 1e-6f);
+        }
+    }
+
+    @Test
+    public void appliesNodeTransforms() throws Exception {
+        JSONObject node = new JSONObject("{\"translation\":[1,2,3],\"rotation\":[0,0.7071068,0,0.7071068],\"scale\":[2,2,2]}");
+        double[] m = GlbExporter.localMatrix(node);
+        // Rotating +X by 90 degrees about Y gives -Z, then scale and translate
+        double x = m[0] + m[12];
+        double y = m[1] + m[13];
+        double z = m[2] + m[14];
+        assertEquals(1, x, 1e-6);
+        assertEquals(2, y, 1e-6);
+        assertEquals(1, z, 1e-6);
+    }
+
+    @Test
+    public void formatsFloatsCompactly() {
+        StringBuilder out = new StringBuilder();
+        for (float f : new float[]{0f, -0.5f, 1.25f, 3f, -0.0000001f, 0.000123f}) {
+            GlbExporter.appendFloat(out, f);
+            out.append(' ');
+        }
+        assertEquals("0 -0.5 1.25 3 0 0.000123 ", out.toString());
+    }
+}
@@ -0,0 +1,150 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Validation and metadata of GLB files measured by GlbInspector.
+ */
+public class GlbInspectorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void measuresSphere() throws Exception {
+        File file = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(file, null);
+        int vertices = GlbFile.read(file).accessor(0).count;
+
+        JSONObject info = GlbInspector.inspect(file);
+
+        assertTrue(info.getBoolean("valid"));
+        assertEquals(file.length(), info.getLong("fileBytes"));
+        assertEquals(vertices, info.getLong("vertices"));
+        assertEquals(24 * 48 * 2, info.getLong("triangles"));
+        assertEquals(1, info.getInt("textureCount"));
+        JSONObject bounds = info.getJSONObject("bounds");
+        assertEquals(-1, bounds.getJSONArray("min").getDouble(0), 1e-6);
+        assertEquals(1, bounds.getJSONArray("max").getDouble(2), 1e-6);
+        assertEquals(2, bounds.getJSONArray("size").getDouble(1), 1e-6);
+        // POSITION + TEXCOORD_0 + uint16 indices; the fake image has no readable size
+        assertEquals(vertices * (12 + 8) + 24 * 48 * 2 * 3 * 2, info.getLong("geometryGpuBytes"));
+        assertEquals(0, info.getLong("textureGpuBytes"));
+    }
+
+    @Test
+    public void rejectsIndexPastLastVertex() throws Exception {
+        File file = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(file, null);
+        long[] indices = GlbFile.read(file).viewRange(3);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(indices[0]);
+            raf.write(new byte[]{(byte) 0xFF, (byte) 0xFF});
+        }
+
+        try {
+            GlbInspector.inspect(file);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("index out of range"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws Exception {
+        File file = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(file, null);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        GlbInspector.inspect(file);
+    }
+
+    @Test
+    public void rejectsNegativeOffsetsAndStrides() throws Exception {
+        File file = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(file, null);
+        JSONObject json = GlbFile.read(file).json;
+
+        // Each of these used to read outside the view or fail with a runtime exception
+        json.getJSONArray("accessors").getJSONObject(0).put("byteOffset", -12);
+        assertRejected(file, json, "Negative byteOffset");
+        json.getJSONArray("accessors").getJSONObject(0).remove("byteOffset");
+        json.getJSONArray("bufferViews").getJSONObject(1).put("byteStride", -12);
+        assertRejected(file, json, "Bad byteStride");
+        json.getJSONArray("bufferViews").getJSONObject(1).remove("byteStride");
+        json.getJSONArray("bufferViews").getJSONObject(1).put("byteOffset", -4);
+        assertRejected(file, json, "out of range");
+    }
+
+    private void assertRejected(File file, JSONObject json, String reason) throws Exception {
+        rewriteJson(file, json);
+        try {
+            GlbInspector.inspect(file);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+
+    // Replaces the JSON chunk and keeps the BIN chunk as is
+    private static void rewriteJson(File file, JSONObject json) throws Exception {
+        byte[] old = Files.readAllBytes(file.toPath());
+        ByteBuffer header = ByteBuffer.wrap(old).order(ByteOrder.LITTLE_ENDIAN);
+        int binStart = 20 + header.getInt(12);
+        byte[] jsonBytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        int jsonPadded = (jsonBytes.length + 3) & ~3;
+        ByteBuffer out = ByteBuffer.allocate(20 + jsonPadded + old.length - binStart).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(GlbFile.MAGIC).putInt(2).putInt(out.capacity());
+        out.putInt(jsonPadded).putInt(GlbFile.CHUNK_JSON).put(jsonBytes);
+        for (int i = jsonBytes.length; i < jsonPadded; i++) out.put((byte) ' ');
+        out.put(old, binStart, old.length - binStart);
+        Files.write(file.toPath(), out.array());
+    }
+
+    @Test
+    public void readsImageSizeFromHeaders() throws Exception {
+        byte[] png = new byte[24];
+        png[0] = (byte) 0x89;
+        png[1] = 'P';
+        png[2] = 'N';
+        png[3] = 'G';
+        png[18] = 0x08; // width 2048
+        png[23] = 0x40; // height 64
+        assertArrayEquals(new int[]{2048, 64}, GlbInspector.imageSize(png));
+
+        // SOI, an APP0 segment to skip, then SOF0 with height 480 and width 640
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8,
+                (byte) 0xFF, (byte) 0xE0, 0, 4, 0, 0,
+                (byte) 0xFF, (byte) 0xC0, 0, 11, 8, 0x01, (byte) 0xE0, 0x02, (byte) 0x80, 3, 0, 0, 0};
+        assertArrayEquals(new int[]{640, 480}, GlbInspector.imageSize(jpeg));
+
+        assertNull(GlbInspector.imageSize(new byte[32]));
+    }
+
+    @Test
+    public void composesTranslationAndScale() throws Exception {
+        JSONObject node = new JSONObject()
+                .put("translation", new JSONArray("[10, 0, 0]"))
+                .put("scale", new JSONArray("[2, 2, 2]"));
+        float[] m = GlbInspector.localMatrix(node);
+
+        // (1, 1, 1) scaled then moved
+        assertEquals(12, m[0] + m[4] + m[8] + m[12], 1e-6);
+        assertEquals(2, m[1] + m[5] + m[9] + m[13], 1e-6);
+    }
+}
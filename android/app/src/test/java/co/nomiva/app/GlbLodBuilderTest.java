@@ -0,0 +1,172 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Round trip of a textured sphere GLB through GlbLodBuilder and GlbFile.
+ */
+public class GlbLodBuilderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    static final byte[] IMAGE = "not really a jpeg, but the bytes must survive".getBytes(StandardCharsets.US_ASCII);
+
+    // Sphere with POSITION, TEXCOORD_0, uint16 indices and an embedded image
+    static void writeSphereGlb(File file, String extensionUsed) throws Exception {
+        float[][] sphere = MeshSimplifierTest.uvSphere(24, 48);
+        int[] indices = MeshSimplifierTest.toInts(sphere[2]);
+        int vertices = sphere[0].length / 3;
+
+        ByteArrayOutputStream bin = new ByteArrayOutputStream();
+        int[] offsets = new int[4];
+        offsets[0] = bin.size();
+        bin.write(IMAGE);
+        pad(bin);
+        offsets[1] = bin.size();
+        bin.write(floats(sphere[0]));
+        offsets[2] = bin.size();
+        bin.write(floats(sphere[1]));
+        offsets[3] = bin.size();
+        ByteBuffer idx = ByteBuffer.allocate(indices.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i : indices) idx.putShort((short) i);
+        bin.write(idx.array());
+        pad(bin);
+
+        JSONArray views = new JSONArray()
+                .put(view(offsets[0], IMAGE.length))
+                .put(view(offsets[1], sphere[0].length * 4))
+                .put(view(offsets[2], sphere[1].length * 4))
+                .put(view(offsets[3], indices.length * 2));
+        JSONArray accessors = new JSONArray()
+                .put(new JSONObject().put("bufferView", 1).put("componentType", 5126).put("count", vertices).put("type", "VEC3")
+                        .put("min", new JSONArray("[-1,-1,-1]")).put("max", new JSONArray("[1,1,1]")))
+                .put(new JSONObject().put("bufferView", 2).put("componentType", 5126).put("count", vertices).put("type", "VEC2"))
+                .put(new JSONObject().put("bufferView", 3).put("componentType", 5123).put("count", indices.length).put("type", "SCALAR"));
+        JSONObject primitive = new JSONObject()
+                .put("attributes", new JSONObject().put("POSITION", 0).put("TEXCOORD_0", 1))
+                .put("indices", 2)
+                .put("material", 0);
+        JSONObject json = new JSONObject()
+                .put("asset", new JSONObject().put("version", "2.0"))
+                .put("buffers", new JSONArray().put(new JSONObject().put("byteLength", bin.size())))
+                .put("bufferViews", views)
+                .put("accessors", accessors)
+                .put("images", new JSONArray().put(new JSONObject().put("bufferView", 0).put("mimeType", "image/jpeg")))
+                .put("textures", new JSONArray().put(new JSONObject().put("source", 0)))
+                .put("materials", new JSONArray().put(new JSONObject().put("pbrMetallicRoughness",
+                        new JSONObject().put("baseColorTexture", new JSONObject().put("index", 0)))))
+                .put("meshes", new JSONArray().put(new JSONObject().put("primitives", new JSONArray().put(primitive))))
+                .put("nodes", new JSONArray().put(new JSONObject().put("mesh", 0)));
+        if (extensionUsed != null) json.put("extensionsUsed", new JSONArray().put(extensionUsed));
+
+        byte[] jsonBytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        int jsonPadded = (jsonBytes.length + 3) & ~3;
+        ByteBuffer out = ByteBuffer.allocate(12 + 8 + jsonPadded + 8 + bin.size()).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(GlbFile.MAGIC).putInt(2).putInt(out.capacity());
+        out.putInt(jsonPadded).putInt(GlbFile.CHUNK_JSON).put(jsonBytes);
+        for (int i = jsonBytes.length; i < jsonPadded; i++) out.put((byte) ' ');
+        out.putInt(bin.size()).putInt(GlbFile.CHUNK_BIN).put(bin.toByteArray());
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(out.array());
+        }
+    }
+
+    private File writeSphereGlb(String extensionUsed) throws Exception {
+        File file = tmp.newFile();
+        writeSphereGlb(file, extensionUsed);
+        return file;
+    }
+
+    private static JSONObject view(int offset, int length) throws Exception {
+        return new JSONObject().put("buffer", 0).put("byteOffset", offset).put("byteLength", length);
+    }
+
+    private static byte[] floats(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float v : values) buffer.putFloat(v);
+        return buffer.array();
+    }
+
+    private static void pad(ByteArrayOutputStream out) {
+        while (out.size() % 4 != 0) out.write(0);
+    }
+
+    @Test
+    public void writesAValidReducedCopy() throws Exception {
+        GlbLodBuilder builder = new GlbLodBuilder(GlbFile.read(writeSphereGlb(null)));
+        assertEquals(24 * 48 * 2, builder.triangleCount());
+
+        File out = tmp.newFile();
+        GlbLodBuilder.Result result = builder.write(0.25f, out);
+        assertTrue(result.trianglesAfter <= builder.triangleCount() / 4 + 2);
+        assertEquals(out.length(), result.bytes);
+
+        GlbFile lod = GlbFile.read(out);
+        JSONObject primitive = lod.array("meshes").getJSONObject(0).getJSONArray("primitives").getJSONObject(0);
+        assertEquals(3, lod.array("accessors").length()); // Old geometry accessors are gone
+        assertEquals(4, lod.array("bufferViews").length());
+        try (RandomAccessFile raf = new RandomAccessFile(out, "r")) {
+            GlbFile.Accessor position = lod.accessor(primitive.getJSONObject("attributes").getInt("POSITION"));
+            GlbFile.Accessor uv = lod.accessor(primitive.getJSONObject("attributes").getInt("TEXCOORD_0"));
+            int[] indices = lod.readIndices(raf, lod.accessor(primitive.getInt("indices")));
+            assertEquals(result.trianglesAfter * 3, indices.length);
+            assertEquals(position.count, uv.count);
+            for (int i : indices) assertTrue(i < position.count);
+            assertEquals(3, position.json.getJSONArray("min").length());
+
+            int imageView = lod.array("images").getJSONObject(0).getInt("bufferView");
+            assertTrue(Arrays.equals(IMAGE, lod.readView(raf, imageView).array()));
+        }
+        for (int i = 0; i < lod.array("bufferViews").length(); i++) {
+            assertEquals(0, lod.array("bufferViews").getJSONObject(i).getLong("byteOffset") % 4);
+        }
+    }
+
+    @Test
+    public void rewritesImagesWithoutTouchingGeometry() throws Exception {
+        GlbLodBuilder builder = new GlbLodBuilder(GlbFile.read(writeSphereGlb(null)));
+        byte[] smaller = {1, 2, 3, 4, 5};
+        builder.setImageRewriter((mimeType, data) -> new GlbLodBuilder.RewrittenImage("image/png", smaller));
+
+        File out = tmp.newFile();
+        GlbLodBuilder.Result result = builder.write(1f, out);
+        assertEquals(builder.triangleCount(), result.trianglesAfter);
+        assertEquals(1, result.imagesRewritten);
+        assertEquals(IMAGE.length - smaller.length, result.imageBytesSaved);
+
+        GlbFile copy = GlbFile.read(out);
+        assertEquals(3, copy.array("accessors").length());
+        assertEquals(4, copy.array("bufferViews").length()); // The old image view is dropped
+        JSONObject image = copy.array("images").getJSONObject(0);
+        assertEquals("image/png", image.getString("mimeType"));
+        try (RandomAccessFile raf = new RandomAccessFile(out, "r")) {
+            assertTrue(Arrays.equals(smaller, copy.readView(raf, image.getInt("bufferView")).array()));
+            int[] indices = copy.readIndices(raf, copy.accessor(2));
+            assertEquals(builder.triangleCount() * 3, indices.length);
+        }
+        assertFalse(copy.array("bufferViews").getJSONObject(image.getInt("bufferView")).has("target"));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesCompressedMeshes() throws Exception {
+        new GlbLodBuilder(GlbFile.read(writeSphereGlb("KHR_draco_mesh_compression")));
+    }
+}
@@ -0,0 +1,48 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Sizing rules for ImagePreparer: subsample as far as possible without dropping below the target.
+ */
+public class ImagePreparerTest {
+
+    @Test
+    public void fiftyMegapixelPhotoIsSubsampledToJustAboveTarget() {
+        // 8160x6144 -> 4080 long edge at 2x; 4x would give 2040 < 2048
+        assertEquals(2, ImagePreparer.sampleSizeFor(8160, 6144, 2048));
+        assertArrayEquals(new int[]{2048, 1542}, ImagePreparer.targetSize(8160, 6144, 2048));
+    }
+
+    @Test
+    public void twelveMegapixelPortraitKeepsAspect() {
+        assertEquals(1, ImagePreparer.sampleSizeFor(3024, 4032, 2048));
+        assertArrayEquals(new int[]{1536, 2048}, ImagePreparer.targetSize(3024, 4032, 2048));
+    }
+
+    @Test
+    public void smallImagesAreNeverUpscaled() {
+        assertEquals(1, ImagePreparer.sampleSizeFor(800, 600, 2048));
+        assertArrayEquals(new int[]{800, 600}, ImagePreparer.targetSize(800, 600, 2048));
+    }
+
+    @Test
+    public void largeSampleSizesArePowersOfTwo() {
+        assertEquals(8, ImagePreparer.sampleSizeFor(16384, 100, 2048));
+        assertEquals(4, ImagePreparer.sampleSizeFor(16383, 100, 2048));
+    }
+
+    @Test
+    public void optionsAreClampedAndDefaulted() {
+        ImagePreparer.Options options = ImagePreparer.Options.fromJson("{\"maxEdge\":10,\"quality\":150}");
+        assertEquals(256, options.maxEdge);
+        assertEquals(100, options.quality);
+        assertEquals(ImagePreparer.DEFAULT_MAX_BYTES, options.maxBytes);
+
+        ImagePreparer.Options defaults = ImagePreparer.Options.fromJson("not json");
+        assertEquals(ImagePreparer.DEFAULT_MAX_EDGE, defaults.maxEdge);
+        assertEquals(ImagePreparer.DEFAULT_QUALITY, defaults.quality);
+    }
+}
@@ -0,0 +1,53 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import co.nomiva.app.MemoryGovernor.Step;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Trim level to step mapping and the repeat debounce of MemoryGovernor.
+ */
+public class MemoryGovernorTest {
+
+    @Test
+    public void mapsTrimLevelsToSteps() {
+        assertNull(MemoryGovernor.stepFor(0));
+        assertEquals(Step.MODERATE, MemoryGovernor.stepFor(5));
+        assertEquals(Step.LOW, MemoryGovernor.stepFor(10));
+        assertEquals(Step.CRITICAL, MemoryGovernor.stepFor(15));
+        // UI hidden only releases GPU resources; caches are trimmed from BACKGROUND on
+        assertEquals(Step.HIDDEN, MemoryGovernor.stepFor(20));
+        assertEquals(Step.BACKGROUND, MemoryGovernor.stepFor(40));
+        assertEquals(Step.BACKGROUND, MemoryGovernor.stepFor(60));
+        assertEquals(Step.CRITICAL, MemoryGovernor.stepFor(80));
+    }
+
+    @Test
+    public void wireNamesAreLocaleIndependent() {
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals("critical", Step.CRITICAL.wireName());
+            assertEquals("hidden", Step.HIDDEN.wireName());
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    public void skipsRepeatsAndMilderStepsInsideTheWindow() {
+        assertFalse(MemoryGovernor.shouldSkip(Step.LOW, null, 0, 1_000));
+        assertTrue(MemoryGovernor.shouldSkip(Step.LOW, Step.LOW, 1_000, 2_000));
+        assertTrue(MemoryGovernor.shouldSkip(Step.MODERATE, Step.CRITICAL, 1_000, 2_000));
+        assertFalse(MemoryGovernor.shouldSkip(Step.CRITICAL, Step.LOW, 1_000, 2_000));
+        assertFalse(MemoryGovernor.shouldSkip(Step.LOW, Step.LOW, 1_000, 1_000 + MemoryGovernor.DEBOUNCE_MS));
+        // Hiding the UI right after a pressure step still releases the on-screen viewers
+        assertFalse(MemoryGovernor.shouldSkip(Step.HIDDEN, Step.CRITICAL, 1_000, 2_000));
+        assertTrue(MemoryGovernor.shouldSkip(Step.HIDDEN, Step.HIDDEN, 1_000, 2_000));
+        assertFalse(MemoryGovernor.shouldSkip(Step.MODERATE, Step.HIDDEN, 1_000, 2_000));
+    }
+}
@@ -0,0 +1,133 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Quadric simplification on a UV sphere (with a texture seam and split poles) and an open grid.
+ */
+public class MeshSimplifierTest {
+
+    // Outward-facing sphere with (segments + 1) columns so the u=0 and u=1 seam vertices
+    // are separate, like an exported, textured mesh
+    static float[][] uvSphere(int rings, int segments) {
+        int columns = segments + 1;
+        float[] positions = new float[(rings + 1) * columns * 3];
+        float[] uvs = new float[(rings + 1) * columns * 2];
+        for (int r = 0; r <= rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s <= segments; s++) {
+                double phi = 2 * Math.PI * (s % segments) / segments;
+                int v = r * columns + s;
+                positions[v * 3] = (float) (Math.sin(theta) * Math.cos(phi));
+                positions[v * 3 + 1] = (float) Math.cos(theta);
+                positions[v * 3 + 2] = (float) (Math.sin(theta) * Math.sin(phi));
+                uvs[v * 2] = (float) s / segments;
+                uvs[v * 2 + 1] = (float) r / rings;
+            }
+        }
+        int[] indices = new int[rings * segments * 6];
+        int n = 0;
+        for (int r = 0; r < rings; r++) {
+            for (int s = 0; s < segments; s++) {
+                int a = r * columns + s;
+                int b = a + columns;
+                indices[n++] = a;
+                indices[n++] = a + 1;
+                indices[n++] = b;
+                indices[n++] = a + 1;
+                indices[n++] = b + 1;
+                indices[n++] = b;
+            }
+        }
+        float[] indexFloats = new float[indices.length];
+        for (int i = 0; i < indices.length; i++) indexFloats[i] = indices[i];
+        return new float[][]{positions, uvs, indexFloats};
+    }
+
+    static int[] toInts(float[] values) {
+        int[] out = new int[values.length];
+        for (int i = 0; i < values.length; i++) out[i] = (int) values[i];
+        return out;
+    }
+
+    @Test
+    public void reducesASphereToTheTargetWithoutDegenerateTriangles() {
+        float[][] sphere = uvSphere(32, 64);
+        int[] indices = toInts(sphere[2]);
+        int target = indices.length / 3 / 4;
+
+        int[] result = MeshSimplifier.simplify(sphere[0], indices, target);
+
+        int triangles = result.length / 3;
+        assertTrue("got " + triangles, triangles <= target + 2 && triangles > target / 2);
+        int vertices = sphere[0].length / 3;
+        for (int t = 0; t < triangles; t++) {
+            int a = result[t * 3];
+            int b = result[t * 3 + 1];
+            int c = result[t * 3 + 2];
+            assertTrue(a >= 0 && a < vertices && b >= 0 && b < vertices && c >= 0 && c < vertices);
+            assertTrue(a != b && b != c && a != c);
+        }
+    }
+
+    @Test
+    public void neverStretchesATriangleAcrossTheTextureSeam() {
+        float[][] sphere = uvSphere(24, 48);
+        float[] uvs = sphere[1];
+
+        int[] result = MeshSimplifier.simplify(sphere[0], toInts(sphere[2]), 200);
+
+        for (int t = 0; t < result.length / 3; t++) {
+            float min = 1;
+            float max = 0;
+            for (int k = 0; k < 3; k++) {
+                float u = uvs[result[t * 3 + k] * 2];
+                min = Math.min(min, u);
+                max = Math.max(max, u);
+            }
+            assertTrue("triangle " + t + " spans u " + min + ".." + max, max - min < 0.5f);
+        }
+    }
+
+    @Test
+    public void keepsOpenBorders() {
+        int size = 20;
+        float[] positions = new float[(size + 1) * (size + 1) * 3];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int v = y * (size + 1) + x;
+                positions[v * 3] = x;
+                positions[v * 3 + 1] = y;
+            }
+        }
+        int[] indices = new int[size * size * 6];
+        int n = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int a = y * (size + 1) + x;
+                int b = a + size + 1;
+                indices[n++] = a;
+                indices[n++] = b;
+                indices[n++] = a + 1;
+                indices[n++] = a + 1;
+                indices[n++] = b;
+                indices[n++] = b + 1;
+            }
+        }
+
+        int[] result = MeshSimplifier.simplify(positions, indices, 10);
+
+        assertTrue(result.length / 3 < size * size * 2 / 4);
+        Set<Integer> used = new HashSet<>();
+        for (int i : result) used.add(i);
+        for (int x = 0; x <= size; x++) {
+            assertTrue(used.contains(x));
+            assertTrue(used.contains(size * (size + 1) + x));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+/**
+ * Histogram bucketing/percentiles and the registry's JSON snapshot and file rotation.
+ */
+public class MetricsRegistryTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void bucketsByUpperBound() {
+        assertEquals(0, LatencyHistogram.bucketFor(0));
+        assertEquals(0, LatencyHistogram.bucketFor(50));
+        assertEquals(1, LatencyHistogram.bucketFor(51));
+        assertEquals(4, LatencyHistogram.bucketFor(1_000));
+        assertEquals(LatencyHistogram.BOUNDS_US.length, LatencyHistogram.bucketFor(61_000_000));
+    }
+
+    @Test
+    public void percentilesReportBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) histogram.record(80);
+        for (int i = 0; i < 10; i++) histogram.record(4_000);
+        assertEquals(100, histogram.percentileUs(0.5));
+        assertEquals(100, histogram.percentileUs(0.9));
+        assertEquals(5_000, histogram.percentileUs(0.99));
+
+        histogram.record(90_000_000);
+        assertEquals(90_000_000, histogram.percentileUs(1.0));
+    }
+
+    @Test
+    public void snapshotsCountersAndLatency() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry(tmp.getRoot(), "1.0");
+        metrics.recordCall("isReady", MetricsRegistry.start());
+        metrics.recordCall("isReady", MetricsRegistry.start());
+        metrics.increment("ad.rewarded.emptyShow");
+
+        JSONObject json = metrics.toJson();
+        assertEquals("1.0", json.getString("version"));
+        assertEquals(2, json.getJSONObject("latency").getJSONObject("bridge.isReady").getLong("count"));
+        assertEquals(1, json.getJSONObject("counters").getLong("ad.rewarded.emptyShow"));
+    }
+
+    @Test
+    public void rotatesTheFlushFile() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry(tmp.getRoot(), "1.0");
+        metrics.recordMs("ad.rewarded.load", 1200);
+        File file = new File(tmp.getRoot(), "metrics/bridge_metrics.jsonl");
+        File rotated = new File(tmp.getRoot(), "metrics/bridge_metrics.jsonl.1");
+
+        while (file.length() < MetricsRegistry.MAX_FILE_BYTES) metrics.flush();
+        assertFalse(rotated.exists());
+        metrics.flush();
+        assertTrue(rotated.exists());
+        assertTrue(file.length() < MetricsRegistry.MAX_FILE_BYTES);
+    }
+}
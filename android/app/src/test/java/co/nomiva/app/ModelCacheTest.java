@@ -0,0 +1,92 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ModelCache against a local model server: bodies are stored once per content hash
+ * however many URLs lead to them, and downloads carry the WebView's session cookies.
+ */
+public class ModelCacheTest {
+
+    private static final int MODEL_BYTES = 1000;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String base;
+    private final List<String> cookiesSeen = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/m/", exchange -> {
+            cookiesSeen.add(String.valueOf(exchange.getRequestHeaders().getFirst("Cookie")));
+            // Every "same" model has identical bytes, whatever the rest of the path
+            byte[] body = new byte[MODEL_BYTES];
+            Arrays.fill(body, (byte) (exchange.getRequestURI().getPath().contains("same") ? 1 : 2));
+            exchange.getResponseHeaders().set("Content-Type", "model/gltf-binary");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/m/";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sameBytesUnderTwoUrlsAreStoredOnce() throws Exception {
+        File dir = tmp.newFolder();
+        ModelCache cache = new ModelCache(dir, 10L * 1024 * 1024, url -> "session=abc");
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        assertEquals(MODEL_BYTES, cache.prefetch(base + "same/a.glb", cancelled));
+        assertEquals(MODEL_BYTES, cache.prefetch(base + "same/b.glb?v=2", cancelled));
+        assertEquals(MODEL_BYTES, cache.prefetch(base + "other.glb", cancelled));
+        assertEquals(Arrays.asList("session=abc", "session=abc", "session=abc"), cookiesSeen);
+
+        File a = cache.getCachedFile(base + "same/a.glb");
+        assertNotNull(a);
+        assertEquals(a, cache.getCachedFile(base + "same/b.glb?v=2"));
+        assertNotEquals(a, cache.getCachedFile(base + "other.glb"));
+        JSONObject stats = cache.getStats();
+        assertEquals(3, stats.getInt("entries"));
+        assertEquals(2, stats.getInt("blobs"));
+        assertEquals(2 * MODEL_BYTES, stats.getLong("bytes"));
+        assertEquals(MODEL_BYTES, stats.getLong("dedupedBytes"));
+
+        // The index comes back the same after a restart
+        ModelCache reopened = new ModelCache(dir, 10L * 1024 * 1024, null);
+        assertEquals(a, reopened.getCachedFile(base + "same/b.glb?v=2"));
+        assertEquals(2, reopened.getStats().getInt("blobs"));
+        assertEquals(2 * MODEL_BYTES, reopened.getStats().getLong("bytes"));
+
+        // A blob goes only when the last URL using it does
+        reopened.clear();
+        assertEquals(0, reopened.getStats().getLong("bytes"));
+        assertFalse(a.exists());
+    }
+}
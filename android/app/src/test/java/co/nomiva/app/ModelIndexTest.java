@@ -0,0 +1,82 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk queries, indexing and persistence of ModelIndex, run on the calling thread.
+ */
+public class ModelIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final Map<String, File> local = new HashMap<>();
+
+    private ModelIndex newIndex(File filesDir) {
+        return new ModelIndex(filesDir, Runnable::run, local::get);
+    }
+
+    @Test
+    public void queryIndexesLocalModels() throws Exception {
+        File glb = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(glb, null);
+        File broken = tmp.newFile();
+        try (FileOutputStream out = new FileOutputStream(broken)) {
+            out.write("<html>Not found</html>".getBytes("UTF-8"));
+        }
+        local.put("https://cdn.example/a.glb", glb);
+        local.put("https://cdn.example/b.glb", broken);
+        ModelIndex index = newIndex(tmp.newFolder());
+        List<String> indexed = new ArrayList<>();
+        index.setListener((url, info) -> indexed.add(url));
+
+        JSONObject result = index.query(new JSONArray()
+                .put("https://cdn.example/a.glb").put("https://cdn.example/b.glb").put("https://cdn.example/c.glb"));
+
+        // Local files are measured from the query itself (here before it returns)
+        assertEquals("pending", result.getJSONObject("https://cdn.example/a.glb").getString("status"));
+        assertEquals("unknown", result.getJSONObject("https://cdn.example/c.glb").getString("status"));
+        assertEquals(2, indexed.size());
+
+        result = index.query(new JSONArray().put("https://cdn.example/a.glb").put("https://cdn.example/b.glb"));
+        JSONObject a = result.getJSONObject("https://cdn.example/a.glb");
+        assertEquals("ready", a.getString("status"));
+        assertTrue(a.getBoolean("valid"));
+        assertEquals(24 * 48 * 2, a.getLong("triangles"));
+        JSONObject b = result.getJSONObject("https://cdn.example/b.glb");
+        assertFalse(b.getBoolean("valid"));
+        assertTrue(b.has("error"));
+    }
+
+    @Test
+    public void unchangedFileIsNotMeasuredAgainAndIndexSurvivesRestart() throws Exception {
+        File glb = tmp.newFile();
+        GlbLodBuilderTest.writeSphereGlb(glb, null);
+        File filesDir = tmp.newFolder();
+        ModelIndex index = newIndex(filesDir);
+
+        index.index("https://cdn.example/a.glb", glb);
+        index.index("https://cdn.example/a.glb", glb);
+        assertEquals(1, index.getStats().getLong("indexed"));
+        assertEquals(1, index.getStats().getLong("unchanged"));
+
+        // Nothing local any more: the saved entry still answers
+        JSONObject info = newIndex(filesDir).query(new JSONArray().put("https://cdn.example/a.glb"))
+                .getJSONObject("https://cdn.example/a.glb");
+        assertEquals("ready", info.getString("status"));
+        assertEquals(24 * 48 * 2, info.getLong("triangles"));
+    }
+}
@@ -0,0 +1,47 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ModelStore after a restart: saved models are known before any background work runs.
+ */
+public class ModelStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void savedModelsAreFoundRightAfterColdStart() throws Exception {
+        File filesDir = tmp.newFolder();
+        File dir = new File(filesDir, "model-store");
+        assertTrue(dir.mkdirs());
+        try (Writer out = new FileWriter(new File(dir, "m1.glb"))) {
+            out.write("glTF");
+        }
+        try (Writer out = new FileWriter(new File(dir, "index.tsv"))) {
+            out.write("m1\tglb\t4\t1000\tsynced\t900\n");
+            // Listed but its file is gone
+            out.write("m2\tglb\t4\t2000\tsynced\t900\n");
+        }
+
+        // Nothing queued on the IO executor has run yet
+        List<Runnable> pending = new ArrayList<>();
+        ModelStore store = new ModelStore(filesDir, pending::add, null, null);
+
+        assertTrue(store.contains("m1", "glb"));
+        assertFalse(store.contains("m2", "glb"));
+        assertEquals(new File(dir, "m1.glb"), store.open("m1", "glb"));
+        assertNull(store.open("m1", "obj"));
+        assertEquals(1, store.getStats().getInt("models"));
+    }
+}
@@ -0,0 +1,226 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hint handling with a fake clock; downloads run when the test calls runFetches().
+ */
+public class PreloaderTest {
+
+    private static final String A = "https://cdn.example/a.glb";
+    private static final String B = "https://cdn.example/b.glb";
+    private static final String GENERATED = "https://api.example/api/proxyModel/t1?format=glb";
+
+    private long now = 0;
+    private boolean connected = true;
+    private boolean unmetered = true;
+    private boolean batteryLow = false;
+    private int adWarms = 0;
+    private final List<Runnable> fetches = new ArrayList<>();
+    private final List<String> fetched = new ArrayList<>();
+    private final Map<String, AtomicBoolean> flags = new HashMap<>();
+    private ScheduledThreadPoolExecutor timers;
+    private Preloader preloader;
+
+    @Before
+    public void setUp() {
+        timers = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                return super.schedule(command, 1, TimeUnit.HOURS);
+            }
+        };
+        Preloader.Fetcher fetcher = (url, cancelled) -> {
+            fetched.add(url);
+            flags.put(url, cancelled);
+            if (url.contains("broken")) throw new IOException("HTTP 404");
+            return 1000;
+        };
+        preloader = new Preloader(fetches::add, timers, fetcher, () -> adWarms++,
+                new BatchScheduler.Conditions() {
+                    @Override
+                    public boolean isConnected() {
+                        return connected;
+                    }
+
+                    @Override
+                    public boolean isUnmetered() {
+                        return unmetered;
+                    }
+
+                    @Override
+                    public boolean isBatteryLow() {
+                        return batteryLow;
+                    }
+                }, () -> now);
+    }
+
+    @After
+    public void tearDown() {
+        timers.shutdownNow();
+    }
+
+    private void runFetches() {
+        while (!fetches.isEmpty()) fetches.remove(0).run();
+    }
+
+    @Test
+    public void prefetchesOneAtATimeNewestFirst() throws Exception {
+        preloader.hintSection("assets");
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, A);
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, B);
+        assertEquals(1, fetches.size());
+
+        runFetches();
+        assertEquals(Arrays.asList(A, B), fetched);
+        assertEquals(2, preloader.getStats().getLong("completed"));
+    }
+
+    @Test
+    public void pressOutranksVisibleAndCancelsIt() throws Exception {
+        preloader.hintSection("assets");
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, A);
+        preloader.hintCard(Preloader.HINT_CARD_PRESS, B);
+        assertEquals(2, fetches.size());
+
+        fetches.remove(0).run();
+        assertTrue(flags.get(A).get());
+        // B, then A again: its hint is still fresh
+        runFetches();
+        assertEquals(Arrays.asList(A, B, A), fetched);
+        JSONObject stats = preloader.getStats();
+        assertEquals(1, stats.getLong("cancelled"));
+        assertEquals(2, stats.getLong("completed"));
+    }
+
+    @Test
+    public void staleHintsCancelTheirDownload() throws Exception {
+        preloader.hintSection("assets");
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, A);
+        fetches.remove(0).run();
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, B);
+        // B is in flight when the user leaves the section
+        assertEquals(1, fetches.size());
+        preloader.hintSection("account");
+        fetched.clear();
+        runFetches();
+        assertTrue(flags.get(B).get());
+
+        JSONObject stats = preloader.getStats();
+        assertEquals(1, stats.getLong("cancelled"));
+        assertEquals(1000, stats.getLong("bytesWasted"));
+        assertEquals(0, stats.getLong("candidates"));
+    }
+
+    @Test
+    public void hintsExpire() throws Exception {
+        preloader.hintSection("assets");
+        unmetered = false;
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, A);
+        assertTrue(fetches.isEmpty());
+
+        now = Preloader.VISIBLE_TTL_MS;
+        unmetered = true;
+        preloader.conditionsChanged();
+        assertTrue(fetches.isEmpty());
+        assertEquals(1, preloader.getStats().getLong("staleHints"));
+    }
+
+    @Test
+    public void guessesWaitForUnmeteredNetworksButPressesDoNot() {
+        unmetered = false;
+        preloader.hintCard(Preloader.HINT_CARD_VISIBLE, A);
+        assertTrue(fetches.isEmpty());
+        preloader.hintCard(Preloader.HINT_CARD_PRESS, B);
+        runFetches();
+        assertEquals(Arrays.asList(B), fetched);
+
+        connected = false;
+        preloader.hintGenerationDone(GENERATED);
+        assertTrue(fetches.isEmpty());
+        connected = true;
+        preloader.conditionsChanged();
+        runFetches();
+        assertEquals(Arrays.asList(B, GENERATED), fetched);
+    }
+
+    @Test
+    public void speculativeDownloadsStopAtTheBudget() {
+        for (int i = 0; i < 30; i++) {
+            preloader.hintCard(Preloader.HINT_CARD_VISIBLE, "https://cdn.example/" + i + ".glb");
+        }
+        runFetches();
+        long budgetModels = Preloader.SPECULATIVE_BUDGET_BYTES / 1000;
+        assertEquals(Math.min(30, budgetModels), fetched.size());
+    }
+
+    @Test
+    public void countsHitsLateLoadsAndMisses() throws Exception {
+        preloader.hintGenerationDone(GENERATED);
+        runFetches();
+        preloader.noteModelUsed(GENERATED, true);
+
+        preloader.hintCard(Preloader.HINT_CARD_PRESS, A);
+        preloader.noteModelUsed(A, false);
+        runFetches();
+
+        preloader.noteModelUsed(B, false);
+        preloader.noteModelUsed("https://cdn.example/seen.glb", true);
+
+        JSONObject stats = preloader.getStats();
+        assertEquals(1, stats.getLong("hits"));
+        assertEquals(1, stats.getLong("late"));
+        assertEquals(1, stats.getLong("misses"));
+        assertEquals(1.0, stats.getDouble("hitRate"), 0);
+        assertEquals(1000, stats.getLong("bytesUsed"));
+    }
+
+    @Test
+    public void unusedPrefetchesCountAsWaste() throws Exception {
+        preloader.hintCard(Preloader.HINT_CARD_PRESS, A);
+        runFetches();
+        now = Preloader.UNUSED_AFTER_MS;
+        preloader.noteModelUsed(A, true);
+
+        JSONObject stats = preloader.getStats();
+        assertEquals(0, stats.getLong("hits"));
+        assertEquals(1000, stats.getLong("bytesWasted"));
+    }
+
+    @Test
+    public void failedDownloadsAreNotRetriedUntilHintedAgain() throws Exception {
+        preloader.hintCard(Preloader.HINT_CARD_PRESS, "https://cdn.example/broken.glb");
+        runFetches();
+        assertEquals(1, preloader.getStats().getLong("failed"));
+        assertEquals(0, preloader.getStats().getLong("candidates"));
+    }
+
+    @Test
+    public void warmsAdsOnTheGenerateSectionAtMostEveryInterval() {
+        preloader.hintSection("generate");
+        preloader.hintGenerationNearlyDone();
+        assertEquals(1, adWarms);
+        now = Preloader.AD_WARM_INTERVAL_MS;
+        preloader.hintGenerationNearlyDone();
+        assertEquals(2, adWarms);
+        now += Preloader.AD_WARM_INTERVAL_MS;
+        preloader.hintSection("assets");
+        assertEquals(2, adWarms);
+    }
+}
@@ -0,0 +1,189 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThumbnailCache helpers, and its tiers against a local image server: promotion from
+ * disk to memory, hit counters, download coalescing and disk LRU eviction.
+ */
+public class ThumbnailCacheTest {
+
+    private static final int IMAGE_BYTES = 100;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch gate;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/img/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (gate != null) gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = image(exchange.getRequestURI().getPath());
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/img/";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    // A PNG-looking body that differs per path
+    private static byte[] image(String path) {
+        byte[] body = new byte[IMAGE_BYTES];
+        body[0] = (byte) 0x89;
+        body[1] = 'P';
+        body[2] = 'N';
+        body[3] = 'G';
+        Arrays.fill(body, 4, body.length, (byte) path.hashCode());
+        return body;
+    }
+
+    // Small enough for the memory tier unless `decoded` says otherwise
+    private ThumbnailCache cache(long diskMaxBytes, long decoded) {
+        return new ThumbnailCache(tmp.getRoot(), 1024 * 1024, diskMaxBytes, Runnable::run, null, bytes -> decoded);
+    }
+
+    @Test
+    public void memoryBudgetIsASixteenthOfHeapClassWithinBounds() {
+        assertEquals(16 * 1024 * 1024, ThumbnailCache.memoryBudgetBytes(256));
+        assertEquals(4 * 1024 * 1024, ThumbnailCache.memoryBudgetBytes(32));
+        assertEquals(24 * 1024 * 1024, ThumbnailCache.memoryBudgetBytes(1024));
+    }
+
+    @Test
+    public void sniffsCommonImageTypes() {
+        assertEquals("image/jpeg", ThumbnailCache.sniffType(new byte[]{(byte) 0xff, (byte) 0xd8, (byte) 0xff}));
+        assertEquals("image/png", ThumbnailCache.sniffType(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0d, 0x0a}));
+        assertEquals("image/webp", ThumbnailCache.sniffType("RIFF\0\0\0\0WEBPVP8 ".getBytes()));
+        assertEquals("image/gif", ThumbnailCache.sniffType("GIF89a".getBytes()));
+        assertEquals("image/avif", ThumbnailCache.sniffType("\0\0\0 ftypavif".getBytes()));
+        assertEquals("application/octet-stream", ThumbnailCache.sniffType(new byte[]{1, 2}));
+    }
+
+    @Test
+    public void parsesPrefetchListsAndIgnoresGarbage() {
+        assertEquals(Arrays.asList("https://a/1.jpg", "https://a/2.jpg"),
+                ThumbnailCache.parseUrls("[\"https://a/1.jpg\", \"https://a/2.jpg\"]"));
+        assertTrue(ThumbnailCache.parseUrls("nope").isEmpty());
+    }
+
+    @Test
+    public void promotesDiskHitsToMemoryAndCountsEachTier() throws Exception {
+        String url = base + "a.png";
+        assertArrayEquals(image("/img/a.png"), cache(1024 * 1024, 1000).get(url, false));
+
+        // A new instance (app restart) finds the image on disk only
+        ThumbnailCache restarted = cache(1024 * 1024, 1000);
+        assertArrayEquals(image("/img/a.png"), restarted.get(url, false));
+        assertArrayEquals(image("/img/a.png"), restarted.get(url, false));
+        // Prefetches don't count as hits
+        restarted.get(url, true);
+
+        JSONObject stats = restarted.getStats();
+        assertEquals(1, requests.get());
+        assertEquals(0, stats.getLong("misses"));
+        assertEquals(1, stats.getLong("diskHits"));
+        assertEquals(1, stats.getLong("memoryHits"));
+        assertEquals(2 * IMAGE_BYTES, stats.getLong("bytesFromCache"));
+        assertEquals(1, stats.getLong("memoryEntries"));
+        assertEquals(1.0, stats.getDouble("hitRate"), 0.001);
+    }
+
+    @Test
+    public void keepsLargeDecodedImagesOutOfMemory() throws Exception {
+        ThumbnailCache cache = cache(1024 * 1024, 8L * 1024 * 1024);
+        cache.get(base + "big.png", false);
+        cache.get(base + "big.png", false);
+
+        JSONObject stats = cache.getStats();
+        assertEquals(0, stats.getLong("memoryEntries"));
+        assertEquals(1, stats.getLong("diskHits"));
+    }
+
+    @Test
+    public void coalescesConcurrentDownloadsOfOneUrl() throws Exception {
+        ThumbnailCache cache = cache(1024 * 1024, 1000);
+        gate = new CountDownLatch(1);
+        String url = base + "slow.png";
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> first = pool.submit(() -> cache.get(url, false));
+            Future<byte[]> second = pool.submit(() -> cache.get(url, true));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getStats().getLong("coalesced") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            gate.countDown();
+
+            assertArrayEquals(image("/img/slow.png"), first.get(5, TimeUnit.SECONDS));
+            assertArrayEquals(image("/img/slow.png"), second.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        JSONObject stats = cache.getStats();
+        assertEquals(1, requests.get());
+        assertEquals(1, stats.getLong("coalesced"));
+        assertEquals(IMAGE_BYTES, stats.getLong("bytesFromNetwork"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFromDisk() throws Exception {
+        // Room for two images; nothing fits the memory tier, so every read goes to disk
+        ThumbnailCache cache = cache(2 * IMAGE_BYTES + IMAGE_BYTES / 2, 0);
+        cache.get(base + "a.png", false);
+        cache.get(base + "b.png", false);
+        cache.get(base + "a.png", false);
+        cache.get(base + "c.png", false);
+
+        JSONObject stats = cache.getStats();
+        assertEquals(2, stats.getLong("diskEntries"));
+        assertEquals(2 * IMAGE_BYTES, stats.getLong("diskBytes"));
+        assertFalse(new File(new File(tmp.getRoot(), "thumbnails"),
+                ModelCache.keyFor(base + "b.png") + ".img").exists());
+
+        // a and c are still cached; b has to be downloaded again
+        cache.get(base + "a.png", false);
+        cache.get(base + "c.png", false);
+        assertEquals(3, requests.get());
+        cache.get(base + "b.png", false);
+        assertEquals(4, requests.get());
+    }
+}
@@ -0,0 +1,259 @@
+package co.nomiva.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UploadEngine against an in-process tus server: chunking, resuming after a failed
+ * chunk from the server's offset, waiting for a network, resuming after a restart and
+ * giving up only after failures in a row.
+ */
+public class UploadEngineTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String endpoint;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    // PATCH number (1-based) that stores half its body and then answers 500
+    private volatile int failPatch = -1;
+    private int patches = 0;
+
+    private volatile boolean connected = true;
+    private final BatchScheduler.Conditions conditions = new BatchScheduler.Conditions() {
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean isUnmetered() {
+            return connected;
+        }
+
+        @Override
+        public boolean isBatteryLow() {
+            return false;
+        }
+    };
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile String completedLocation;
+    private final List<JSONObject> progress = Collections.synchronizedList(new ArrayList<>());
+    private final UploadEngine.Listener listener = new UploadEngine.Listener() {
+        @Override
+        public void onUploadProgress(JSONObject p) {
+            progress.add(p);
+        }
+
+        @Override
+        public void onUploadComplete(String id, String location) {
+            completedLocation = location;
+            done.countDown();
+        }
+
+        @Override
+        public void onUploadFailed(String id, String error) {
+            done.countDown();
+        }
+    };
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/files", this::handle);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/files";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String override = exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override");
+        if (override != null) method = override;
+        byte[] body = readAll(exchange.getRequestBody());
+        requests.add(method + " " + exchange.getRequestHeaders().getFirst("Upload-Offset"));
+
+        if (method.equals("POST")) {
+            exchange.getResponseHeaders().set("Location", "/files/1");
+            exchange.sendResponseHeaders(201, -1);
+        } else if (method.equals("HEAD")) {
+            exchange.getResponseHeaders().set("Upload-Offset", String.valueOf(received.size()));
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Offset"));
+            if (offset != received.size()) {
+                exchange.sendResponseHeaders(409, -1);
+            } else if (++patches == failPatch) {
+                received.write(body, 0, body.length / 2);
+                exchange.sendResponseHeaders(500, -1);
+            } else {
+                received.write(body, 0, body.length);
+                exchange.getResponseHeaders().set("Upload-Offset", String.valueOf(received.size()));
+                exchange.sendResponseHeaders(204, -1);
+            }
+        }
+        exchange.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private File modelFile(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(7).nextBytes(bytes);
+        File file = tmp.newFile("model.glb");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private byte[] contents(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return readAll(in);
+        }
+    }
+
+    @Test
+    public void uploadsFileInChunks() throws Exception {
+        File file = modelFile(2 * 1024 * 1024 + 100);
+        UploadEngine engine = new UploadEngine(tmp.newFolder(), conditions, url -> null, listener);
+
+        engine.enqueue("m1.glb", file, endpoint, new JSONObject(), false);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(endpoint + "/1", completedLocation);
+        assertArrayEquals(contents(file), received.toByteArray());
+        assertEquals(Arrays.asList("POST null", "PATCH 0", "PATCH 1048576", "PATCH 2097152"), requests);
+        assertEquals(3, progress.size());
+        assertEquals(1, engine.getStats().getLong("completed"));
+        engine.shutdown();
+    }
+
+    @Test
+    public void resumesFromServerOffsetAfterFailedChunk() throws Exception {
+        failPatch = 2;
+        File file = modelFile(2 * 1024 * 1024);
+        UploadEngine engine = new UploadEngine(tmp.newFolder(), conditions, url -> null, listener);
+
+        engine.enqueue("m1.glb", file, endpoint, new JSONObject(), false);
+
+        assertTrue(done.await(15, TimeUnit.SECONDS));
+        assertArrayEquals(contents(file), received.toByteArray());
+        // Half of the failed chunk was kept, so only the other half is sent again
+        int kept = 1024 * 1024 + 512 * 1024;
+        assertEquals(Arrays.asList("POST null", "PATCH 0", "PATCH 1048576", "HEAD null", "PATCH " + kept), requests);
+        JSONObject stats = engine.getStats();
+        assertEquals(1, stats.getLong("retries"));
+        assertEquals(2 * 1024 * 1024 - 512 * 1024, stats.getLong("bytesSent"));
+        engine.shutdown();
+    }
+
+    @Test
+    public void waitsForNetworkAndResumesAfterRestart() throws Exception {
+        connected = false;
+        File file = modelFile(1000);
+        File filesDir = tmp.newFolder();
+        UploadEngine first = new UploadEngine(filesDir, conditions, url -> null, listener);
+        first.enqueue("m1.glb", file, endpoint, new JSONObject(), false);
+        Thread.sleep(100);
+        assertTrue(requests.isEmpty());
+        first.shutdown();
+
+        // A new process finds the persisted upload and sends it once there is a network
+        UploadEngine second = new UploadEngine(filesDir, conditions, url -> null, listener);
+        second.restorePending();
+        Thread.sleep(100);
+        assertTrue(requests.isEmpty());
+        connected = true;
+        second.conditionsChanged();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertArrayEquals(contents(file), received.toByteArray());
+        second.shutdown();
+    }
+
+    @Test
+    public void onlyFailuresInARowCountTowardsGivingUp() throws Exception {
+        connected = false;
+        File file = modelFile(2 * 1024 * 1024);
+        File filesDir = tmp.newFolder();
+        UploadEngine first = new UploadEngine(filesDir, conditions, url -> null, listener);
+        first.enqueue("m1.glb", file, endpoint, new JSONObject(), false);
+        first.shutdown();
+
+        // Earlier sessions already retried as often as a single failure streak may
+        File state = findState(filesDir);
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(state)) {
+            props.load(in);
+        }
+        props.setProperty("retries", "10");
+        try (OutputStream out = new FileOutputStream(state)) {
+            props.store(out, null);
+        }
+
+        failPatch = 2;
+        connected = true;
+        UploadEngine second = new UploadEngine(filesDir, conditions, url -> null, listener);
+        second.restorePending();
+
+        assertTrue(done.await(15, TimeUnit.SECONDS));
+        assertEquals(endpoint + "/1", completedLocation);
+        assertArrayEquals(contents(file), received.toByteArray());
+        assertEquals(11, progress.get(progress.size() - 1).getInt("retries"));
+        second.shutdown();
+    }
+
+    private static File findState(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) return null;
+        for (File f : files) {
+            if (f.isDirectory()) {
+                File found = findState(f);
+                if (found != null) return found;
+            } else if (f.getName().endsWith(".properties")) {
+                return f;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package co.nomiva.app;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApiCache against a local mock of /api: fresh hits (alone and from four threads) next to
+ * the upstream round trip a hit saves. The clock is frozen so entries stay fresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiCacheBenchmark {
+
+    private HttpServer server;
+    private ApiCache cache;
+    private String url;
+    private Map<String, String> headers;
+    private Map<String, String> noCacheHeaders;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Roughly the size of an /auth/liked-assets answer
+        StringBuilder json = new StringBuilder("{\"assets\":[");
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":\"asset-").append(i).append("\",\"name\":\"Model ").append(i)
+                    .append("\",\"thumbnail\":\"https://example.com/thumbs/").append(i).append(".jpg\"}");
+        }
+        byte[] body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+        cache = new ApiCache(base, "http://localhost", Runnable::run, u -> "session=benchmark", null, () -> 1_000_000L);
+        url = base + "/auth/liked-assets";
+        headers = new HashMap<>();
+        headers.put("Authorization", "Bearer benchmark");
+        noCacheHeaders = new HashMap<>(headers);
+        noCacheHeaders.put("Cache-Control", "no-cache");
+        cache.get(url, headers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public ApiCache.Response freshHit() throws IOException {
+        return cache.get(url, headers);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ApiCache.Response freshHitContended() throws IOException {
+        return cache.get(url, headers);
+    }
+
+    @Benchmark
+    public ApiCache.Response upstream() throws IOException {
+        return cache.get(url, noCacheHeaders);
+    }
+}
@@ -0,0 +1,77 @@
+package co.nomiva.app;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of what JavascriptInterface methods return: the small JSON answers (ad state,
+ * a latency histogram from getMetrics) and base64 for binary payloads. java.util.Base64
+ * stands in for android.util.Base64 (same output with NO_WRAP); it is the cost the
+ * /_native/blobs/ transport avoids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgePayloadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Binary {
+        @Param({"65536", "1048576", "8388608"})
+        public int size;
+
+        byte[] bytes;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bytes = new byte[size];
+            new Random(size).nextBytes(bytes);
+        }
+    }
+
+    private AdState adState;
+    private LatencyHistogram histogram;
+
+    @Setup
+    public void setUp() {
+        adState = new AdState("rewarded");
+        adState.set(AdState.Phase.READY, 2);
+        histogram = new LatencyHistogram();
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record((long) (Math.exp(random.nextGaussian() * 1.5 + 6)));
+        }
+    }
+
+    @Benchmark
+    public String adStateJson() throws JSONException {
+        return adState.snapshot().toJson().toString();
+    }
+
+    @Benchmark
+    public String histogramJson() throws JSONException {
+        return histogram.toJson(60_000).toString();
+    }
+
+    @Benchmark
+    public String base64(Binary binary) {
+        return Base64.getEncoder().encodeToString(binary.bytes);
+    }
+}
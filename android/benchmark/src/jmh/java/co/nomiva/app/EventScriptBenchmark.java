@@ -0,0 +1,58 @@
+package co.nomiva.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing one frame's batch of native events, as NativeEventChannel
+ * does before evaluateJavascript().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventScriptBenchmark {
+
+    @Param({"1", "16", "128"})
+    public int batchSize;
+
+    private JSONObject progress;
+
+    @Setup
+    public void setUp() throws JSONException {
+        JSONObject response = new JSONObject();
+        response.put("status", "IN_PROGRESS");
+        response.put("progress", 42);
+        response.put("task_id", "0190b3c4-7f1e-7a8b-9c2d-3e4f5a6b7c8d");
+        progress = new JSONObject();
+        progress.put("taskId", "0190b3c4-7f1e-7a8b-9c2d-3e4f5a6b7c8d");
+        progress.put("status", "IN_PROGRESS");
+        progress.put("progress", 42);
+        progress.put("response", response);
+    }
+
+    @Benchmark
+    public String dispatch() throws JSONException {
+        JSONArray batch = new JSONArray();
+        for (int i = 0; i < batchSize; i++) {
+            batch.put(EventScript.event("onGenerationProgress", progress, i));
+        }
+        return EventScript.dispatch(batch);
+    }
+}
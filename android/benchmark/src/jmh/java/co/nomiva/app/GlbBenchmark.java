@@ -0,0 +1,74 @@
+package co.nomiva.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GLB parsing, LOD generation and OBJ/STL export on a real model: the bundled dog6.glb,
+ * or the file named by -Dnomiva.glb.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlbBenchmark {
+
+    private File model;
+    private File outDir;
+    private GlbFile glb;
+
+    @Setup
+    public void setUp() throws IOException {
+        model = new File(System.getProperty("nomiva.glb"));
+        glb = GlbFile.read(model);
+        outDir = Files.createTempDirectory("glb-benchmark").toFile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = outDir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        outDir.delete();
+    }
+
+    @Benchmark
+    public GlbFile parse() throws IOException {
+        return GlbFile.read(model);
+    }
+
+    @Benchmark
+    public GlbLodBuilder.Result lodHalf() throws IOException {
+        return new GlbLodBuilder(glb).write(0.5f, new File(outDir, "lod.glb"));
+    }
+
+    @Benchmark
+    public GlbLodBuilder.Result lodQuarter() throws IOException {
+        return new GlbLodBuilder(glb).write(0.25f, new File(outDir, "lod.glb"));
+    }
+
+    @Benchmark
+    public GlbExporter.Result exportObj() throws IOException {
+        return new GlbExporter(glb).writeObj(outDir, "model");
+    }
+
+    @Benchmark
+    public GlbExporter.Result exportStl() throws IOException {
+        return new GlbExporter(glb).writeStl(new File(outDir, "model.stl"));
+    }
+}
@@ -0,0 +1,44 @@
+package co.nomiva.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile for the release build: a cold start up to the point the
+ * WebView has loaded the app shell. Run with ./gradlew :app:generateBaselineProfile.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final long PAGE_TIMEOUT_MS = 15_000;
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void startup() {
+        rule.collect(
+                StartupBenchmark.PACKAGE,
+                15,
+                3,
+                null,
+                true,
+                false,
+                line -> true,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    scope.getDevice().wait(Until.hasObject(By.clazz("android.webkit.WebView")), PAGE_TIMEOUT_MS);
+                    scope.getDevice().waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}
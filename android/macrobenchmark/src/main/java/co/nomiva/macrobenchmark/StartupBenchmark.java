@@ -0,0 +1,57 @@
+package co.nomiva.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * MainActivity cold start, without precompilation and with the baseline profile, so the
+ * profile's gain shows up in the same report.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    static final String PACKAGE = "co.nomiva.app";
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartNoCompilation() {
+        coldStart(new CompilationMode.None());
+    }
+
+    @Test
+    public void coldStartBaselineProfile() {
+        coldStart(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void coldStart(CompilationMode compilationMode) {
+        rule.measureRepeated(
+                PACKAGE,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -61,6 +61,8 @@ app.use((req, res, next) => {
         res.header('Access-Control-Allow-Methods', 'GET, POST, PUT, DELETE, OPTIONS, HEAD');
         res.header('Access-Control-Allow-Headers', 'Origin, X-Requested-With, Content-Type, Accept, Authorization, Cookie, Cache-Control, Pragma, X-Cache-Control, If-Modified-Since, If-None-Match');
         res.header('Access-Control-Expose-Headers', 'Content-Disposition, Content-Type, Content-Length');
+        // Let the WebView reuse preflights; otherwise every authenticated GET pays an extra round trip
+        res.header('Access-Control-Max-Age', '7200');
         
         if (req.method === 'OPTIONS') {
             console.log('✅ Handling Capacitor OPTIONS request from:', origin);
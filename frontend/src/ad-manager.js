@@ -160,10 +160,46 @@ class AdManager {
     setupAndroidCallbacks() {
         // These will be called from native Android code
         window.AdManagerAndroidCallbacks = {
+            // Single entry point for native events: MainActivity delivers everything
+            // raised within one frame as a JSON batch of {type, data, ts}
+            dispatch: (batch) => {
+                const callbacks = window.AdManagerAndroidCallbacks;
+                batch.forEach(({ type, data }) => {
+                    try {
+                        switch (type) {
+                            case 'log':
+                                console.log(data.message);
+                                break;
+                            case 'onAdFailed':
+                                callbacks.onAdFailed(data.error);
+                                break;
+                            case 'onAdStateChanged':
+                                callbacks.onAdStateChanged(data.format, data.state, data.ready);
+                                break;
+                            default:
+                                if (typeof callbacks[type] === 'function') {
+                                    callbacks[type](data);
+                                }
+                        }
+                    } catch (error) {
+                        console.error('❌ Native event handler failed:', type, error);
+                    }
+                });
+                // Let other modules listen for native events too
+                window.dispatchEvent(new CustomEvent('androidnative', { detail: batch }));
+            },
             onAdLoaded: () => {
                 console.log('✅ Android ad loaded');
                 this.adReady = true;
             },
+            // Pushed on every native ad lifecycle transition (IDLE/LOADING/READY/SHOWING/FAILED)
+            onAdStateChanged: (format, state, readyCount) => {
+                if (format === 'rewarded') {
+                    this.adReady = readyCount > 0;
+                }
+                this.androidAdState = this.androidAdState || {};
+                this.androidAdState[format] = { state, readyCount };
+            },
             onAdCompleted: () => {
                 console.log('✅ Android ad completed');
                 this.isShowingAd = false;
@@ -676,6 +676,7 @@ function renderAssets() {
         `;
     } else {
         assetsGrid.innerHTML = filteredModels.map(createAssetCard).join('');
+        showModelInfo(assetsGrid);
     }
     
     if (assetsGrid) assetsGrid.style.display = 'grid';
@@ -683,6 +684,26 @@ function renderAssets() {
     console.log(`📊 Rendered ${filteredModels.length} assets`);
 }
 
+// Measured triangles / GPU memory for models stored on this device. Only inside the
+// Android app (model-info.js); in a browser the cards stay as they are.
+function showModelInfo(assetsGrid) {
+    if (!window.ModelInfo || !window.ModelInfo.isAvailable()) return;
+    
+    const urlFor = (model) => model.modelFiles?.glb?.url || model.modelFile?.url
+        || (model.meshyTaskId ? `${getApiBaseUrl()}/proxyModel/${model.meshyTaskId}?format=glb` : null);
+    const urls = filteredModels.map(urlFor).filter(Boolean);
+    const infos = window.ModelInfo.query(urls);
+    
+    filteredModels.forEach(model => {
+        const text = window.ModelInfo.summarize(infos[urlFor(model)]);
+        const stats = assetsGrid.querySelector(`.asset-card[data-asset-id="${model._id}"] .asset-stats`);
+        if (!text || !stats) return;
+        const span = document.createElement('span');
+        span.textContent = `📐 ${text}`;
+        stats.appendChild(span);
+    });
+}
+
 // ENHANCED: Create asset card with edit, delete, and upload status buttons
 function createAssetCard(model) {
     // Get image URL with fallback priority
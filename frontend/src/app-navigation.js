@@ -35,6 +35,12 @@ class AppNavigation {
             showLikedModels: false
         };
         
+        // Viewers released under memory pressure while the app was in the background
+        // come back when it returns, not only on the next navigation
+        document.addEventListener('visibilitychange', () => {
+            if (!document.hidden) this.resumeReleasedViewers(this.currentSection);
+        });
+        
         console.log('🚀 AppNavigation initialized with public assets access');
     }
 
@@ -314,6 +320,18 @@ class AppNavigation {
         }, 100);
         
         this.currentSection = sectionName;
+        this.reportCurrentSection(sectionName);
+    }
+
+    /**
+     * Tells the Android shell which section is showing, so it can reopen it
+     * after a WebView renderer crash or process death
+     * @param {string} sectionName - Section now on screen
+     */
+    reportCurrentSection(sectionName) {
+        if (window.AndroidAds && window.AndroidAds.setCurrentSection) {
+            window.AndroidAds.setCurrentSection(sectionName);
+        }
     }
 
     /**
@@ -413,6 +431,14 @@ class AppNavigation {
     init(initialSection = null) {
         console.log('🎯 Setting up app navigation with public assets access...');
         
+        // Coming back from a renderer crash: reopen the section that was showing
+        if (!initialSection && window.AndroidAds && window.AndroidAds.consumeRestoreSection) {
+            initialSection = window.AndroidAds.consumeRestoreSection() || null;
+            if (initialSection) {
+                console.log('♻️ Restoring section after WebView restart:', initialSection);
+            }
+        }
+        
         // Clear any stuck redirects if not authenticated
         const isAuthenticated = window.authManager?.isAuthenticated();
         if (!isAuthenticated) {
@@ -433,6 +459,7 @@ class AppNavigation {
             protectedSections, 
             publicSections
         );
+        this.reportCurrentSection(sectionToLoad);
         
         // Load initial section
         this.loadSectionContent(sectionToLoad).then(() => {
@@ -1022,6 +1049,7 @@ class AppNavigation {
             const assetCard = this.createLikedModelCard(asset);
             grid.appendChild(assetCard);
         });
+        this.prefetchNextThumbnails(this.likedAssetsData.filteredAssets, endIndex, this.likedAssetsData.assetsPerPage);
         
         // Update load more button
         const loadMoreBtn = document.getElementById('likedModelsLoadMore');
@@ -1087,6 +1115,7 @@ class AppNavigation {
             });
         }
         
+        this.watchCardForPreload(assetCard, asset);
         return assetCard;
     }
 
@@ -1562,6 +1591,9 @@ class AppNavigation {
             case 'downloads':
                 filtered.sort((a, b) => (b.downloads || 0) - (a.downloads || 0));
                 break;
+            case 'lightest':
+                filtered = this.sortByGpuMemory(filtered);
+                break;
             case 'recent':
             default:
                 filtered.sort((a, b) => new Date(b.createdAt) - new Date(a.createdAt));
@@ -1572,6 +1604,140 @@ class AppNavigation {
         this.renderAssetsGrid(clearExisting);
     }
 
+    /**
+     * Orders assets by the GPU memory their model needs (model-info.js), lightest first;
+     * models not measured on this device follow, most recent first
+     * @param {Array} assets - Filtered assets
+     * @returns {Array} Sorted assets
+     */
+    sortByGpuMemory(assets) {
+        const recent = assets.slice().sort((a, b) => new Date(b.createdAt) - new Date(a.createdAt));
+        if (!window.ModelInfo || !window.ModelInfo.isAvailable()) return recent;
+        
+        const infos = window.ModelInfo.query(recent.map(asset => this.getAssetModelUrl(asset)).filter(Boolean));
+        const gpuBytes = (asset) => {
+            const info = infos[this.getAssetModelUrl(asset)];
+            return info && info.valid ? info.gpuBytes : Infinity;
+        };
+        return recent.sort((a, b) => {
+            const diff = gpuBytes(a) - gpuBytes(b);
+            return isNaN(diff) ? 0 : diff;
+        });
+    }
+
+    /**
+     * Adds triangle count and GPU memory (model-info.js) under the stats of cards whose
+     * model is stored on the device; one bridge call for the whole batch
+     * @param {Array<{card: HTMLElement, asset: Object}>} items - Rendered cards
+     */
+    showModelInfo(items) {
+        if (!window.ModelInfo || !window.ModelInfo.isAvailable()) return;
+        
+        const urls = [];
+        items.forEach(({ card, asset }) => {
+            const url = this.getAssetModelUrl(asset);
+            if (!url) return;
+            card.dataset.infoUrl = new URL(url, window.location.href).href;
+            urls.push(card.dataset.infoUrl);
+        });
+        const infos = window.ModelInfo.query(urls);
+        items.forEach(({ card }) => {
+            if (card.dataset.infoUrl) this.setCardModelInfo(card, infos[card.dataset.infoUrl]);
+        });
+        
+        if (!this.modelInfoListener) {
+            // Models that were still being measured
+            this.modelInfoListener = window.ModelInfo.onUpdate((url, info) => {
+                document.querySelectorAll('.mobile-asset-card').forEach(card => {
+                    if (card.dataset.infoUrl === url) this.setCardModelInfo(card, info);
+                });
+            });
+        }
+    }
+
+    /**
+     * @param {HTMLElement} card - Asset card
+     * @param {Object} info - Model info from ModelInfo.query()
+     */
+    setCardModelInfo(card, info) {
+        const text = window.ModelInfo.summarize(info);
+        if (!text) return;
+        
+        let line = card.querySelector('.asset-model-info');
+        if (!line) {
+            line = document.createElement('small');
+            line.className = 'asset-model-info';
+            line.style.cssText = 'display: block; margin-top: 0.25rem; opacity: 0.7;';
+            const stats = card.querySelector('small');
+            (stats ? stats.parentElement : card).appendChild(line);
+        }
+        line.textContent = text;
+    }
+
+    /**
+     * Asks the native thumbnail cache (Android) to fetch the next page's preview images
+     * so "Load More" renders from cache
+     * @param {Array} assets - Filtered assets
+     * @param {number} fromIndex - First index of the next page
+     * @param {number} count - Page size
+     */
+    prefetchNextThumbnails(assets, fromIndex, count) {
+        if (!window.AndroidAds || !window.AndroidAds.prefetchThumbnails) return;
+        
+        const urls = assets.slice(fromIndex, fromIndex + count)
+            .map(asset => asset.originalImage?.url || asset.inputImage?.url || asset.previewImage?.url)
+            .filter(Boolean);
+        if (urls.length > 0) {
+            window.AndroidAds.prefetchThumbnails(JSON.stringify(urls));
+        }
+    }
+
+    /**
+     * Model URL the asset viewer loads for an asset (same order as MobileAssetViewer)
+     * @param {Object} asset - Asset data
+     * @returns {string|null} Model URL
+     */
+    getAssetModelUrl(asset) {
+        if (asset.modelFiles?.glb?.url) return asset.modelFiles.glb.url;
+        if (asset.modelFile?.url) return asset.modelFile.url;
+        if (asset.meshyTaskId) return `${this.getApiBaseUrl()}/proxyModel/${asset.meshyTaskId}?format=glb`;
+        return null;
+    }
+
+    /**
+     * Tells the Android preloader (AndroidAds.preloadHints) when an asset card is on screen
+     * or pressed, so the model the user opens next may already be downloaded
+     * @param {HTMLElement} card - Asset card
+     * @param {Object} asset - Asset data
+     */
+    watchCardForPreload(card, asset) {
+        if (!window.AndroidAds || !window.AndroidAds.preloadHints || !window.IntersectionObserver) return;
+        
+        const url = this.getAssetModelUrl(asset);
+        if (!url) return;
+        card.dataset.modelUrl = new URL(url, window.location.href).href;
+        
+        if (!this.preloadObserver) {
+            // One bridge call per batch of visibility changes
+            this.preloadObserver = new IntersectionObserver((entries) => {
+                // Cards removed by a re-render report once as hidden, then are dropped
+                entries.forEach(entry => {
+                    if (!entry.target.isConnected) this.preloadObserver.unobserve(entry.target);
+                });
+                window.AndroidAds.preloadHints(JSON.stringify(entries.map(entry => ({
+                    type: entry.isIntersecting ? 'card-visible' : 'card-hidden',
+                    url: entry.target.dataset.modelUrl
+                }))));
+            }, { threshold: 0.6 });
+        }
+        this.preloadObserver.observe(card);
+        
+        // A press comes a few hundred milliseconds before the click opens the viewer
+        card.addEventListener('touchstart', () => {
+            window.AndroidAds.preloadHints(JSON.stringify([{ type: 'card-press', url: card.dataset.modelUrl }]));
+        }, { passive: true });
+    }
+
     /**
      * Renders the assets grid
      * @param {boolean} clearExisting - Whether to clear existing items
@@ -1597,10 +1763,13 @@ class AppNavigation {
                 </div>
             `;
         } else {
-            assetsToShow.forEach(asset => {
+            const rendered = assetsToShow.map(asset => {
                 const assetCard = this.createMobileAssetCard(asset);
                 grid.appendChild(assetCard);
+                return { card: assetCard, asset };
             });
+            this.showModelInfo(rendered);
+            this.prefetchNextThumbnails(this.assetsData.filteredAssets, endIndex, this.assetsData.assetsPerPage);
         }
         
         // Update load more button
@@ -1671,6 +1840,7 @@ class AppNavigation {
             });
         }
         
+        this.watchCardForPreload(assetCard, asset);
         return assetCard;
     }
 
@@ -2006,10 +2176,23 @@ class AppNavigation {
             document.body.classList.remove('reduce-animations');
         }
         
+        this.resumeReleasedViewers(sectionName);
+    }
+
+    /**
+     * Rebuilds the 3D viewers of a section if they were released under memory pressure
+     * @param {string} sectionName - Section on screen
+     */
+    resumeReleasedViewers(sectionName) {
         // Control 3D rendering for home section
         if (sectionName === 'home' && window.Mobile3D) {
             window.Mobile3D.resume && window.Mobile3D.resume();
         }
+        
+        // Rebuild the result viewer if it was released under memory pressure
+        if (sectionName === 'generate' && window.generateController) {
+            window.generateController.resumeViewer();
+        }
     }
 
     /**
@@ -2506,6 +2689,7 @@ class AppNavigation {
                                 <option value="popular">Popular</option>
                                 <option value="name">Name</option>
                                 <option value="downloads">Downloads</option>
+                                ${window.ModelInfo && window.ModelInfo.isAvailable() ? '<option value="lightest">Lightest</option>' : ''}
                             </select>
                             <svg width="16" height="16" viewBox="0 0 24 24" fill="none" stroke="currentColor" stroke-width="2" 
                                  style="position: absolute; right: 0.8rem; top: 50%; transform: translateY(-50%); color: rgba(255, 255, 255, 0.4); pointer-events: none;">
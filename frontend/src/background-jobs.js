@@ -0,0 +1,102 @@
+/**
+ * background-jobs.js
+ *
+ * Deferrable page work (sync, refreshes, uploads) scheduled through the Android
+ * app's batch scheduler, so it runs together with other background work and after
+ * the page's own network traffic instead of on separate timers:
+ * - schedule() registers a handler for a job id and hands the job to the app
+ * - the app fires 'onScheduledJob' on the androidnative event when a window opens
+ * - in a browser, jobs fall back to setTimeout / setInterval
+ */
+
+(function() {
+    'use strict';
+
+    const DEFAULT_MAX_DELAY_MS = 60000;
+
+    const BackgroundJobs = {
+        handlers: new Map(),
+        timers: new Map()
+    };
+
+    /**
+     * @returns {boolean} Whether the app schedules jobs natively
+     */
+    function isNative() {
+        return !!(window.AndroidAds && window.AndroidAds.scheduleJob);
+    }
+
+    /**
+     * Schedules a job; scheduling the same id again before it runs merges the two
+     * @param {Object} spec - { id, tag, priority: 'high'|'normal'|'low',
+     *     network: 'none'|'any'|'unmetered', delayMs, maxDelayMs, periodMs, payload }
+     * @param {Function} handler - Called with the payload when the job runs
+     * @returns {boolean} false when the job could not be scheduled
+     */
+    function schedule(spec, handler) {
+        if (!spec || !spec.id) return false;
+        BackgroundJobs.handlers.set(spec.id, handler);
+
+        if (isNative()) {
+            return window.AndroidAds.scheduleJob(JSON.stringify(spec));
+        }
+
+        // Browser: run at the latest allowed time, or every period
+        if (BackgroundJobs.timers.has(spec.id)) return true;
+        const run = () => runHandler(spec.id, spec.payload, 'timer');
+        const timer = spec.periodMs > 0
+            ? setInterval(run, spec.periodMs)
+            : setTimeout(() => {
+                BackgroundJobs.timers.delete(spec.id);
+                run();
+            }, spec.maxDelayMs || DEFAULT_MAX_DELAY_MS);
+        BackgroundJobs.timers.set(spec.id, timer);
+        return true;
+    }
+
+    /**
+     * Cancels a pending job
+     * @param {string} id - Job id
+     */
+    function cancel(id) {
+        BackgroundJobs.handlers.delete(id);
+        if (isNative()) {
+            window.AndroidAds.cancelJob(id);
+        }
+        if (BackgroundJobs.timers.has(id)) {
+            clearTimeout(BackgroundJobs.timers.get(id));
+            clearInterval(BackgroundJobs.timers.get(id));
+            BackgroundJobs.timers.delete(id);
+        }
+    }
+
+    /**
+     * @param {string} id - Job id
+     * @param {*} payload - Payload given to schedule()
+     * @param {string} reason - What opened the window
+     */
+    async function runHandler(id, payload, reason) {
+        const handler = BackgroundJobs.handlers.get(id);
+        if (!handler) return;
+        console.log(`⏰ Background job ${id} (${reason})`);
+        try {
+            await handler(payload);
+        } catch (error) {
+            console.error(`❌ Background job ${id} failed:`, error);
+        }
+    }
+
+    window.addEventListener('androidnative', (event) => {
+        event.detail.forEach(({ type, data }) => {
+            if (type === 'onScheduledJob') {
+                runHandler(data.id, data.payload, data.reason);
+            }
+        });
+    });
+
+    window.BackgroundJobs = {
+        isNative,
+        schedule,
+        cancel
+    };
+})();
@@ -23,6 +23,14 @@ class GenerateController {
         this.dogFactInterval = null;
         this.dogFacts = [];
         this.startTime = null;
+        this.viewerReleased = false;
+        
+        // Release the result viewer under memory pressure while it is off screen
+        window.addEventListener('androidnative', (event) => {
+            event.detail.forEach(({ type, data }) => {
+                if (type === 'onMemoryPressure') this.handleMemoryPressure(data.step);
+            });
+        });
     }
 
     setupGenerateEventListeners() {
@@ -569,7 +577,12 @@ switchToViewerState() {
     async startGeneration() {
     try {
         const formData = new FormData();
-        formData.append('image', this.generateState.selectedImage);
+        const prepared = await this.prepareImageForUpload(this.generateState.selectedImage);
+        if (prepared) {
+            formData.append('image', prepared.blob, prepared.fileName);
+        } else {
+            formData.append('image', this.generateState.selectedImage);
+        }
         
         // Send settings with backend expected field names
         formData.append('symmetryMode', this.generateState.settings.symmetryMode);
@@ -615,6 +628,11 @@ switchToViewerState() {
     // Initial UI update
     this.updateProgressUI(0, 'Initializing...');
     
+    // In the Android app, poll natively so progress survives the WebView being paused
+    if (this.startNativeProgressTracking()) {
+        return;
+    }
+    
     this.progressInterval = setInterval(async () => {
         try {
             const response = await fetch(`${this.apiBaseUrl}/status/${this.generateState.taskId}`, {
@@ -626,77 +644,182 @@ switchToViewerState() {
             }
             
             const data = await response.json();
-            console.log('📊 Status update:', data);
+            this.handleStatusUpdate(data);
             
-            // Extract status and REAL progress from API
-            const status = data.status;
-            const apiProgress = data.progress || 0;
-            
-            // Use the actual progress from API
-            let actualProgress = apiProgress;
-            let statusMessage = 'Processing...';
-            
-            switch(status) {
-                case 'PENDING':
-                    actualProgress = Math.max(5, apiProgress);
-                    statusMessage = 'Starting generation...';
-                    break;
-                    
-                case 'IN_PROGRESS':
-                    actualProgress = apiProgress;
-                    
-                    // Dynamic status messages based on real progress
-                    if (actualProgress < 20) {
-                        statusMessage = 'Analyzing your image...';
-                    } else if (actualProgress < 40) {
-                        statusMessage = 'Building 3D structure...';
-                    } else if (actualProgress < 60) {
-                        statusMessage = 'Applying textures...';
-                    } else if (actualProgress < 80) {
-                        statusMessage = 'Optimizing model...';
-                    } else if (actualProgress < 95) {
-                        statusMessage = 'Finalizing details...';
-                    } else {
-                        statusMessage = 'Almost ready...';
+        } catch (error) {
+            this.handleProgressError(error);
+        }
+    }, 2000); // Poll every 2 seconds
+}
+
+// Downscales the photo natively before upload. The file goes to the app over the binary
+// channel, never as a base64 string. Resolves null when unavailable or on failure, in
+// which case the original file is uploaded.
+async prepareImageForUpload(file) {
+    if (!window.AndroidAds || !window.AndroidAds.prepareStreamedImage || !window.NativeTransport) {
+        return null;
+    }
+    try {
+        if (!(await window.NativeTransport.openChannel())) {
+            return null;
+        }
+        
+        const requestId = `img_${Date.now()}`;
+        const result = await new Promise((resolve, reject) => {
+            const listener = (event) => {
+                event.detail.forEach(({ type, data }) => {
+                    if (!data || data.requestId !== requestId) return;
+                    if (type === 'onImagePrepared') {
+                        window.removeEventListener('androidnative', listener);
+                        resolve(data);
+                    } else if (type === 'onImagePrepareFailed') {
+                        window.removeEventListener('androidnative', listener);
+                        reject(new Error(data.error));
                     }
-                    break;
-                    
-                case 'SUCCEEDED':
-                    actualProgress = 100;
-                    statusMessage = 'Complete!';
-                    break;
-                    
-                case 'FAILED':
-                case 'EXPIRED':
-                    throw new Error('Generation failed');
+                });
+            };
+            window.addEventListener('androidnative', listener);
+            if (!window.AndroidAds.prepareStreamedImage(requestId, '{}')) {
+                window.removeEventListener('androidnative', listener);
+                reject(new Error('Image not accepted'));
+                return;
             }
+            window.NativeTransport.sendFile(window.NativeTransport.TYPE_IMAGE_CHUNK, requestId, file)
+                .catch((error) => {
+                    window.removeEventListener('androidnative', listener);
+                    reject(error);
+                });
+        });
+        
+        const response = await fetch(result.url);
+        if (!response.ok) throw new Error(`Prepared image unavailable: ${response.status}`);
+        const blob = await response.blob();
+        console.log(`🖼️ Image prepared: ${result.originalWidth}x${result.originalHeight} → ${result.width}x${result.height}, ` +
+            `${(result.bytesBefore / 1024 / 1024).toFixed(2)} MB → ${(result.bytesAfter / 1024 / 1024).toFixed(2)} MB in ${result.durationMs}ms`);
+        const extension = result.mimeType === 'image/png' ? 'png' : 'jpg';
+        return { blob, fileName: `image.${extension}` };
+    } catch (error) {
+        console.warn('Native image preparation failed, uploading original:', error);
+        return null;
+    }
+}
+
+startNativeProgressTracking() {
+    if (!window.AndroidAds || !window.AndroidAds.trackGeneration) {
+        return false;
+    }
+    
+    const taskId = this.generateState.taskId;
+    this.stopNativeProgressTracking();
+    
+    this.nativeProgressListener = (event) => {
+        event.detail.forEach(({ type, data }) => {
+            if (!data || data.taskId !== taskId) return;
+            try {
+                if (type === 'onGenerationProgress' || type === 'onGenerationComplete') {
+                    this.handleStatusUpdate(data.response || data);
+                } else if (type === 'onGenerationFailed') {
+                    throw new Error(data.error || 'Generation failed');
+                }
+            } catch (error) {
+                this.handleProgressError(error);
+            }
+        });
+    };
+    window.addEventListener('androidnative', this.nativeProgressListener);
+    
+    const started = window.AndroidAds.trackGeneration(taskId, `${this.apiBaseUrl}/status/${taskId}`);
+    if (!started) {
+        this.stopNativeProgressTracking();
+        return false;
+    }
+    console.log('📡 Native progress tracking started for', taskId);
+    return true;
+}
+
+stopNativeProgressTracking() {
+    if (this.nativeProgressListener) {
+        window.removeEventListener('androidnative', this.nativeProgressListener);
+        this.nativeProgressListener = null;
+        if (window.AndroidAds && window.AndroidAds.cancelGenerationTracking && this.generateState.taskId) {
+            window.AndroidAds.cancelGenerationTracking(this.generateState.taskId);
+        }
+    }
+}
+
+handleStatusUpdate(data) {
+    console.log('📊 Status update:', data);
+    
+    // Extract status and REAL progress from API
+    const status = data.status;
+    const apiProgress = data.progress || 0;
+    
+    // Use the actual progress from API
+    let actualProgress = apiProgress;
+    let statusMessage = 'Processing...';
+    
+    switch(status) {
+        case 'PENDING':
+            actualProgress = Math.max(5, apiProgress);
+            statusMessage = 'Starting generation...';
+            break;
             
-            // Update state with real progress
-            this.generateState.progress = actualProgress;
-            this.generateState.status = status;
-            
-            // Update UI with real progress
-            this.updateProgressUI(actualProgress, statusMessage);
+        case 'IN_PROGRESS':
+            actualProgress = apiProgress;
             
-            // Check completion
-            if (status === 'SUCCEEDED') {
-                this.generateState.generatedModelData = {
-                    taskId: this.generateState.taskId,
-                    modelId: this.generateState.taskId,
-                    modelUrl: `${this.apiBaseUrl}/proxyModel/${this.generateState.taskId}?format=glb`,
-                    modelUrls: data.model_urls
-                };
-                this.handleGenerationComplete();
+            // Dynamic status messages based on real progress
+            if (actualProgress < 20) {
+                statusMessage = 'Analyzing your image...';
+            } else if (actualProgress < 40) {
+                statusMessage = 'Building 3D structure...';
+            } else if (actualProgress < 60) {
+                statusMessage = 'Applying textures...';
+            } else if (actualProgress < 80) {
+                statusMessage = 'Optimizing model...';
+            } else if (actualProgress < 95) {
+                statusMessage = 'Finalizing details...';
+            } else {
+                statusMessage = 'Almost ready...';
             }
+            break;
             
-        } catch (error) {
-            console.error('❌ Progress polling error:', error);
-            clearInterval(this.progressInterval);
-            this.showPremiumError('Generation failed. Your credit has been refunded.');
-            window.MobileMonetization.onGenerationError(error.message);
-            this.resetToForm();
-        }
-    }, 2000); // Poll every 2 seconds
+        case 'SUCCEEDED':
+            actualProgress = 100;
+            statusMessage = 'Complete!';
+            break;
+            
+        case 'FAILED':
+        case 'EXPIRED':
+            throw new Error('Generation failed');
+    }
+    
+    // Update state with real progress
+    this.generateState.progress = actualProgress;
+    this.generateState.status = status;
+    
+    // Update UI with real progress
+    this.updateProgressUI(actualProgress, statusMessage);
+    
+    // Check completion
+    if (status === 'SUCCEEDED') {
+        this.stopNativeProgressTracking();
+        this.generateState.generatedModelData = {
+            taskId: this.generateState.taskId,
+            modelId: this.generateState.taskId,
+            modelUrl: `${this.apiBaseUrl}/proxyModel/${this.generateState.taskId}?format=glb`,
+            modelUrls: data.model_urls
+        };
+        this.handleGenerationComplete();
+    }
+}
+
+handleProgressError(error) {
+    console.error('❌ Progress polling error:', error);
+    clearInterval(this.progressInterval);
+    this.stopNativeProgressTracking();
+    this.showPremiumError('Generation failed. Your credit has been refunded.');
+    window.MobileMonetization.onGenerationError(error.message);
+    this.resetToForm();
 }
 
 updateProgressUI(progress, statusMessage) {
@@ -1243,8 +1366,13 @@ setTimeout(() => {
         this.show3DErrorState();
     }
     
-    // Animation loop
+    // Store references for cleanup
+    this.viewer3D = { scene, camera, renderer, controls, pmremGenerator };
+    this.viewerReleased = false;
+    
+    // Animation loop (ends once this viewer is disposed or replaced)
     const animate = () => {
+        if (!this.viewer3D || this.viewer3D.renderer !== renderer) return;
         requestAnimationFrame(animate);
         controls.update();
         renderer.render(scene, camera);
@@ -1258,9 +1386,63 @@ setTimeout(() => {
         renderer.setSize(viewerContainer.offsetWidth, viewerContainer.offsetHeight);
     };
     window.addEventListener('resize', handleResize);
-    
-    // Store references for cleanup
-    this.viewer3D = { scene, camera, renderer, controls, pmremGenerator };
+}
+
+/**
+ * Native onMemoryPressure step. The result viewer is released when the generate
+ * section is not on screen (or the app is in the background) and rebuilt by
+ * resumeViewer() when the user navigates back or the app returns to the foreground.
+ * @param {string} step - hidden | moderate | low | background | critical
+ */
+handleMemoryPressure(step) {
+    if (!this.viewer3D) return;
+    
+    const section = document.getElementById('generateSection');
+    const visible = !document.hidden && section && section.classList.contains('active');
+    if (visible && step !== 'background') return;
+    
+    const { scene, renderer, controls, pmremGenerator } = this.viewer3D;
+    this.viewer3D = null; // Stops the animation loop
+    scene.traverse((child) => {
+        if (child.geometry) child.geometry.dispose();
+        if (child.material) {
+            const materials = Array.isArray(child.material) ? child.material : [child.material];
+            materials.forEach((material) => {
+                Object.values(material).forEach((value) => {
+                    if (value && value.isTexture) value.dispose();
+                });
+                material.dispose();
+            });
+        }
+    });
+    if (pmremGenerator) pmremGenerator.dispose();
+    controls.dispose();
+    renderer.dispose();
+    renderer.forceContextLoss();
+    this.generatedModel = null;
+    this.viewerReleased = this.generateState.currentView === 'viewer';
+    console.log(`🧹 Generate viewer released (${step})`);
+    
+    if (window.AndroidAds && window.AndroidAds.reportViewerMemory) {
+        window.AndroidAds.reportViewerMemory(JSON.stringify({
+            viewer: 'generate',
+            step,
+            released: true,
+            geometries: 0,
+            textures: 0,
+            jsHeapUsed: performance.memory ? performance.memory.usedJSHeapSize : null
+        }));
+    }
+}
+
+/**
+ * Rebuilds the result viewer if it was released while the section was hidden
+ */
+resumeViewer() {
+    if (this.viewerReleased && this.generateState.currentView === 'viewer') {
+        console.log('♻️ Rebuilding generate viewer after memory release');
+        this.initialize3DViewer();
+    }
 }
 
 show3DLoadingState() {
@@ -1317,7 +1499,7 @@ async handleDownload() {
                 <button class="close-btn" onclick="this.closest('.download-modal').remove()">×</button>
             </div>
             <div class="download-formats">
-                ${this.generateState.downloadFormats.map(format => `
+                ${this.getDownloadFormats().map(format => `
                     <button class="format-btn" data-format="${format}">
                         <div class="format-icon">${this.getFormatIcon(format)}</div>
                         <div class="format-name">${format.toUpperCase()}</div>
@@ -1343,7 +1525,62 @@ async handleDownload() {
     });
 }
 
+// Server formats, plus STL when the app can convert on device
+getDownloadFormats() {
+    const formats = [...this.generateState.downloadFormats];
+    if (this.canExportOnDevice('stl') && !formats.includes('stl')) formats.push('stl');
+    return formats;
+}
+
+canExportOnDevice(format) {
+    return !!(window.AndroidAds && window.AndroidAds.exportModel) && ['obj', 'stl'].includes(format);
+}
+
+// Converts the GLB natively and opens the share sheet; resolves with the export summary
+exportModelNatively(url, format, name) {
+    const requestId = `export_${Date.now()}`;
+    return new Promise((resolve, reject) => {
+        const listener = (event) => {
+            event.detail.forEach(({ type, data }) => {
+                if (!data || data.requestId !== requestId) return;
+                if (type === 'onModelExported') {
+                    window.removeEventListener('androidnative', listener);
+                    resolve(data);
+                } else if (type === 'onModelExportFailed') {
+                    window.removeEventListener('androidnative', listener);
+                    reject(new Error(data.error));
+                }
+            });
+        };
+        window.addEventListener('androidnative', listener);
+        if (!window.AndroidAds.exportModel(requestId, url, format, name)) {
+            window.removeEventListener('androidnative', listener);
+            reject(new Error('Model not accepted for export'));
+        }
+    });
+}
+
 async downloadModel(format) {
+    // OBJ and STL are converted from the GLB on device: no second server round trip
+    if (this.canExportOnDevice(format)) {
+        try {
+            this.showFeedback(`Converting to ${format.toUpperCase()}...`, 'info');
+            const glbUrl = `${this.apiBaseUrl}/proxyModel/${this.generateState.taskId}?format=glb`;
+            const result = await this.exportModelNatively(glbUrl, format, `Threely_${Date.now()}`);
+            console.log(`📤 Exported ${result.triangles} triangles to ${format} (${(result.bytes / 1024 / 1024).toFixed(2)} MB) in ${result.durationMs}ms`);
+            document.querySelector('.download-modal')?.remove();
+            this.showFeedback(`${format.toUpperCase()} ready to share`, 'success');
+            return;
+        } catch (error) {
+            console.warn(`On-device ${format} export failed:`, error);
+            if (format === 'stl') {
+                this.showFeedback('Export failed. Please try again.', 'error');
+                return;
+            }
+            // OBJ is also on the server
+        }
+    }
+    
     try {
         // Show loading state
         this.showFeedback(`Preparing ${format.toUpperCase()} download...`, 'info');
@@ -1445,7 +1682,8 @@ getFormatIcon(format) {
         glb: '📦',
         usdz: '🍎',
         obj: '🔷',
-        fbx: '🎮'
+        fbx: '🎮',
+        stl: '🖨️'
     };
     return icons[format] || '📄';
 }
@@ -1455,7 +1693,8 @@ getFormatDescription(format) {
         glb: 'Universal 3D format',
         usdz: 'iOS AR Ready',
         obj: 'Wide compatibility',
-        fbx: 'Animation ready'
+        fbx: 'Animation ready',
+        stl: '3D printing'
     };
     return descriptions[format] || 'Standard format';
 }
@@ -1475,8 +1714,10 @@ async handleSaveToFavorites() {
         // Show immediate feedback
         this.showFeedback('Saving model...', 'info');
         
-        // Get all format blobs
-        const modelBlobs = await this.getAllModelFormatBlobs();
+        // Get all format blobs, unless the native store downloads them itself (it keeps
+        // them until synced, and the sync uploads them from there)
+        const useNativeStore = window.LocalStorageManager.hasNativeStore();
+        const modelBlobs = useNativeStore ? {} : await this.getAllModelFormatBlobs();
         const thumbnail = await this.captureModelThumbnail();
         
         // Prepare model data with ALL formats
@@ -1484,6 +1725,7 @@ async handleSaveToFavorites() {
             taskId: this.generateState.taskId,
             name: `Generated Model ${new Date().toISOString().split('T')[0]}`,
             modelBlobs: modelBlobs, // Now contains all formats
+            modelSources: useNativeStore ? this.getModelFormatUrls() : null,
             thumbnail: thumbnail,
             settings: this.generateState.settings,
             polygons: this.generateState.settings.targetPolycount,
@@ -1519,6 +1761,16 @@ async handleSaveToFavorites() {
     }
 }
 
+// Download URL for every format, for the native model store
+getModelFormatUrls() {
+    const formats = this.generateState.downloadFormats || ['glb', 'fbx', 'obj', 'usdz'];
+    const urls = {};
+    formats.forEach(format => {
+        urls[format] = `${this.apiBaseUrl}/proxyModel/${this.generateState.taskId}?format=${format}`;
+    });
+    return urls;
+}
+
 // Add this NEW helper method to get ALL format blobs
 async getAllModelFormatBlobs() {
     const blobs = {};
@@ -1610,6 +1862,7 @@ resetToForm() {
         clearInterval(this.progressInterval);
         this.progressInterval = null;
     }
+    this.stopNativeProgressTracking();
     if (this.dogFactInterval) {
         clearInterval(this.dogFactInterval);
         this.dogFactInterval = null;
@@ -1758,12 +2011,14 @@ showFeedback(message, type = 'success') {
 cleanup() {
     // Clean up intervals
     if (this.progressInterval) clearInterval(this.progressInterval);
+    this.stopNativeProgressTracking();
     if (this.dogFactInterval) clearInterval(this.dogFactInterval);
     
     // Clean up Three.js
     if (this.viewer3D) {
         this.viewer3D.renderer.dispose();
         this.viewer3D.controls.dispose();
+        this.viewer3D = null;
     }
 }
 }
@@ -124,6 +124,12 @@ class LocalStorageManager {
     async saveModelLocally(modelData) {
         if (!this.db) await this.initDB();
         
+        // On Android the model files go to the native store; IndexedDB only keeps metadata
+        if (modelData.modelSources && this.hasNativeStore()) {
+            modelData.nativeFormats = await this.storeModelNatively(
+                modelData.taskId, modelData.modelSources);
+        }
+        
         const modelEntry = this.createModelEntry(modelData);
         
         // Save to local store
@@ -143,7 +149,8 @@ class LocalStorageManager {
      */
     createModelEntry(modelData) {
         const modelBlobs = modelData.modelBlobs || {};
-        const totalSize = this.calculateTotalSize(modelBlobs);
+        const nativeFormats = modelData.nativeFormats || null;
+        const totalSize = this.calculateTotalSize(nativeFormats || modelBlobs);
         
         return {
             id: modelData.taskId || `local_${Date.now()}`,
@@ -154,6 +161,9 @@ class LocalStorageManager {
             cloudUrl: null,
             localData: {
                 modelBlobs: modelBlobs,
+                nativeFormats: nativeFormats,
+                // Where each natively stored format can be fetched again once evicted
+                remoteSources: modelData.modelSources || null,
                 thumbnail: modelData.thumbnail,
                 metadata: {
                     formats: modelData.formats || ['glb', 'fbx', 'obj', 'usdz'],
@@ -168,7 +178,7 @@ class LocalStorageManager {
     }
     
     /**
-     * Calculates total size of model blobs
+     * Calculates total size of model blobs (or native store entries)
      * @param {Object} modelBlobs - Map of format to blob
      * @returns {number} Total size in bytes
      */
@@ -178,6 +188,60 @@ class LocalStorageManager {
         }, 0);
     }
 
+    /* ========================================
+       Native Model Store (Android)
+       ======================================== */
+    
+    /**
+     * Whether the Android app can keep model files natively
+     * @returns {boolean}
+     */
+    hasNativeStore() {
+        return !!(window.AndroidAds && window.AndroidAds.storeModel);
+    }
+    
+    /**
+     * Has the native store download each format straight to disk
+     * @param {string} modelId - Model ID
+     * @param {Object} sources - Map of format to download URL
+     * @returns {Promise<Object>} Map of format to stored entry ({ size, url, ... })
+     */
+    storeModelNatively(modelId, sources) {
+        const stored = {};
+        const pending = new Set();
+        
+        return new Promise((resolve) => {
+            const listener = (event) => {
+                event.detail.forEach(({ type, data }) => {
+                    if (!data || data.id !== modelId || !pending.has(data.format)) return;
+                    if (type === 'onModelStored') {
+                        stored[data.format] = data;
+                    } else if (type === 'onModelStoreFailed') {
+                        console.warn(`Failed to store ${data.format} format:`, data.error);
+                    } else {
+                        return;
+                    }
+                    pending.delete(data.format);
+                });
+                if (pending.size === 0) {
+                    window.removeEventListener('androidnative', listener);
+                    resolve(stored);
+                }
+            };
+            window.addEventListener('androidnative', listener);
+            
+            for (const [format, url] of Object.entries(sources)) {
+                if (window.AndroidAds.storeModel(modelId, format, url)) {
+                    pending.add(format);
+                }
+            }
+            if (pending.size === 0) {
+                window.removeEventListener('androidnative', listener);
+                resolve(stored);
+            }
+        });
+    }
+
     /* ========================================
        Sync Queue Management
        ======================================== */
@@ -207,7 +271,25 @@ class LocalStorageManager {
      * @returns {Promise<Object>} Added sync item
      */
     async addToSyncQueue(syncItem) {
-        return await this.saveToStore(this.stores.syncQueue, syncItem);
+        const saved = await this.saveToStore(this.stores.syncQueue, syncItem);
+        this.scheduleSync();
+        return saved;
+    }
+
+    /**
+     * Schedules one sync of the queue, batched with other background work on Android
+     * (items queued before it runs share the same sync)
+     */
+    scheduleSync() {
+        if (!this.syncWorker || !window.BackgroundJobs) return;
+
+        window.BackgroundJobs.schedule({
+            id: 'sync-queue',
+            tag: 'sync',
+            priority: 'normal',
+            network: 'any',
+            maxDelayMs: DB_CONFIG.syncInterval
+        }, () => this.processSyncQueue());
     }
 
     /**
@@ -221,11 +303,9 @@ class LocalStorageManager {
         /* Enable this when background sync is needed:
         if (this.syncWorker) return;
         
-        this.syncWorker = setInterval(() => {
-            if (navigator.onLine) {
-                this.processSyncQueue();
-            }
-        }, DB_CONFIG.syncInterval);
+        // Syncs run as background jobs (see scheduleSync), not on a fixed interval
+        this.syncWorker = true;
+        this.scheduleSync();
         */
     }
 
@@ -271,7 +351,8 @@ class LocalStorageManager {
         }
         
         try {
-            await this.syncItemToCloud(item);
+            const result = await this.syncItemToCloud(item);
+            await this.recordCloudFiles(item.modelId, result);
             
             // Remove from sync queue on success
             await this.deleteFromStore(this.stores.syncQueue, item.id);
@@ -298,6 +379,54 @@ class LocalStorageManager {
             model.syncStatus = status;
             await this.saveToStore(this.stores.savedModels, model);
         }
+        // Synced models become evictable in the native store
+        if (window.AndroidAds && window.AndroidAds.setStoredModelSyncStatus) {
+            window.AndroidAds.setStoredModelSyncStatus(modelId, status);
+        }
+    }
+
+    /**
+     * Remembers the permanent URLs of a synced model's files; they replace the native
+     * store's copies when those are evicted
+     * @param {string} modelId - Model ID
+     * @param {Object} result - saveAsset response
+     * @returns {Promise<void>}
+     */
+    async recordCloudFiles(modelId, result) {
+        const modelFiles = result && result.asset && result.asset.modelFiles;
+        const model = await this.getFromStore(this.stores.savedModels, modelId);
+        if (!model || !modelFiles) return;
+        
+        const apiUrl = this.getApiBaseUrl();
+        const remoteSources = model.localData.remoteSources || {};
+        Object.entries(modelFiles).forEach(([format, file]) => {
+            if (file && file.url) remoteSources[format] = new URL(file.url, apiUrl).href;
+        });
+        model.localData.remoteSources = remoteSources;
+        model.cloudUrl = remoteSources.glb || model.cloudUrl;
+        await this.saveToStore(this.stores.savedModels, model);
+    }
+    
+    /**
+     * Points a model format the app evicted from its store back at the remote copy
+     * (or drops it), so nothing keeps loading the deleted /_native/models/ URL
+     * @param {Object} entry - Evicted store entry ({ id, format, url, size })
+     * @returns {Promise<void>}
+     */
+    async handleModelEvicted(entry) {
+        if (!this.db) return;
+        const model = await this.getFromStore(this.stores.savedModels, entry.id);
+        const nativeFormats = model && model.localData.nativeFormats;
+        if (!nativeFormats || !nativeFormats[entry.format] || nativeFormats[entry.format].remote) return;
+        
+        const remoteUrl = model.localData.remoteSources && model.localData.remoteSources[entry.format];
+        if (remoteUrl) {
+            nativeFormats[entry.format] = { ...nativeFormats[entry.format], url: remoteUrl, remote: true };
+        } else {
+            delete nativeFormats[entry.format];
+        }
+        await this.saveToStore(this.stores.savedModels, model);
+        console.log(`🧹 ${entry.format.toUpperCase()} of ${entry.id} evicted from the app, ${remoteUrl ? 'using the cloud copy' : 'removed'}`);
     }
 
     /**
@@ -317,18 +446,31 @@ class LocalStorageManager {
     }
 
     /**
-     * Syncs a single item to the cloud
+     * Saves a synced model as a cloud asset
      * @param {Object} syncItem - Item to sync
      * @returns {Promise<Object>} Sync result
      */
     async syncItemToCloud(syncItem) {
+        const taskId = syncItem.data.taskId;
+        if (!taskId) {
+            throw new Error('Cloud sync needs the generation task id');
+        }
+        
         const apiUrl = this.getApiBaseUrl();
-        const formData = this.prepareSyncFormData(syncItem);
+        const settings = syncItem.data.localData.metadata.settings || {};
         
-        const response = await fetch(`${apiUrl}/saveAsset`, {
+        const response = await fetch(`${apiUrl}/saveAsset/${encodeURIComponent(taskId)}`, {
             method: 'POST',
             credentials: 'include',
-            body: formData
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({
+                name: syncItem.data.name,
+                topology: settings.topology,
+                texture: settings.shouldTexture,
+                symmetry: settings.symmetryMode,
+                pbr: settings.enablePBR,
+                polygons: settings.targetPolycount
+            })
         });
         
         if (!response.ok) {
@@ -339,40 +481,6 @@ class LocalStorageManager {
         console.log(`✅ Synced to cloud: ${syncItem.modelId}`);
         return result;
     }
-    
-    /**
-     * Prepares FormData for cloud sync
-     * @param {Object} syncItem - Sync item containing model data
-     * @returns {FormData} Prepared form data
-     */
-    prepareSyncFormData(syncItem) {
-        const formData = new FormData();
-        
-        // Add model blobs
-        if (syncItem.data.localData.modelBlobs) {
-            for (const [format, blob] of Object.entries(syncItem.data.localData.modelBlobs)) {
-                if (blob && blob.size < DB_CONFIG.maxFileSize) {
-                    formData.append(`model_${format}`, blob, `model.${format}`);
-                }
-            }
-        }
-        
-        // Add thumbnail
-        if (syncItem.data.localData.thumbnail) {
-            formData.append('thumbnail', syncItem.data.localData.thumbnail, 'thumbnail.jpg');
-        }
-        
-        // Add metadata
-        formData.append('metadata', JSON.stringify({
-            taskId: syncItem.data.taskId,
-            name: syncItem.data.name,
-            settings: syncItem.data.localData.metadata.settings,
-            formats: syncItem.data.localData.metadata.formats,
-            totalSize: syncItem.data.localData.metadata.totalSize
-        }));
-        
-        return formData;
-    }
 
     /* ========================================
        Model Retrieval Operations
@@ -405,6 +513,9 @@ class LocalStorageManager {
     async deleteLocalModel(modelId) {
         if (!this.db) await this.initDB();
         await this.deleteFromStore(this.stores.savedModels, modelId);
+        if (window.AndroidAds && window.AndroidAds.deleteStoredModel) {
+            window.AndroidAds.deleteStoredModel(modelId);
+        }
         console.log('✅ Model deleted locally:', modelId);
     }
 
@@ -595,7 +706,7 @@ class LocalStorageManager {
      */
     stopSyncWorker() {
         if (this.syncWorker) {
-            clearInterval(this.syncWorker);
+            if (window.BackgroundJobs) window.BackgroundJobs.cancel('sync-queue');
             this.syncWorker = null;
             console.log('🛑 Sync worker stopped');
         }
@@ -611,7 +722,8 @@ class LocalModelViewer {
             glb: '📦',
             fbx: '🎮',
             obj: '🔷',
-            usdz: '🍎'
+            usdz: '🍎',
+            stl: '🖨️'
         };
     }
     
@@ -649,7 +761,7 @@ class LocalModelViewer {
      * @param {Object} model - Model data
      */
     showFormatOptions(model) {
-        const formats = model.localData.modelBlobs;
+        const formats = model.localData.nativeFormats || model.localData.modelBlobs;
         console.log('Available formats:', Object.keys(formats));
         
         // Remove existing modal if present
@@ -696,17 +808,76 @@ class LocalModelViewer {
      * @returns {string} HTML string of buttons
      */
     generateFormatButtons(model, formats) {
-        return Object.entries(formats)
+        const stored = Object.entries(formats)
             .filter(([format, blob]) => blob)
-            .map(([format, blob]) => `
+            .map(([format, blob]) => this.formatButton(model, format, this.formatFileSize(blob.size)));
+        const onDevice = this.getDeviceExportFormats(model)
+            .filter(format => !formats[format])
+            .map(format => this.formatButton(model, format, 'Convert on device'));
+        return stored.concat(onDevice).join('');
+    }
+    
+    /**
+     * HTML for one format button
+     * @param {Object} model - Model data
+     * @param {string} format - File format
+     * @param {string} description - Size or other detail
+     * @returns {string} HTML string
+     */
+    formatButton(model, format, description) {
+        return `
                 <button class="format-option-btn" 
                         onclick="window.LocalModelViewer.downloadFormat('${model.id}', '${format}', '${model.name}')">
                     <div class="format-icon">${this.getFormatIcon(format)}</div>
                     <div class="format-name">${format.toUpperCase()}</div>
-                    <div class="format-desc">${this.formatFileSize(blob.size)}</div>
+                    <div class="format-desc">${description}</div>
                 </button>
-            `)
-            .join('');
+            `;
+    }
+    
+    /**
+     * Formats the app can produce from the stored GLB without the server
+     * @param {Object} model - Model data
+     * @returns {string[]} Format names
+     */
+    getDeviceExportFormats(model) {
+        const nativeFormats = model.localData.nativeFormats;
+        if (!window.AndroidAds || !window.AndroidAds.exportModel || !nativeFormats || !nativeFormats.glb
+            || nativeFormats.glb.remote) {
+            return [];
+        }
+        return ['obj', 'stl'];
+    }
+    
+    /**
+     * Converts the stored GLB natively and opens the share sheet
+     * @param {string} glbUrl - Stored GLB URL (/_native/models/...)
+     * @param {string} format - 'obj' or 'stl'
+     * @param {string} modelName - Base name for the exported files
+     * @returns {Promise<Object>} Export summary (triangles, bytes, durationMs)
+     */
+    exportOnDevice(glbUrl, format, modelName) {
+        const requestId = `export_${Date.now()}`;
+        return new Promise((resolve, reject) => {
+            const listener = (event) => {
+                event.detail.forEach(({ type, data }) => {
+                    if (!data || data.requestId !== requestId) return;
+                    if (type === 'onModelExported') {
+                        window.removeEventListener('androidnative', listener);
+                        resolve(data);
+                    } else if (type === 'onModelExportFailed') {
+                        window.removeEventListener('androidnative', listener);
+                        reject(new Error(data.error));
+                    }
+                });
+            };
+            window.addEventListener('androidnative', listener);
+            const absoluteUrl = new URL(glbUrl, window.location.href).href;
+            if (!window.AndroidAds.exportModel(requestId, absoluteUrl, format, modelName)) {
+                window.removeEventListener('androidnative', listener);
+                reject(new Error('Model not accepted for export'));
+            }
+        });
     }
     
     /**
@@ -719,14 +890,22 @@ class LocalModelViewer {
     async downloadFormat(modelId, format, modelName) {
         try {
             const model = await window.LocalStorageManager.getLocalModel(modelId);
+            const nativeEntry = model.localData.nativeFormats && model.localData.nativeFormats[format];
             const blob = model.localData.modelBlobs[format];
             
-            if (!blob) {
+            if (!nativeEntry && !blob && this.getDeviceExportFormats(model).includes(format)) {
+                const result = await this.exportOnDevice(model.localData.nativeFormats.glb.url, format, modelName);
+                console.log(`📤 Exported ${result.triangles} triangles to ${format} in ${result.durationMs}ms`);
+                this.closeModal();
+                return;
+            }
+            
+            if (!nativeEntry && !blob) {
                 throw new Error(`Format ${format} not available`);
             }
             
-            // Create download link
-            const url = URL.createObjectURL(blob);
+            // Create download link (native store files are served from the app origin)
+            const url = nativeEntry ? nativeEntry.url : URL.createObjectURL(blob);
             const link = document.createElement('a');
             link.href = url;
             link.download = `${modelName}.${format}`;
@@ -737,7 +916,7 @@ class LocalModelViewer {
             document.body.removeChild(link);
             
             // Cleanup
-            URL.revokeObjectURL(url);
+            if (!nativeEntry) URL.revokeObjectURL(url);
             this.closeModal();
             
             console.log(`✅ Downloaded ${format} format for ${modelName}`);
@@ -810,6 +989,17 @@ window.addEventListener('offline', () => {
     console.log('📵 Offline - sync paused');
 });
 
+/**
+ * Stored model files evicted by the Android app
+ */
+window.addEventListener('androidnative', (event) => {
+    event.detail.forEach(({ type, data }) => {
+        if (type === 'onModelEvicted') {
+            window.LocalStorageManager.handleModelEvicted(data);
+        }
+    });
+});
+
 /**
  * Cleanup on page unload
  */
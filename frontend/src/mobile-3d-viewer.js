@@ -83,7 +83,11 @@
         // State flags
         isInitialized: false,
         modelLoaded: false,
-        modelLoadPromise: null
+        modelLoadPromise: null,
+        
+        // Set when released under memory pressure; resume() rebuilds the scene
+        containerId: null,
+        releasedForMemory: false
     };
 
     /* ========================================
@@ -144,6 +148,9 @@
             return null;
         }
         
+        Mobile3D.containerId = containerId;
+        Mobile3D.releasedForMemory = false;
+        
         // Prepare container
         prepareContainer(container);
         
@@ -591,12 +598,30 @@
             const loader = new THREE.GLTFLoader();
             const modelPaths = getModelPaths();
             
-            tryLoadModel(loader, modelPaths, 0, resolve, reject);
+            tryLoadModel(loader, getLodPaths(modelPaths).concat(modelPaths), 0, resolve, reject);
         });
         
         return Mobile3D.modelLoadPromise;
     }
     
+    /**
+     * Asks the native side for a copy of the model sized for this device
+     * (fewer triangles and/or textures capped to the GPU budget).
+     * Each call also queues LOD generation for next time if none exists yet.
+     * @param {string[]} paths - Candidate model paths
+     * @returns {string[]} LOD paths to try before the full model
+     */
+    function getLodPaths(paths) {
+        if (!window.AndroidAds || !window.AndroidAds.getModelLodUrl) return [];
+        const lodPaths = [];
+        paths.forEach((path) => {
+            const lodPath = window.AndroidAds.getModelLodUrl(new URL(path, window.location.href).href);
+            if (lodPath && !lodPaths.includes(lodPath)) lodPaths.push(lodPath);
+        });
+        if (lodPaths.length) console.log('📉 Using LOD model:', lodPaths[0]);
+        return lodPaths;
+    }
+    
     /**
      * Attempts to load model from multiple paths
      * @param {THREE.GLTFLoader} loader - GLTF loader instance
@@ -1045,6 +1070,73 @@
         }
     }
 
+    /* ========================================
+       Memory Pressure
+       ======================================== */
+    
+    /**
+     * Reacts to a native onMemoryPressure step. The hero scene is cheap to rebuild,
+     * so it is released whenever it isn't on screen; on screen it only renders at a
+     * lower pixel ratio once memory is critical. resume() rebuilds it when the home
+     * section is shown again or the app returns to the foreground.
+     * @param {string} step - hidden | moderate | low | background | critical
+     */
+    function handleMemoryPressure(step) {
+        if (!Mobile3D.isInitialized || !Mobile3D.renderer) return;
+        
+        const canvas = Mobile3D.renderer.domElement;
+        const hidden = document.hidden || !canvas.isConnected || canvas.offsetParent === null;
+        
+        if (hidden || step === 'background') {
+            const renderer = Mobile3D.renderer;
+            dispose();
+            // dispose() frees buffers; the WebGL context itself is only released on loss
+            renderer.forceContextLoss();
+            Mobile3D.renderer = null;
+            Mobile3D.releasedForMemory = true;
+            console.log(`🧹 Hero 3D released (${step})`);
+            reportMemory(step, null);
+        } else if (step === 'critical') {
+            Mobile3D.renderer.setPixelRatio(1);
+            handleResize();
+            reportMemory(step, Mobile3D.renderer);
+        }
+    }
+    
+    /**
+     * Sends viewer memory back to the native memory governor for its logs
+     * @param {string} step - Step that triggered the report
+     * @param {THREE.WebGLRenderer|null} renderer - Live renderer, or null once released
+     */
+    function reportMemory(step, renderer) {
+        if (!window.AndroidAds || !window.AndroidAds.reportViewerMemory) return;
+        const info = renderer ? renderer.info.memory : { geometries: 0, textures: 0 };
+        window.AndroidAds.reportViewerMemory(JSON.stringify({
+            viewer: 'hero',
+            step,
+            released: !renderer,
+            geometries: info.geometries,
+            textures: info.textures,
+            jsHeapUsed: performance.memory ? performance.memory.usedJSHeapSize : null
+        }));
+    }
+    
+    /**
+     * Rebuilds the scene if it was released while hidden
+     */
+    function resume() {
+        if (Mobile3D.releasedForMemory && Mobile3D.containerId) {
+            console.log('♻️ Rebuilding hero 3D after memory release');
+            initMobile3D(Mobile3D.containerId);
+        }
+    }
+    
+    window.addEventListener('androidnative', (event) => {
+        event.detail.forEach(({ type, data }) => {
+            if (type === 'onMemoryPressure') handleMemoryPressure(data.step);
+        });
+    });
+
     /* ========================================
        Public API
        ======================================== */
@@ -1052,6 +1144,7 @@
         init: initMobile3D,
         scene: () => Mobile3D,
         dispose: dispose,
+        resume: resume,
         isInitialized: () => Mobile3D.isInitialized,
         isModelLoaded: () => Mobile3D.modelLoaded
     };
@@ -998,6 +998,23 @@ init3DScene() {
         return;
     }
     
+    // A stored copy the app found damaged would fail half way through loading
+    const modelInfo = window.ModelInfo ? window.ModelInfo.get(modelUrl) : null;
+    if (modelInfo && !modelInfo.valid) {
+        console.warn('⚠️ Model file is damaged:', modelInfo.error);
+        this.showErrorState();
+        return;
+    }
+    
+    // Use the copy sized for this device (fewer triangles, capped textures) once built
+    if (window.AndroidAds && window.AndroidAds.getModelLodUrl) {
+        const lodUrl = window.AndroidAds.getModelLodUrl(new URL(modelUrl, window.location.href).href);
+        if (lodUrl) {
+            console.log('📉 Using LOD model:', lodUrl);
+            modelUrl = lodUrl;
+        }
+    }
+    
     const loader = new GLTFLoaderClass();
     
     loader.load(
@@ -1635,6 +1652,42 @@ toggleInfo() {
         this.currentAssetId = null;
     }
 
+    // Native onMemoryPressure step. A closed viewer still holding a renderer (close
+    // animation, failed load) is released; an open one keeps its model but drops to
+    // 1x pixel ratio once memory is critical or the app goes to the background.
+    handleMemoryPressure(step) {
+        if (!this.renderer) return;
+        
+        const overlay = document.getElementById('mobileAssetViewer');
+        const open = overlay && overlay.style.display !== 'none' && overlay.classList.contains('active');
+        
+        let released = false;
+        if (!open) {
+            const renderer = this.renderer;
+            this.cleanup();
+            renderer.forceContextLoss();
+            released = true;
+            console.log(`🧹 Asset viewer released (${step})`);
+        } else if (step === 'critical' || step === 'background') {
+            this.renderer.setPixelRatio(1);
+            this.handleResize();
+        } else {
+            return;
+        }
+        
+        if (window.AndroidAds && window.AndroidAds.reportViewerMemory) {
+            const info = released ? { geometries: 0, textures: 0 } : this.renderer.info.memory;
+            window.AndroidAds.reportViewerMemory(JSON.stringify({
+                viewer: 'asset',
+                step,
+                released,
+                geometries: info.geometries,
+                textures: info.textures,
+                jsHeapUsed: performance.memory ? performance.memory.usedJSHeapSize : null
+            }));
+        }
+    }
+
     // Handle window resize
     handleResize() {
         if (!this.camera || !this.renderer) return;
@@ -1661,6 +1714,15 @@ window.addEventListener('resize', () => {
     }
 });
 
+// Release GPU resources when Android reports memory pressure
+window.addEventListener('androidnative', (event) => {
+    event.detail.forEach(({ type, data }) => {
+        if (type === 'onMemoryPressure' && window.MobileAssetViewer) {
+            window.MobileAssetViewer.handleMemoryPressure(data.step);
+        }
+    });
+});
+
 // Export for module usage
 if (typeof module !== 'undefined' && module.exports) {
     module.exports = MobileAssetViewer;
@@ -0,0 +1,142 @@
+/**
+ * model-info.js
+ *
+ * Size, triangle count, textures, bounds and GPU memory of models stored on the
+ * device, measured by the Android app when a GLB lands in local storage, so
+ * galleries can show and sort by them and the viewer can skip broken files
+ * without loading anything into Three.js:
+ * - query() asks for any number of URLs in one bridge call
+ * - infos come back as { status: 'ready', valid, vertices, triangles, textures,
+ *   bounds, gpuBytes, ... }, { status: 'pending' } or { status: 'unknown' }
+ * - pending models fire onUpdate listeners once measured ('onModelIndexed')
+ * - in a browser nothing is known and query() resolves to {}
+ */
+
+(function() {
+    'use strict';
+
+    const ModelInfo = {
+        // url -> ready info; pending/unknown answers are asked again next time
+        known: new Map(),
+        listeners: new Set()
+    };
+
+    /**
+     * @returns {boolean} Whether the app keeps a model index
+     */
+    function isAvailable() {
+        return !!(window.AndroidAds && window.AndroidAds.getModelInfo);
+    }
+
+    /**
+     * @param {string} url - Model URL, relative or absolute
+     * @returns {string} Absolute URL, as the app indexes it
+     */
+    function absolute(url) {
+        try {
+            return new URL(url, location.href).href;
+        } catch (error) {
+            return url;
+        }
+    }
+
+    /**
+     * Looks up many models with a single bridge call
+     * @param {string[]} urls - Model URLs
+     * @returns {Object} Map of the given URLs to their info
+     */
+    function query(urls) {
+        const result = {};
+        if (!isAvailable() || !urls || urls.length === 0) return result;
+
+        const missing = [];
+        urls.forEach((url) => {
+            if (!url) return;
+            const key = absolute(url);
+            if (ModelInfo.known.has(key)) {
+                result[url] = ModelInfo.known.get(key);
+            } else {
+                missing.push(key);
+            }
+        });
+        if (missing.length === 0) return result;
+
+        let answer = {};
+        try {
+            answer = JSON.parse(window.AndroidAds.getModelInfo(JSON.stringify(missing)) || '{}');
+        } catch (error) {
+            console.warn('⚠️ Model info query failed:', error);
+        }
+        Object.keys(answer).forEach((key) => {
+            if (answer[key].status === 'ready') ModelInfo.known.set(key, answer[key]);
+        });
+        urls.forEach((url) => {
+            if (url && !(url in result)) result[url] = answer[absolute(url)] || { status: 'unknown' };
+        });
+        return result;
+    }
+
+    /**
+     * @param {string} url - Model URL
+     * @returns {Object|null} Info if the model is measured, otherwise null
+     */
+    function get(url) {
+        const info = query([url])[url];
+        return info && info.status === 'ready' ? info : null;
+    }
+
+    /**
+     * @param {Function} listener - Called with (url, info) when a model is measured
+     * @returns {Function} Removes the listener
+     */
+    function onUpdate(listener) {
+        ModelInfo.listeners.add(listener);
+        return () => ModelInfo.listeners.delete(listener);
+    }
+
+    /**
+     * @param {number} count
+     * @returns {string} e.g. "12.3k"
+     */
+    function formatCount(count) {
+        if (count >= 1e6) return `${(count / 1e6).toFixed(1)}M`;
+        if (count >= 1e3) return `${(count / 1e3).toFixed(1)}k`;
+        return String(count);
+    }
+
+    /**
+     * One line for a card, e.g. "12.3k tris · 2 tex · 4.2 MB GPU"
+     * @param {Object} info - Info from query()
+     * @returns {string} Summary, or '' when there is nothing to show
+     */
+    function summarize(info) {
+        if (!info || info.status !== 'ready') return '';
+        if (!info.valid) return '⚠️ Damaged file';
+        const parts = [`${formatCount(info.triangles)} tris`];
+        if (info.textureCount > 0) parts.push(`${info.textureCount} tex`);
+        parts.push(`${(info.gpuBytes / (1024 * 1024)).toFixed(1)} MB GPU`);
+        return parts.join(' · ');
+    }
+
+    window.addEventListener('androidnative', (event) => {
+        event.detail.forEach(({ type, data }) => {
+            if (type !== 'onModelIndexed') return;
+            ModelInfo.known.set(data.url, data.info);
+            ModelInfo.listeners.forEach((listener) => {
+                try {
+                    listener(data.url, data.info);
+                } catch (error) {
+                    console.error('❌ Model info listener failed:', error);
+                }
+            });
+        });
+    });
+
+    window.ModelInfo = {
+        isAvailable,
+        query,
+        get,
+        onUpdate,
+        summarize
+    };
+})();
@@ -0,0 +1,283 @@
+/**
+ * native-transport.js
+ *
+ * Binary data between the Android app and the page without base64 strings:
+ * - fetchBlob() reads /_native/blobs/ URLs handed out by the app as ArrayBuffers,
+ *   optionally a byte range at a time
+ * - openChannel() / send() / onMessage() use a MessagePort that carries ArrayBuffers,
+ *   for small binary messages (first byte is the message type)
+ * - sendFile() streams a File/Blob to the app over that port in chunks
+ * - benchmark() compares both with the base64-over-JavascriptInterface path
+ */
+
+(function() {
+    'use strict';
+
+    const PORT_MESSAGE = 'nomiva-binary-port';
+    const TYPE_ECHO = 1;
+    const TYPE_IMAGE_CHUNK = 2;
+    const FLAG_LAST = 1;
+    const FILE_CHUNK_BYTES = 512 * 1024;
+
+    const NativeTransport = {
+        port: null,
+        portPromise: null,
+        listeners: new Map()
+    };
+
+    /**
+     * @returns {boolean} Whether the app serves /_native/blobs/
+     */
+    function isAvailable() {
+        return !!(window.AndroidAds && window.AndroidAds.releaseBlob);
+    }
+
+    /**
+     * Reads a native blob URL into an ArrayBuffer
+     * @param {string} url - URL from the app (/_native/blobs/...)
+     * @param {{start: number, end: number}} [range] - Inclusive byte range
+     * @returns {Promise<ArrayBuffer>}
+     */
+    async function fetchBlob(url, range) {
+        const headers = range ? { Range: `bytes=${range.start}-${range.end}` } : {};
+        const response = await fetch(url, { headers, cache: 'no-store' });
+        if (!response.ok) {
+            throw new Error(`Native blob unavailable: ${response.status}`);
+        }
+        return response.arrayBuffer();
+    }
+
+    /**
+     * Opens the binary MessagePort (once per page load)
+     * @returns {Promise<MessagePort|null>} null when the WebView can't carry ArrayBuffers over ports
+     */
+    function openChannel() {
+        if (NativeTransport.portPromise) return NativeTransport.portPromise;
+
+        NativeTransport.portPromise = new Promise((resolve) => {
+            if (!window.AndroidAds || !window.AndroidAds.openBinaryChannel) {
+                resolve(null);
+                return;
+            }
+            const onWindowMessage = (event) => {
+                if (event.data !== PORT_MESSAGE || !event.ports || !event.ports[0]) return;
+                window.removeEventListener('message', onWindowMessage);
+                NativeTransport.port = event.ports[0];
+                NativeTransport.port.onmessage = handlePortMessage;
+                console.log('🔌 Binary channel open');
+                resolve(NativeTransport.port);
+            };
+            window.addEventListener('message', onWindowMessage);
+            if (!window.AndroidAds.openBinaryChannel()) {
+                window.removeEventListener('message', onWindowMessage);
+                resolve(null);
+            }
+        });
+        return NativeTransport.portPromise;
+    }
+
+    /**
+     * Routes port messages to the listeners for their type byte
+     * @param {MessageEvent} event - Port message
+     */
+    function handlePortMessage(event) {
+        const data = event.data;
+        if (!(data instanceof ArrayBuffer) || data.byteLength === 0) return;
+        const type = new Uint8Array(data, 0, 1)[0];
+        (NativeTransport.listeners.get(type) || []).forEach(callback => callback(data));
+    }
+
+    /**
+     * Registers a listener for one message type
+     * @param {number} type - Type byte
+     * @param {Function} callback - Called with the whole message (ArrayBuffer)
+     */
+    function onMessage(type, callback) {
+        if (!NativeTransport.listeners.has(type)) NativeTransport.listeners.set(type, []);
+        NativeTransport.listeners.get(type).push(callback);
+    }
+
+    /**
+     * Sends a typed binary message; the payload buffer is transferred, not copied
+     * @param {number} type - Type byte
+     * @param {Uint8Array} payload - Message body
+     * @returns {Promise<boolean>} false when no channel is available
+     */
+    async function send(type, payload) {
+        const port = await openChannel();
+        if (!port) return false;
+        const message = new Uint8Array(payload.length + 1);
+        message[0] = type;
+        message.set(payload, 1);
+        port.postMessage(message.buffer, [message.buffer]);
+        return true;
+    }
+
+    /**
+     * Streams a file as chunk messages ([type][flags][id length][id][bytes]); only one
+     * chunk is in memory at a time
+     * @param {number} type - Type byte the app routes on
+     * @param {string} id - ASCII id the app expects (at most 255 characters)
+     * @param {Blob} file - File or Blob to send
+     * @returns {Promise<boolean>} false when no channel is available
+     */
+    async function sendFile(type, id, file) {
+        const port = await openChannel();
+        if (!port) return false;
+        const idBytes = new TextEncoder().encode(id);
+        let offset = 0;
+        do {
+            const chunk = new Uint8Array(await file.slice(offset, offset + FILE_CHUNK_BYTES).arrayBuffer());
+            offset += chunk.length;
+            const message = new Uint8Array(3 + idBytes.length + chunk.length);
+            message[0] = type;
+            message[1] = offset >= file.size ? FLAG_LAST : 0;
+            message[2] = idBytes.length;
+            message.set(idBytes, 3);
+            message.set(chunk, 3 + idBytes.length);
+            port.postMessage(message.buffer, [message.buffer]);
+        } while (offset < file.size);
+        return true;
+    }
+
+    /* ========================================
+       Benchmark
+       ======================================== */
+
+    /**
+     * Decodes base64 the way a page would without native help
+     * @param {string} base64 - Encoded data
+     * @returns {Uint8Array}
+     */
+    function decodeBase64(base64) {
+        const binary = atob(base64);
+        const bytes = new Uint8Array(binary.length);
+        for (let i = 0; i < binary.length; i++) {
+            bytes[i] = binary.charCodeAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Best of several timed runs
+     * @param {number} runs - Number of runs
+     * @param {Function} task - Async task returning the bytes it received
+     * @returns {Promise<{ms: number, bytes: Uint8Array}>}
+     */
+    async function bestOf(runs, task) {
+        let best = Infinity;
+        let bytes = null;
+        for (let i = 0; i < runs; i++) {
+            const start = performance.now();
+            bytes = await task();
+            best = Math.min(best, performance.now() - start);
+        }
+        return { ms: best, bytes };
+    }
+
+    /**
+     * Same length and same bytes at a few positions
+     * @param {Uint8Array} a - First buffer
+     * @param {Uint8Array} b - Second buffer
+     * @returns {boolean}
+     */
+    function sameBytes(a, b) {
+        if (a.length !== b.length) return false;
+        for (let i = 0; i < a.length; i += Math.max(1, Math.floor(a.length / 64))) {
+            if (a[i] !== b[i]) return false;
+        }
+        return a.length === 0 || a[a.length - 1] === b[b.length - 1];
+    }
+
+    /**
+     * Throughput of fetch() on native blobs vs base64 strings, and round trips of small
+     * messages over the port vs bridge calls. Run from the remote DevTools console.
+     * @param {Object} [options] - { sizes: number[], runs: number, messages: number }
+     * @returns {Promise<Object>} Results, also printed as tables
+     */
+    async function benchmark(options = {}) {
+        if (!window.AndroidAds || !window.AndroidAds.publishBenchmarkPayload) {
+            throw new Error('Native transport not available');
+        }
+        const sizes = options.sizes || [64 * 1024, 1024 * 1024, 8 * 1024 * 1024];
+        const runs = options.runs || 3;
+        const mb = (bytes, ms) => +(bytes / 1024 / 1024 / (ms / 1000)).toFixed(1);
+        const results = { bulk: [], messages: null };
+
+        for (const size of sizes) {
+            const base64 = await bestOf(runs, async () =>
+                decodeBase64(window.AndroidAds.getBenchmarkPayloadBase64(size)));
+            const blob = await bestOf(runs, async () => {
+                const url = window.AndroidAds.publishBenchmarkPayload(size);
+                const bytes = new Uint8Array(await fetchBlob(url));
+                window.AndroidAds.releaseBlob(url);
+                return bytes;
+            });
+            const half = Math.floor(size / 2);
+            const ranged = await bestOf(runs, async () => {
+                const url = window.AndroidAds.publishBenchmarkPayload(size);
+                const bytes = new Uint8Array(await fetchBlob(url, { start: half, end: size - 1 }));
+                window.AndroidAds.releaseBlob(url);
+                return bytes;
+            });
+            results.bulk.push({
+                size,
+                base64Ms: +base64.ms.toFixed(1),
+                base64MBps: mb(size, base64.ms),
+                fetchMs: +blob.ms.toFixed(1),
+                fetchMBps: mb(size, blob.ms),
+                rangeMs: +ranged.ms.toFixed(1),
+                identical: sameBytes(base64.bytes, blob.bytes)
+                    && sameBytes(base64.bytes.subarray(half), ranged.bytes)
+            });
+        }
+
+        const count = options.messages || 500;
+        const payload = new Uint8Array(256);
+        const bridgeStart = performance.now();
+        for (let i = 0; i < count; i++) {
+            decodeBase64(window.AndroidAds.getBenchmarkPayloadBase64(payload.length));
+        }
+        const bridgeMs = performance.now() - bridgeStart;
+
+        const port = await openChannel();
+        let portMs = null;
+        if (port) {
+            let pendingEcho = null;
+            onMessage(TYPE_ECHO, (data) => {
+                if (pendingEcho) pendingEcho(data);
+            });
+            const portStart = performance.now();
+            for (let i = 0; i < count; i++) {
+                const echoed = new Promise(resolve => { pendingEcho = resolve; });
+                await send(TYPE_ECHO, payload);
+                await echoed;
+            }
+            portMs = performance.now() - portStart;
+            pendingEcho = null;
+        }
+        results.messages = {
+            count,
+            bytes: payload.length,
+            bridgeMsEach: +(bridgeMs / count).toFixed(3),
+            portRoundTripMsEach: portMs !== null ? +(portMs / count).toFixed(3) : null
+        };
+
+        console.log('📊 Native transport benchmark');
+        console.table(results.bulk);
+        console.table([results.messages]);
+        return results;
+    }
+
+    window.NativeTransport = {
+        TYPE_ECHO,
+        TYPE_IMAGE_CHUNK,
+        isAvailable,
+        fetchBlob,
+        openChannel,
+        onMessage,
+        send,
+        sendFile,
+        benchmark
+    };
+})();